@@ -0,0 +1,42 @@
+package benchmark;
+
+/**
+ * 基准测试用例
+ * 相当于 JMH 中一个带 @Setup/@TearDown 的 @State 类加一个 @Benchmark 方法：
+ * setup 在预热前执行一次，run 被测量线程反复调用，teardown 在测量结束后执行一次。
+ */
+public interface Benchmark {
+
+    /**
+     * 用例名称，形如 模块.方法，用于 --only 过滤和结果输出
+     */
+    String name();
+
+    /**
+     * 是否需要数据库，数据库不可用时跳过这类用例
+     */
+    default boolean needsDatabase() {
+        return true;
+    }
+
+    /**
+     * 准备测试状态（例如读取种子数据的ID范围）
+     * @param context 运行参数和种子数据信息
+     */
+    default void setup(BenchmarkContext context) throws Exception {
+    }
+
+    /**
+     * 执行一次被测操作
+     * @param op 全局递增的操作序号，多线程时各线程的序号互不相同，可用来选取不重复的测试数据
+     * @return 操作结果，由运行器消费，避免被编译器优化掉
+     * @throws Exception 操作失败，计入错误数
+     */
+    Object run(long op) throws Exception;
+
+    /**
+     * 清理测试产生的数据
+     */
+    default void teardown() throws Exception {
+    }
+}
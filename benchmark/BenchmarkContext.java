@@ -0,0 +1,46 @@
+package benchmark;
+
+/**
+ * 基准测试运行参数与种子数据信息
+ */
+public final class BenchmarkContext {
+    private final DataSeeder.Scale scale;
+    private final DataSeeder.DataSet dataSet;
+    private final int threads;
+
+    BenchmarkContext(DataSeeder.Scale scale, DataSeeder.DataSet dataSet, int threads) {
+        this.scale = scale;
+        this.dataSet = dataSet;
+        this.threads = threads;
+    }
+
+    public DataSeeder.Scale getScale() {
+        return scale;
+    }
+
+    /**
+     * 种子数据信息
+     * @throws IllegalStateException 数据库中没有种子数据
+     */
+    public DataSeeder.DataSet getDataSet() {
+        if (dataSet == null) {
+            throw new IllegalStateException("数据库中没有种子数据，请先使用 --seed 生成");
+        }
+        return dataSet;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * 由操作序号得到 [0, bound) 内均匀分布的伪随机下标，不同线程之间不共享随机数生成器
+     */
+    public static int pick(long op, int bound) {
+        long z = op * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) Math.floorMod(z, (long) bound);
+    }
+}
@@ -0,0 +1,387 @@
+package benchmark;
+
+import server.util.DatabaseUtil;
+import server.util.LatencyHistogram;
+import server.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 服务端性能基准测试运行器
+ * 按 JMH 的方式组织测量：每个用例先预热若干轮，再测量若干轮，每轮固定时长，多个线程并发调用被测方法；
+ * 报告每轮吞吐量、吞吐量均值±标准差，以及测量阶段的延迟分布（p50/p90/p99/p99.9/最大值）。
+ * 默认每个用例在独立的子JVM中运行（--forks），避免前一个用例的JIT编译结果和缓存状态影响后一个用例。
+ *
+ * 用法: java -cp "bin:libs/*" benchmark.BenchmarkRunner [选项]
+ *   --scale=10k|100k|1m   种子数据规模，默认 10k
+ *   --seed                运行前检查并生成种子数据（规模不符时重新生成）
+ *   --force               允许向名称中不含 bench 的数据库写入种子数据
+ *   --only=正则           只运行名称匹配的用例
+ *   --list                列出所有用例
+ *   --warmup=N            预热轮数，默认 3
+ *   --iterations=N        测量轮数，默认 5
+ *   --time=毫秒           每轮时长，默认 2000
+ *   --threads=N           并发线程数，默认 1
+ *   --forks=N             每个用例启动的子JVM数，默认 1；0 表示在当前JVM中运行
+ *   --verbose             保留服务端的INFO日志（默认只输出WARN及以上）
+ */
+public class BenchmarkRunner {
+
+    private static final String[] LOG_MODULES = {"net", "user", "library", "store", "forum", "course", "db"};
+
+    private DataSeeder.Scale scale = DataSeeder.Scale.SMALL;
+    private boolean seed;
+    private boolean force;
+    private Pattern only;
+    private boolean list;
+    private int warmup = 3;
+    private int iterations = 5;
+    private long timeMillis = 2000;
+    private int threads = 1;
+    private int forks = 1;
+    private boolean verbose;
+
+    /** 消费被测方法的返回值，避免调用被JIT当作死代码消除 */
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        try {
+            runner.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[Bench] " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        int failures;
+        try {
+            failures = runner.run();
+        } finally {
+            DatabaseUtil.shutdownPool();
+            Log.shutdown();
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private void parse(String[] args) {
+        for (String arg : args) {
+            String key = arg;
+            String value = null;
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                key = arg.substring(0, eq);
+                value = arg.substring(eq + 1);
+            }
+            switch (key) {
+                case "--scale":
+                    scale = DataSeeder.Scale.parse(value);
+                    break;
+                case "--seed":
+                    seed = true;
+                    break;
+                case "--force":
+                    force = true;
+                    break;
+                case "--only":
+                    only = Pattern.compile(value);
+                    break;
+                case "--list":
+                    list = true;
+                    break;
+                case "--warmup":
+                    warmup = parseInt(key, value, 0);
+                    break;
+                case "--iterations":
+                    iterations = parseInt(key, value, 1);
+                    break;
+                case "--time":
+                    timeMillis = parseInt(key, value, 1);
+                    break;
+                case "--threads":
+                    threads = parseInt(key, value, 1);
+                    break;
+                case "--forks":
+                    forks = parseInt(key, value, 0);
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + arg);
+            }
+        }
+    }
+
+    private static int parseInt(String key, String value, int min) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= min) {
+                return n;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(key + " 需要不小于 " + min + " 的整数: " + value);
+    }
+
+    private static List<Benchmark> allBenchmarks() {
+        List<Benchmark> all = new ArrayList<>();
+        all.addAll(MessageBenchmarks.all());
+        all.addAll(ServiceBenchmarks.all());
+        return all;
+    }
+
+    /**
+     * @return 失败的用例数
+     */
+    private int run() throws Exception {
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark benchmark : allBenchmarks()) {
+            if (only == null || only.matcher(benchmark.name()).find()) {
+                selected.add(benchmark);
+            }
+        }
+        if (list) {
+            for (Benchmark benchmark : selected) {
+                System.out.println(benchmark.name() + (benchmark.needsDatabase() ? "" : "  (无需数据库)"));
+            }
+            return 0;
+        }
+        if (!verbose) {
+            for (String module : LOG_MODULES) {
+                Log.setLevel(module, Log.Level.WARN);
+            }
+        }
+
+        boolean needsDatabase = selected.stream().anyMatch(Benchmark::needsDatabase);
+        DataSeeder.DataSet dataSet = null;
+        boolean databaseAvailable = false;
+        if (needsDatabase) {
+            databaseAvailable = DatabaseUtil.testConnection();
+            if (!databaseAvailable) {
+                System.out.println("[Bench] 数据库不可用，跳过需要数据库的用例");
+            } else {
+                if (seed) {
+                    DataSeeder.ensureSeeded(scale, force);
+                }
+                dataSet = DataSeeder.load();
+                if (dataSet == null) {
+                    System.out.println("[Bench] 数据库中没有种子数据（可使用 --seed 生成），跳过需要数据库的用例");
+                    databaseAvailable = false;
+                } else {
+                    System.out.println("[Bench] 种子数据: " + dataSet);
+                }
+            }
+        }
+
+        System.out.printf("[Bench] 预热 %d 轮，测量 %d 轮，每轮 %d ms，线程数 %d，子JVM数 %d%n",
+                warmup, iterations, timeMillis, threads, forks);
+        BenchmarkContext context = new BenchmarkContext(scale, dataSet, threads);
+        int failures = 0;
+        for (Benchmark benchmark : selected) {
+            if (benchmark.needsDatabase() && !databaseAvailable) {
+                continue;
+            }
+            boolean ok;
+            if (forks == 0) {
+                ok = runInProcess(benchmark, context);
+            } else {
+                ok = true;
+                for (int f = 1; f <= forks; f++) {
+                    ok &= runForked(benchmark, f);
+                }
+            }
+            if (!ok) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * 在子JVM中运行单个用例，子JVM使用相同的类路径和测量参数，结果直接输出到当前控制台
+     */
+    private boolean runForked(Benchmark benchmark, int fork) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(BenchmarkRunner.class.getName());
+        command.add("--scale=" + scale.getLabel());
+        command.add("--only=^" + Pattern.quote(benchmark.name()) + "$");
+        command.add("--warmup=" + warmup);
+        command.add("--iterations=" + iterations);
+        command.add("--time=" + timeMillis);
+        command.add("--threads=" + threads);
+        command.add("--forks=0");
+        if (verbose) {
+            command.add("--verbose");
+        }
+        System.out.printf("%n[Bench] # 子JVM %d/%d: %s%n", fork, forks, benchmark.name());
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        int exit = process.waitFor();
+        if (exit != 0) {
+            System.out.println("[Bench] 子JVM异常退出，退出码: " + exit);
+        }
+        return exit == 0;
+    }
+
+    private boolean runInProcess(Benchmark benchmark, BenchmarkContext context) throws Exception {
+        System.out.printf("%n[Bench] %s%n", benchmark.name());
+        try {
+            benchmark.setup(context);
+        } catch (Exception e) {
+            System.out.println("[Bench] 准备失败: " + e);
+            return false;
+        }
+        AtomicLong sequence = new AtomicLong();
+        boolean ok = true;
+        try {
+            for (int i = 1; i <= warmup; i++) {
+                Iteration result = iterate(benchmark, sequence, null);
+                System.out.printf("  预热 %d: %s%n", i, result.describe());
+                ok &= result.errors == 0;
+            }
+            LatencyHistogram histogram = new LatencyHistogram();
+            double[] throughputs = new double[iterations];
+            for (int i = 1; i <= iterations; i++) {
+                Iteration result = iterate(benchmark, sequence, histogram);
+                throughputs[i - 1] = result.throughput();
+                System.out.printf("  测量 %d: %s%n", i, result.describe());
+                ok &= result.errors == 0;
+            }
+            report(throughputs, histogram.snapshot());
+        } finally {
+            try {
+                benchmark.teardown();
+            } catch (Exception e) {
+                System.out.println("[Bench] 清理失败: " + e);
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * 运行一轮：所有线程同时开始，到时后各自完成当前操作再退出
+     */
+    private Iteration iterate(Benchmark benchmark, AtomicLong sequence, LatencyHistogram histogram)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Worker[] workers = new Worker[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Worker(benchmark, sequence, histogram, start);
+            workers[t].setName("bench-" + t);
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        long deadline = begin + timeMillis * 1_000_000L;
+        for (Worker worker : workers) {
+            worker.deadline = deadline;
+        }
+        start.countDown();
+        Iteration result = new Iteration();
+        for (Worker worker : workers) {
+            worker.join();
+            result.ops += worker.ops;
+            result.errors += worker.errors;
+            if (result.firstError == null) {
+                result.firstError = worker.firstError;
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - begin;
+        return result;
+    }
+
+    private static void report(double[] throughputs, LatencyHistogram.Snapshot latency) {
+        double mean = 0;
+        for (double t : throughputs) {
+            mean += t;
+        }
+        mean /= throughputs.length;
+        double variance = 0;
+        for (double t : throughputs) {
+            variance += (t - mean) * (t - mean);
+        }
+        double stddev = throughputs.length > 1 ? Math.sqrt(variance / (throughputs.length - 1)) : 0;
+        System.out.printf(Locale.ROOT, "  结果: %.1f ± %.1f ops/s%n", mean, stddev);
+        System.out.printf(Locale.ROOT, "  延迟(us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f (共 %d 次)%n",
+                latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(90) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0,
+                latency.getValueAtPercentile(99.9) / 1000.0,
+                latency.getMax() / 1000.0,
+                latency.getCount());
+    }
+
+    private static final class Worker extends Thread {
+        private final Benchmark benchmark;
+        private final AtomicLong sequence;
+        private final LatencyHistogram histogram;
+        private final CountDownLatch start;
+        volatile long deadline;
+        long ops;
+        long errors;
+        Exception firstError;
+
+        Worker(Benchmark benchmark, AtomicLong sequence, LatencyHistogram histogram, CountDownLatch start) {
+            this.benchmark = benchmark;
+            this.sequence = sequence;
+            this.histogram = histogram;
+            this.start = start;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            long end = deadline;
+            long now = System.nanoTime();
+            while (now < end) {
+                try {
+                    sink = benchmark.run(sequence.getAndIncrement());
+                } catch (Exception e) {
+                    errors++;
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                }
+                long after = System.nanoTime();
+                if (histogram != null) {
+                    histogram.record(after - now);
+                }
+                ops++;
+                now = after;
+            }
+        }
+    }
+
+    private static final class Iteration {
+        long ops;
+        long errors;
+        long elapsedNanos;
+        Exception firstError;
+
+        double throughput() {
+            return ops * 1e9 / elapsedNanos;
+        }
+
+        String describe() {
+            String text = String.format(Locale.ROOT, "%.1f ops/s", throughput());
+            if (errors > 0) {
+                text += String.format("，错误 %d 次（首个: %s）", errors, firstError);
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package benchmark;
+
+import server.util.DatabaseUtil;
+import server.util.MD5Util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 基准测试数据生成器
+ * 按规模（10k/100k/1m）在当前配置的数据库中生成合成数据，所有数据都带有 bench 标记，可以整体删除重建：
+ *   用户登录ID以 bench_ 开头（删除用户时级联删除学生、选课、主题、回复、订单），
+ *   课程代码以 BENCH 开头，图书ISBN以 BENCH- 开头，商品品牌为 bench。
+ *
+ * 规模 N 对应的行数：回复、图书各 N 行；主题、学生、商品各 N/10 行（至少1000）；课程 N/1000 行（至少50）；
+ * 每个学生预先选5门课。数据由固定随机种子生成，同一规模每次生成的内容相同。
+ *
+ * 为避免误写业务数据，只在库名包含 bench 的数据库（例如 vcampus_bench）上生成，除非指定 --force。
+ */
+public class DataSeeder {
+
+    static final String USER_PREFIX = "bench_s";
+    static final String COURSE_PREFIX = "BENCH";
+    static final String ISBN_PREFIX = "BENCH-";
+    static final String PRODUCT_BRAND = "bench";
+    static final String SEMESTER = "2024秋";
+    static final String ACADEMIC_YEAR = "2024-2025";
+    static final int COURSES_PER_STUDENT = 5;
+
+    private static final int BATCH_ROWS = 1000;
+    private static final long SEED = 42L;
+    private static final String CHARS = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处队南给色光门即保治北造百规热领七海口东导器压志世金增争济阶油思术极交受联什认六共权收证改清己美再采转更单风切打白教速花带安场身车例真务具万每目至达走积示议声报斗完类";
+    private static final String[] DEPARTMENTS = {"计算机学院", "软件学院", "电子工程学院", "数学学院", "物理学院", "外国语学院"};
+    private static final String[] BOOK_CATEGORIES = {"计算机", "文学", "历史", "数学", "经济", "艺术"};
+    private static final String[] PRODUCT_CATEGORIES = {"文具", "生活用品", "食品", "电子产品", "书籍"};
+
+    private static volatile String[] vocabulary;
+
+    /**
+     * 数据规模
+     */
+    public enum Scale {
+        SMALL("10k", 10_000),
+        MEDIUM("100k", 100_000),
+        LARGE("1m", 1_000_000);
+
+        private final String label;
+        private final int rows;
+
+        Scale(String label, int rows) {
+            this.label = label;
+            this.rows = rows;
+        }
+
+        public String getLabel() { return label; }
+        public int getRows() { return rows; }
+
+        int students() { return Math.max(1000, rows / 10); }
+        int courses() { return Math.max(50, rows / 1000); }
+        int threads() { return Math.max(1000, rows / 10); }
+        int posts() { return rows; }
+        int books() { return rows; }
+        int products() { return Math.max(1000, rows / 10); }
+
+        public static Scale parse(String text) {
+            for (Scale scale : values()) {
+                if (scale.label.equalsIgnoreCase(text) || scale.name().equalsIgnoreCase(text)) {
+                    return scale;
+                }
+            }
+            throw new IllegalArgumentException("未知的数据规模: " + text + "，可选 10k/100k/1m");
+        }
+    }
+
+    /**
+     * 种子数据的标识信息，基准测试据此选取测试数据
+     */
+    public static final class DataSet {
+        final int[] studentIds;
+        final int[] studentUserIds;
+        final int[] courseIds;
+        final int minThreadId;
+        final int maxThreadId;
+        final int minProductId;
+        final int maxProductId;
+        final int books;
+
+        DataSet(int[] studentIds, int[] studentUserIds, int[] courseIds, int minThreadId, int maxThreadId,
+                int minProductId, int maxProductId, int books) {
+            this.studentIds = studentIds;
+            this.studentUserIds = studentUserIds;
+            this.courseIds = courseIds;
+            this.minThreadId = minThreadId;
+            this.maxThreadId = maxThreadId;
+            this.minProductId = minProductId;
+            this.maxProductId = maxProductId;
+            this.books = books;
+        }
+
+        @Override
+        public String toString() {
+            return "学生=" + studentIds.length + ", 课程=" + courseIds.length
+                    + ", 主题=" + (maxThreadId - minThreadId + 1) + ", 商品=" + (maxProductId - minProductId + 1)
+                    + ", 图书=" + books;
+        }
+    }
+
+    /**
+     * 生成搜索用的词表（主题、回复、书名都由这些词组成），与生成数据时使用的词表相同
+     */
+    static String[] vocabulary() {
+        String[] words = vocabulary;
+        if (words == null) {
+            Random random = new Random(SEED);
+            words = new String[2000];
+            for (int i = 0; i < words.length; i++) {
+                int len = 2 + random.nextInt(2);
+                StringBuilder sb = new StringBuilder(len);
+                for (int j = 0; j < len; j++) {
+                    sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+                }
+                words[i] = sb.toString();
+            }
+            vocabulary = words;
+        }
+        return words;
+    }
+
+    /**
+     * 确保数据库中有指定规模的种子数据，已有其他规模的数据时先删除再生成
+     * @param scale 数据规模
+     * @param force 是否允许在库名不含 bench 的数据库上生成
+     */
+    public static void ensureSeeded(Scale scale, boolean force) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            String database = currentDatabase(conn);
+            if (!force && (database == null || !database.toLowerCase(Locale.ROOT).contains("bench"))) {
+                throw new IllegalStateException("当前数据库 " + database + " 不是基准测试库（库名需包含 bench），"
+                        + "请用 init.sql 创建 vcampus_bench 并修改 db.url，或使用 --force");
+            }
+            int students = count(conn, "SELECT COUNT(*) FROM users WHERE login_id LIKE '" + USER_PREFIX + "%'");
+            int books = count(conn, "SELECT COUNT(*) FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%'");
+            if (students == scale.students() && books == scale.books()) {
+                System.out.println("[Bench][Seed] 数据库 " + database + " 已有 " + scale.getLabel() + " 规模的种子数据");
+                return;
+            }
+            if (students > 0 || books > 0) {
+                System.out.println("[Bench][Seed] 删除已有的种子数据: 学生=" + students + ", 图书=" + books);
+                clear(conn);
+            }
+            System.out.println("[Bench][Seed] 在数据库 " + database + " 中生成 " + scale.getLabel() + " 规模的种子数据...");
+            long start = System.currentTimeMillis();
+            seed(conn, scale);
+            System.out.println("[Bench][Seed] 种子数据生成完成, 耗时 " + (System.currentTimeMillis() - start) / 1000 + " s");
+        }
+    }
+
+    /**
+     * 读取已生成的种子数据信息
+     * @return 数据信息，没有种子数据时返回null
+     */
+    public static DataSet load() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            List<int[]> students = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT s.student_id, s.user_id FROM students s JOIN users u ON u.user_id = s.user_id "
+                            + "WHERE u.login_id LIKE ? ORDER BY s.student_id")) {
+                ps.setString(1, USER_PREFIX + "%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        students.add(new int[]{rs.getInt(1), rs.getInt(2)});
+                    }
+                }
+            }
+            if (students.isEmpty()) {
+                return null;
+            }
+            int[] studentIds = new int[students.size()];
+            int[] userIds = new int[students.size()];
+            for (int i = 0; i < students.size(); i++) {
+                studentIds[i] = students.get(i)[0];
+                userIds[i] = students.get(i)[1];
+            }
+            List<Integer> courses = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT course_id FROM courses WHERE course_code LIKE ? ORDER BY course_id")) {
+                ps.setString(1, COURSE_PREFIX + "%");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        courses.add(rs.getInt(1));
+                    }
+                }
+            }
+            int[] courseIds = courses.stream().mapToInt(Integer::intValue).toArray();
+            int[] threads = range(conn, "SELECT MIN(t.thread_id), MAX(t.thread_id) FROM forum_threads t "
+                    + "JOIN users u ON u.user_id = t.author_id WHERE u.login_id LIKE '" + USER_PREFIX + "%'");
+            int[] products = range(conn, "SELECT MIN(product_id), MAX(product_id) FROM products WHERE brand = '" + PRODUCT_BRAND + "'");
+            int books = count(conn, "SELECT COUNT(*) FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%'");
+            return new DataSet(studentIds, userIds, courseIds, threads[0], threads[1], products[0], products[1], books);
+        }
+    }
+
+    // ================= 生成 =================
+
+    private static void seed(Connection conn, Scale scale) throws SQLException {
+        Random random = new Random(SEED);
+        String[] words = vocabulary();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            // 用户与学生
+            String passwordHash = MD5Util.encrypt("bench123");
+            try (BatchInserter users = new BatchInserter(conn, "users", "login_id", "password", "role")) {
+                for (int i = 1; i <= scale.students(); i++) {
+                    users.add(String.format("%s%07d", USER_PREFIX, i), passwordHash, 0);
+                }
+            }
+            List<Integer> userIds = ids(conn, "SELECT user_id FROM users WHERE login_id LIKE '" + USER_PREFIX + "%' ORDER BY login_id");
+            try (BatchInserter students = new BatchInserter(conn, "students", "user_id", "name", "student_no", "gender",
+                    "department", "class_name", "major", "balance", "enrollment_year")) {
+                for (int i = 0; i < userIds.size(); i++) {
+                    String department = DEPARTMENTS[i % DEPARTMENTS.length];
+                    students.add(userIds.get(i), "学生" + words[random.nextInt(words.length)], String.format("BS%07d", i + 1),
+                            i % 2 == 0 ? "male" : "female", department, department + (i % 20 + 1) + "班",
+                            department.replace("学院", "") + "专业", 100000, 2021 + i % 4);
+                }
+            }
+            System.out.println("[Bench][Seed] 学生: " + userIds.size());
+
+            // 课程与预选课记录
+            try (BatchInserter courses = new BatchInserter(conn, "courses", "course_code", "course_name", "credits",
+                    "department", "teacher_name", "semester", "academic_year", "class_time", "location",
+                    "capacity", "enrolled_count", "status")) {
+                for (int i = 1; i <= scale.courses(); i++) {
+                    courses.add(String.format("%s%05d", COURSE_PREFIX, i), sentence(random, words, 2, 3), 1 + i % 4,
+                            DEPARTMENTS[i % DEPARTMENTS.length], "教师" + i, SEMESTER, ACADEMIC_YEAR,
+                            "周" + (1 + i % 5) + " " + (1 + 2 * (i % 5)) + "-" + (2 + 2 * (i % 5)) + "节",
+                            "教学楼" + (char) ('A' + i % 5) + (100 + i % 50), 1_000_000, 0, "active");
+                }
+            }
+            List<Integer> courseIds = ids(conn, "SELECT course_id FROM courses WHERE course_code LIKE '" + COURSE_PREFIX + "%' ORDER BY course_id");
+            List<Integer> studentIds = ids(conn, "SELECT s.student_id FROM students s JOIN users u ON u.user_id = s.user_id "
+                    + "WHERE u.login_id LIKE '" + USER_PREFIX + "%' ORDER BY s.student_id");
+            try (BatchInserter enrollments = new BatchInserter(conn, "enrollments", "student_id", "course_id", "semester",
+                    "academic_year", "status", "student_no", "course_code")) {
+                for (int s = 0; s < studentIds.size(); s++) {
+                    for (int k = 0; k < COURSES_PER_STUDENT; k++) {
+                        int c = preEnrolledCourse(s, k, courseIds.size());
+                        enrollments.add(studentIds.get(s), courseIds.get(c), SEMESTER, ACADEMIC_YEAR, "enrolled",
+                                String.format("BS%07d", s + 1), String.format("%s%05d", COURSE_PREFIX, c + 1));
+                    }
+                }
+            }
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("UPDATE courses c SET enrolled_count = (SELECT COUNT(*) FROM enrollments e "
+                        + "WHERE e.course_id = c.course_id AND e.status = 'enrolled') WHERE c.course_code LIKE '" + COURSE_PREFIX + "%'");
+            }
+            conn.commit();
+            System.out.println("[Bench][Seed] 课程: " + courseIds.size() + ", 选课记录: " + studentIds.size() * COURSES_PER_STUDENT);
+
+            // 论坛主题与回复
+            List<Integer> sections = ids(conn, "SELECT section_id FROM forum_sections WHERE status = 1");
+            long now = System.currentTimeMillis();
+            try (BatchInserter threads = new BatchInserter(conn, "forum_threads", "title", "content", "author_id",
+                    "section_id", "reply_count", "view_count", "like_count", "last_post_time", "is_pinned", "status", "created_time")) {
+                for (int i = 0; i < scale.threads(); i++) {
+                    Timestamp created = new Timestamp(now - (long) (scale.threads() - i) * 60_000L);
+                    threads.add(sentence(random, words, 3, 6), sentence(random, words, 15, 40),
+                            userIds.get(random.nextInt(userIds.size())),
+                            sections.isEmpty() ? null : sections.get(random.nextInt(sections.size())),
+                            scale.posts() / scale.threads(), random.nextInt(500), random.nextInt(50),
+                            created, i % 500 == 0, 1, created);
+                }
+            }
+            List<Integer> threadIds = ids(conn, "SELECT t.thread_id FROM forum_threads t JOIN users u ON u.user_id = t.author_id "
+                    + "WHERE u.login_id LIKE '" + USER_PREFIX + "%' ORDER BY t.thread_id");
+            System.out.println("[Bench][Seed] 主题: " + threadIds.size());
+            try (BatchInserter posts = new BatchInserter(conn, "forum_posts", "thread_id", "content", "author_id",
+                    "reply_level", "status")) {
+                for (int i = 0; i < scale.posts(); i++) {
+                    posts.add(threadIds.get(random.nextInt(threadIds.size())), sentence(random, words, 5, 25),
+                            userIds.get(random.nextInt(userIds.size())), 0, 1);
+                    progress("回复", i + 1, scale.posts());
+                }
+            }
+
+            // 图书
+            try (BatchInserter books = new BatchInserter(conn, "books", "isbn", "title", "author", "publisher",
+                    "category", "total_stock", "available_stock", "location", "status")) {
+                for (int i = 1; i <= scale.books(); i++) {
+                    books.add(String.format("%s%07d", ISBN_PREFIX, i), sentence(random, words, 2, 4),
+                            words[random.nextInt(words.length)] + words[random.nextInt(words.length)],
+                            words[random.nextInt(words.length)] + "出版社", BOOK_CATEGORIES[i % BOOK_CATEGORIES.length],
+                            5, 5, "图书馆" + (1 + i % 6) + "楼", "available");
+                    progress("图书", i, scale.books());
+                }
+            }
+
+            // 商品（库存足够大，下单测试不会因库存不足失败）
+            try (BatchInserter products = new BatchInserter(conn, "products", "product_name", "description", "price",
+                    "stock", "category", "brand")) {
+                for (int i = 1; i <= scale.products(); i++) {
+                    products.add(sentence(random, words, 1, 3), sentence(random, words, 5, 15),
+                            1 + random.nextInt(20000) / 100.0, 1_000_000_000, PRODUCT_CATEGORIES[i % PRODUCT_CATEGORIES.length],
+                            PRODUCT_BRAND);
+                }
+            }
+            System.out.println("[Bench][Seed] 回复: " + scale.posts() + ", 图书: " + scale.books() + ", 商品: " + scale.products());
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * 第 s 个学生预选的第 k 门课程（课程下标），基准测试选课时跳过这些课程
+     */
+    static int preEnrolledCourse(int s, int k, int courses) {
+        return (s * 7 + k) % courses;
+    }
+
+    private static void clear(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // 删除用户时级联删除学生、选课记录、主题、回复、订单和购物车
+            st.executeUpdate("DELETE FROM users WHERE login_id LIKE '" + USER_PREFIX + "%'");
+            st.executeUpdate("DELETE FROM courses WHERE course_code LIKE '" + COURSE_PREFIX + "%'");
+            st.executeUpdate("DELETE FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%'");
+            st.executeUpdate("DELETE FROM products WHERE brand = '" + PRODUCT_BRAND + "'");
+        }
+    }
+
+    private static String sentence(Random random, String[] words, int min, int max) {
+        int n = min + random.nextInt(max - min + 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(words[random.nextInt(words.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void progress(String what, int done, int total) {
+        if (total >= 100_000 && done % (total / 10) == 0) {
+            System.out.println("[Bench][Seed] " + what + ": " + done + "/" + total);
+        }
+    }
+
+    private static String currentDatabase(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT DATABASE()")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private static int count(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int[] range(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return new int[]{rs.getInt(1), rs.getInt(2)};
+        }
+    }
+
+    private static List<Integer> ids(Connection conn, String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 多行 INSERT 批量写入，每 BATCH_ROWS 行执行一条语句并提交
+     */
+    static final class BatchInserter implements AutoCloseable {
+        private final Connection conn;
+        private final String table;
+        private final String[] columns;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_ROWS);
+        private PreparedStatement fullBatch;
+
+        BatchInserter(Connection conn, String table, String... columns) {
+            this.conn = conn;
+            this.table = table;
+            this.columns = columns;
+        }
+
+        void add(Object... values) throws SQLException {
+            rows.add(values);
+            if (rows.size() == BATCH_ROWS) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            PreparedStatement ps;
+            if (rows.size() == BATCH_ROWS) {
+                if (fullBatch == null) {
+                    fullBatch = conn.prepareStatement(sql(BATCH_ROWS));
+                }
+                ps = fullBatch;
+            } else {
+                ps = conn.prepareStatement(sql(rows.size()));
+            }
+            try {
+                int index = 1;
+                for (Object[] row : rows) {
+                    for (Object value : row) {
+                        ps.setObject(index++, value);
+                    }
+                }
+                ps.executeUpdate();
+                conn.commit();
+            } finally {
+                if (ps != fullBatch) {
+                    ps.close();
+                }
+            }
+            rows.clear();
+        }
+
+        private String sql(int rowCount) {
+            StringBuilder sb = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                    .append(String.join(", ", columns)).append(") VALUES ");
+            String placeholders = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+            for (int i = 0; i < rowCount; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(placeholders);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                if (fullBatch != null) {
+                    fullBatch.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package benchmark;
+
+import common.protocol.Message;
+import common.protocol.MessageType;
+import common.vo.CourseVO;
+import common.vo.ProductVO;
+import common.vo.ThreadVO;
+import common.vo.UserVO;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 场景脚本中的请求步骤
+ * 每个步骤对应客户端界面上的一次操作，按真实客户端的格式构造请求数据。
+ * 需要主题、课程、商品ID的步骤从之前的列表响应中随机选取（所有模拟客户端共享），
+ * 还没有列表时先发一次列表请求。
+ */
+enum LoadAction {
+    /** 登录（账号按 accounts 设置轮流分配），之后的请求以该学生身份发送 */
+    LOGIN(MessageType.LOGIN_REQUEST),
+    LOGOUT(MessageType.LOGOUT_REQUEST),
+    HEARTBEAT(MessageType.HEARTBEAT),
+    /** 论坛主题列表 */
+    THREADS(MessageType.GET_ALL_THREADS_REQUEST),
+    /** 论坛主题分页（第一页） */
+    FEED(MessageType.GET_THREAD_FEED_REQUEST),
+    /** 打开随机主题的详情 */
+    THREAD(MessageType.GET_THREAD_DETAIL_REQUEST),
+    /** 随机主题的回复列表 */
+    POSTS(MessageType.GET_POSTS_REQUEST),
+    /** 用词表中的随机词搜索论坛 */
+    SEARCH_THREADS(MessageType.SEARCH_THREADS_REQUEST),
+    /** 课程列表 */
+    COURSES(MessageType.GET_ALL_COURSES_REQUEST),
+    /** 选一门随机课程，越靠前的课程被选中的概率越大（模拟热门课程） */
+    ENROLL(MessageType.ENROLL_COURSE_REQUEST),
+    /** 我的选课 */
+    MY_COURSES(MessageType.GET_STUDENT_ENROLLMENTS_REQUEST),
+    /** 商品搜索（空关键字，即全部商品） */
+    PRODUCTS(MessageType.SEARCH_PRODUCTS_REQUEST),
+    /** 随机商品加入购物车 */
+    ADD_TO_CART(MessageType.ADD_TO_CART_REQUEST),
+    /** 下单：随机一到三种商品，每种一到两件 */
+    CHECKOUT(MessageType.CREATE_ORDER_REQUEST),
+    /** 用词表中的随机词搜索图书 */
+    SEARCH_BOOKS(MessageType.SEARCH_BOOK_REQUEST);
+
+    private static final String[] WORDS = DataSeeder.vocabulary();
+
+    private static volatile int[] threadIds;
+    private static volatile int[] courseIds;
+    private static volatile int[] productIds;
+
+    final MessageType type;
+
+    LoadAction(MessageType type) {
+        this.type = type;
+    }
+
+    /**
+     * 脚本中的步骤名：枚举名的小写形式，下划线写作连字符，例如 search-threads
+     */
+    static LoadAction parse(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知步骤: " + name);
+        }
+    }
+
+    String scriptName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * 该步骤需要先知道哪种列表
+     * @return 需要的列表步骤，不需要时返回null
+     */
+    LoadAction prerequisite() {
+        switch (this) {
+            case THREAD:
+            case POSTS:
+                return threadIds == null ? THREADS : null;
+            case ENROLL:
+                return courseIds == null ? COURSES : null;
+            case ADD_TO_CART:
+            case CHECKOUT:
+                return productIds == null ? PRODUCTS : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 构造请求消息
+     */
+    Message request(LoadClient client) {
+        switch (this) {
+            case LOGIN:
+                return new Message(type, new UserVO(client.account(), client.password(), null));
+            case FEED: {
+                Map<String, Object> params = new HashMap<>();
+                params.put("pageSize", 20);
+                return new Message(type, params);
+            }
+            case THREAD:
+            case POSTS:
+                return new Message(type, pick(client, threadIds, false));
+            case SEARCH_THREADS:
+            case SEARCH_BOOKS:
+                return new Message(type, WORDS[client.random().nextInt(WORDS.length)]);
+            case ENROLL:
+                return new Message(type, pick(client, courseIds, true));
+            case PRODUCTS:
+                return new Message(type, "");
+            case ADD_TO_CART:
+                return new Message(type, new Object[]{client.userId(), pick(client, productIds, false), 1});
+            case CHECKOUT: {
+                int kinds = 1 + client.random().nextInt(3);
+                Integer[] products = new Integer[kinds];
+                Integer[] quantities = new Integer[kinds];
+                for (int i = 0; i < kinds; i++) {
+                    products[i] = pick(client, productIds, false);
+                    quantities[i] = 1 + client.random().nextInt(2);
+                }
+                Map<String, Object> params = new HashMap<>();
+                params.put("userId", client.userId());
+                params.put("productIds", Arrays.asList(products));
+                params.put("quantities", Arrays.asList(quantities));
+                return new Message(type, params);
+            }
+            default:
+                return new Message(type);
+        }
+    }
+
+    /**
+     * 从成功的列表响应中记录ID，供之后的步骤使用
+     */
+    void learn(Message response) {
+        if (!(response.getData() instanceof List)) {
+            return;
+        }
+        List<?> list = (List<?>) response.getData();
+        if (list.isEmpty()) {
+            return;
+        }
+        if (this == THREADS && threadIds == null) {
+            threadIds = list.stream().mapToInt(o -> ((ThreadVO) o).getThreadId()).toArray();
+        } else if (this == COURSES && courseIds == null) {
+            courseIds = list.stream().mapToInt(o -> ((CourseVO) o).getCourseId()).toArray();
+        } else if (this == PRODUCTS && productIds == null) {
+            productIds = list.stream().mapToInt(o -> ((ProductVO) o).getProductId()).toArray();
+        }
+    }
+
+    private static Integer pick(LoadClient client, int[] ids, boolean skewed) {
+        if (ids == null) {
+            // 列表请求失败或为空，发送一个不存在的ID，由服务器返回失败
+            return -1;
+        }
+        double u = client.random().nextDouble();
+        return ids[(int) (ids.length * (skewed ? u * u * u : u))];
+    }
+}
@@ -0,0 +1,144 @@
+package benchmark;
+
+import common.protocol.Message;
+import common.protocol.MessageTransport;
+import common.vo.UserVO;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 模拟客户端
+ * 一个客户端对应一条连接，按场景顺序同步发送请求：发出请求后在本线程中读取响应，
+ * 跳过服务器主动推送的消息（请求ID为0），直到读到请求ID相同的响应。
+ * 请求超时或连接出错后关闭连接，下一个请求重新连接。
+ */
+final class LoadClient implements AutoCloseable {
+
+    private static final AtomicInteger NEXT_ACCOUNT = new AtomicInteger();
+
+    private final LoadPlan plan;
+    private final LoadReport report;
+    private final SplittableRandom random;
+    private Socket socket;
+    private MessageTransport transport;
+    private long nextRequestId;
+    private String account;
+    private Integer userId;
+
+    LoadClient(LoadPlan plan, LoadReport report, long seed) {
+        this.plan = plan;
+        this.report = report;
+        this.random = new SplittableRandom(seed);
+    }
+
+    SplittableRandom random() {
+        return random;
+    }
+
+    /**
+     * 本客户端使用的账号，第一次调用时按 accounts 设置的范围轮流分配
+     */
+    String account() {
+        if (account == null) {
+            int span = plan.lastAccount - plan.firstAccount + 1;
+            int n = plan.firstAccount + Math.floorMod(NEXT_ACCOUNT.getAndIncrement(), span);
+            account = String.format(plan.accountPattern, n);
+        }
+        return account;
+    }
+
+    String password() {
+        return plan.password;
+    }
+
+    Integer userId() {
+        return userId;
+    }
+
+    /**
+     * 执行一个请求步骤（必要时先请求所需的列表），结果计入报告
+     * @throws IOException 连接失败（已计入报告），调用方结束本次会话
+     */
+    void perform(LoadAction action) throws IOException {
+        LoadAction prerequisite = action.prerequisite();
+        if (prerequisite != null) {
+            perform(prerequisite);
+        }
+        if (transport == null) {
+            connect();
+        }
+        Message request = action.request(this);
+        long start = System.nanoTime();
+        Message response;
+        try {
+            response = exchange(request);
+        } catch (SocketTimeoutException e) {
+            report.record(action.type.name(), System.nanoTime() - start, LoadReport.Outcome.TIMEOUT);
+            close();
+            throw e;
+        } catch (IOException e) {
+            report.record(action.type.name(), System.nanoTime() - start, LoadReport.Outcome.IO_ERROR);
+            close();
+            throw e;
+        }
+        long nanos = System.nanoTime() - start;
+        LoadReport.Outcome outcome = LoadReport.classify(response);
+        report.record(action.type.name(), nanos, outcome);
+        if (outcome == LoadReport.Outcome.OK) {
+            if (action == LoadAction.LOGIN && response.getData() instanceof UserVO) {
+                userId = ((UserVO) response.getData()).getUserId();
+            } else if (action == LoadAction.LOGOUT) {
+                userId = null;
+            }
+            action.learn(response);
+        }
+    }
+
+    private Message exchange(Message request) throws IOException {
+        long requestId = ++nextRequestId;
+        request.setRequestId(requestId);
+        transport.writeMessage(request);
+        while (true) {
+            Message response = transport.readMessage();
+            if (response != null && response.getRequestId() == requestId) {
+                return response;
+            }
+        }
+    }
+
+    private void connect() throws IOException {
+        long start = System.nanoTime();
+        try {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(plan.host, plan.port), (int) plan.timeoutMillis);
+            socket.setSoTimeout((int) plan.timeoutMillis);
+            transport = MessageTransport.clientHandshake(socket.getInputStream(), socket.getOutputStream(),
+                    plan.codec, MessageTransport.DEFAULT_COMPRESS_THRESHOLD);
+        } catch (IOException e) {
+            report.record(LoadReport.CONNECT, System.nanoTime() - start, LoadReport.Outcome.IO_ERROR);
+            close();
+            throw e;
+        }
+        report.record(LoadReport.CONNECT, System.nanoTime() - start, LoadReport.Outcome.OK);
+        // 新连接没有登录状态
+        userId = null;
+    }
+
+    @Override
+    public void close() {
+        transport = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 协议级负载生成器
+ * 按场景脚本（见 {@link LoadPlan}）模拟大量客户端，通过真实的分帧协议向 VCampusServer 发送请求，
+ * 输出按请求类型统计的延迟分布，并检查脚本中的断言（不通过时退出码为1，可作为发布门槛）。
+ * 两种负载模型：
+ *   closed - 固定数量的客户端，每个客户端执行完一次会话后立即开始下一次，吞吐量受服务器响应速度限制；
+ *   open   - 会话按设定的到达率（泊松过程）开始，与服务器快慢无关，会话耗时从计划的到达时刻算起，
+ *            不会因为服务器变慢而少发请求（避免协调遗漏）；同时进行的会话达到上限时新到达的会话记为丢弃。
+ * 每个模拟客户端一个线程：运行在 Java 21 及以上时使用虚拟线程，否则使用小栈的平台线程。
+ * 默认只允许连接本机地址，避免误压生产环境。
+ *
+ * 用法: java -cp "bin:libs/*" benchmark.LoadGenerator 脚本文件 [选项]
+ *   --clients=N --rate=200/s --model=open|closed --duration=60s --warmup=10s --host=地址 --port=端口
+ *   --csv=文件        同时以CSV格式写出报告
+ *   --allow-remote    允许连接非本机地址
+ */
+public class LoadGenerator {
+
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+
+    private final LoadPlan plan;
+    private final LoadReport report = new LoadReport();
+    private final ThreadFactory threadFactory = clientThreadFactory();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong completedSessions = new AtomicLong();
+    private final AtomicLong droppedArrivals = new AtomicLong();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicLong nextSeed = new AtomicLong(42);
+    private volatile long deadline;
+
+    LoadGenerator(LoadPlan plan) {
+        this.plan = plan;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("用法: java benchmark.LoadGenerator 脚本文件 [--clients=N] [--rate=R/s] [--model=open|closed] "
+                    + "[--duration=60s] [--warmup=10s] [--host=H] [--port=P] [--csv=文件] [--allow-remote]");
+            System.exit(2);
+        }
+        LoadPlan plan;
+        Path csv = null;
+        boolean allowRemote = false;
+        try {
+            plan = LoadPlan.parse(Paths.get(args[0]));
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--allow-remote")) {
+                    allowRemote = true;
+                } else if (arg.startsWith("--csv=")) {
+                    csv = Paths.get(arg.substring(6));
+                } else if (arg.startsWith("--") && arg.contains("=")) {
+                    int eq = arg.indexOf('=');
+                    plan.setting(arg.substring(2, eq), new String[]{arg.substring(2, eq), arg.substring(eq + 1)});
+                } else {
+                    throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("[Load] " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (!allowRemote && !InetAddress.getByName(plan.host).isLoopbackAddress()) {
+            System.err.println("[Load] 只允许连接本机地址: " + plan.host + "（确需连接其他地址请加 --allow-remote）");
+            System.exit(2);
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(plan);
+        generator.run();
+        generator.report.print(System.out);
+        System.out.printf("会话: 完成 %d, 丢弃的到达 %d%n", generator.completedSessions.get(), generator.droppedArrivals.get());
+        if (csv != null) {
+            generator.report.writeCsv(csv);
+            System.out.println("[Load] 报告已写入 " + csv);
+        }
+        List<String> failures = generator.report.check(plan.gates);
+        if (!plan.gates.isEmpty()) {
+            System.out.println(failures.isEmpty() ? "[Load] 全部断言通过" : "[Load] 断言未通过:");
+            for (String failure : failures) {
+                System.out.println("  " + failure);
+            }
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    void run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureAt = start + TimeUnit.MILLISECONDS.toNanos(plan.warmupMillis);
+        deadline = measureAt + TimeUnit.MILLISECONDS.toNanos(plan.durationMillis);
+        System.out.printf("[Load] %s:%d, 模型 %s, %s, 预热 %d ms, 测量 %d ms, 场景 %d 个, 线程 %s%n",
+                plan.host, plan.port, plan.model.name().toLowerCase(),
+                plan.model == LoadPlan.Model.CLOSED ? "客户端 " + plan.clients
+                        : String.format("到达率 %.1f/s, 会话上限 %d", plan.rate, plan.clients),
+                plan.warmupMillis, plan.durationMillis, plan.scenarios.size(),
+                isVirtual() ? "虚拟线程" : "平台线程");
+
+        Thread arrivals = null;
+        if (plan.model == LoadPlan.Model.CLOSED) {
+            for (int i = 0; i < plan.clients; i++) {
+                long delay = plan.clients > 1 ? plan.rampupMillis * i / (plan.clients - 1) : 0;
+                startThread("load-client-" + i, () -> closedClient(start + TimeUnit.MILLISECONDS.toNanos(delay)));
+            }
+        } else {
+            arrivals = new Thread(this::openArrivals, "load-arrivals");
+            arrivals.setDaemon(true);
+            arrivals.start();
+        }
+
+        boolean measuring = false;
+        long nextProgress = start + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            long now = System.nanoTime();
+            if (!measuring && now >= measureAt) {
+                report.startMeasuring();
+                measuring = true;
+                System.out.println("[Load] 预热结束，开始测量");
+            }
+            if (now >= deadline) {
+                break;
+            }
+            if (now >= nextProgress) {
+                System.out.printf("[Load] 已运行 %d s, 进行中的会话 %d, 完成的会话 %d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start), activeSessions.get(), completedSessions.get());
+                nextProgress += TimeUnit.SECONDS.toNanos(10);
+            }
+            long nextEvent = measuring ? deadline : Math.min(measureAt, deadline);
+            Thread.sleep(Math.max(1, Math.min(200, TimeUnit.NANOSECONDS.toMillis(nextEvent - now))));
+        }
+        report.stopMeasuring();
+        if (arrivals != null) {
+            arrivals.join();
+        }
+        // 等待进行中的请求结束（最多一个请求超时的时长）
+        long waitUntil = System.currentTimeMillis() + plan.timeoutMillis;
+        synchronized (threads) {
+            for (Thread t : threads) {
+                t.join(Math.max(1, waitUntil - System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private void closedClient(long startAt) {
+        LockSupport.parkNanos(startAt - System.nanoTime());
+        try (LoadClient client = new LoadClient(plan, report, nextSeed.getAndIncrement())) {
+            while (System.nanoTime() < deadline) {
+                if (!runSession(client, System.nanoTime())) {
+                    // 连接失败，稍后重试，避免在服务器不可用时空转
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            }
+        }
+    }
+
+    private void openArrivals() {
+        SplittableRandom random = new SplittableRandom(7);
+        double meanGapNanos = 1e9 / Math.max(0.001, plan.rate);
+        long next = System.nanoTime();
+        int n = 0;
+        while (true) {
+            // 指数分布的到达间隔
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (next >= deadline) {
+                return;
+            }
+            LockSupport.parkNanos(next - System.nanoTime());
+            if (activeSessions.get() >= plan.clients) {
+                droppedArrivals.incrementAndGet();
+                continue;
+            }
+            long scheduled = next;
+            startThread("load-session-" + n++, () -> {
+                try (LoadClient client = new LoadClient(plan, report, nextSeed.getAndIncrement())) {
+                    runSession(client, scheduled);
+                }
+            });
+        }
+    }
+
+    /**
+     * 按权重选一个场景执行一次
+     * @param scheduledAt 会话计划开始的时刻（System.nanoTime），会话耗时从此算起
+     * @return 会话是否正常完成（请求被拒绝也算完成，连接出错或超时不算）
+     */
+    private boolean runSession(LoadClient client, long scheduledAt) {
+        LoadPlan.Scenario scenario = pickScenario(client.random());
+        activeSessions.incrementAndGet();
+        try {
+            for (LoadPlan.Step step : scenario.steps) {
+                step.run(client);
+            }
+            report.record(LoadReport.SESSION, System.nanoTime() - scheduledAt, LoadReport.Outcome.OK);
+            completedSessions.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            report.record(LoadReport.SESSION, System.nanoTime() - scheduledAt, LoadReport.Outcome.IO_ERROR);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    private LoadPlan.Scenario pickScenario(SplittableRandom random) {
+        int totalWeight = 0;
+        for (LoadPlan.Scenario s : plan.scenarios) {
+            totalWeight += s.weight;
+        }
+        int r = random.nextInt(totalWeight);
+        for (LoadPlan.Scenario s : plan.scenarios) {
+            r -= s.weight;
+            if (r < 0) {
+                return s;
+            }
+        }
+        return plan.scenarios.get(0);
+    }
+
+    private void startThread(String name, Runnable task) {
+        Thread t = threadFactory.newThread(task);
+        if (!isVirtual()) {
+            t.setName(name);
+        }
+        synchronized (threads) {
+            threads.removeIf(th -> !th.isAlive());
+            threads.add(t);
+        }
+        t.start();
+    }
+
+    private boolean isVirtual() {
+        return !(threadFactory instanceof PlatformThreadFactory);
+    }
+
+    /**
+     * Java 21 及以上使用虚拟线程（通过反射调用，源码仍可用 Java 17 编译），否则使用小栈的守护线程
+     */
+    private static ThreadFactory clientThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return new PlatformThreadFactory();
+        }
+    }
+
+    private static final class PlatformThreadFactory implements ThreadFactory {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(null, r, "load-client", PLATFORM_STACK_SIZE);
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 负载场景脚本
+ * 脚本按行解析，# 之后为注释，缩进只为可读：
+ * <pre>
+ * # 全局设置
+ * host 127.0.0.1
+ * port 8888
+ * codec binary                   # binary / java
+ * model closed                   # closed: 固定数量的客户端循环执行会话; open: 按到达率启动新会话
+ * clients 1000                   # closed: 客户端数; open: 同时进行的会话上限
+ * rate 200/s                     # open: 每秒到达的会话数（泊松到达）
+ * rampup 10s                     # closed: 客户端在这段时间内逐个启动
+ * warmup 10s                     # 这段时间内的结果不计入报告
+ * duration 60s                   # 计入报告的时长
+ * timeout 10s                    # 单个请求的超时
+ * accounts bench_s%07d 1..10000 bench123
+ *
+ * scenario forum-browse weight 3 # 多个场景按权重随机选择
+ *   login
+ *   threads
+ *   repeat 5
+ *     posts
+ *     think 500ms..2s
+ *   end
+ *   logout
+ *
+ * assert p99 &lt; 200ms             # 全部请求
+ * assert p99 GET_POSTS_REQUEST &lt; 100ms
+ * assert errors &lt; 1%
+ * assert throughput &gt; 500/s
+ * </pre>
+ * 请求步骤见 {@link LoadAction}。
+ */
+public final class LoadPlan {
+
+    public enum Model { CLOSED, OPEN }
+
+    String host = "127.0.0.1";
+    int port = 8888;
+    String codec = "binary";
+    Model model = Model.CLOSED;
+    int clients = 100;
+    double rate = 50;
+    long rampupMillis = 0;
+    long warmupMillis = 5_000;
+    long durationMillis = 30_000;
+    long timeoutMillis = 10_000;
+    String accountPattern = DataSeeder.USER_PREFIX + "%07d";
+    int firstAccount = 1;
+    int lastAccount = 1000;
+    String password = "bench123";
+    final List<Scenario> scenarios = new ArrayList<>();
+    final List<Gate> gates = new ArrayList<>();
+
+    /**
+     * 读取并解析场景脚本
+     * @param file 脚本文件
+     * @return 负载计划
+     * @throws IOException 读取失败
+     * @throws IllegalArgumentException 脚本有语法错误，消息中带行号
+     */
+    public static LoadPlan parse(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    static LoadPlan parse(List<String> lines) {
+        LoadPlan plan = new LoadPlan();
+        Scenario current = null;
+        Deque<List<Step>> blocks = new ArrayDeque<>();
+        Deque<Integer> repeats = new ArrayDeque<>();
+        for (int n = 1; n <= lines.size(); n++) {
+            String line = lines.get(n - 1);
+            int hash = line.indexOf('#');
+            if (hash >= 0) {
+                line = line.substring(0, hash);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] w = line.split("\\s+");
+            String keyword = w[0].toLowerCase(Locale.ROOT);
+            try {
+                if (keyword.equals("scenario")) {
+                    if (!repeats.isEmpty()) {
+                        throw new IllegalArgumentException("repeat 缺少 end");
+                    }
+                    current = new Scenario(arg(w, 1), w.length > 3 && w[2].equalsIgnoreCase("weight") ? Integer.parseInt(w[3]) : 1);
+                    plan.scenarios.add(current);
+                    blocks.clear();
+                    blocks.push(current.steps);
+                } else if (keyword.equals("assert")) {
+                    plan.gates.add(Gate.parse(w));
+                } else if (current == null) {
+                    plan.setting(keyword, w);
+                } else if (keyword.equals("repeat")) {
+                    List<Step> body = new ArrayList<>();
+                    repeats.push(Integer.parseInt(arg(w, 1)));
+                    blocks.push(body);
+                } else if (keyword.equals("end")) {
+                    if (repeats.isEmpty()) {
+                        throw new IllegalArgumentException("多余的 end");
+                    }
+                    List<Step> body = blocks.pop();
+                    blocks.peek().add(new Repeat(repeats.pop(), body));
+                } else if (keyword.equals("think")) {
+                    long[] range = parseRange(arg(w, 1));
+                    blocks.peek().add(new Think(range[0], range[1]));
+                } else {
+                    LoadAction action = LoadAction.parse(keyword);
+                    int times = w.length > 1 && w[1].startsWith("x") ? Integer.parseInt(w[1].substring(1)) : 1;
+                    Step step = new Request(action);
+                    blocks.peek().add(times == 1 ? step : new Repeat(times, Collections.singletonList(step)));
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("第 " + n + " 行: " + e.getMessage() + " -> " + line, e);
+            }
+        }
+        if (!repeats.isEmpty()) {
+            throw new IllegalArgumentException("repeat 缺少 end");
+        }
+        if (plan.scenarios.isEmpty()) {
+            throw new IllegalArgumentException("脚本中没有 scenario");
+        }
+        return plan;
+    }
+
+    void setting(String keyword, String[] w) {
+        switch (keyword) {
+            case "host": host = arg(w, 1); break;
+            case "port": port = Integer.parseInt(arg(w, 1)); break;
+            case "codec": codec = arg(w, 1); break;
+            case "model": model = Model.valueOf(arg(w, 1).toUpperCase(Locale.ROOT)); break;
+            case "clients": clients = Integer.parseInt(arg(w, 1)); break;
+            case "rate": rate = parseRate(arg(w, 1)); break;
+            case "rampup": rampupMillis = parseMillis(arg(w, 1)); break;
+            case "warmup": warmupMillis = parseMillis(arg(w, 1)); break;
+            case "duration": durationMillis = parseMillis(arg(w, 1)); break;
+            case "timeout": timeoutMillis = parseMillis(arg(w, 1)); break;
+            case "accounts":
+                accountPattern = arg(w, 1);
+                String[] range = arg(w, 2).split("\\.\\.");
+                firstAccount = Integer.parseInt(range[0]);
+                lastAccount = Integer.parseInt(range[range.length - 1]);
+                password = arg(w, 3);
+                break;
+            default:
+                throw new IllegalArgumentException("未知设置: " + keyword);
+        }
+    }
+
+    private static String arg(String[] w, int i) {
+        if (i >= w.length) {
+            throw new IllegalArgumentException(w[0] + " 缺少参数");
+        }
+        return w[i];
+    }
+
+    /** 时长：500ms、10s、2m，不带单位按毫秒 */
+    static long parseMillis(String text) {
+        String t = text.toLowerCase(Locale.ROOT);
+        if (t.endsWith("ms")) {
+            return Long.parseLong(t.substring(0, t.length() - 2));
+        } else if (t.endsWith("s")) {
+            return Math.round(Double.parseDouble(t.substring(0, t.length() - 1)) * 1000);
+        } else if (t.endsWith("m")) {
+            return Math.round(Double.parseDouble(t.substring(0, t.length() - 1)) * 60_000);
+        }
+        return Long.parseLong(t);
+    }
+
+    /** 速率：200/s、6000/m，不带单位按每秒 */
+    static double parseRate(String text) {
+        String t = text.toLowerCase(Locale.ROOT);
+        if (t.endsWith("/m")) {
+            return Double.parseDouble(t.substring(0, t.length() - 2)) / 60;
+        } else if (t.endsWith("/s")) {
+            return Double.parseDouble(t.substring(0, t.length() - 2));
+        }
+        return Double.parseDouble(t);
+    }
+
+    private static long[] parseRange(String text) {
+        String[] parts = text.split("\\.\\.");
+        long min = parseMillis(parts[0]);
+        long max = parts.length > 1 ? parseMillis(parts[1]) : min;
+        if (max < min) {
+            throw new IllegalArgumentException("时间范围上限小于下限");
+        }
+        return new long[]{min, max};
+    }
+
+    // ================= 场景与步骤 =================
+
+    static final class Scenario {
+        final String name;
+        final int weight;
+        final List<Step> steps = new ArrayList<>();
+
+        Scenario(String name, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("权重必须为正数");
+            }
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+
+    interface Step {
+        void run(LoadClient client) throws IOException, InterruptedException;
+    }
+
+    static final class Request implements Step {
+        final LoadAction action;
+
+        Request(LoadAction action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run(LoadClient client) throws IOException {
+            client.perform(action);
+        }
+    }
+
+    static final class Think implements Step {
+        final long minMillis;
+        final long maxMillis;
+
+        Think(long minMillis, long maxMillis) {
+            this.minMillis = minMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        @Override
+        public void run(LoadClient client) throws InterruptedException {
+            long millis = minMillis == maxMillis ? minMillis
+                    : minMillis + (long) (client.random().nextDouble() * (maxMillis - minMillis));
+            if (millis > 0) {
+                Thread.sleep(millis);
+            }
+        }
+    }
+
+    static final class Repeat implements Step {
+        final int times;
+        final List<Step> body;
+
+        Repeat(int times, List<Step> body) {
+            this.times = times;
+            this.body = body;
+        }
+
+        @Override
+        public void run(LoadClient client) throws IOException, InterruptedException {
+            for (int i = 0; i < times; i++) {
+                for (Step step : body) {
+                    step.run(client);
+                }
+            }
+        }
+    }
+
+    // ================= 发布门槛 =================
+
+    /**
+     * 断言：assert p50|p90|p99|p99.9|max [请求类型] &lt; 时长、assert errors &lt; 百分比、assert throughput &gt; 速率
+     */
+    static final class Gate {
+        final String metric;
+        final String type;       // null 表示全部请求
+        final boolean lessThan;
+        final double limit;      // 延迟为纳秒，错误率为比例，吞吐量为每秒请求数
+        final String text;
+
+        private Gate(String metric, String type, boolean lessThan, double limit, String text) {
+            this.metric = metric;
+            this.type = type;
+            this.lessThan = lessThan;
+            this.limit = limit;
+            this.text = text;
+        }
+
+        static Gate parse(String[] w) {
+            String text = String.join(" ", w).substring("assert ".length());
+            String metric = arg(w, 1).toLowerCase(Locale.ROOT);
+            int i = 2;
+            String type = null;
+            if (!arg(w, i).equals("<") && !w[i].equals(">")) {
+                type = w[i].toUpperCase(Locale.ROOT);
+                i++;
+            }
+            boolean lessThan;
+            if (arg(w, i).equals("<")) {
+                lessThan = true;
+            } else if (w[i].equals(">")) {
+                lessThan = false;
+            } else {
+                throw new IllegalArgumentException("应为 < 或 >");
+            }
+            String value = arg(w, i + 1);
+            double limit;
+            if (metric.equals("errors")) {
+                limit = value.endsWith("%") ? Double.parseDouble(value.substring(0, value.length() - 1)) / 100
+                        : Double.parseDouble(value);
+            } else if (metric.equals("throughput")) {
+                limit = parseRate(value);
+            } else if (metric.equals("max") || metric.startsWith("p")) {
+                if (!metric.equals("max")) {
+                    Double.parseDouble(metric.substring(1));
+                }
+                limit = parseNanos(value);
+            } else {
+                throw new IllegalArgumentException("未知指标: " + metric);
+            }
+            return new Gate(metric, type, lessThan, limit, text);
+        }
+
+        /** 延迟门槛：250us、1.5ms、2s，不带单位按毫秒 */
+        private static double parseNanos(String text) {
+            String t = text.toLowerCase(Locale.ROOT);
+            if (t.endsWith("us")) {
+                return Double.parseDouble(t.substring(0, t.length() - 2)) * 1e3;
+            } else if (t.endsWith("ms")) {
+                return Double.parseDouble(t.substring(0, t.length() - 2)) * 1e6;
+            } else if (t.endsWith("s")) {
+                return Double.parseDouble(t.substring(0, t.length() - 1)) * 1e9;
+            }
+            return Double.parseDouble(t) * 1e6;
+        }
+    }
+}
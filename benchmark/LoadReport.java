@@ -0,0 +1,182 @@
+package benchmark;
+
+import common.protocol.Message;
+import common.protocol.MessageType;
+import common.protocol.StatusCode;
+import server.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 负载测试结果
+ * 按请求类型分别记录延迟直方图和结果计数；预热期间的记录丢弃。
+ * 结果分为：成功、被拒绝（服务器正常处理但返回业务失败，例如课程已满）、
+ * 服务器错误（内部错误、服务器繁忙）、超时、连接错误；错误率 = (服务器错误 + 超时 + 连接错误) / 请求数。
+ */
+final class LoadReport {
+
+    /** 建立连接（含协议握手）的记录名 */
+    static final String CONNECT = "CONNECT";
+    /** 完整会话（一次场景执行）的记录名 */
+    static final String SESSION = "SESSION";
+
+    enum Outcome { OK, REJECTED, SERVER_ERROR, TIMEOUT, IO_ERROR }
+
+    private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private final Stats total = new Stats();
+    private volatile boolean measuring;
+    private volatile long measureStart;
+    private volatile long measureEnd;
+
+    static Outcome classify(Message response) {
+        if (response.getType() == MessageType.SERVER_BUSY || response.getStatusCode() == StatusCode.INTERNAL_ERROR
+                || response.getStatusCode() == StatusCode.SERVICE_UNAVAILABLE) {
+            return Outcome.SERVER_ERROR;
+        }
+        return response.getStatusCode() >= 400 ? Outcome.REJECTED : Outcome.OK;
+    }
+
+    void startMeasuring() {
+        measureStart = System.nanoTime();
+        measuring = true;
+    }
+
+    void stopMeasuring() {
+        measuring = false;
+        measureEnd = System.nanoTime();
+    }
+
+    /**
+     * 记录一次请求（或连接、会话）
+     * @param name 请求类型名
+     * @param nanos 耗时（纳秒）
+     * @param outcome 结果
+     */
+    void record(String name, long nanos, Outcome outcome) {
+        if (!measuring) {
+            return;
+        }
+        stats.computeIfAbsent(name, k -> new Stats()).record(nanos, outcome);
+        if (!name.equals(CONNECT) && !name.equals(SESSION)) {
+            total.record(nanos, outcome);
+        }
+    }
+
+    private double seconds() {
+        long end = measuring ? System.nanoTime() : measureEnd;
+        return Math.max(1, end - measureStart) / 1e9;
+    }
+
+    /**
+     * 输出报告表格
+     */
+    void print(PrintStream out) {
+        double seconds = seconds();
+        out.printf(Locale.ROOT, "%n%-34s %9s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "请求类型", "请求数", "吞吐/s", "拒绝", "错误", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (Map.Entry<String, Stats> e : new TreeMap<>(stats).entrySet()) {
+            printRow(out, e.getKey(), e.getValue(), seconds);
+        }
+        printRow(out, "全部请求", total, seconds);
+    }
+
+    private static void printRow(PrintStream out, String name, Stats s, double seconds) {
+        LatencyHistogram.Snapshot h = s.histogram.snapshot();
+        out.printf(Locale.ROOT, "%-34s %9d %9.1f %7d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, h.getCount(), h.getCount() / seconds, s.rejected.sum(), s.errors(),
+                h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(90) / 1e6,
+                h.getValueAtPercentile(99) / 1e6, h.getValueAtPercentile(99.9) / 1e6, h.getMax() / 1e6);
+    }
+
+    /**
+     * 以 CSV 格式写出报告（延迟单位为微秒），便于在发布流水线中存档和比较
+     */
+    void writeCsv(Path file) throws IOException {
+        double seconds = seconds();
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            w.write("type,count,throughput,ok,rejected,server_errors,timeouts,io_errors,p50_us,p90_us,p99_us,p999_us,max_us\n");
+            Map<String, Stats> rows = new TreeMap<>(stats);
+            rows.put("ALL", total);
+            for (Map.Entry<String, Stats> e : rows.entrySet()) {
+                Stats s = e.getValue();
+                LatencyHistogram.Snapshot h = s.histogram.snapshot();
+                w.write(String.format(Locale.ROOT, "%s,%d,%.2f,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d%n",
+                        e.getKey(), h.getCount(), h.getCount() / seconds, s.ok.sum(), s.rejected.sum(),
+                        s.serverErrors.sum(), s.timeouts.sum(), s.ioErrors.sum(),
+                        h.getValueAtPercentile(50) / 1000, h.getValueAtPercentile(90) / 1000,
+                        h.getValueAtPercentile(99) / 1000, h.getValueAtPercentile(99.9) / 1000, h.getMax() / 1000));
+            }
+        }
+    }
+
+    /**
+     * 检查脚本中的断言
+     * @return 未通过的断言说明，全部通过时为空列表
+     */
+    List<String> check(List<LoadPlan.Gate> gates) {
+        List<String> failures = new ArrayList<>();
+        double seconds = seconds();
+        for (LoadPlan.Gate gate : gates) {
+            Stats s = gate.type == null ? total : stats.get(gate.type);
+            if (s == null) {
+                failures.add(gate.text + " (没有 " + gate.type + " 的记录)");
+                continue;
+            }
+            LatencyHistogram.Snapshot h = s.histogram.snapshot();
+            double actual;
+            String shown;
+            if (gate.metric.equals("errors")) {
+                actual = h.getCount() == 0 ? 0 : (double) s.errors() / h.getCount();
+                shown = String.format(Locale.ROOT, "%.3f%%", actual * 100);
+            } else if (gate.metric.equals("throughput")) {
+                actual = h.getCount() / seconds;
+                shown = String.format(Locale.ROOT, "%.1f/s", actual);
+            } else {
+                actual = gate.metric.equals("max") ? h.getMax()
+                        : h.getValueAtPercentile(Double.parseDouble(gate.metric.substring(1)));
+                shown = String.format(Locale.ROOT, "%.2fms", actual / 1e6);
+            }
+            boolean passed = gate.lessThan ? actual < gate.limit : actual > gate.limit;
+            if (!passed) {
+                failures.add(gate.text + " (实际 " + shown + ")");
+            }
+        }
+        return failures;
+    }
+
+    private static final class Stats {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder ok = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder ioErrors = new LongAdder();
+
+        void record(long nanos, Outcome outcome) {
+            histogram.record(nanos);
+            switch (outcome) {
+                case OK: ok.increment(); break;
+                case REJECTED: rejected.increment(); break;
+                case SERVER_ERROR: serverErrors.increment(); break;
+                case TIMEOUT: timeouts.increment(); break;
+                default: ioErrors.increment(); break;
+            }
+        }
+
+        long errors() {
+            return serverErrors.sum() + timeouts.sum() + ioErrors.sum();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package benchmark;
+
+import common.protocol.BinaryMessageCodec;
+import common.protocol.JavaSerializationCodec;
+import common.protocol.Message;
+import common.protocol.MessageCodec;
+import common.protocol.MessageType;
+import common.protocol.StatusCode;
+import common.vo.CourseScheduleVO;
+import common.vo.CourseVO;
+import common.vo.ProductVO;
+import common.vo.ThreadVO;
+
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 消息编解码往返基准测试，不需要数据库
+ * 对每种编解码器分别测量心跳（最小消息）和主题、商品、课程的列表响应（典型的大消息）编码后再解码的耗时，
+ * 准备时校验解码结果与原消息一致。
+ */
+final class MessageBenchmarks {
+
+    private MessageBenchmarks() {
+    }
+
+    static List<Benchmark> all() {
+        List<Benchmark> list = new ArrayList<>();
+        for (MessageCodec codec : new MessageCodec[]{new BinaryMessageCodec(), new JavaSerializationCodec()}) {
+            list.add(new RoundTrip(codec, "heartbeat",
+                    new Message(MessageType.HEARTBEAT, StatusCode.SUCCESS, System.currentTimeMillis())));
+            list.add(new RoundTrip(codec, "threadList",
+                    new Message(MessageType.GET_ALL_THREADS_SUCCESS, StatusCode.SUCCESS, sampleThreads(50), "获取帖子列表成功")));
+            list.add(new RoundTrip(codec, "productList",
+                    new Message(MessageType.SEARCH_PRODUCTS_SUCCESS, StatusCode.SUCCESS, sampleProducts(100), "获取商品列表成功")));
+            list.add(new RoundTrip(codec, "courseList",
+                    new Message(MessageType.GET_ALL_COURSES_SUCCESS, StatusCode.SUCCESS, sampleCourses(30), "获取课程列表成功")));
+        }
+        return list;
+    }
+
+    static final class RoundTrip implements Benchmark {
+        private final MessageCodec codec;
+        private final String payload;
+        private final Message message;
+
+        RoundTrip(MessageCodec codec, String payload, Message message) {
+            this.codec = codec;
+            this.payload = payload;
+            this.message = message;
+        }
+
+        @Override
+        public String name() {
+            return "message." + codec.getName() + "." + payload;
+        }
+
+        @Override
+        public boolean needsDatabase() {
+            return false;
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws Exception {
+            // 用二进制编码比较原消息和往返后的消息
+            BinaryMessageCodec reference = new BinaryMessageCodec();
+            byte[] data = codec.encode(message);
+            Message decoded = codec.decode(data, 0, data.length);
+            if (!Arrays.equals(reference.encode(message), reference.encode(decoded))) {
+                throw new IllegalStateException(name() + " 往返结果与原消息不一致");
+            }
+            System.out.println("[Bench] 消息大小: " + data.length + " 字节");
+        }
+
+        @Override
+        public Object run(long op) throws Exception {
+            byte[] data = codec.encode(message);
+            return codec.decode(data, 0, data.length);
+        }
+    }
+
+    private static List<ThreadVO> sampleThreads(int count) {
+        List<ThreadVO> list = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        String[] words = DataSeeder.vocabulary();
+        for (int i = 1; i <= count; i++) {
+            ThreadVO t = new ThreadVO();
+            t.setThreadId(i);
+            t.setTitle(words[i] + words[i + 1] + words[i + 2]);
+            t.setContent(words[i * 3] + words[i * 5] + words[i * 7] + words[i * 11] + words[i * 13] + words[i * 17]);
+            t.setAuthorId(1000 + i);
+            t.setAuthorName("学生" + words[i * 2]);
+            t.setAuthorLoginId(String.format("%s%07d", DataSeeder.USER_PREFIX, i));
+            t.setSectionId(i % 5 + 1);
+            t.setSectionName("学习交流");
+            t.setReplyCount(i * 3);
+            t.setViewCount(i * 40);
+            t.setLikeCount(i);
+            t.setFavoriteCount(i / 2);
+            t.setStatus(1);
+            t.setIsAnnouncement(i % 10 == 0);
+            t.setIsLiked(i % 3 == 0);
+            t.setIsEssence(false);
+            t.setCreatedTime(new Timestamp(now - i * 60000L));
+            t.setUpdatedTime(new Timestamp(now));
+            list.add(t);
+        }
+        return list;
+    }
+
+    private static List<ProductVO> sampleProducts(int count) {
+        List<ProductVO> list = new ArrayList<>(count);
+        long now = System.currentTimeMillis();
+        String[] words = DataSeeder.vocabulary();
+        for (int i = 1; i <= count; i++) {
+            ProductVO p = new ProductVO();
+            p.setProductId(i);
+            p.setProductName(words[i] + words[i + 1]);
+            p.setDescription(words[i * 3] + words[i * 5] + words[i * 7] + words[i * 11]);
+            p.setCategory(i % 2 == 0 ? "文具" : "生活用品");
+            p.setPrice(9.9 + i);
+            p.setStock(100 - i % 100);
+            p.setCreatedTime(new Timestamp(now));
+            list.add(p);
+        }
+        return list;
+    }
+
+    private static List<CourseVO> sampleCourses(int count) {
+        List<CourseVO> list = new ArrayList<>(count);
+        String[] words = DataSeeder.vocabulary();
+        for (int i = 1; i <= count; i++) {
+            CourseVO c = new CourseVO();
+            c.setCourseId(i);
+            c.setCourseCode(String.format("%s%05d", DataSeeder.COURSE_PREFIX, i));
+            c.setCourseName(words[i] + words[i * 2]);
+            c.setCredits(1 + i % 4);
+            c.setDepartment("计算机学院");
+            c.setTeacherId(200 + i);
+            c.setTeacherName("教师" + i);
+            c.setSemester(DataSeeder.SEMESTER);
+            c.setAcademicYear(DataSeeder.ACADEMIC_YEAR);
+            c.setLocation("教学楼A" + (100 + i));
+            c.setCapacity(120);
+            c.setEnrolledCount(i * 3);
+            c.setStatus("active");
+            List<CourseScheduleVO> schedules = new ArrayList<>(2);
+            for (int d = 1; d <= 2; d++) {
+                CourseScheduleVO s = new CourseScheduleVO();
+                s.setCourseId(i);
+                s.setDayOfWeek(d * 2);
+                s.setStartTime(Time.valueOf("08:00:00"));
+                s.setEndTime(Time.valueOf("09:35:00"));
+                s.setClassroom("A" + (100 + i));
+                s.setBuilding("教学楼");
+                s.setWeeks("1-16");
+                schedules.add(s);
+            }
+            c.setSchedules(schedules);
+            list.add(c);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,665 @@
+package benchmark;
+
+import common.vo.OrderVO;
+import server.dao.ForumLikeDAO;
+import server.dao.impl.LibraryServiceImpl;
+import server.dao.impl.PostDAOImpl;
+import server.dao.impl.StoreServiceImpl;
+import server.service.BalanceLedger;
+import server.service.EnrollmentEngine;
+import server.service.EnrollmentService;
+import server.service.ForumSearchIndex;
+import server.service.ForumService;
+import server.service.InventoryReservations;
+import server.service.ProductCatalog;
+import server.service.StudentTimetableCache;
+import server.service.TimetableIndex;
+import server.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 服务与DAO基准测试用例
+ * 直接调用服务端的服务/DAO方法（不经过网络），测量在种子数据上的吞吐量和延迟。
+ * 写操作（下单、支付、选课）只使用种子数据中的学生和商品，测试结束后删除新产生的订单、余额流水和选课记录，
+ * 恢复被修改的库存和余额。
+ */
+final class ServiceBenchmarks {
+    private static final long INDEX_WAIT_MILLIS = 10 * 60 * 1000L;
+
+    private ServiceBenchmarks() {
+    }
+
+    static List<Benchmark> all() {
+        return Arrays.asList(
+                new ForumGetAllThreads(),
+                new ForumSearchThreads(),
+                new ForumSearchIndexQuery(),
+                new PostFindByThread(),
+                new ForumLikeStatus(false),
+                new ForumLikeStatus(true),
+                new LibrarySearchBooks(),
+                new StoreCreateOrder(),
+                new StoreFlashSale(),
+                new StorePayWithBalance(),
+                new EnrollmentEnrollCourse(),
+                new EnrollmentRush());
+    }
+
+    /**
+     * 论坛主题列表（ForumService.getAllThreads），主题数超过缓存容量时每次都查询数据库
+     */
+    static final class ForumGetAllThreads implements Benchmark {
+        private ForumService service;
+        private int[] userIds;
+
+        @Override
+        public String name() {
+            return "forum.getAllThreads";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) {
+            service = new ForumService();
+            userIds = context.getDataSet().studentUserIds;
+        }
+
+        @Override
+        public Object run(long op) {
+            return service.getAllThreads(userIds[BenchmarkContext.pick(op, userIds.length)]);
+        }
+    }
+
+    /**
+     * 论坛搜索（ForumService.searchThreads），关键字取自生成数据的词表
+     */
+    static final class ForumSearchThreads implements Benchmark {
+        private ForumService service;
+        private int[] userIds;
+        private String[] words;
+
+        @Override
+        public String name() {
+            return "forum.searchThreads";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws InterruptedException {
+            service = new ForumService();
+            userIds = context.getDataSet().studentUserIds;
+            words = DataSeeder.vocabulary();
+            // 测量稳定状态下的搜索（索引未就绪时搜索会降级到 LIKE 查询）
+            if (!awaitSearchIndex().isReady()) {
+                System.out.println("[Bench] 检索索引未就绪，测量的是 LIKE 降级查询");
+            }
+        }
+
+        @Override
+        public Object run(long op) {
+            String keyword = words[BenchmarkContext.pick(op, words.length)];
+            return service.searchThreads(keyword, userIds[BenchmarkContext.pick(op + 1, userIds.length)]);
+        }
+    }
+
+    /**
+     * 论坛检索索引查询（ForumSearchIndex.search，只查内存索引，不取主题详情），
+     * 查询依次为单个词、空格分隔的两个词、连写的两个词和单字
+     */
+    static final class ForumSearchIndexQuery implements Benchmark {
+        private static final int LIMIT = 200;
+
+        private ForumSearchIndex index;
+        private String[] words;
+
+        @Override
+        public String name() {
+            return "forum.searchIndex";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws InterruptedException {
+            context.getDataSet();
+            words = DataSeeder.vocabulary();
+            index = awaitSearchIndex();
+            if (!index.isReady()) {
+                throw new IllegalStateException("检索索引未就绪");
+            }
+        }
+
+        @Override
+        public Object run(long op) {
+            String first = words[BenchmarkContext.pick(op, words.length)];
+            String second = words[BenchmarkContext.pick(op + 1, words.length)];
+            String keyword;
+            switch ((int) (op % 4)) {
+                case 0: keyword = first; break;
+                case 1: keyword = first + " " + second; break;
+                case 2: keyword = first + second; break;
+                default: keyword = first.substring(0, 1); break;
+            }
+            return index.search(keyword, LIMIT);
+        }
+    }
+
+    /**
+     * 主题回复列表（PostDAOImpl.findByThreadIdWithUserInfo）
+     */
+    static final class PostFindByThread implements Benchmark {
+        private PostDAOImpl dao;
+        private int minThreadId;
+        private int threadCount;
+        private int[] userIds;
+
+        @Override
+        public String name() {
+            return "post.findByThreadIdWithUserInfo";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) {
+            DataSeeder.DataSet data = context.getDataSet();
+            dao = new PostDAOImpl();
+            minThreadId = data.minThreadId;
+            threadCount = data.maxThreadId - data.minThreadId + 1;
+            userIds = data.studentUserIds;
+        }
+
+        @Override
+        public Object run(long op) {
+            int threadId = minThreadId + BenchmarkContext.pick(op, threadCount);
+            return dao.findByThreadIdWithUserInfo(threadId, userIds[BenchmarkContext.pick(op + 1, userIds.length)]);
+        }
+    }
+
+    /**
+     * 一页主题的点赞状态（ForumLikeDAO）：逐个 isLiked 查询，或一次 findLikedIds 批量查询
+     */
+    static final class ForumLikeStatus implements Benchmark {
+        private static final int PAGE = 50;
+
+        private final boolean batched;
+        private ForumLikeDAO dao;
+        private int minThreadId;
+        private int threadCount;
+        private int[] userIds;
+
+        ForumLikeStatus(boolean batched) {
+            this.batched = batched;
+        }
+
+        @Override
+        public String name() {
+            return batched ? "forumLike.findLikedIds" : "forumLike.isLiked";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) {
+            DataSeeder.DataSet data = context.getDataSet();
+            dao = new ForumLikeDAO();
+            minThreadId = data.minThreadId;
+            threadCount = data.maxThreadId - data.minThreadId + 1;
+            userIds = data.studentUserIds;
+        }
+
+        @Override
+        public Object run(long op) {
+            int first = minThreadId + BenchmarkContext.pick(op, Math.max(1, threadCount - PAGE + 1));
+            List<Integer> ids = new ArrayList<>(PAGE);
+            for (int i = 0; i < PAGE; i++) {
+                ids.add(first + i);
+            }
+            int userId = userIds[BenchmarkContext.pick(op + 1, userIds.length)];
+            if (batched) {
+                return dao.findLikedIds("thread", ids, userId);
+            }
+            Set<Integer> liked = new HashSet<>();
+            for (Integer id : ids) {
+                if (dao.isLiked("thread", id, userId)) {
+                    liked.add(id);
+                }
+            }
+            return liked;
+        }
+    }
+
+    /**
+     * 图书搜索（LibraryServiceImpl.searchBooks）
+     */
+    static final class LibrarySearchBooks implements Benchmark {
+        private LibraryServiceImpl service;
+        private String[] words;
+
+        @Override
+        public String name() {
+            return "library.searchBooks";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) {
+            context.getDataSet();
+            service = new LibraryServiceImpl();
+            words = DataSeeder.vocabulary();
+        }
+
+        @Override
+        public Object run(long op) {
+            return service.searchBooks(words[BenchmarkContext.pick(op, words.length)]);
+        }
+    }
+
+    /**
+     * 下单（StoreServiceImpl.createOrder），每单随机两种商品
+     */
+    static final class StoreCreateOrder implements Benchmark {
+        private StoreServiceImpl service;
+        private int[] userIds;
+        private int minProductId;
+        private int productCount;
+        private int maxOrderIdBefore;
+
+        @Override
+        public String name() {
+            return "store.createOrder";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws SQLException {
+            DataSeeder.DataSet data = context.getDataSet();
+            service = new StoreServiceImpl();
+            userIds = data.studentUserIds;
+            minProductId = data.minProductId;
+            productCount = data.maxProductId - data.minProductId + 1;
+            maxOrderIdBefore = maxId("SELECT COALESCE(MAX(order_id), 0) FROM orders");
+        }
+
+        @Override
+        public Object run(long op) {
+            int userId = userIds[BenchmarkContext.pick(op, userIds.length)];
+            List<Integer> products = Arrays.asList(minProductId + BenchmarkContext.pick(op + 1, productCount),
+                    minProductId + BenchmarkContext.pick(op + 2, productCount));
+            OrderVO order = service.createOrder(userId, products, Arrays.asList(1, 2));
+            if (order == null) {
+                throw new IllegalStateException("下单失败: userId=" + userId + ", products=" + products);
+            }
+            return order;
+        }
+
+        @Override
+        public void teardown() throws SQLException {
+            // 订单明细随订单级联删除；种子商品库存足够大，不恢复
+            execute("DELETE FROM orders WHERE order_id > " + maxOrderIdBefore);
+        }
+    }
+
+    /**
+     * 抢购下单（StoreServiceImpl.createOrder，库存经过 InventoryReservations 预占）
+     * 每单按热度挑选 1-3 种商品（ID越小越热门），最热门的几种设为秒杀商品且只有少量库存：
+     * 秒杀商品先在内存中预扣、售罄后直接拒绝，其余商品按分段锁排队后按条件扣减。
+     * 库存不足被拒绝是正常结果，不计为错误；结束时校验秒杀商品没有超卖，再恢复库存。
+     */
+    static final class StoreFlashSale implements Benchmark {
+        private static final String FLASH_SALE_KEY = "server.store.flashSale.productIds";
+        private static final int FLASH_PRODUCTS = 5;
+        private static final int FLASH_STOCK = 100;
+
+        private final AtomicLong accepted = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private StoreServiceImpl service;
+        private int[] userIds;
+        private int minProductId;
+        private int productCount;
+        private int[] flashIds;
+        private int[] stockBefore;
+        private int maxOrderIdBefore;
+
+        @Override
+        public String name() {
+            return "store.flashSale";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws SQLException {
+            DataSeeder.DataSet data = context.getDataSet();
+            service = new StoreServiceImpl();
+            userIds = data.studentUserIds;
+            minProductId = data.minProductId;
+            productCount = data.maxProductId - data.minProductId + 1;
+            flashIds = new int[Math.min(FLASH_PRODUCTS, productCount)];
+            stockBefore = new int[flashIds.length];
+            StringBuilder ids = new StringBuilder();
+            for (int i = 0; i < flashIds.length; i++) {
+                flashIds[i] = minProductId + i;
+                stockBefore[i] = maxId("SELECT stock FROM products WHERE product_id = " + flashIds[i]);
+                ids.append(i == 0 ? "" : ",").append(flashIds[i]);
+            }
+            execute("UPDATE products SET stock = " + FLASH_STOCK + " WHERE product_id BETWEEN " + flashIds[0]
+                    + " AND " + flashIds[flashIds.length - 1]);
+            ProductCatalog.productsChanged(flashIds);
+            // 秒杀商品名单在创建库存预占实例时读取，重新创建实例使其生效
+            System.setProperty(FLASH_SALE_KEY, ids.toString());
+            InventoryReservations.shutdown();
+            maxOrderIdBefore = maxId("SELECT COALESCE(MAX(order_id), 0) FROM orders");
+        }
+
+        @Override
+        public Object run(long op) {
+            int userId = userIds[BenchmarkContext.pick(op, userIds.length)];
+            TreeMap<Integer, Integer> lines = new TreeMap<>();
+            int n = Math.min(productCount, 1 + BenchmarkContext.pick(op + 1, 3));
+            for (long k = op * 8; lines.size() < n; k++) {
+                lines.putIfAbsent(minProductId + hot(k, productCount), 1 + BenchmarkContext.pick(k + 1, 2));
+            }
+            OrderVO order = service.createOrder(userId, new ArrayList<>(lines.keySet()), new ArrayList<>(lines.values()));
+            (order != null ? accepted : rejected).incrementAndGet();
+            return order != null;
+        }
+
+        @Override
+        public void teardown() throws SQLException {
+            try {
+                StringBuilder mismatched = new StringBuilder();
+                int sold = 0;
+                for (int id : flashIds) {
+                    int quantity = maxId("SELECT COALESCE(SUM(quantity), 0) FROM order_items WHERE product_id = " + id
+                            + " AND order_id > " + maxOrderIdBefore);
+                    int stock = maxId("SELECT stock FROM products WHERE product_id = " + id);
+                    sold += quantity;
+                    if (quantity > FLASH_STOCK || quantity + stock != FLASH_STOCK) {
+                        mismatched.append(" 商品").append(id).append(": 售出 ").append(quantity).append("，剩余 ").append(stock);
+                    }
+                }
+                System.out.printf("[Bench] 成交 %d 单，拒绝 %d 单，秒杀商品售出 %d/%d 件%n",
+                        accepted.get(), rejected.get(), sold, FLASH_STOCK * flashIds.length);
+                if (mismatched.length() > 0) {
+                    throw new IllegalStateException("秒杀商品库存不一致（初始 " + FLASH_STOCK + "）:" + mismatched);
+                }
+            } finally {
+                System.clearProperty(FLASH_SALE_KEY);
+                InventoryReservations.shutdown();
+                execute("DELETE FROM orders WHERE order_id > " + maxOrderIdBefore);
+                for (int i = 0; i < flashIds.length; i++) {
+                    execute("UPDATE products SET stock = " + stockBefore[i] + " WHERE product_id = " + flashIds[i]);
+                }
+                ProductCatalog.productsChanged(flashIds);
+            }
+        }
+    }
+
+    /**
+     * 余额支付（BalanceLedger.pay）
+     * 准备时为种子学生插入一批待支付订单，订单按热度偏斜分配（少数学生有大量订单，其余额不够支付全部订单），
+     * 同一学生的支付在账本的分段锁上排队。每个订单连续提交两次支付（模拟重复点击），第二次应被拒绝。
+     * 余额不足或重复支付被拒绝是正常结果，不计为错误；结束时校验扣款流水与已支付订单一致、没有透支，
+     * 再按流水退回扣款，删除订单和流水。
+     */
+    static final class StorePayWithBalance implements Benchmark {
+        private static final int ORDERS = 200_000;
+
+        private final AtomicLong accepted = new AtomicLong();
+        private BalanceLedger ledger;
+        private int[] orderIds;
+        private int[] orderUsers;
+        private int maxOrderIdBefore;
+
+        @Override
+        public String name() {
+            return "store.payWithBalance";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws SQLException {
+            int[] userIds = context.getDataSet().studentUserIds;
+            ledger = BalanceLedger.getInstance();
+            maxOrderIdBefore = maxId("SELECT COALESCE(MAX(order_id), 0) FROM orders");
+            try (Connection conn = DatabaseUtil.getConnection()) {
+                conn.setAutoCommit(false);
+                try (DataSeeder.BatchInserter orders = new DataSeeder.BatchInserter(conn, "orders",
+                        "order_no", "user_id", "total_amount", "status")) {
+                    for (int i = 0; i < ORDERS; i++) {
+                        orders.add(String.format("BENCHPAY%d_%07d", maxOrderIdBefore, i), userIds[hot(i, userIds.length)],
+                                1 + BenchmarkContext.pick(i, 20000) / 100.0, "pending");
+                    }
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            orderIds = new int[ORDERS];
+            orderUsers = new int[ORDERS];
+            try (Connection conn = DatabaseUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "SELECT order_id, user_id FROM orders WHERE order_id > ? ORDER BY order_id")) {
+                ps.setInt(1, maxOrderIdBefore);
+                try (ResultSet rs = ps.executeQuery()) {
+                    for (int i = 0; i < ORDERS && rs.next(); i++) {
+                        orderIds[i] = rs.getInt(1);
+                        orderUsers[i] = rs.getInt(2);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Object run(long op) {
+            long k = op / 2;
+            if (k >= orderIds.length) {
+                throw new IllegalStateException("预先插入的订单已用完，请缩短测量时间");
+            }
+            boolean paid = ledger.pay(orderIds[(int) k], orderUsers[(int) k]);
+            if (paid) {
+                accepted.incrementAndGet();
+            }
+            return paid;
+        }
+
+        @Override
+        public void teardown() throws SQLException {
+            String newOrders = "order_id > " + maxOrderIdBefore;
+            try {
+                int paid = maxId("SELECT COUNT(*) FROM orders WHERE " + newOrders + " AND status = 'paid'");
+                int payments = maxId("SELECT COUNT(*) FROM balance_transactions WHERE " + newOrders
+                        + " AND type = '" + BalanceLedger.TYPE_PAYMENT + "'");
+                int overdrawn = maxId("SELECT COUNT(*) FROM students s JOIN users u ON u.user_id = s.user_id "
+                        + "WHERE u.login_id LIKE '" + DataSeeder.USER_PREFIX + "%' AND s.balance < 0");
+                System.out.printf("[Bench] 支付成功 %d 次，已支付订单 %d 个，扣款流水 %d 条，透支学生 %d 个%n",
+                        accepted.get(), paid, payments, overdrawn);
+                if (paid != payments || paid != accepted.get() || overdrawn > 0) {
+                    throw new IllegalStateException("余额支付结果不一致");
+                }
+            } finally {
+                execute("UPDATE students s JOIN (SELECT user_id, SUM(amount) AS paid FROM balance_transactions "
+                        + "WHERE " + newOrders + " AND type = '" + BalanceLedger.TYPE_PAYMENT + "' GROUP BY user_id) t "
+                        + "ON t.user_id = s.user_id SET s.balance = s.balance - t.paid");
+                execute("DELETE FROM balance_transactions WHERE " + newOrders);
+                execute("DELETE FROM orders WHERE " + newOrders);
+            }
+        }
+    }
+
+    /**
+     * 选课（EnrollmentService.enrollCourse），每次操作选一个该学生尚未选过的课程组合
+     */
+    static final class EnrollmentEnrollCourse implements Benchmark {
+        private EnrollmentService service;
+        private int[] studentIds;
+        private int[] courseIds;
+        private int maxEnrollmentIdBefore;
+
+        @Override
+        public String name() {
+            return "course.enrollCourse";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws SQLException {
+            DataSeeder.DataSet data = context.getDataSet();
+            service = new EnrollmentService();
+            studentIds = data.studentIds;
+            courseIds = data.courseIds;
+            maxEnrollmentIdBefore = maxId("SELECT COALESCE(MAX(enrollment_id), 0) FROM enrollments");
+        }
+
+        @Override
+        public Object run(long op) {
+            int s = (int) (op % studentIds.length);
+            long round = op / studentIds.length;
+            if (round >= courseIds.length - DataSeeder.COURSES_PER_STUDENT) {
+                throw new IllegalStateException("未选课程组合已用完，请缩短测量时间或使用更大的数据规模");
+            }
+            // 跳过种子数据中该学生预选的课程
+            int c = (int) ((DataSeeder.preEnrolledCourse(s, 0, courseIds.length) + DataSeeder.COURSES_PER_STUDENT + round)
+                    % courseIds.length);
+            if (!service.enrollCourse(studentIds[s], courseIds[c])) {
+                throw new IllegalStateException("选课失败: studentId=" + studentIds[s] + ", courseId=" + courseIds[c]);
+            }
+            return Boolean.TRUE;
+        }
+
+        @Override
+        public void teardown() throws SQLException {
+            execute("DELETE FROM enrollments WHERE enrollment_id > " + maxEnrollmentIdBefore);
+            execute("UPDATE courses c SET enrolled_count = (SELECT COUNT(*) FROM enrollments e "
+                    + "WHERE e.course_id = c.course_id AND e.status = 'enrolled') WHERE c.course_code LIKE '"
+                    + DataSeeder.COURSE_PREFIX + "%'");
+        }
+    }
+
+    /**
+     * 等待检索索引建立完成（最多10分钟）
+     */
+    private static ForumSearchIndex awaitSearchIndex() throws InterruptedException {
+        ForumSearchIndex index = ForumSearchIndex.getInstance();
+        long deadline = System.currentTimeMillis() + INDEX_WAIT_MILLIS;
+        while (!index.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(500);
+        }
+        return index;
+    }
+
+    /**
+     * 由操作序号得到 [0, bound) 内偏斜分布的下标：约一半落在前 1/4
+     */
+    private static int hot(long op, int bound) {
+        double u = BenchmarkContext.pick(op, 1 << 20) / (double) (1 << 20);
+        return Math.min(bound - 1, (int) (bound * u * u));
+    }
+
+    /**
+     * 选课高峰（EnrollmentService.enroll，名额由 EnrollmentEngine 在内存中准入）
+     * 学生随机，课程按热度偏斜（约一半的请求落在前 1/5 的课程上），最热门的几门课程只剩少量名额，
+     * 同一学生会重复选同一门课程。已满、已选过、时间冲突是正常结果，不计为错误；
+     * 结束时等待引擎写完队列，校验热门课程没有超出容量、记录数与 enrolled_count 一致，再删除新的选课记录并恢复容量。
+     */
+    static final class EnrollmentRush implements Benchmark {
+        private static final int HOT_COURSES = 5;
+        private static final int RUSH_SEATS = 100;
+
+        private final AtomicLongArray results = new AtomicLongArray(EnrollmentEngine.Result.values().length);
+        private EnrollmentService service;
+        private int[] studentIds;
+        private int[] courseIds;
+        private int[] hotIds;
+        private int[] capacityBefore;
+        private int maxEnrollmentIdBefore;
+
+        @Override
+        public String name() {
+            return "course.enrollRush";
+        }
+
+        @Override
+        public void setup(BenchmarkContext context) throws SQLException {
+            DataSeeder.DataSet data = context.getDataSet();
+            service = new EnrollmentService();
+            studentIds = data.studentIds;
+            courseIds = data.courseIds;
+            maxEnrollmentIdBefore = maxId("SELECT COALESCE(MAX(enrollment_id), 0) FROM enrollments");
+            hotIds = Arrays.copyOf(courseIds, Math.min(HOT_COURSES, courseIds.length));
+            capacityBefore = new int[hotIds.length];
+            for (int i = 0; i < hotIds.length; i++) {
+                capacityBefore[i] = maxId("SELECT capacity FROM courses WHERE course_id = " + hotIds[i]);
+                execute("UPDATE courses SET capacity = enrolled_count + " + RUSH_SEATS + " WHERE course_id = " + hotIds[i]);
+                EnrollmentEngine.courseChanged(hotIds[i]);
+            }
+        }
+
+        @Override
+        public Object run(long op) {
+            int studentId = studentIds[BenchmarkContext.pick(op, studentIds.length)];
+            double u = BenchmarkContext.pick(op + 1, 1 << 20) / (double) (1 << 20);
+            int courseId = courseIds[Math.min(courseIds.length - 1, (int) (courseIds.length * u * u * u))];
+            EnrollmentEngine.Result result = service.enroll(studentId, courseId);
+            results.incrementAndGet(result.ordinal());
+            if (result == EnrollmentEngine.Result.FAILED || result == EnrollmentEngine.Result.COURSE_NOT_FOUND
+                    || result == EnrollmentEngine.Result.STUDENT_NOT_FOUND) {
+                throw new IllegalStateException("选课失败: studentId=" + studentId + ", courseId=" + courseId + ", " + result);
+            }
+            return result;
+        }
+
+        @Override
+        public void teardown() throws SQLException {
+            // 停止引擎会先提交队列中剩余的请求；下次使用时按数据库重新加载
+            EnrollmentEngine.shutdown();
+            try {
+                StringBuilder summary = new StringBuilder();
+                for (EnrollmentEngine.Result result : EnrollmentEngine.Result.values()) {
+                    if (results.get(result.ordinal()) > 0) {
+                        summary.append(summary.length() == 0 ? "" : "，").append(result.getMessage())
+                                .append(' ').append(results.get(result.ordinal()));
+                    }
+                }
+                System.out.println("[Bench] " + summary);
+                StringBuilder mismatched = new StringBuilder();
+                for (int id : hotIds) {
+                    int active = maxId("SELECT COUNT(*) FROM enrollments WHERE course_id = " + id
+                            + " AND status IN ('enrolled', 'completed')");
+                    int capacity = maxId("SELECT capacity FROM courses WHERE course_id = " + id);
+                    int counted = maxId("SELECT enrolled_count FROM courses WHERE course_id = " + id);
+                    if (active > capacity || active != counted) {
+                        mismatched.append(" 课程").append(id).append(": 记录 ").append(active)
+                                .append("，人数 ").append(counted).append("，容量 ").append(capacity);
+                    }
+                }
+                if (mismatched.length() > 0) {
+                    throw new IllegalStateException("热门课程名额不一致:" + mismatched);
+                }
+            } finally {
+                execute("DELETE FROM enrollments WHERE enrollment_id > " + maxEnrollmentIdBefore);
+                execute("UPDATE courses c SET enrolled_count = (SELECT COUNT(*) FROM enrollments e "
+                        + "WHERE e.course_id = c.course_id AND e.status = 'enrolled') WHERE c.course_code LIKE '"
+                        + DataSeeder.COURSE_PREFIX + "%'");
+                for (int i = 0; i < hotIds.length; i++) {
+                    execute("UPDATE courses SET capacity = " + capacityBefore[i] + " WHERE course_id = " + hotIds[i]);
+                }
+                TimetableIndex.shutdown();
+                StudentTimetableCache.shutdown();
+            }
+        }
+    }
+
+    private static int maxId(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection(); Statement st = conn.createStatement()) {
+            st.executeUpdate(sql);
+        }
+    }
+}
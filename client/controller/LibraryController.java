@@ -1,5 +1,7 @@
 package client.controller;
 
+import client.net.FileTransferClient;
+import client.net.ServerConnection;
 import common.protocol.Message;
 import common.protocol.MessageType;
 import common.protocol.StatusCode;
@@ -7,8 +9,8 @@ import common.vo.BookVO;
 import common.vo.BorrowRecordVO;
 import common.vo.DocumentVO;
 
-import java.io.*;
-import java.net.Socket;
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -19,35 +21,34 @@ import java.util.Map;
  * 负责 UI 与服务器的通信
  */
 public class LibraryController {
+    private static final long REQUEST_TIMEOUT_MS = 15000;
     private final Integer currentUserId;   // 当前登录用户ID
-    private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private final ServerConnection connection;  // 与其他模块共用的服务器连接
+    private final FileTransferClient fileTransfer;
 
     public LibraryController(Integer userId) {
         this.currentUserId = userId;
-        try {
-            // 连接服务器
-            this.socket = new Socket("127.0.0.1", 8888);
-            this.out = new ObjectOutputStream(socket.getOutputStream());
-            this.in = new ObjectInputStream(socket.getInputStream());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        this.connection = ServerConnection.getInstance();
+        this.fileTransfer = new FileTransferClient(connection);
     }
 
     /**
      * 统一请求方法
+     * 通过共享连接发送请求并等待对应的响应，失败时返回 ERROR 消息
      */
     private Message sendRequest(Message request) {
-        try {
-            out.writeObject(request);
-            out.flush();
-            return (Message) in.readObject();
-        } catch (Exception e) {
-            e.printStackTrace();
+        return sendRequest(request, REQUEST_TIMEOUT_MS);
+    }
+
+    private Message sendRequest(Message request, long timeoutMillis) {
+        if (!connection.isConnected() && !connection.connect()) {
+            return new Message(MessageType.ERROR, StatusCode.INTERNAL_ERROR, null, "未连接到服务器");
+        }
+        Message response = connection.sendRequestAndWait(request, timeoutMillis);
+        if (response == null) {
             return new Message(MessageType.ERROR, StatusCode.INTERNAL_ERROR, null, "请求失败");
         }
+        return response;
     }
 
     /**
@@ -134,16 +135,11 @@ public class LibraryController {
     }
 
     /**
-     * 关闭连接
+     * 释放控制器
+     * 服务器连接由整个客户端共用，这里不关闭连接
      */
     public void close() {
-        try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (socket != null && !socket.isClosed()) socket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        // 共享连接的生命周期由 ServerConnection 管理
     }
 
     public BookVO getBookById(int bookId) {
@@ -183,24 +179,26 @@ public class LibraryController {
         return null;
     }
 
-    // 下载文献（返回文件字节流）
-    public byte[] downloadDocument(int docId) {
-        Message req = new Message(MessageType.DOWNLOAD_DOCUMENT_REQUEST, StatusCode.SUCCESS, docId);
-        Message resp = sendRequest(req);
-        if (resp != null && resp.getStatusCode() == StatusCode.SUCCESS) {
-            return (byte[]) resp.getData();
+    // 下载文献到本地文件（分块传输，支持断点续传）
+    public boolean downloadDocument(int docId, File target) {
+        try {
+            fileTransfer.download(docId, target, null);
+            return true;
+        } catch (IOException e) {
+            System.err.println("下载文献失败: " + e.getMessage());
+            return false;
         }
-        return null;
     }
 
-    // 上传文献（管理员）
-    public boolean uploadDocument(DocumentVO doc, byte[] fileBytes) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("doc", doc);
-        data.put("file", fileBytes);
-        Message req = new Message(MessageType.UPLOAD_DOCUMENT_REQUEST, StatusCode.SUCCESS, data);
-        Message resp = sendRequest(req);
-        return resp != null && resp.getStatusCode() == StatusCode.SUCCESS;
+    // 上传文献（管理员，分块传输，支持断点续传）
+    public boolean uploadDocument(DocumentVO doc, File file) {
+        try {
+            fileTransfer.upload(doc, file, null);
+            return true;
+        } catch (IOException e) {
+            System.err.println("上传文献失败: " + e.getMessage());
+            return false;
+        }
     }
 
     // 更新文献（管理员）
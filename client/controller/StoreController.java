@@ -1,52 +1,65 @@
 package client.controller;
 
+import client.net.ServerConnection;
 import common.protocol.Message;
 import common.protocol.MessageType;
 import common.protocol.StatusCode;
+import common.vo.ProductPageVO;
+import common.vo.ProductQueryVO;
+import common.vo.ProductSalesVO;
 import common.vo.ProductVO;
+import common.vo.OrderPageVO;
 import common.vo.OrderVO;
 import common.vo.OrderItemVO;
+import common.vo.SalesSummaryVO;
 import common.vo.ShoppingCartItemVO;
 
-import java.io.*;
-import java.net.Socket;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 客户端商店模块控制器
  * 负责 UI 与服务器的通信
  */
 public class StoreController {
+    private static final long REQUEST_TIMEOUT_MS = 15000;
+    private static final int MAX_CACHED_PAGES = 32;
     private final Integer currentUserId;   // 当前登录用户ID
-    private Socket socket;
-    private ObjectOutputStream out;
-    private ObjectInputStream in;
+    private final ServerConnection connection;  // 与其他模块共用的服务器连接
+    // 最近的商品查询结果（按最近使用淘汰），再次查询时带上版本号，商品未变化时服务器不再发送列表
+    private final Map<ProductQueryVO, ProductPageVO> pageCache =
+            new LinkedHashMap<ProductQueryVO, ProductPageVO>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ProductQueryVO, ProductPageVO> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
 
     public StoreController(Integer userId) {
         this.currentUserId = userId;
-        try {
-            // 连接服务器
-            this.socket = new Socket("127.0.0.1", 8888);
-            this.out = new ObjectOutputStream(socket.getOutputStream());
-            this.in = new ObjectInputStream(socket.getInputStream());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        this.connection = ServerConnection.getInstance();
     }
 
     /**
      * 统一请求方法
+     * 通过共享连接发送请求并等待对应的响应，失败时返回 ERROR 消息
      */
     private Message sendRequest(Message request) {
-        try {
-            out.writeObject(request);
-            out.flush();
-            return (Message) in.readObject();
-        } catch (Exception e) {
-            e.printStackTrace();
+        return sendRequest(request, REQUEST_TIMEOUT_MS);
+    }
+
+    private Message sendRequest(Message request, long timeoutMillis) {
+        if (!connection.isConnected() && !connection.connect()) {
+            return new Message(MessageType.ERROR, StatusCode.INTERNAL_ERROR, null, "未连接到服务器");
+        }
+        Message response = connection.sendRequestAndWait(request, timeoutMillis);
+        if (response == null) {
             return new Message(MessageType.ERROR, StatusCode.INTERNAL_ERROR, null, "请求失败");
         }
+        return response;
     }
 
     // ===== 商品管理 =====
@@ -55,6 +68,12 @@ public class StoreController {
      * 搜索商品
      */
     public List<ProductVO> searchProducts(String keyword) {
+        ProductQueryVO query = new ProductQueryVO();
+        query.setKeyword(keyword);
+        ProductPageVO page = queryProducts(query);
+        if (page != null) {
+            return page.getProducts();
+        }
         Message request = new Message(MessageType.SEARCH_PRODUCTS_REQUEST, StatusCode.SUCCESS, keyword);
         Message response = sendRequest(request);
        if (response.getStatusCode() == StatusCode.SUCCESS) {
@@ -63,6 +82,33 @@ public class StoreController {
         return Collections.emptyList();
     }
 
+    /**
+     * 按条件查询商品（关键词、分类、价格和库存区间、排序、分页）
+     * 同样的条件查询过时带上结果的版本号，商品没有变化时直接使用上次的结果
+     * @return 查询结果，失败时返回null
+     */
+    public ProductPageVO queryProducts(ProductQueryVO query) {
+        ProductPageVO cached;
+        synchronized (pageCache) {
+            cached = pageCache.get(query);
+        }
+        // 版本号为负数表示服务器未使用商品目录，结果不能复用
+        query.setKnownVersion(cached != null && cached.getVersion() > 0 ? cached.getVersion() : -1);
+        Message request = new Message(MessageType.QUERY_PRODUCTS_REQUEST, StatusCode.SUCCESS, query);
+        Message response = sendRequest(request);
+        if (response.getStatusCode() != StatusCode.SUCCESS || !(response.getData() instanceof ProductPageVO)) {
+            return null;
+        }
+        ProductPageVO page = (ProductPageVO) response.getData();
+        if (page.isNotModified() && cached != null) {
+            return cached;
+        }
+        synchronized (pageCache) {
+            pageCache.put(query, page);
+        }
+        return page;
+    }
+
     /**
      * 获取商品详情
      */
@@ -209,6 +255,28 @@ public class StoreController {
         return Collections.emptyList();
     }
 
+    /**
+     * 游标分页获取订单摘要（管理员可查看全部用户，其他用户只返回自己的订单）
+     * @param cursor 上一页返回的游标，第一页为null
+     * @param pageSize 每页数量
+     * @param status 订单状态，null 表示全部
+     * @param userId 用户ID（仅管理员有效），null 表示全部用户
+     * @return 分页结果，失败时返回null
+     */
+    public OrderPageVO getOrderPage(String cursor, int pageSize, String status, Integer userId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("cursor", cursor);
+        params.put("pageSize", pageSize);
+        params.put("status", status);
+        params.put("userId", userId);
+        Message request = new Message(MessageType.GET_ORDER_PAGE_REQUEST, StatusCode.SUCCESS, params);
+        Message response = sendRequest(request);
+        if (response.getStatusCode() == StatusCode.SUCCESS && response.getData() instanceof OrderPageVO) {
+            return (OrderPageVO) response.getData();
+        }
+        return null;
+    }
+
     /**
      * 消费者获取订单历史
      */
@@ -262,6 +330,54 @@ public class StoreController {
         return response.getStatusCode() == StatusCode.SUCCESS;
     }
 
+    // ===== 销售统计（管理员） =====
+    /**
+     * 获取销售概况
+     * @param days 最近的天数（含今天）
+     * @return 累计值和每日汇总，失败（非管理员、统计正在加载）时返回null
+     */
+    public SalesSummaryVO getSalesSummary(int days) {
+        Message request = new Message(MessageType.GET_SALES_SUMMARY_REQUEST, StatusCode.SUCCESS, days);
+        Message response = sendRequest(request);
+        if (response.getStatusCode() == StatusCode.SUCCESS && response.getData() instanceof SalesSummaryVO) {
+            return (SalesSummaryVO) response.getData();
+        }
+        return null;
+    }
+
+    /**
+     * 获取畅销商品排行
+     * @param limit 最多返回的商品数
+     * @param byRevenue true 按销售额排序，false 按件数排序
+     */
+    public List<ProductSalesVO> getTopProducts(int limit, boolean byRevenue) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", limit);
+        params.put("by", byRevenue ? "revenue" : "units");
+        return salesList(new Message(MessageType.GET_TOP_PRODUCTS_REQUEST, StatusCode.SUCCESS, params));
+    }
+
+    /**
+     * 获取库存周转率
+     * @param limit 最多返回的商品数
+     * @param slowest true 周转最慢的在前，false 最快的在前
+     */
+    public List<ProductSalesVO> getStockTurnover(int limit, boolean slowest) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("limit", limit);
+        params.put("order", slowest ? "slowest" : "fastest");
+        return salesList(new Message(MessageType.GET_STOCK_TURNOVER_REQUEST, StatusCode.SUCCESS, params));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProductSalesVO> salesList(Message request) {
+        Message response = sendRequest(request);
+        if (response.getStatusCode() == StatusCode.SUCCESS && response.getData() instanceof List) {
+            return (List<ProductSalesVO>) response.getData();
+        }
+        return Collections.emptyList();
+    }
+
     // ===== 余额管理 =====
     /**
      * 获取用户余额
@@ -303,16 +419,11 @@ public class StoreController {
     }
 
     /**
-     * 关闭连接
+     * 释放控制器
+     * 服务器连接由整个客户端共用，这里不关闭连接
      */
     public void close() {
-        try {
-            if (in != null) in.close();
-            if (out != null) out.close();
-            if (socket != null && !socket.isClosed()) socket.close();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        // 共享连接的生命周期由 ServerConnection 管理
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package client.net;
+
+import common.protocol.Message;
+import common.protocol.MessageType;
+import common.protocol.StatusCode;
+import common.vo.DocumentVO;
+import common.vo.FileChunkVO;
+import common.vo.FileTransferVO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.CRC32C;
+
+/**
+ * 分块文件传输客户端
+ * 在共享的服务器连接上按固定大小的分块下载/上传文献，内存占用与文件大小无关。
+ *
+ * 下载时同时保持若干个分块请求在途，按偏移量顺序写入目标文件旁边的 .part 文件，
+ * 全部收到并校验整个文件后再改名为目标文件；中断后再次下载同一文件会从 .part 文件末尾继续。
+ * 上传时逐块发送，服务器确认后再发送下一块；中断后再次上传同一文件由服务器告知从哪里继续。
+ */
+public class FileTransferClient {
+    private static final int DOWNLOAD_WINDOW = 4;           // 同时在途的下载分块数
+    private static final long CHUNK_TIMEOUT_MS = 30000;
+    private static final int MAX_ATTEMPTS = 3;              // 失败后自动续传的次数
+    private static final long RETRY_DELAY_MS = 1000;
+
+    private final ServerConnection connection;
+
+    public FileTransferClient(ServerConnection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * 传输进度回调（在调用线程中执行）
+     */
+    public interface ProgressListener {
+        void onProgress(long transferred, long total);
+    }
+
+    /**
+     * 下载文献到指定文件
+     * @param docId 文献ID
+     * @param target 目标文件，下载完成并校验通过后才会出现
+     * @param listener 进度回调，可以为null
+     * @throws IOException 多次续传后仍然失败
+     */
+    public void download(int docId, File target, ProgressListener listener) throws IOException {
+        IOException last = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                downloadOnce(docId, target, listener);
+                return;
+            } catch (TransferRejectedException e) {
+                throw e;
+            } catch (IOException e) {
+                last = e;
+                System.err.println("下载中断(" + attempt + "/" + MAX_ATTEMPTS + "): " + e.getMessage());
+                pause(attempt);
+            }
+        }
+        throw last;
+    }
+
+    private void downloadOnce(int docId, File target, ProgressListener listener) throws IOException {
+        Message readyMsg = call(new Message(MessageType.FILE_DOWNLOAD_REQUEST, StatusCode.SUCCESS, docId),
+                MessageType.FILE_DOWNLOAD_READY);
+        FileTransferVO ready = (FileTransferVO) readyMsg.getData();
+        long size = ready.getFileSize();
+        // 临时文件名带上服务器文件的校验和，文件在服务器上被替换后不会接着旧的数据续传
+        Path part = new File(target.getAbsolutePath() + "." + Long.toHexString(ready.getChecksum()) + ".part").toPath();
+
+        try (FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long written = Math.min(out.size(), size);
+            out.truncate(written);
+            CRC32C crc = new CRC32C();
+            updateChecksum(crc, out, written);
+
+            ArrayDeque<CompletableFuture<Message>> window = new ArrayDeque<>();
+            long next = written;
+            try {
+                while (written < size) {
+                    while (window.size() < DOWNLOAD_WINDOW && next < size) {
+                        int length = (int) Math.min(ready.getChunkSize(), size - next);
+                        FileChunkVO request = new FileChunkVO(ready.getTransferId(), next, length);
+                        window.add(connection.sendRequest(
+                                new Message(MessageType.FILE_CHUNK_REQUEST, StatusCode.SUCCESS, request), CHUNK_TIMEOUT_MS));
+                        next += length;
+                    }
+                    FileChunkVO chunk = (FileChunkVO) expect(await(window.poll()), MessageType.FILE_CHUNK_DATA).getData();
+                    byte[] data = chunk.getData();
+                    if (chunk.getOffset() != written || data == null || data.length == 0) {
+                        throw new IOException("收到的分块不连续: " + chunk.getOffset());
+                    }
+                    if (crc32c(data) != chunk.getChecksum()) {
+                        // 已写入的部分仍然有效，重新下载时从这里继续
+                        throw new IOException("分块校验失败: " + chunk.getOffset());
+                    }
+                    crc.update(data, 0, data.length);
+                    ByteBuffer buffer = ByteBuffer.wrap(data);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer, written + buffer.position());
+                    }
+                    written += data.length;
+                    if (listener != null) {
+                        listener.onProgress(written, size);
+                    }
+                }
+            } finally {
+                for (CompletableFuture<Message> pending : window) {
+                    pending.cancel(false);
+                }
+            }
+            out.force(false);
+            if (crc.getValue() != ready.getChecksum()) {
+                out.close();
+                Files.deleteIfExists(part);
+                throw new IOException("文件校验失败");
+            }
+        }
+        Files.move(part, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 上传文献文件
+     * @param doc 文献信息（上传者由服务器按当前登录用户设置）
+     * @param file 本地文件
+     * @param listener 进度回调，可以为null
+     * @return 新文献ID
+     * @throws IOException 多次续传后仍然失败，或服务器拒绝
+     */
+    public int upload(DocumentVO doc, File file, ProgressListener listener) throws IOException {
+        long size = file.length();
+        long checksum;
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            CRC32C crc = new CRC32C();
+            updateChecksum(crc, in, size);
+            checksum = crc.getValue();
+        }
+        FileTransferVO request = new FileTransferVO();
+        request.setFileName(file.getName());
+        request.setFileSize(size);
+        request.setChecksum(checksum);
+        request.setDocument(doc);
+
+        IOException last = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                return uploadOnce(request, file, listener);
+            } catch (TransferRejectedException e) {
+                throw e;
+            } catch (IOException e) {
+                last = e;
+                System.err.println("上传中断(" + attempt + "/" + MAX_ATTEMPTS + "): " + e.getMessage());
+                pause(attempt);
+            }
+        }
+        throw last;
+    }
+
+    private int uploadOnce(FileTransferVO request, File file, ProgressListener listener) throws IOException {
+        FileTransferVO ready = (FileTransferVO) call(
+                new Message(MessageType.FILE_UPLOAD_REQUEST, StatusCode.SUCCESS, request),
+                MessageType.FILE_UPLOAD_READY).getData();
+        long size = ready.getFileSize();
+        long offset = ready.getOffset();
+
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (true) {
+                int length = (int) Math.min(ready.getChunkSize(), size - offset);
+                byte[] data = new byte[length];
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, offset + buffer.position()) < 0) {
+                        throw new TransferRejectedException("本地文件在上传过程中被修改");
+                    }
+                }
+                FileChunkVO chunk = new FileChunkVO(ready.getTransferId(), offset, length);
+                chunk.setData(data);
+                chunk.setChecksum(crc32c(data));
+                Message response = await(connection.sendRequest(
+                        new Message(MessageType.FILE_CHUNK_DATA, StatusCode.SUCCESS, chunk), CHUNK_TIMEOUT_MS));
+                if (response.getType() == MessageType.FILE_UPLOAD_SUCCESS) {
+                    if (listener != null) {
+                        listener.onProgress(size, size);
+                    }
+                    return (Integer) response.getData();
+                }
+                offset = ((FileChunkVO) expect(response, MessageType.FILE_CHUNK_ACK).getData()).getOffset();
+                if (listener != null) {
+                    listener.onProgress(offset, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * 续传前稍等，给连接自动重连和恢复会话留出时间
+     */
+    private static void pause(int attempt) throws IOException {
+        if (attempt >= MAX_ATTEMPTS) {
+            return;
+        }
+        try {
+            Thread.sleep(RETRY_DELAY_MS * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferRejectedException("传输被中断");
+        }
+    }
+
+    private Message call(Message request, MessageType expected) throws IOException {
+        if (!connection.isConnected() && !connection.connect()) {
+            throw new IOException("未连接到服务器");
+        }
+        return expect(await(connection.sendRequest(request, CHUNK_TIMEOUT_MS)), expected);
+    }
+
+    private static Message await(CompletableFuture<Message> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferRejectedException("传输被中断");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage() != null ? e.getCause().getMessage() : "请求超时", e.getCause());
+        }
+    }
+
+    /**
+     * 检查响应类型；文件不存在、参数无效等服务器明确拒绝的请求不再重试
+     */
+    private static Message expect(Message response, MessageType expected) throws IOException {
+        if (response.getType() == expected && response.getStatusCode() == StatusCode.SUCCESS) {
+            return response;
+        }
+        String reason = response.getMessage() != null ? response.getMessage() : String.valueOf(response.getType());
+        if (response.getStatusCode() == StatusCode.NOT_FOUND || response.getStatusCode() == StatusCode.UNAUTHORIZED
+                || (response.getStatusCode() == StatusCode.BAD_REQUEST && response.getType() == MessageType.FILE_UPLOAD_FAIL
+                        && expected == MessageType.FILE_UPLOAD_READY)) {
+            throw new TransferRejectedException(reason);
+        }
+        throw new IOException(reason);
+    }
+
+    private static void updateChecksum(CRC32C crc, FileChannel channel, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - position));
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += n;
+        }
+    }
+
+    private static long crc32c(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    /**
+     * 服务器明确拒绝或本地原因导致的失败，重试没有意义
+     */
+    public static class TransferRejectedException extends IOException {
+        public TransferRejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,35 +1,60 @@
 package client.net;
 
 import common.protocol.Message;
+import common.protocol.MessageTransport;
 import common.protocol.MessageType;
+import common.vo.UserVO;
 
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 服务器连接类
- * 负责客户端与服务器的网络通信
+ * 负责客户端与服务器的网络通信。整个客户端共用这一条连接，各模块的请求通过请求ID在同一连接上多路复用。
+ * 服务器地址通过系统属性 vcampus.server.host / vcampus.server.port 配置；
+ * 连接意外断开时自动按指数退避重连，并用登录时获得的会话令牌恢复登录状态。
  */
 public class ServerConnection {
-    private static final String DEFAULT_HOST = "localhost";
-    private static final int DEFAULT_PORT = 8888;
+    private static final String DEFAULT_HOST = System.getProperty("vcampus.server.host", "localhost");
+    private static final int DEFAULT_PORT = Integer.getInteger("vcampus.server.port", 8888);
+    private static final long DEFAULT_REQUEST_TIMEOUT_MS = 15000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 10000;
+    private static final long RECONNECT_INITIAL_DELAY_MS = 500;
+    private static final long RECONNECT_MAX_DELAY_MS = 30000;
     
-    private String serverHost;
-    private int serverPort;
-    private Socket socket;
-    private ObjectOutputStream objectOut;
-    private ObjectInputStream objectIn;
-    private boolean isConnected = false;
-    private ExecutorService executor;
+    private volatile String serverHost;
+    private volatile int serverPort;
+    private volatile Socket socket;
+    private volatile MessageTransport transport;
+    private volatile boolean isConnected = false;
+    private final Object connectLock = new Object();
+    
+    // 自动重连
+    private volatile boolean autoReconnect = Boolean.parseBoolean(System.getProperty("vcampus.autoReconnect", "true"));
+    private volatile boolean closedByUser = false;   // 主动断开后不再重连
+    private volatile boolean reconnectScheduled = false;
+    private volatile String sessionToken;            // 登录成功时服务器签发的会话令牌
+    private ScheduledExecutorService reconnectScheduler;
+    private final CopyOnWriteArrayList<ConnectionListener> connectionListeners = new CopyOnWriteArrayList<>();
     
     // 消息监听器管理
     private final ConcurrentHashMap<MessageType, MessageListener> messageListeners = new ConcurrentHashMap<>();
     private MessageListener defaultMessageListener;
     
+    // 请求-响应关联：请求ID -> 等待响应的Future
+    private final AtomicLong requestIdGenerator = new AtomicLong();
+    private final ConcurrentHashMap<Long, CompletableFuture<Message>> pendingRequests = new ConcurrentHashMap<>();
+    
     // 单例实例
     private static ServerConnection instance;
     
@@ -40,7 +65,6 @@ public class ServerConnection {
     private ServerConnection(String host, int port) {
         this.serverHost = host;
         this.serverPort = port;
-        this.executor = Executors.newSingleThreadExecutor();
     }
     
     /**
@@ -69,53 +93,126 @@ public class ServerConnection {
      * @return 连接成功返回true，失败返回false
      */
     public boolean connect(String host, int port) {
-        if (isConnected) {
-            System.out.println("已经连接到服务器");
-            return true;
+        synchronized (connectLock) {
+            closedByUser = false;
+            if (isConnected) {
+                System.out.println("已经连接到服务器");
+                return true;
+            }
+            
+            this.serverHost = host;
+            this.serverPort = port;
+            try {
+                System.out.println("正在连接服务器: " + host + ":" + port);
+                open(host, port);
+                System.out.println("连接服务器成功, 传输协议: " + transport.getCodecName());
+                return true;
+            } catch (IOException e) {
+                System.err.println("连接服务器失败: " + e.getMessage());
+                closeQuietly();
+                return false;
+            }
         }
+    }
+    
+    /**
+     * 建立连接并启动接收线程（调用方持有 connectLock）
+     */
+    private void open(String host, int port) throws IOException {
+        MessageTransport opened = openTransport(host, port);
+        transport = opened;
+        isConnected = true;
         
+        // 每条连接一个接收线程，线程只读取创建它的那条连接
+        Thread receiver = new Thread(() -> receiveMessages(opened), "server-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+    
+    /**
+     * 建立套接字并协商传输协议
+     * 编解码器由系统属性 vcampus.wire.codec 指定（binary/java/legacy，默认 binary）；
+     * 服务器不支持分帧协议时重新连接并使用对象流
+     */
+    private MessageTransport openTransport(String host, int port) throws IOException {
+        String codec = System.getProperty("vcampus.wire.codec", "binary");
+        socket = openSocket(host, port);
+        if ("legacy".equalsIgnoreCase(codec)) {
+            return MessageTransport.legacy(socket.getInputStream(), socket.getOutputStream());
+        }
+        
+        int compressThreshold = Integer.getInteger("vcampus.wire.compressThreshold",
+                MessageTransport.DEFAULT_COMPRESS_THRESHOLD);
         try {
-            this.serverHost = host;
-            this.serverPort = port;
-            
-            System.out.println("正在连接服务器: " + host + ":" + port);
-            socket = new Socket(host, port);
-            
-            // 创建输入输出流
-            objectOut = new ObjectOutputStream(socket.getOutputStream());
-            objectIn = new ObjectInputStream(socket.getInputStream());
-            
-            isConnected = true;
-            
-            // 启动消息接收线程
-            executor.execute(this::receiveMessages);
-            
-            System.out.println("连接服务器成功");
-            return true;
-            
-        } catch (IOException e) {
-            System.err.println("连接服务器失败: " + e.getMessage());
-            disconnect();
-            return false;
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            MessageTransport negotiated = MessageTransport.clientHandshake(
+                    socket.getInputStream(), socket.getOutputStream(), codec, compressThreshold);
+            socket.setSoTimeout(0);
+            return negotiated;
+        } catch (MessageTransport.LegacyPeerException e) {
+            System.out.println("服务器不支持分帧协议，使用对象流重新连接");
+            socket.close();
+            socket = openSocket(host, port);
+            return MessageTransport.legacy(socket.getInputStream(), socket.getOutputStream());
         }
     }
     
+    private static Socket openSocket(String host, int port) throws IOException {
+        Socket s = new Socket(host, port);
+        s.setTcpNoDelay(true);
+        return s;
+    }
+    
     /**
-     * 断开与服务器的连接
+     * 主动断开与服务器的连接（不会自动重连）
      */
     public void disconnect() {
-        if (!isConnected) {
-            return;
+        closedByUser = true;
+        synchronized (connectLock) {
+            if (!isConnected) {
+                return;
+            }
+            closeQuietly();
         }
         
-        isConnected = false;
+        // 连接断开后不会再收到响应，让所有等待中的请求立即失败
+        failPendingRequests(new IOException("与服务器的连接已断开"));
         
-        try {
-            if (objectIn != null) {
-                objectIn.close();
+        System.out.println("已断开服务器连接");
+    }
+    
+    /**
+     * 连接意外断开：关闭连接并安排重连
+     * @param lost 断开的连接，已经被替换时忽略
+     */
+    private void connectionLost(MessageTransport lost) {
+        synchronized (connectLock) {
+            if (transport != lost || !isConnected) {
+                return;
             }
-            if (objectOut != null) {
-                objectOut.close();
+            closeQuietly();
+        }
+        failPendingRequests(new IOException("与服务器的连接已断开"));
+        System.out.println("与服务器的连接已断开");
+        
+        for (ConnectionListener listener : connectionListeners) {
+            try {
+                listener.onDisconnected();
+            } catch (Exception e) {
+                System.err.println("处理连接监听器异常: " + e.getMessage());
+            }
+        }
+        
+        if (autoReconnect && !closedByUser) {
+            scheduleReconnect(0);
+        }
+    }
+    
+    private void closeQuietly() {
+        isConnected = false;
+        try {
+            if (transport != null) {
+                transport.close();
             }
             if (socket != null && !socket.isClosed()) {
                 socket.close();
@@ -123,13 +220,77 @@ public class ServerConnection {
         } catch (IOException e) {
             System.err.println("关闭连接失败: " + e.getMessage());
         }
-        
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
-            executor = Executors.newSingleThreadExecutor();
+    }
+    
+    private synchronized void scheduleReconnect(int attempt) {
+        if (reconnectScheduled && attempt == 0) {
+            return;
+        }
+        if (reconnectScheduler == null) {
+            reconnectScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "server-reconnect");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        reconnectScheduled = true;
+        long delay = Math.min(RECONNECT_MAX_DELAY_MS, RECONNECT_INITIAL_DELAY_MS << Math.min(attempt, 16));
+        reconnectScheduler.schedule(() -> reconnect(attempt), delay, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 重连一次，失败时按指数退避安排下一次
+     */
+    private void reconnect(int attempt) {
+        synchronized (connectLock) {
+            if (closedByUser || isConnected) {
+                reconnectScheduled = false;
+                return;
+            }
+            try {
+                open(serverHost, serverPort);
+                reconnectScheduled = false;
+                System.out.println("重新连接服务器成功, 尝试次数: " + (attempt + 1));
+            } catch (IOException e) {
+                closeQuietly();
+                System.err.println("重新连接服务器失败(" + (attempt + 1) + "): " + e.getMessage());
+                scheduleReconnect(attempt + 1);
+                return;
+            }
+        }
+        resumeSession();
+    }
+    
+    /**
+     * 用会话令牌恢复登录状态，然后通知连接监听器
+     */
+    private void resumeSession() {
+        String token = sessionToken;
+        if (token == null) {
+            notifyReconnected(false);
+            return;
+        }
+        sendRequest(new Message(MessageType.SESSION_RESUME_REQUEST, token)).whenComplete((response, error) -> {
+            boolean resumed = error == null && response != null
+                    && response.getType() == MessageType.SESSION_RESUME_SUCCESS;
+            if (resumed) {
+                System.out.println("会话已恢复");
+            } else {
+                System.out.println("会话恢复失败，需要重新登录");
+                sessionToken = null;
+            }
+            notifyReconnected(resumed);
+        });
+    }
+    
+    private void notifyReconnected(boolean sessionResumed) {
+        for (ConnectionListener listener : connectionListeners) {
+            try {
+                listener.onReconnected(sessionResumed);
+            } catch (Exception e) {
+                System.err.println("处理连接监听器异常: " + e.getMessage());
+            }
         }
-        
-        System.out.println("已断开服务器连接");
     }
     
     /**
@@ -138,48 +299,113 @@ public class ServerConnection {
      * @return 发送成功返回true，失败返回false
      */
     public boolean sendMessage(Message message) {
-        if (!isConnected || objectOut == null) {
+        MessageTransport out = transport;
+        if (!isConnected || out == null) {
             System.err.println("未连接到服务器");
             return false;
         }
         
         try {
-            objectOut.writeObject(message);
-            objectOut.flush();
+            // 多个线程可能同时发送请求，传输层内部保证写出串行
+            out.writeMessage(message);
             return true;
         } catch (IOException e) {
             System.err.println("发送消息失败: " + e.getMessage());
-            disconnect();
+            connectionLost(out);
             return false;
         }
     }
     
+    /**
+     * 异步发送请求，返回与之关联的响应Future（默认超时）
+     * 同一连接上可以同时有多个请求在途，响应按请求ID匹配，不依赖消息类型监听器
+     * 注意：Future 在消息接收线程中完成，回调中不要执行阻塞操作，更新界面请使用 SwingUtilities.invokeLater
+     * @param request 请求消息
+     * @return 响应Future，超时或连接断开时异常完成
+     */
+    public CompletableFuture<Message> sendRequest(Message request) {
+        return sendRequest(request, DEFAULT_REQUEST_TIMEOUT_MS);
+    }
+    
+    /**
+     * 异步发送请求，返回与之关联的响应Future
+     * @param request 请求消息
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 响应Future，超时或连接断开时异常完成
+     */
+    public CompletableFuture<Message> sendRequest(Message request, long timeoutMillis) {
+        long requestId = requestIdGenerator.incrementAndGet();
+        request.setRequestId(requestId);
+        
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        pendingRequests.put(requestId, future);
+        future.whenComplete((response, error) -> pendingRequests.remove(requestId));
+        
+        if (!sendMessage(request)) {
+            future.completeExceptionally(new IOException("发送请求失败: " + request.getType()));
+            return future;
+        }
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 同步发送请求并等待响应
+     * @param request 请求消息
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 响应消息，超时、中断或连接断开时返回null
+     */
+    public Message sendRequestAndWait(Message request, long timeoutMillis) {
+        try {
+            return sendRequest(request, timeoutMillis).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                System.err.println("请求超时: " + request.getType());
+            } else {
+                System.err.println("请求失败: " + request.getType() + ", " + cause.getMessage());
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * 获取在途请求数量
+     * @return 在途请求数量
+     */
+    public int getPendingRequestCount() {
+        return pendingRequests.size();
+    }
+    
+    private void failPendingRequests(Throwable cause) {
+        for (CompletableFuture<Message> future : pendingRequests.values()) {
+            future.completeExceptionally(cause);
+        }
+        pendingRequests.clear();
+    }
+    
     /**
      * 消息接收线程
      */
-    private void receiveMessages() {
-        while (isConnected && !Thread.currentThread().isInterrupted()) {
+    private void receiveMessages(MessageTransport in) {
+        while (isConnected && transport == in) {
             try {
-                Object receivedObject = objectIn.readObject();
-                
-                if (receivedObject instanceof Message) {
-                    Message message = (Message) receivedObject;
-                    handleReceivedMessage(message);
-                } else {
-                    System.err.println("收到无效消息类型: " + receivedObject.getClass().getName());
-                }
+                Message message = in.readMessage();
+                handleReceivedMessage(message);
                 
             } catch (SocketException | EOFException e) {
                 // 连接断开
                 System.out.println("服务器连接断开");
                 break;
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 System.err.println("接收消息失败: " + e.getMessage());
                 break;
             }
         }
         
-        disconnect();
+        connectionLost(in);
     }
     
     /**
@@ -191,6 +417,22 @@ public class ServerConnection {
             return;
         }
         
+        // 记录会话令牌，断线重连时使用
+        if (message.getType() == MessageType.LOGIN_SUCCESS && message.getData() instanceof UserVO) {
+            sessionToken = ((UserVO) message.getData()).getSessionToken();
+        } else if (message.getType() == MessageType.LOGOUT_SUCCESS) {
+            sessionToken = null;
+        }
+        
+        // 带请求ID的响应直接交给对应的Future，不经过类型监听器
+        if (message.getRequestId() != 0) {
+            CompletableFuture<Message> future = pendingRequests.remove(message.getRequestId());
+            if (future != null) {
+                future.complete(message);
+                return;
+            }
+        }
+        
         // 查找特定类型的监听器
         MessageListener listener = messageListeners.get(message.getType());
         if (listener != null) {
@@ -286,6 +528,49 @@ public class ServerConnection {
         }
     }
     
+    /**
+     * 设置是否在连接意外断开时自动重连
+     * @param autoReconnect 是否自动重连
+     */
+    public void setAutoReconnect(boolean autoReconnect) {
+        this.autoReconnect = autoReconnect;
+    }
+    
+    /**
+     * 添加连接状态监听器
+     * @param listener 监听器
+     */
+    public void addConnectionListener(ConnectionListener listener) {
+        if (listener != null) {
+            connectionListeners.addIfAbsent(listener);
+        }
+    }
+    
+    /**
+     * 移除连接状态监听器
+     * @param listener 监听器
+     */
+    public void removeConnectionListener(ConnectionListener listener) {
+        connectionListeners.remove(listener);
+    }
+    
+    /**
+     * 连接状态监听器接口
+     * 回调在网络线程中执行，更新界面请使用 SwingUtilities.invokeLater
+     */
+    public interface ConnectionListener {
+        /**
+         * 连接意外断开（之后会自动重连）
+         */
+        void onDisconnected();
+        
+        /**
+         * 重新连接成功
+         * @param sessionResumed 登录状态是否已恢复，false 表示需要重新登录
+         */
+        void onReconnected(boolean sessionResumed);
+    }
+    
     /**
      * 消息监听器接口
      */
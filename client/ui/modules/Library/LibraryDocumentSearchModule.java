@@ -10,7 +10,6 @@ import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.HashSet;
@@ -274,19 +273,14 @@ public class LibraryDocumentSearchModule extends JPanel {
 
     // ================= PDF预览功能 =================
     private void previewPDF(int docId) {
-        byte[] pdfData = controller.downloadDocument(docId);
-        if (pdfData == null) {
-            JOptionPane.showMessageDialog(this, "获取PDF失败");
-            return;
-        }
-
         try {
-            // 创建临时PDF文件
+            // 下载到临时PDF文件
             File tempFile = File.createTempFile("preview", ".pdf");
             tempFile.deleteOnExit();
 
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                fos.write(pdfData);
+            if (!controller.downloadDocument(docId, tempFile)) {
+                JOptionPane.showMessageDialog(this, "获取PDF失败");
+                return;
             }
 
             // 使用系统默认程序打开PDF
@@ -454,21 +448,15 @@ public class LibraryDocumentSearchModule extends JPanel {
 
     // ================= 下载 =================
     private void doDownload(int docId) {
-        byte[] data = controller.downloadDocument(docId);
-        if (data == null) {
-            JOptionPane.showMessageDialog(this, "下载失败");
-            return;
-        }
-
         JFileChooser chooser = new JFileChooser();
         chooser.setSelectedFile(new File("document_" + docId + ".pdf"));
         int result = chooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            try (FileOutputStream fos = new FileOutputStream(chooser.getSelectedFile())) {
-                fos.write(data);
-                JOptionPane.showMessageDialog(this, "下载成功: " + chooser.getSelectedFile().getAbsolutePath());
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "保存失败: " + ex.getMessage());
+            File target = chooser.getSelectedFile();
+            if (controller.downloadDocument(docId, target)) {
+                JOptionPane.showMessageDialog(this, "下载成功: " + target.getAbsolutePath());
+            } else {
+                JOptionPane.showMessageDialog(this, "下载失败");
             }
         }
     }
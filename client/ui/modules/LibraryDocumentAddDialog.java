@@ -6,7 +6,6 @@ import common.vo.DocumentVO;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.io.FileInputStream;
 
 public class LibraryDocumentAddDialog extends JDialog {
     private JTextField titleField;
@@ -97,9 +96,7 @@ public class LibraryDocumentAddDialog extends JDialog {
             doc.setUploaderId(controller.getCurrentUserId());
             doc.setPublic(true);
 
-            byte[] fileBytes = readFileToBytes(selectedFile);
-
-            boolean ok = controller.uploadDocument(doc, fileBytes);
+            boolean ok = controller.uploadDocument(doc, selectedFile);
             if (ok) {
                 JOptionPane.showMessageDialog(this, "上传成功");
                 dispose();
@@ -116,13 +113,4 @@ public class LibraryDocumentAddDialog extends JDialog {
         int dot = name.lastIndexOf('.');
         return (dot == -1) ? "" : name.substring(dot + 1);
     }
-
-    private byte[] readFileToBytes(File file) throws Exception {
-        FileInputStream fis = new FileInputStream(file);
-        byte[] data = new byte[(int) file.length()];
-        int read = fis.read(data);
-        fis.close();
-        if (read != file.length()) throw new Exception("文件读取不完整");
-        return data;
-    }
 }
@@ -7,7 +7,6 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.List;
 
 public class LibraryDocumentSearchModule extends JPanel {
@@ -158,21 +157,15 @@ public class LibraryDocumentSearchModule extends JPanel {
 
     // 下载文献
     private void doDownload(int docId) {
-        byte[] data = controller.downloadDocument(docId);
-        if (data == null) {
-            JOptionPane.showMessageDialog(this, "下载失败");
-            return;
-        }
-
         JFileChooser chooser = new JFileChooser();
         chooser.setSelectedFile(new File("document_" + docId + ".pdf"));
         int result = chooser.showSaveDialog(this);
         if (result == JFileChooser.APPROVE_OPTION) {
-            try (FileOutputStream fos = new FileOutputStream(chooser.getSelectedFile())) {
-                fos.write(data);
-                JOptionPane.showMessageDialog(this, "下载成功: " + chooser.getSelectedFile().getAbsolutePath());
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "保存失败: " + ex.getMessage());
+            File target = chooser.getSelectedFile();
+            if (controller.downloadDocument(docId, target)) {
+                JOptionPane.showMessageDialog(this, "下载成功: " + target.getAbsolutePath());
+            } else {
+                JOptionPane.showMessageDialog(this, "下载失败");
             }
         }
     }
@@ -6,6 +6,7 @@ import client.ui.integration.ModuleKeys;
 import client.ui.integration.ModuleRegistry;
 import client.ui.modules.course.CourseTablePanel;
 import client.ui.modules.course.StudentEnrollmentTablePanel;
+import client.ui.modules.course.StudentTimetablePanel;
 import client.ui.modules.course.UITheme;
 import common.vo.UserVO;
 
@@ -96,6 +97,13 @@ public class StudentCourseModule implements IModuleView {
         JPanel enrollmentManagementPanel = createEnrollmentManagementPanel();
         tabbedPane.addTab("选课记录", enrollmentManagementPanel);
 
+        // 我的课表选项卡
+        JPanel timetablePanel = new JPanel(new BorderLayout());
+        timetablePanel.setBackground(UITheme.WHITE);
+        timetablePanel.setBorder(UITheme.createEmptyBorder(UITheme.PADDING_LARGE, UITheme.PADDING_LARGE, UITheme.PADDING_LARGE, UITheme.PADDING_LARGE));
+        timetablePanel.add(new StudentTimetablePanel(), BorderLayout.CENTER);
+        tabbedPane.addTab("我的课表", timetablePanel);
+
         return tabbedPane;
     }
 
@@ -428,6 +436,10 @@ public class StudentCourseModule implements IModuleView {
                 // 查找选课记录表格面板并刷新
                 refreshEnrollmentTableInPanel(enrollmentPanel);
             }
+            if (tabbedPane.getTabCount() > 2) {
+                // 课表由服务器增量维护，重新请求即可
+                refreshEnrollmentTableInPanel((JPanel) tabbedPane.getComponentAt(2));
+            }
         });
     }
     
@@ -439,6 +451,9 @@ public class StudentCourseModule implements IModuleView {
             if (component instanceof StudentEnrollmentTablePanel) {
                 ((StudentEnrollmentTablePanel) component).refreshData();
                 return;
+            } else if (component instanceof StudentTimetablePanel) {
+                ((StudentTimetablePanel) component).refreshData();
+                return;
             } else if (component instanceof Container) {
                 refreshEnrollmentTableInPanel((Container) component);
             }
@@ -3415,51 +3415,33 @@ public class TeacherForumModule implements IModuleView {
         }
         System.out.println("[Forum][UI] 服务器连接正常，准备发送搜索请求");
         
-        // 设置搜索结果监听器
-        conn.setMessageListener(common.protocol.MessageType.SEARCH_THREADS_SUCCESS, new client.net.ServerConnection.MessageListener() {
-            @Override
-            public void onMessageReceived(common.protocol.Message message) {
-                SwingUtilities.invokeLater(() -> {
-                    handleSearchResults(message);
-                });
-                try {
-                    conn.removeMessageListener(common.protocol.MessageType.SEARCH_THREADS_SUCCESS);
-                } catch (Exception ignore) {}
-            }
-        });
-        
-        // 设置搜索失败监听器
-        conn.setMessageListener(common.protocol.MessageType.SEARCH_THREADS_FAIL, new client.net.ServerConnection.MessageListener() {
-            @Override
-            public void onMessageReceived(common.protocol.Message message) {
-                SwingUtilities.invokeLater(() -> {
-                    showToastMessage("搜索失败: " + message.getMessage(), false);
-                    isSearchMode = false;
-                    currentSearchKeyword = null;
-                });
-                try {
-                    conn.removeMessageListener(common.protocol.MessageType.SEARCH_THREADS_FAIL);
-                } catch (Exception ignore) {}
-            }
-        });
-        
         // 发送搜索请求
         System.out.println("[Forum][UI] 创建搜索请求消息，关键词: '" + keyword + "'");
         common.protocol.Message searchRequest = new common.protocol.Message(
             common.protocol.MessageType.SEARCH_THREADS_REQUEST, keyword);
         System.out.println("[Forum][UI] 搜索请求消息创建完成，类型: " + searchRequest.getType() + ", 数据: " + searchRequest.getData());
         
-        boolean sent = conn.sendMessage(searchRequest);
-        System.out.println("[Forum][UI] 搜索请求发送结果: " + sent);
-        
-        if (!sent) {
-            System.out.println("[Forum][UI] 发送搜索请求失败，退出搜索模式");
-            showToastMessage("发送搜索请求失败", false);
-            isSearchMode = false;
-            currentSearchKeyword = null;
-        } else {
-            System.out.println("[Forum][UI] 搜索请求发送成功，等待服务器响应");
-        }
+        // 响应按请求ID匹配，无需注册/移除类型监听器，也不会被其他在途请求阻塞
+        final String searchKeyword = keyword;
+        conn.sendRequest(searchRequest).whenComplete((message, error) -> SwingUtilities.invokeLater(() -> {
+            // 用户已发起新的搜索或退出搜索模式，丢弃过期结果
+            if (!searchKeyword.equals(currentSearchKeyword)) {
+                return;
+            }
+            if (error != null) {
+                System.out.println("[Forum][UI] 搜索请求失败: " + error.getMessage());
+                showToastMessage("发送搜索请求失败", false);
+                isSearchMode = false;
+                currentSearchKeyword = null;
+            } else if (message.getType() == common.protocol.MessageType.SEARCH_THREADS_SUCCESS) {
+                handleSearchResults(message);
+            } else {
+                showToastMessage("搜索失败: " + message.getMessage(), false);
+                isSearchMode = false;
+                currentSearchKeyword = null;
+            }
+        }));
+        System.out.println("[Forum][UI] 搜索请求已发送，等待服务器响应");
     }
     
     /**
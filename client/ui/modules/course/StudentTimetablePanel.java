@@ -0,0 +1,193 @@
+package client.ui.modules.course;
+
+import client.net.ServerConnection;
+import common.protocol.Message;
+import common.protocol.MessageType;
+import common.vo.CourseScheduleVO;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.JTableHeader;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 学生周课表面板
+ * 课表由服务器按已选课程整理好（已按星期、开始时间排序），客户端只负责按时间段和星期排成表格
+ */
+public class StudentTimetablePanel extends JPanel {
+    private static final String[] DAY_NAMES = {"周一", "周二", "周三", "周四", "周五", "周六", "周日"};
+
+    private JTable timetableTable;  // 课表表格
+    private JScrollPane scrollTablePane;  // 表格滚动面板
+    private DefaultTableModel tableModel; // 表格模型
+    private final List<CourseScheduleVO> scheduleList;   // 上课安排
+    private final ServerConnection serverConnection; // 服务器连接
+
+    public StudentTimetablePanel() {
+        this.serverConnection = ServerConnection.getInstance();
+        this.scheduleList = new ArrayList<>();
+        initComponents();      // 初始化组件
+        setupLayout();         // 设置布局
+        setupMessageListener(); // 设置消息监听器
+        loadTimetable();       // 加载课表
+    }
+
+    /**
+     * 设置消息监听器
+     */
+    private void setupMessageListener() {
+        serverConnection.setMessageListener(MessageType.GET_MY_TIMETABLE_SUCCESS, message -> {
+            SwingUtilities.invokeLater(() -> {
+                if (message.getData() instanceof List) {
+                    @SuppressWarnings("unchecked")
+                    List<CourseScheduleVO> schedules = (List<CourseScheduleVO>) message.getData();
+                    scheduleList.clear();
+                    scheduleList.addAll(schedules);
+                    updateTableData();
+                }
+            });
+        });
+    }
+
+    private void setupLayout() {
+        setLayout(new BorderLayout());
+        setBackground(UITheme.WHITE);
+        add(scrollTablePane, BorderLayout.CENTER);
+    }
+
+    private void initComponents() {
+        String[] columnNames = new String[DAY_NAMES.length + 1];
+        columnNames[0] = "时间";
+        System.arraycopy(DAY_NAMES, 0, columnNames, 1, DAY_NAMES.length);
+
+        // 创建不可编辑的表格模型
+        tableModel = new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+
+        timetableTable = new JTable(tableModel);
+        timetableTable.getColumnModel().getColumn(0).setPreferredWidth(110);
+        for (int i = 1; i < columnNames.length; i++) {
+            timetableTable.getColumnModel().getColumn(i).setPreferredWidth(150);
+        }
+
+        // 设置表格样式（每格最多显示几门课程，行高放大）
+        timetableTable.setRowHeight(UITheme.TABLE_ROW_HEIGHT * 3);
+        timetableTable.setRowSelectionAllowed(false);
+        timetableTable.setGridColor(UITheme.LIGHT_GRAY);
+        timetableTable.setShowGrid(true);
+        timetableTable.setBackground(UITheme.WHITE);
+        timetableTable.setFont(UITheme.CONTENT_FONT);
+
+        // 设置表头样式
+        JTableHeader header = timetableTable.getTableHeader();
+        header.setReorderingAllowed(false);
+        header.setFont(UITheme.SUBTITLE_FONT);
+        header.setBackground(UITheme.PRIMARY_GREEN);
+        header.setForeground(UITheme.WHITE);
+        header.setPreferredSize(new Dimension(header.getWidth(), 50));
+
+        timetableTable.setDefaultRenderer(Object.class, new javax.swing.table.DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+                Component c = super.getTableCellRendererComponent(table, value, false, false, row, column);
+                c.setFont(UITheme.CONTENT_FONT);
+                c.setForeground(UITheme.DARK_GRAY);
+                boolean hasCourse = column > 0 && value != null && !value.toString().isEmpty();
+                c.setBackground(hasCourse ? UITheme.VERY_LIGHT_GREEN : UITheme.WHITE);
+                setVerticalAlignment(SwingConstants.TOP);
+                setBorder(BorderFactory.createEmptyBorder(UITheme.PADDING_SMALL, UITheme.PADDING_SMALL, UITheme.PADDING_SMALL, UITheme.PADDING_SMALL));
+                return c;
+            }
+        });
+
+        scrollTablePane = new JScrollPane(timetableTable);
+        scrollTablePane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollTablePane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+        scrollTablePane.setBorder(UITheme.createCardBorder());
+        scrollTablePane.setBackground(UITheme.WHITE);
+    }
+
+    /**
+     * 请求当前学生的周课表
+     */
+    private void loadTimetable() {
+        try {
+            if (!serverConnection.isConnected() && !serverConnection.connect()) {
+                System.err.println("无法连接到服务器");
+                return;
+            }
+            Message request = new Message();
+            request.setType(MessageType.GET_MY_TIMETABLE_REQUEST);
+            if (!serverConnection.sendMessage(request)) {
+                System.err.println("发送获取课表请求失败");
+            }
+        } catch (Exception e) {
+            System.err.println("加载课表时发生错误: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按时间段（行）和星期（列）排列上课安排
+     */
+    private void updateTableData() {
+        tableModel.setRowCount(0);
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
+        // 时间段 -> 各天的课程
+        Map<String, StringBuilder[]> rows = new TreeMap<>();
+        for (CourseScheduleVO s : scheduleList) {
+            Integer day = s.getDayOfWeek();
+            if (day == null || day < 1 || day > DAY_NAMES.length || s.getStartTime() == null || s.getEndTime() == null) {
+                continue;
+            }
+            String slot = timeFormat.format(s.getStartTime()) + "-" + timeFormat.format(s.getEndTime());
+            StringBuilder[] cells = rows.computeIfAbsent(slot, k -> new StringBuilder[DAY_NAMES.length]);
+            StringBuilder cell = cells[day - 1];
+            if (cell == null) {
+                cell = cells[day - 1] = new StringBuilder();
+            } else {
+                cell.append("<br>");
+            }
+            cell.append("<b>").append(escape(s.getCourseName())).append("</b><br>")
+                    .append(escape(s.getLocation()));
+            if (s.getTeacherName() != null) {
+                cell.append(" ").append(escape(s.getTeacherName()));
+            }
+            if (s.getWeeks() != null) {
+                cell.append("<br>").append(escape(s.getWeeks()));
+            }
+        }
+        for (Map.Entry<String, StringBuilder[]> e : rows.entrySet()) {
+            Object[] rowData = new Object[DAY_NAMES.length + 1];
+            rowData[0] = e.getKey();
+            for (int d = 0; d < DAY_NAMES.length; d++) {
+                StringBuilder cell = e.getValue()[d];
+                rowData[d + 1] = cell == null ? "" : "<html>" + cell + "</html>";
+            }
+            tableModel.addRow(rowData);
+        }
+        tableModel.fireTableDataChanged();
+    }
+
+    private static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * 重新加载课表（选课、退课后调用）
+     */
+    public void refreshData() {
+        loadTimetable();
+    }
+}
@@ -2,6 +2,7 @@ package client.ui.modules.store;
 
 import client.controller.StoreController;
 import common.vo.OrderItemVO;
+import common.vo.OrderPageVO;
 import common.vo.OrderVO;
 import common.vo.UserVO;
 
@@ -12,10 +13,17 @@ import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
 
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class StoreOrderManageModule extends JPanel {
+    private static final int PAGE_SIZE = 50;
+    private static final String[] STATUS_FILTERS = {"全部", "pending", "paid", "shipped", "delivered", "cancelled"};
+
     private JTable tableOrders;
+    private JComboBox<String> statusFilter;
+    private JButton btnLoadMore;
+    private String nextCursor;     // 下一页游标，没有更多时为null
     private OrderManageTableModel tableModel;
     private final UserVO currentUser;
     private final StoreController controller;
@@ -54,13 +62,51 @@ public class StoreOrderManageModule extends JPanel {
         tableOrders.getColumnModel().getColumn(5).setPreferredWidth(100);  // 状态
         tableOrders.getColumnModel().getColumn(6).setPreferredWidth(120);  // 操作
 
+        // 状态筛选
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(new JLabel("订单状态:"));
+        statusFilter = new JComboBox<>(STATUS_FILTERS);
+        statusFilter.addActionListener(e -> refreshTable());
+        topPanel.add(statusFilter);
+
+        // 订单按页加载，滚动到底部后点击加载下一页
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        btnLoadMore = new JButton("加载更多");
+        btnLoadMore.addActionListener(e -> loadPage(false));
+        bottomPanel.add(btnLoadMore);
+
+        add(topPanel, BorderLayout.NORTH);
         add(new JScrollPane(tableOrders), BorderLayout.CENTER);
+        add(bottomPanel, BorderLayout.SOUTH);
         refreshTable();
     }
 
     public void refreshTable() {
-        List<OrderVO> orders = controller.getAllUserOrders();
-        tableModel.setOrders(orders);
+        loadPage(true);
+    }
+
+    /**
+     * 加载一页订单摘要
+     * @param reset true 时从第一页重新加载，否则追加下一页
+     */
+    private void loadPage(boolean reset) {
+        String selected = (String) statusFilter.getSelectedItem();
+        String status = selected == null || "全部".equals(selected) ? null : selected;
+        OrderPageVO page = controller.getOrderPage(reset ? null : nextCursor, PAGE_SIZE, status, null);
+        if (page == null) {
+            if (reset) {
+                tableModel.setOrders(new ArrayList<>());
+            }
+            btnLoadMore.setEnabled(false);
+            return;
+        }
+        if (reset) {
+            tableModel.setOrders(new ArrayList<>(page.getOrders()));
+        } else {
+            tableModel.addOrders(page.getOrders());
+        }
+        nextCursor = page.getNextCursor();
+        btnLoadMore.setEnabled(page.isHasMore());
     }
 
     // ===== 表格模型 =====
@@ -75,6 +121,15 @@ public class StoreOrderManageModule extends JPanel {
             fireTableDataChanged();
         }
 
+        public void addOrders(List<OrderVO> more) {
+            if (more.isEmpty()) {
+                return;
+            }
+            int first = orders.size();
+            orders.addAll(more);
+            fireTableRowsInserted(first, orders.size() - 1);
+        }
+
         public OrderVO getOrderAt(int row) {
             if (orders == null || row < 0 || row >= orders.size()) return null;
             return orders.get(row);
@@ -106,7 +161,7 @@ public class StoreOrderManageModule extends JPanel {
                 case 2: return order.getUserName();
                 case 3: return order.getCreatedTime();
                 case 4: return "¥" + order.getTotalAmount().toString();
-                case 5: return order.getStatus();
+                case 5: return order.getStatusName();
                 case 6: return "管理订单";
                 default: return null;
             }
@@ -231,7 +286,7 @@ public class StoreOrderManageModule extends JPanel {
             orderInfoPanel.add(new JLabel("总金额:"));
             orderInfoPanel.add(new JLabel("¥" + order.getTotalAmount().toString()));
             orderInfoPanel.add(new JLabel("当前状态:"));
-            orderInfoPanel.add(new JLabel(String.valueOf(order.getStatus())));
+            orderInfoPanel.add(new JLabel(order.getStatusName()));
 
             // 商品列表
             JPanel itemsPanel = new JPanel(new BorderLayout());
@@ -241,6 +296,11 @@ public class StoreOrderManageModule extends JPanel {
             String[] itemColumns = {"商品ID", "商品名称", "数量", "单价"};
             DefaultTableModel itemModel = new DefaultTableModel(itemColumns, 0);
 
+            // 分页列表只有订单摘要，打开详情时再获取订单商品
+            if (order.getItems() == null && order.getOrderId() != null) {
+                order.setItems(controller.getOrderItems(order.getOrderId()));
+            }
+
             // 添加商品数据
             if (order.getItems() != null) {
                 for (OrderItemVO item : order.getItems()) {
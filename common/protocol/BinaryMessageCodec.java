@@ -0,0 +1,732 @@
+package common.protocol;
+
+import common.vo.AdminVO;
+import common.vo.BookVO;
+import common.vo.BorrowRecordVO;
+import common.vo.CourseResourceVO;
+import common.vo.CourseScheduleVO;
+import common.vo.CourseVO;
+import common.vo.DocumentVO;
+import common.vo.EnrollmentVO;
+import common.vo.FileChunkVO;
+import common.vo.FileMetaVO;
+import common.vo.FileTransferVO;
+import common.vo.ForumSectionVO;
+import common.vo.GradeStatsVO;
+import common.vo.GradeVO;
+import common.vo.LatencyStatsVO;
+import common.vo.OrderItemVO;
+import common.vo.OrderPageVO;
+import common.vo.OrderVO;
+import common.vo.PostVO;
+import common.vo.ProductPageVO;
+import common.vo.ProductQueryVO;
+import common.vo.ProductSalesVO;
+import common.vo.ProductVO;
+import common.vo.SalesDayVO;
+import common.vo.SalesSummaryVO;
+import common.vo.ServerMetricsVO;
+import common.vo.ShoppingCartItemVO;
+import common.vo.StudentGpaVO;
+import common.vo.StudentVO;
+import common.vo.TeacherVO;
+import common.vo.ThreadFeedPageVO;
+import common.vo.ThreadVO;
+import common.vo.UserVO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 基于模式的二进制编解码器
+ * common.vo 中的值对象按字段名排序后依次编码字段值，不写类描述符和字段名；
+ * 整数使用变长编码，字符串使用 UTF-8，同一消息内重复出现的字符串只写一次、之后按编号引用。
+ * 无法识别的可序列化对象退化为内嵌的 Java 序列化数据。
+ * 通信双方通过模式指纹确认 VO 结构与 MessageType 定义一致后才启用本编解码器。
+ */
+public class BinaryMessageCodec implements MessageCodec {
+    public static final String NAME = "binary";
+
+    // 值类型标签
+    private static final int T_NULL = 0;
+    private static final int T_STRING = 1;
+    private static final int T_INT = 2;
+    private static final int T_LONG = 3;
+    private static final int T_DOUBLE = 4;
+    private static final int T_TRUE = 5;
+    private static final int T_FALSE = 6;
+    private static final int T_BYTES = 7;
+    private static final int T_LIST = 8;
+    private static final int T_MAP = 9;
+    private static final int T_OBJECT_ARRAY = 10;
+    private static final int T_TIMESTAMP = 11;
+    private static final int T_SQL_DATE = 12;
+    private static final int T_SQL_TIME = 13;
+    private static final int T_DATE = 14;
+    private static final int T_BIG_DECIMAL = 15;
+    private static final int T_FLOAT = 16;
+    private static final int T_SHORT = 17;
+    private static final int T_BYTE = 18;
+    private static final int T_CHAR = 19;
+    private static final int T_SET = 20;
+    private static final int T_VO = 21;
+    private static final int T_SERIALIZED = 22;
+    private static final int T_STRING_REF = 23;
+
+    /**
+     * 已注册的值对象，下标即类型编号。新增 VO 时只能追加到末尾
+     */
+    private static final Class<?>[] VO_CLASSES = {
+            UserVO.class, StudentVO.class, TeacherVO.class, AdminVO.class,
+            CourseVO.class, CourseScheduleVO.class, CourseResourceVO.class, EnrollmentVO.class, GradeVO.class,
+            BookVO.class, BorrowRecordVO.class, DocumentVO.class, FileMetaVO.class,
+            ProductVO.class, OrderVO.class, OrderItemVO.class, ShoppingCartItemVO.class,
+            ThreadVO.class, PostVO.class, ForumSectionVO.class,
+            ThreadFeedPageVO.class, FileTransferVO.class, FileChunkVO.class,
+            LatencyStatsVO.class, ServerMetricsVO.class, GradeStatsVO.class, StudentGpaVO.class,
+            ProductQueryVO.class, ProductPageVO.class, OrderPageVO.class,
+            SalesDayVO.class, SalesSummaryVO.class, ProductSalesVO.class
+    };
+
+    /** 容器和VO的最大嵌套深度，超过时认为存在循环引用，整个数据改用 Java 序列化 */
+    private static final int MAX_DEPTH = 64;
+
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+    private static final Schema[] SCHEMAS;
+    private static final Map<Class<?>, Schema> SCHEMA_BY_CLASS = new IdentityHashMap<>();
+    private static final String FINGERPRINT;
+
+    static {
+        SCHEMAS = new Schema[VO_CLASSES.length];
+        StringBuilder sig = new StringBuilder();
+        for (int i = 0; i < VO_CLASSES.length; i++) {
+            SCHEMAS[i] = new Schema(i, VO_CLASSES[i]);
+            SCHEMA_BY_CLASS.put(VO_CLASSES[i], SCHEMAS[i]);
+            sig.append(SCHEMAS[i].signature()).append(';');
+        }
+        for (MessageType type : MESSAGE_TYPES) {
+            sig.append(type.name()).append(',');
+        }
+        FINGERPRINT = Integer.toHexString(sig.toString().hashCode());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFingerprint() {
+        return NAME + "-" + FINGERPRINT;
+    }
+
+    @Override
+    public byte[] encode(Message message) throws IOException {
+        Writer w = new Writer(256);
+        MessageType type = message.getType();
+        w.writeVarInt(type == null ? 0 : type.ordinal() + 1);
+        w.writeZigZag(message.getStatusCode());
+        w.writeNullableString(message.getMessage());
+        w.writeVarLong(message.getTimestamp());
+        w.writeVarLong(message.getRequestId());
+        int mark = w.pos;
+        try {
+            writeValue(w, message.getData());
+        } catch (NestingTooDeepException e) {
+            w.pos = mark;
+            w.strings.clear();
+            w.writeByte(T_SERIALIZED);
+            w.writeBytes(serialize(message.getData()));
+        }
+        return w.toByteArray();
+    }
+
+    @Override
+    public Message decode(byte[] data, int offset, int length) throws IOException {
+        try {
+            Reader r = new Reader(data, offset, length);
+            Message message = new Message();
+            int typeCode = r.readVarInt();
+            if (typeCode < 0 || typeCode > MESSAGE_TYPES.length) {
+                throw new IOException("未知的消息类型编号: " + typeCode);
+            }
+            message.setType(typeCode == 0 ? null : MESSAGE_TYPES[typeCode - 1]);
+            message.setStatusCode(r.readZigZag());
+            message.setMessage(r.readNullableString());
+            message.setTimestamp(r.readVarLong());
+            message.setRequestId(r.readVarLong());
+            message.setData(readValue(r));
+            return message;
+        } catch (RuntimeException e) {
+            // 数据来自网络，任何格式问题都按读取失败处理
+            throw new IOException("消息数据格式错误: " + e, e);
+        }
+    }
+
+    // ================= 值编码 =================
+
+    private static void writeValue(Writer w, Object value) throws IOException {
+        if (value == null) {
+            w.writeByte(T_NULL);
+        } else if (value instanceof String) {
+            String str = (String) value;
+            Integer ref = w.strings.putIfAbsent(str, w.strings.size());
+            if (ref != null) {
+                w.writeByte(T_STRING_REF);
+                w.writeVarInt(ref);
+            } else {
+                w.writeByte(T_STRING);
+                w.writeString(str);
+            }
+        } else if (value instanceof Integer) {
+            w.writeByte(T_INT);
+            w.writeZigZag((Integer) value);
+        } else if (value instanceof Long) {
+            w.writeByte(T_LONG);
+            w.writeZigZagLong((Long) value);
+        } else if (value instanceof Boolean) {
+            w.writeByte((Boolean) value ? T_TRUE : T_FALSE);
+        } else if (value instanceof Double) {
+            w.writeByte(T_DOUBLE);
+            w.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof java.sql.Timestamp) {
+            java.sql.Timestamp ts = (java.sql.Timestamp) value;
+            w.writeByte(T_TIMESTAMP);
+            w.writeZigZagLong(ts.getTime());
+            w.writeVarInt(ts.getNanos() % 1_000_000);
+        } else if (value instanceof java.sql.Date) {
+            w.writeByte(T_SQL_DATE);
+            w.writeZigZagLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.sql.Time) {
+            w.writeByte(T_SQL_TIME);
+            w.writeZigZagLong(((java.sql.Time) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            BigDecimal d = (BigDecimal) value;
+            w.writeByte(T_BIG_DECIMAL);
+            w.writeZigZag(d.scale());
+            w.writeBytes(d.unscaledValue().toByteArray());
+        } else if (value instanceof byte[]) {
+            w.writeByte(T_BYTES);
+            w.writeBytes((byte[]) value);
+        } else if (value.getClass() == java.util.Date.class) {
+            w.writeByte(T_DATE);
+            w.writeZigZagLong(((java.util.Date) value).getTime());
+        } else if (value instanceof Float) {
+            w.writeByte(T_FLOAT);
+            w.writeVarInt(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Short) {
+            w.writeByte(T_SHORT);
+            w.writeZigZag((Short) value);
+        } else if (value instanceof Byte) {
+            w.writeByte(T_BYTE);
+            w.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            w.writeByte(T_CHAR);
+            w.writeVarInt((Character) value);
+        } else if (SCHEMA_BY_CLASS.containsKey(value.getClass())) {
+            Schema schema = SCHEMA_BY_CLASS.get(value.getClass());
+            w.writeByte(T_VO);
+            w.writeVarInt(schema.id);
+            w.enter();
+            schema.write(w, value);
+            w.depth--;
+        } else if (value instanceof List && isPlainCollection(value)) {
+            List<?> list = (List<?>) value;
+            w.writeByte(T_LIST);
+            w.writeVarInt(list.size());
+            w.enter();
+            for (Object item : list) {
+                writeValue(w, item);
+            }
+            w.depth--;
+        } else if (value instanceof Set && isPlainCollection(value)) {
+            Set<?> set = (Set<?>) value;
+            w.writeByte(T_SET);
+            w.writeVarInt(set.size());
+            w.enter();
+            for (Object item : set) {
+                writeValue(w, item);
+            }
+            w.depth--;
+        } else if (value instanceof Map && isPlainCollection(value)) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            w.writeByte(T_MAP);
+            w.writeVarInt(map.size());
+            w.enter();
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                writeValue(w, e.getKey());
+                writeValue(w, e.getValue());
+            }
+            w.depth--;
+        } else if (value.getClass() == Object[].class) {
+            Object[] array = (Object[]) value;
+            w.writeByte(T_OBJECT_ARRAY);
+            w.writeVarInt(array.length);
+            w.enter();
+            for (Object item : array) {
+                writeValue(w, item);
+            }
+            w.depth--;
+        } else if (value instanceof Serializable) {
+            // 兜底：内嵌 Java 序列化
+            w.writeByte(T_SERIALIZED);
+            w.writeBytes(serialize(value));
+        } else {
+            throw new IOException("无法编码的数据类型: " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * 只把 java.util 中的常用集合及其包装视图按通用结构编码（解码为 ArrayList/LinkedHashSet/LinkedHashMap），其他集合实现走 Java 序列化保持原样
+     */
+    private static boolean isPlainCollection(Object value) {
+        Class<?> c = value.getClass();
+        return c == ArrayList.class || c == HashMap.class || c == LinkedHashMap.class
+                || c == java.util.LinkedList.class || c == java.util.HashSet.class || c == LinkedHashSet.class
+                || c == java.util.TreeMap.class
+                || c.getName().startsWith("java.util.Collections$") || c.getName().startsWith("java.util.ImmutableCollections$")
+                || c.getName().equals("java.util.Arrays$ArrayList");
+    }
+
+    private static Object readValue(Reader r) throws IOException {
+        int tag = r.readByte();
+        switch (tag) {
+            case T_NULL:
+                return null;
+            case T_STRING: {
+                String str = r.readString();
+                r.strings.add(str);
+                return str;
+            }
+            case T_STRING_REF: {
+                int ref = r.readVarInt();
+                if (ref < 0 || ref >= r.strings.size()) {
+                    throw new IOException("无效的字符串引用: " + ref);
+                }
+                return r.strings.get(ref);
+            }
+            case T_INT:
+                return r.readZigZag();
+            case T_LONG:
+                return r.readZigZagLong();
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_DOUBLE:
+                return Double.longBitsToDouble(r.readLong());
+            case T_TIMESTAMP: {
+                java.sql.Timestamp ts = new java.sql.Timestamp(r.readZigZagLong());
+                int subMillisNanos = r.readVarInt();
+                if (subMillisNanos < 0 || subMillisNanos >= 1_000_000) {
+                    throw new IOException("无效的时间戳纳秒数: " + subMillisNanos);
+                }
+                if (subMillisNanos != 0) {
+                    ts.setNanos(ts.getNanos() + subMillisNanos);
+                }
+                return ts;
+            }
+            case T_SQL_DATE:
+                return new java.sql.Date(r.readZigZagLong());
+            case T_SQL_TIME:
+                return new java.sql.Time(r.readZigZagLong());
+            case T_DATE:
+                return new java.util.Date(r.readZigZagLong());
+            case T_BIG_DECIMAL: {
+                int scale = r.readZigZag();
+                return new BigDecimal(new BigInteger(r.readBytes()), scale);
+            }
+            case T_BYTES:
+                return r.readBytes();
+            case T_FLOAT:
+                return Float.intBitsToFloat(r.readVarInt());
+            case T_SHORT:
+                return (short) r.readZigZag();
+            case T_BYTE:
+                return (byte) r.readByte();
+            case T_CHAR:
+                return (char) r.readVarInt();
+            case T_VO: {
+                int id = r.readVarInt();
+                if (id < 0 || id >= SCHEMAS.length) {
+                    throw new IOException("未知的VO类型编号: " + id);
+                }
+                r.enter();
+                Object vo = SCHEMAS[id].read(r);
+                r.depth--;
+                return vo;
+            }
+            case T_LIST: {
+                int size = r.readLength();
+                List<Object> list = new ArrayList<>(size);
+                r.enter();
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(r));
+                }
+                r.depth--;
+                return list;
+            }
+            case T_SET: {
+                int size = r.readLength();
+                Set<Object> set = new LinkedHashSet<>(Math.max(16, size * 2));
+                r.enter();
+                for (int i = 0; i < size; i++) {
+                    set.add(readValue(r));
+                }
+                r.depth--;
+                return set;
+            }
+            case T_MAP: {
+                int size = r.readLength();
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, size * 2));
+                r.enter();
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue(r);
+                    map.put(key, readValue(r));
+                }
+                r.depth--;
+                return map;
+            }
+            case T_OBJECT_ARRAY: {
+                int size = r.readLength();
+                Object[] array = new Object[size];
+                r.enter();
+                for (int i = 0; i < size; i++) {
+                    array[i] = readValue(r);
+                }
+                r.depth--;
+                return array;
+            }
+            case T_SERIALIZED:
+                return deserialize(r.readBytes());
+            default:
+                throw new IOException("未知的数据类型标签: " + tag);
+        }
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("反序列化数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    // ================= VO 模式 =================
+
+    /**
+     * 值对象模式：按字段名排序的实例字段列表
+     */
+    private static final class Schema {
+        final int id;
+        final Class<?> type;
+        final Constructor<?> constructor;
+        final Field[] fields;
+
+        Schema(int id, Class<?> type) {
+            this.id = id;
+            this.type = type;
+            List<Field> list = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    int mod = f.getModifiers();
+                    if (Modifier.isStatic(mod) || Modifier.isTransient(mod)) {
+                        continue;
+                    }
+                    f.setAccessible(true);
+                    list.add(f);
+                }
+            }
+            list.sort(Comparator.comparing((Field f) -> f.getDeclaringClass().getName()).thenComparing(Field::getName));
+            this.fields = list.toArray(new Field[0]);
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException("VO缺少无参构造方法: " + type.getName(), e);
+            }
+        }
+
+        String signature() {
+            StringBuilder sb = new StringBuilder(type.getName()).append('{');
+            Arrays.stream(fields).forEach(f -> sb.append(f.getName()).append(':').append(f.getType().getName()).append(','));
+            return sb.append('}').toString();
+        }
+
+        void write(Writer w, Object vo) throws IOException {
+            try {
+                for (Field f : fields) {
+                    writeValue(w, f.get(vo));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IOException("读取VO字段失败: " + type.getName(), e);
+            }
+        }
+
+        Object read(Reader r) throws IOException {
+            try {
+                Object vo = constructor.newInstance();
+                for (Field f : fields) {
+                    Object value = readValue(r);
+                    if (value == null && f.getType().isPrimitive()) {
+                        continue;
+                    }
+                    if (value instanceof Collection && !f.getType().isInstance(value)) {
+                        continue;
+                    }
+                    f.set(vo, value);
+                }
+                return vo;
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                throw new IOException("构造VO失败: " + type.getName() + ", " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ================= 字节读写 =================
+
+    /**
+     * 可增长的字节写缓冲
+     */
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+        private int depth;
+        // 已写出的字符串 -> 编号
+        final Map<String, Integer> strings = new HashMap<>();
+
+        Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void enter() throws NestingTooDeepException {
+            if (++depth > MAX_DEPTH) {
+                throw new NestingTooDeepException();
+            }
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeZigZag(int v) {
+            writeVarInt((v << 1) ^ (v >> 31));
+        }
+
+        void writeZigZagLong(long v) {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+
+        void writeLong(long v) {
+            ensure(8);
+            for (int i = 7; i >= 0; i--) {
+                buf[pos++] = (byte) (v >>> (i * 8));
+            }
+        }
+
+        void writeBytes(byte[] data) {
+            writeVarInt(data.length);
+            ensure(data.length);
+            System.arraycopy(data, 0, buf, pos, data.length);
+            pos += data.length;
+        }
+
+        void writeString(String s) {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writeNullableString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+            } else {
+                byte[] data = s.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(data.length + 1);
+                ensure(data.length);
+                System.arraycopy(data, 0, buf, pos, data.length);
+                pos += data.length;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class NestingTooDeepException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        NestingTooDeepException() {
+            super("对象嵌套过深");
+        }
+    }
+
+    /**
+     * 字节读游标，越界或嵌套过深时抛出 IOException
+     */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+        private final int limit;
+        private int depth;
+        // 按出现顺序记录已读取的字符串，供引用使用
+        final List<String> strings = new ArrayList<>();
+
+        Reader(byte[] buf, int offset, int length) {
+            this.buf = buf;
+            this.pos = offset;
+            this.limit = offset + length;
+        }
+
+        /**
+         * 进入一层容器或VO，嵌套深度与编码端一致，超过时拒绝（防止构造的深层嵌套耗尽线程栈）
+         */
+        void enter() throws IOException {
+            if (++depth > MAX_DEPTH) {
+                throw new IOException("对象嵌套过深");
+            }
+        }
+
+        private void require(int n) throws IOException {
+            if (n < 0 || pos + n > limit) {
+                throw new IOException("消息数据不完整");
+            }
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        int readVarInt() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("变长整数格式错误");
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("变长整数格式错误");
+        }
+
+        int readZigZag() throws IOException {
+            int v = readVarInt();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long readZigZagLong() throws IOException {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        int readLength() throws IOException {
+            int n = readVarInt();
+            // 每个元素至少占 1 字节，长度不可能超过剩余字节数
+            if (n < 0 || n > limit - pos) {
+                throw new IOException("无效的长度: " + n);
+            }
+            return n;
+        }
+
+        byte[] readBytes() throws IOException {
+            int n = readLength();
+            byte[] data = Arrays.copyOfRange(buf, pos, pos + n);
+            pos += n;
+            return data;
+        }
+
+        String readString() throws IOException {
+            int n = readLength();
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+
+        String readNullableString() throws IOException {
+            int n = readVarInt();
+            if (n == 0) {
+                return null;
+            }
+            n -= 1;
+            require(n);
+            String s = new String(buf, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+    }
+}
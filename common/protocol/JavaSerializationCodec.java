@@ -0,0 +1,47 @@
+package common.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Java 序列化编解码器
+ * 每条消息独立序列化，作为分帧协议下的兜底编解码器（例如双方的二进制模式不一致时）
+ */
+public class JavaSerializationCodec implements MessageCodec {
+    public static final String NAME = "java";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getFingerprint() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Message message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Message decode(byte[] data, int offset, int length) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, offset, length))) {
+            Object obj = in.readObject();
+            if (!(obj instanceof Message)) {
+                throw new IOException("无效的消息类型: " + (obj == null ? "null" : obj.getClass().getName()));
+            }
+            return (Message) obj;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("反序列化消息失败: " + e.getMessage(), e);
+        }
+    }
+}
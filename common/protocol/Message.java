@@ -14,6 +14,7 @@ public class Message implements Serializable {
     private Object data;           // 数据载荷
     private String message;        // 消息描述
     private long timestamp;        // 时间戳
+    private long requestId;        // 请求ID，用于关联请求与响应（0表示未关联）
     
     public Message() {
         this.timestamp = System.currentTimeMillis();
@@ -80,6 +81,20 @@ public class Message implements Serializable {
         this.timestamp = timestamp;
     }
     
+    /**
+     * 获取请求ID
+     * 客户端为请求分配唯一ID，服务器在响应中原样返回，
+     * 使同一连接上可以同时存在多个未完成的请求，响应也可以乱序到达
+     * @return 请求ID，0表示该消息不参与请求关联
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+    
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+    
     @Override
     public String toString() {
         return "Message{" +
@@ -88,6 +103,7 @@ public class Message implements Serializable {
                 ", data=" + data +
                 ", message='" + message + '\'' +
                 ", timestamp=" + timestamp +
+                ", requestId=" + requestId +
                 '}';
     }
 }
@@ -0,0 +1,41 @@
+package common.protocol;
+
+import java.io.IOException;
+
+/**
+ * 消息编解码器接口
+ * 负责单条 Message 与字节数组之间的转换，分帧和压缩由 MessageTransport 负责。
+ * 实现必须是无状态且线程安全的。
+ */
+public interface MessageCodec {
+
+    /**
+     * 获取编解码器名称，用于连接建立时协商
+     * @return 名称
+     */
+    String getName();
+
+    /**
+     * 编解码器的模式指纹，通信双方指纹一致才能使用该编解码器
+     * @return 指纹
+     */
+    String getFingerprint();
+
+    /**
+     * 编码消息
+     * @param message 消息
+     * @return 编码后的字节
+     * @throws IOException 编码失败
+     */
+    byte[] encode(Message message) throws IOException;
+
+    /**
+     * 解码消息
+     * @param data 字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @return 消息
+     * @throws IOException 解码失败
+     */
+    Message decode(byte[] data, int offset, int length) throws IOException;
+}
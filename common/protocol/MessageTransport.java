@@ -0,0 +1,424 @@
+package common.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 消息传输层
+ * 负责在字节流上收发 Message，有两种模式：
+ * 1. 分帧模式：连接建立时协商编解码器，之后每条消息为 [长度(4)][标志(1)][消息体]，较大的消息体使用 Deflate 压缩；
+ * 2. 兼容模式：沿用 ObjectOutputStream/ObjectInputStream，用于未升级的旧客户端或旧服务器。
+ * 服务器根据客户端发送的前 4 个字节区分两种模式：Java 序列化流以 0xACED 开头，分帧模式以 "VCWP" 开头。
+ */
+public abstract class MessageTransport {
+    /** 分帧模式握手魔数 */
+    public static final byte[] MAGIC = {'V', 'C', 'W', 'P'};
+    public static final int VERSION = 1;
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 2048;
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private static final int FLAG_DEFLATE = 0x01;
+    private static final int STREAM_MAGIC_HI = 0xAC;
+    private static final int STREAM_MAGIC_LO = 0xED;
+
+    /**
+     * 发送一条消息（线程安全）
+     * @param message 消息
+     * @throws IOException 发送失败
+     */
+    public abstract void writeMessage(Message message) throws IOException;
+
+    /**
+     * 阻塞读取下一条消息
+     * @return 消息
+     * @throws IOException 读取失败或连接关闭（EOFException）
+     */
+    public abstract Message readMessage() throws IOException;
+
+    /**
+     * 当前使用的编解码器名称
+     * @return 名称，兼容模式为 "legacy"
+     */
+    public abstract String getCodecName();
+
+    /**
+     * 不阻塞即可读取的字节数
+     * @return 字节数
+     * @throws IOException 读取失败
+     */
+    public abstract int available() throws IOException;
+
+    /**
+     * 关闭底层流
+     * @throws IOException 关闭失败
+     */
+    public abstract void close() throws IOException;
+
+    /**
+     * 根据名称查找编解码器
+     * @param name 名称
+     * @return 编解码器，未知名称返回null
+     */
+    public static MessageCodec findCodec(String name) {
+        if (BinaryMessageCodec.NAME.equalsIgnoreCase(name)) {
+            return new BinaryMessageCodec();
+        }
+        if (JavaSerializationCodec.NAME.equalsIgnoreCase(name)) {
+            return new JavaSerializationCodec();
+        }
+        return null;
+    }
+
+    /**
+     * 客户端发起握手，协商分帧模式的编解码器
+     * @param in 输入流
+     * @param out 输出流
+     * @param preferredCodec 期望使用的编解码器名称
+     * @param compressThreshold 压缩阈值（字节），小于等于0表示不压缩
+     * @return 传输层
+     * @throws LegacyPeerException 对端只支持兼容模式，需要重新建立连接后使用 {@link #legacy}
+     * @throws IOException 握手失败
+     */
+    public static MessageTransport clientHandshake(InputStream in, OutputStream out, String preferredCodec,
+                                                   int compressThreshold) throws IOException {
+        MessageCodec codec = findCodec(preferredCodec);
+        if (codec == null) {
+            codec = new BinaryMessageCodec();
+        }
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.write(MAGIC);
+        dataOut.writeByte(VERSION);
+        dataOut.writeUTF(codec.getName());
+        dataOut.writeUTF(codec.getFingerprint());
+        dataOut.flush();
+
+        DataInputStream dataIn = new DataInputStream(in);
+        byte[] head = new byte[4];
+        dataIn.readFully(head);
+        if ((head[0] & 0xFF) == STREAM_MAGIC_HI && (head[1] & 0xFF) == STREAM_MAGIC_LO) {
+            // 旧服务器一连接就写出对象流头
+            throw new LegacyPeerException();
+        }
+        if (!isMagic(head)) {
+            throw new IOException("握手失败: 无效的服务器响应");
+        }
+        dataIn.readUnsignedByte(); // 服务器协议版本
+        String accepted = dataIn.readUTF();
+        MessageCodec acceptedCodec = findCodec(accepted);
+        if (acceptedCodec == null) {
+            throw new IOException("握手失败: 服务器选择了未知的编解码器 " + accepted);
+        }
+        return new FramedTransport(in, out, acceptedCodec, compressThreshold, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    /**
+     * 服务器接受连接：根据客户端的前 4 个字节选择分帧模式或兼容模式
+     * @param in 输入流
+     * @param out 输出流
+     * @param compressThreshold 压缩阈值（字节），小于等于0表示不压缩
+     * @param maxFrameSize 允许的最大帧长度
+     * @return 传输层
+     * @throws IOException 握手失败
+     */
+    public static MessageTransport serverAccept(InputStream in, OutputStream out, int compressThreshold,
+                                                int maxFrameSize) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(in, MAGIC.length);
+        byte[] head = new byte[MAGIC.length];
+        new DataInputStream(pushback).readFully(head);
+        if (!isMagic(head)) {
+            pushback.unread(head);
+            return legacy(pushback, out);
+        }
+
+        DataInputStream dataIn = new DataInputStream(pushback);
+        int version = dataIn.readUnsignedByte();
+        String requested = dataIn.readUTF();
+        String fingerprint = dataIn.readUTF();
+
+        // 编解码器未知、协议版本不同或模式指纹不一致时退回 Java 序列化，保证仍能通信
+        MessageCodec codec = findCodec(requested);
+        if (codec == null || version != VERSION || !codec.getFingerprint().equals(fingerprint)) {
+            codec = new JavaSerializationCodec();
+        }
+
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.write(MAGIC);
+        dataOut.writeByte(VERSION);
+        dataOut.writeUTF(codec.getName());
+        dataOut.flush();
+        return new FramedTransport(pushback, out, codec, compressThreshold, maxFrameSize);
+    }
+
+    /**
+     * 创建兼容模式的传输层（对象流）
+     * @param in 输入流
+     * @param out 输出流
+     * @return 传输层
+     * @throws IOException 写出流头失败
+     */
+    public static MessageTransport legacy(InputStream in, OutputStream out) throws IOException {
+        return new LegacyTransport(in, out);
+    }
+
+    /**
+     * 检查缓冲区开头的握手数据是否已完整到达（供非阻塞 I/O 在读取前分帧使用）
+     * @param buf 缓冲区
+     * @param off 数据起始位置
+     * @param len 数据长度
+     * @return 握手数据的总长度；数据不完整返回0；不是分帧模式的握手（兼容模式的对象流）返回-1
+     */
+    public static int handshakeLength(byte[] buf, int off, int len) {
+        int n = Math.min(len, MAGIC.length);
+        for (int i = 0; i < n; i++) {
+            if (buf[off + i] != MAGIC[i]) {
+                return -1;
+            }
+        }
+        // [魔数(4)][版本(1)][编解码器名称(UTF)][模式指纹(UTF)]
+        int pos = MAGIC.length + 1;
+        for (int i = 0; i < 2; i++) {
+            if (len < pos + 2) {
+                return 0;
+            }
+            pos += 2 + (((buf[off + pos] & 0xFF) << 8) | (buf[off + pos + 1] & 0xFF));
+        }
+        return len < pos ? 0 : pos;
+    }
+
+    /**
+     * 检查缓冲区开头的一帧是否已完整到达（供非阻塞 I/O 在读取前分帧使用）
+     * @param buf 缓冲区
+     * @param off 数据起始位置
+     * @param len 数据长度
+     * @param maxFrameSize 允许的最大帧长度
+     * @return 整帧（含帧头）的长度；数据不完整返回0；帧长度无效返回-1
+     */
+    public static int frameLength(byte[] buf, int off, int len, int maxFrameSize) {
+        if (len < 5) {
+            return 0;
+        }
+        int length = ((buf[off] & 0xFF) << 24) | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+        if (length < 0 || length > maxFrameSize) {
+            return -1;
+        }
+        return len < 5 + length ? 0 : 5 + length;
+    }
+
+    private static boolean isMagic(byte[] head) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 对端只支持对象流协议
+     */
+    public static class LegacyPeerException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public LegacyPeerException() {
+            super("对端不支持分帧协议");
+        }
+    }
+
+    /**
+     * 分帧模式
+     */
+    private static final class FramedTransport extends MessageTransport {
+        private final InputStream rawIn;
+        private final DataInputStream in;
+        private final OutputStream out;
+        private final MessageCodec codec;
+        private final int compressThreshold;
+        private final int maxFrameSize;
+
+        FramedTransport(InputStream in, OutputStream out, MessageCodec codec, int compressThreshold, int maxFrameSize) {
+            this.rawIn = in;
+            this.in = new DataInputStream(in);
+            this.out = out;
+            this.codec = codec;
+            this.compressThreshold = compressThreshold;
+            this.maxFrameSize = maxFrameSize;
+        }
+
+        @Override
+        public void writeMessage(Message message) throws IOException {
+            // 编码和压缩在锁外完成，锁内只做一次写出
+            byte[] body = codec.encode(message);
+            int flags = 0;
+            if (compressThreshold > 0 && body.length > compressThreshold) {
+                byte[] compressed = deflate(body);
+                if (compressed.length < body.length) {
+                    body = compressed;
+                    flags |= FLAG_DEFLATE;
+                }
+            }
+            if (body.length > maxFrameSize) {
+                throw new IOException("消息过大: " + body.length + " 字节");
+            }
+
+            byte[] frame = new byte[5 + body.length];
+            frame[0] = (byte) (body.length >>> 24);
+            frame[1] = (byte) (body.length >>> 16);
+            frame[2] = (byte) (body.length >>> 8);
+            frame[3] = (byte) body.length;
+            frame[4] = (byte) flags;
+            System.arraycopy(body, 0, frame, 5, body.length);
+            synchronized (this) {
+                out.write(frame);
+                out.flush();
+            }
+        }
+
+        @Override
+        public Message readMessage() throws IOException {
+            int length = in.readInt();
+            int flags = in.readUnsignedByte();
+            if (length < 0 || length > maxFrameSize) {
+                throw new IOException("无效的帧长度: " + length);
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            if ((flags & FLAG_DEFLATE) != 0) {
+                body = inflate(body);
+            }
+            return codec.decode(body, 0, body.length);
+        }
+
+        private byte[] deflate(byte[] data) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 16);
+                byte[] buf = new byte[4096];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf);
+                    bytes.write(buf, 0, n);
+                }
+                return bytes.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private byte[] inflate(byte[] data) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length * 3);
+                byte[] buf = new byte[8192];
+                while (!inflater.finished()) {
+                    int n = inflater.inflate(buf);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IOException("压缩数据不完整");
+                    }
+                    bytes.write(buf, 0, n);
+                    if (bytes.size() > maxFrameSize) {
+                        throw new IOException("解压后的消息过大");
+                    }
+                }
+                return bytes.toByteArray();
+            } catch (DataFormatException e) {
+                throw new IOException("解压消息失败: " + e.getMessage(), e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        public String getCodecName() {
+            return codec.getName();
+        }
+
+        @Override
+        public int available() throws IOException {
+            return rawIn.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 兼容模式：对象流
+     */
+    private static final class LegacyTransport extends MessageTransport {
+        private final InputStream rawIn;
+        private final ObjectOutputStream objectOut;
+        private ObjectInputStream objectIn;
+
+        LegacyTransport(InputStream in, OutputStream out) throws IOException {
+            this.rawIn = in;
+            this.objectOut = new ObjectOutputStream(out);
+            this.objectOut.flush();
+        }
+
+        @Override
+        public synchronized void writeMessage(Message message) throws IOException {
+            objectOut.writeObject(message);
+            objectOut.flush();
+        }
+
+        @Override
+        public Message readMessage() throws IOException {
+            // 对象流头在第一次读取时才等待，避免在握手阶段阻塞
+            if (objectIn == null) {
+                objectIn = new ObjectInputStream(rawIn);
+            }
+            try {
+                Object obj = objectIn.readObject();
+                if (!(obj instanceof Message)) {
+                    throw new IOException("无效的消息类型: " + (obj == null ? "null" : obj.getClass().getName()));
+                }
+                return (Message) obj;
+            } catch (ClassNotFoundException e) {
+                throw new IOException("反序列化消息失败: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String getCodecName() {
+            return "legacy";
+        }
+
+        @Override
+        public int available() throws IOException {
+            // 对象流自身只统计块数据，还要加上底层流中已到达的字节
+            return (objectIn != null ? objectIn.available() : 0) + rawIn.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (objectIn != null) {
+                    objectIn.close();
+                } else {
+                    rawIn.close();
+                }
+            } finally {
+                objectOut.close();
+            }
+        }
+    }
+}
@@ -14,6 +14,9 @@ public enum MessageType {
     REGISTER_FAIL,              // 注册失败
     LOGOUT_REQUEST,             // 登出请求
     LOGOUT_SUCCESS,             // 登出成功
+    SESSION_RESUME_REQUEST,     // 断线重连后恢复会话请求
+    SESSION_RESUME_SUCCESS,     // 恢复会话成功
+    SESSION_RESUME_FAIL,        // 恢复会话失败（令牌无效或已过期）
     UPDATE_USER_REQUEST,        // 更新用户信息请求
     UPDATE_USER_SUCCESS,        // 更新用户信息成功
     UPDATE_USER_FAIL,           // 更新用户信息失败
@@ -72,6 +75,14 @@ public enum MessageType {
     GET_STUDENT_ENROLLMENTS_SUCCESS, // 获取学生选课记录成功
     GET_ENROLLMENTS_BY_COURSE_REQUEST, // 获取指定课程的选课记录请求
     GET_ENROLLMENTS_BY_COURSE_SUCCESS, // 获取指定课程的选课记录成功
+    FIND_NON_CONFLICTING_COURSES_REQUEST, // 查找与已选课程时间不冲突的课程请求
+    FIND_NON_CONFLICTING_COURSES_SUCCESS, // 查找与已选课程时间不冲突的课程成功
+    GET_MY_TIMETABLE_REQUEST,   // 获取我的周课表请求
+    GET_MY_TIMETABLE_SUCCESS,   // 获取我的周课表成功
+    GET_COURSE_GRADE_STATS_REQUEST, // 获取课程成绩统计请求
+    GET_COURSE_GRADE_STATS_SUCCESS, // 获取课程成绩统计成功
+    GET_MY_GPA_REQUEST,         // 获取我的绩点请求
+    GET_MY_GPA_SUCCESS,         // 获取我的绩点成功
 
     // ================= 图书馆模块 =================
 
@@ -173,6 +184,9 @@ public enum MessageType {
     GET_ALL_USER_ORDERS_REQUEST,          // 获取所有订单请求
     GET_ALL_USER_ORDERS_SUCCESS,          // 获取所有订单成功
     GET_ALL_USER_ORDERS_FAIL,             // 获取所有订单失败
+    GET_ORDER_PAGE_REQUEST,           // 分页获取订单摘要请求（游标分页，可按状态、用户、时间筛选）
+    GET_ORDER_PAGE_SUCCESS,           // 分页获取订单摘要成功
+    GET_ORDER_PAGE_FAIL,              // 分页获取订单摘要失败
     
     
     // 订单操作
@@ -222,6 +236,8 @@ public enum MessageType {
     GET_PRODUCT_BY_ID_REQUEST,        // 按ID获取商品请求
     GET_PRODUCT_BY_ID_SUCCESS,        // 按ID获取商品成功
     GET_PRODUCT_BY_ID_FAIL,           // 按ID获取商品失败
+    QUERY_PRODUCTS_REQUEST,           // 按条件查询商品请求（带目录版本号，可只回复"未修改"）
+    QUERY_PRODUCTS_SUCCESS,           // 按条件查询商品成功
     
    /*  // 购买流程
     PURCHASE_REQUEST,                  // 购买请求
@@ -254,6 +270,19 @@ public enum MessageType {
     ADJUST_STOCK_SUCCESS,              // 调整库存成功
     ADJUST_STOCK_FAIL,                 // 调整库存失败
     
+    // 销售统计（管理员，由内存中的汇总直接回复）
+    GET_SALES_SUMMARY_REQUEST,         // 获取销售概况请求（累计值和最近若干天的每日汇总）
+    GET_SALES_SUMMARY_SUCCESS,         // 获取销售概况成功
+    GET_SALES_SUMMARY_FAIL,            // 获取销售概况失败
+    
+    GET_TOP_PRODUCTS_REQUEST,          // 获取畅销商品排行请求（按件数或销售额）
+    GET_TOP_PRODUCTS_SUCCESS,          // 获取畅销商品排行成功
+    GET_TOP_PRODUCTS_FAIL,             // 获取畅销商品排行失败
+    
+    GET_STOCK_TURNOVER_REQUEST,        // 获取库存周转率请求
+    GET_STOCK_TURNOVER_SUCCESS,        // 获取库存周转率成功
+    GET_STOCK_TURNOVER_FAIL,           // 获取库存周转率失败
+    
     // 论坛模块
     GET_ALL_THREADS_REQUEST,    // 获取所有主题请求
     GET_ALL_THREADS_SUCCESS,    // 获取所有主题成功
@@ -283,6 +312,12 @@ public enum MessageType {
     SEARCH_THREADS_REQUEST,     // 搜索帖子请求
     SEARCH_THREADS_SUCCESS,     // 搜索帖子成功
     SEARCH_THREADS_FAIL,        // 搜索帖子失败
+    GET_THREAD_FEED_REQUEST,    // 分页获取主题摘要请求（游标分页）
+    GET_THREAD_FEED_SUCCESS,    // 分页获取主题摘要成功
+    GET_THREAD_FEED_FAIL,       // 分页获取主题摘要失败
+    GET_THREAD_DETAIL_REQUEST,  // 获取主题详情请求（记录浏览）
+    GET_THREAD_DETAIL_SUCCESS,  // 获取主题详情成功
+    GET_THREAD_DETAIL_FAIL,     // 获取主题详情失败
     
     // 文件资源模块
     GET_COURSE_FILES_REQUEST,   // 获取课程文件请求
@@ -295,9 +330,17 @@ public enum MessageType {
     FILE_DOWNLOAD_READY,        // 文件下载准备就绪
     FILE_DOWNLOAD_SUCCESS,      // 文件下载成功
     FILE_DOWNLOAD_FAIL,         // 文件下载失败
+    FILE_CHUNK_REQUEST,         // 请求下载一个文件分块
+    FILE_CHUNK_DATA,            // 文件分块数据（下载响应 / 上传请求）
+    FILE_CHUNK_ACK,             // 上传分块确认
     DELETE_FILE_REQUEST,        // 删除文件请求
     DELETE_FILE_SUCCESS,        // 删除文件成功
     
+    // 服务器监控（管理员）
+    GET_SERVER_METRICS_REQUEST, // 获取服务器运行指标请求
+    GET_SERVER_METRICS_SUCCESS, // 获取服务器运行指标成功
+    GET_SERVER_METRICS_FAIL,    // 获取服务器运行指标失败
+    
     // 系统消息
     HEARTBEAT,                  // 心跳消息
     ERROR,                      // 错误消息
@@ -0,0 +1,42 @@
+package common.vo;
+
+import java.io.Serializable;
+
+/**
+ * 文件分块值对象
+ * 下载时客户端用 transferId/offset/length 请求一个分块，服务器返回 data 和 checksum；
+ * 上传时客户端按顺序发送 data 和 checksum，服务器确认后在 offset 中返回下一个应发送的偏移量。
+ * checksum 为本分块数据的 CRC32C。
+ */
+public class FileChunkVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String transferId;     // 传输会话ID
+    private long offset;           // 分块在文件中的起始位置
+    private int length;            // 请求的字节数（下载时）
+    private byte[] data;           // 分块数据
+    private long checksum;         // 分块数据的 CRC32C
+
+    public FileChunkVO() {}
+
+    public FileChunkVO(String transferId, long offset, int length) {
+        this.transferId = transferId;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public String getTransferId() { return transferId; }
+    public void setTransferId(String transferId) { this.transferId = transferId; }
+
+    public long getOffset() { return offset; }
+    public void setOffset(long offset) { this.offset = offset; }
+
+    public int getLength() { return length; }
+    public void setLength(int length) { this.length = length; }
+
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+
+    public long getChecksum() { return checksum; }
+    public void setChecksum(long checksum) { this.checksum = checksum; }
+}
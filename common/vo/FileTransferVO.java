@@ -0,0 +1,51 @@
+package common.vo;
+
+import java.io.Serializable;
+
+/**
+ * 分块文件传输会话值对象
+ * 下载：服务器在 FILE_DOWNLOAD_READY 中返回文件大小、分块大小和整个文件的校验和；
+ * 上传：客户端在 FILE_UPLOAD_REQUEST 中给出文件大小、校验和和文献信息，
+ * 服务器在 FILE_UPLOAD_READY 中返回会话ID和应从哪个偏移量继续上传（断点续传）。
+ * 校验和均为 CRC32C。
+ */
+public class FileTransferVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String transferId;     // 传输会话ID，后续分块请求使用
+    private Integer docId;         // 文献ID（下载时）
+    private String fileName;       // 文件名
+    private long fileSize;         // 文件总大小（字节）
+    private int chunkSize;         // 每个分块的最大字节数
+    private long offset;           // 上传时服务器已收到的字节数
+    private long checksum;         // 整个文件的 CRC32C
+    private long lastModified;     // 服务器文件修改时间（下载时）
+    private DocumentVO document;   // 上传的文献信息；上传完成后带回文献ID
+
+    public String getTransferId() { return transferId; }
+    public void setTransferId(String transferId) { this.transferId = transferId; }
+
+    public Integer getDocId() { return docId; }
+    public void setDocId(Integer docId) { this.docId = docId; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+
+    public int getChunkSize() { return chunkSize; }
+    public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+
+    public long getOffset() { return offset; }
+    public void setOffset(long offset) { this.offset = offset; }
+
+    public long getChecksum() { return checksum; }
+    public void setChecksum(long checksum) { this.checksum = checksum; }
+
+    public long getLastModified() { return lastModified; }
+    public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+
+    public DocumentVO getDocument() { return document; }
+    public void setDocument(DocumentVO document) { this.document = document; }
+}
@@ -0,0 +1,71 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 课程成绩统计值对象
+ * 一门课程已评分成绩的人数、平均分、标准差、分位数和等级分布。
+ * 分位数按 0.1 分分桶统计，误差不超过 0.1 分。
+ */
+public class GradeStatsVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Integer courseId;          // 课程ID
+    private int count;                 // 已评分人数
+    private double mean;               // 平均分
+    private double stdDev;             // 标准差（总体）
+    private double min;                // 最低分
+    private double max;                // 最高分
+    private double p25;                // 下四分位数
+    private double median;             // 中位数
+    private double p75;                // 上四分位数
+    private double p90;                // 90分位数
+    private double passRate;           // 及格率（0-1）
+    private Map<String, Integer> levelCounts = new LinkedHashMap<>(); // 等级 -> 人数（按等级从高到低）
+
+    public GradeStatsVO() {}
+
+    public Integer getCourseId() { return courseId; }
+    public void setCourseId(Integer courseId) { this.courseId = courseId; }
+
+    public int getCount() { return count; }
+    public void setCount(int count) { this.count = count; }
+
+    public double getMean() { return mean; }
+    public void setMean(double mean) { this.mean = mean; }
+
+    public double getStdDev() { return stdDev; }
+    public void setStdDev(double stdDev) { this.stdDev = stdDev; }
+
+    public double getMin() { return min; }
+    public void setMin(double min) { this.min = min; }
+
+    public double getMax() { return max; }
+    public void setMax(double max) { this.max = max; }
+
+    public double getP25() { return p25; }
+    public void setP25(double p25) { this.p25 = p25; }
+
+    public double getMedian() { return median; }
+    public void setMedian(double median) { this.median = median; }
+
+    public double getP75() { return p75; }
+    public void setP75(double p75) { this.p75 = p75; }
+
+    public double getP90() { return p90; }
+    public void setP90(double p90) { this.p90 = p90; }
+
+    public double getPassRate() { return passRate; }
+    public void setPassRate(double passRate) { this.passRate = passRate; }
+
+    public Map<String, Integer> getLevelCounts() { return levelCounts; }
+    public void setLevelCounts(Map<String, Integer> levelCounts) { this.levelCounts = levelCounts; }
+
+    @Override
+    public String toString() {
+        return "GradeStatsVO{courseId=" + courseId + ", count=" + count + ", mean=" + String.format("%.2f", mean)
+                + ", stdDev=" + String.format("%.2f", stdDev) + ", median=" + median + ", levels=" + levelCounts + "}";
+    }
+}
@@ -323,6 +323,17 @@ public class GradeVO implements Serializable {
         this.gradedTime = new Timestamp(System.currentTimeMillis());
     }
     
+    /**
+     * 直接录入总成绩（不按分项加权），同时计算绩点和等级
+     * @param totalGrade 总成绩
+     */
+    public void applyTotalGrade(BigDecimal totalGrade) {
+        this.totalGrade = totalGrade;
+        calculateGradePoint();
+        calculateGradeLevel();
+        this.gradedTime = new Timestamp(System.currentTimeMillis());
+    }
+    
     /**
      * 根据总成绩计算绩点
      */
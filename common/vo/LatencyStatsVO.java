@@ -0,0 +1,57 @@
+package common.vo;
+
+import java.io.Serializable;
+
+/**
+ * 延迟统计值对象
+ * 一种请求类型（或一个数据库访问类）自服务器启动以来的调用次数、失败次数和延迟分布，时间单位为微秒。
+ * 百分位数来自对数分桶直方图，相对误差不超过 1/16。
+ */
+public class LatencyStatsVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String name;           // 请求类型或类名
+    private long count;            // 调用次数
+    private long errors;           // 失败次数（异常或错误响应）
+    private long meanMicros;       // 平均耗时
+    private long p50Micros;
+    private long p90Micros;
+    private long p99Micros;
+    private long p999Micros;
+    private long maxMicros;
+
+    public LatencyStatsVO() {}
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public long getErrors() { return errors; }
+    public void setErrors(long errors) { this.errors = errors; }
+
+    public long getMeanMicros() { return meanMicros; }
+    public void setMeanMicros(long meanMicros) { this.meanMicros = meanMicros; }
+
+    public long getP50Micros() { return p50Micros; }
+    public void setP50Micros(long p50Micros) { this.p50Micros = p50Micros; }
+
+    public long getP90Micros() { return p90Micros; }
+    public void setP90Micros(long p90Micros) { this.p90Micros = p90Micros; }
+
+    public long getP99Micros() { return p99Micros; }
+    public void setP99Micros(long p99Micros) { this.p99Micros = p99Micros; }
+
+    public long getP999Micros() { return p999Micros; }
+    public void setP999Micros(long p999Micros) { this.p999Micros = p999Micros; }
+
+    public long getMaxMicros() { return maxMicros; }
+    public void setMaxMicros(long maxMicros) { this.maxMicros = maxMicros; }
+
+    @Override
+    public String toString() {
+        return name + "{count=" + count + ", errors=" + errors + ", mean=" + meanMicros + "us, p50=" + p50Micros
+                + "us, p99=" + p99Micros + "us, max=" + maxMicros + "us}";
+    }
+}
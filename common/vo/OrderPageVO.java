@@ -0,0 +1,31 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单分页结果值对象
+ * orders 中的 OrderVO 为摘要行（items 为null，只有 itemCount），订单商品按需通过 GET_ORDER_ITEMS_REQUEST 获取；
+ * 请求下一页时把 nextCursor 原样传回服务器即可，客户端不需要解析游标内容。
+ */
+public class OrderPageVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<OrderVO> orders = new ArrayList<>();
+    private String nextCursor;     // 下一页游标，没有更多数据时为null
+    private boolean hasMore;       // 是否还有下一页
+    private Integer pageSize;      // 本次实际使用的每页数量
+
+    public List<OrderVO> getOrders() { return orders; }
+    public void setOrders(List<OrderVO> orders) { this.orders = orders; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public Integer getPageSize() { return pageSize; }
+    public void setPageSize(Integer pageSize) { this.pageSize = pageSize; }
+}
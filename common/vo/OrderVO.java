@@ -11,11 +11,14 @@ import java.util.List;
 public class OrderVO implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    private Integer orderId;        // 订单主键
     private String orderOn;        // 订单ID
     private Integer userId;         // 用户ID
     private Double totalAmount;     // 订单总额
     private Integer status;         // 状态：1-已完成，0-已取消
     private Timestamp createdTime;  // 创建时间
+    private String statusText;      // 数据库中的状态（pending/待支付、paid、shipped、delivered、cancelled）
+    private Integer itemCount;      // 订单商品行数（分页摘要中代替 items）
     
     // 关联信息（用于显示）
     private String userName;        // 用户姓名
@@ -31,6 +34,14 @@ public class OrderVO implements Serializable {
     }
     
     // Getters and Setters
+    public Integer getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(Integer orderId) {
+        this.orderId = orderId;
+    }
+    
     public String getOrderOn() {
         return orderOn;
     }
@@ -71,6 +82,22 @@ public class OrderVO implements Serializable {
         this.createdTime = createdTime;
     }
     
+    public String getStatusText() {
+        return statusText;
+    }
+    
+    public void setStatusText(String statusText) {
+        this.statusText = statusText;
+    }
+    
+    public Integer getItemCount() {
+        return itemCount;
+    }
+    
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+    
     public String getUserName() {
         return userName;
     }
@@ -100,6 +127,17 @@ public class OrderVO implements Serializable {
      * @return 状态名称字符串
      */
     public String getStatusName() {
+        if (statusText != null) {
+            switch (statusText) {
+                case "pending":
+                case "待支付": return "待支付";
+                case "paid": return "已支付";
+                case "shipped": return "已发货";
+                case "delivered": return "已送达";
+                case "cancelled": return "已取消";
+                default: return statusText;
+            }
+        }
         if (status == null) return "未知";
         switch (status) {
             case 0: return "已取消";
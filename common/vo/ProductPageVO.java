@@ -0,0 +1,31 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商品查询结果值对象
+ * version 为查询时商品目录的版本号，商品信息、库存、销量有任何变化时版本号都会增加；
+ * notModified 为 true 时表示客户端缓存的结果仍然有效，products 为空。
+ */
+public class ProductPageVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long version;                               // 商品目录版本号
+    private boolean notModified;                        // 客户端缓存是否仍然有效
+    private List<ProductVO> products = new ArrayList<>(); // 本页商品
+    private int total;                                  // 满足条件的商品总数
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public boolean isNotModified() { return notModified; }
+    public void setNotModified(boolean notModified) { this.notModified = notModified; }
+
+    public List<ProductVO> getProducts() { return products; }
+    public void setProducts(List<ProductVO> products) { this.products = products; }
+
+    public int getTotal() { return total; }
+    public void setTotal(int total) { this.total = total; }
+}
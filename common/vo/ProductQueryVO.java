@@ -0,0 +1,90 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * 商品查询条件值对象
+ * 关键词按子串匹配商品名称和描述（不区分大小写）；未设置的条件不过滤。
+ * knownVersion 为客户端缓存的商品目录版本号，与服务器当前版本相同时服务器只回复"未修改"，不再返回商品列表。
+ */
+public class ProductQueryVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String SORT_DEFAULT = "default";          // 按商品ID
+    public static final String SORT_PRICE_ASC = "price_asc";      // 价格从低到高
+    public static final String SORT_PRICE_DESC = "price_desc";    // 价格从高到低
+    public static final String SORT_POPULARITY = "popularity";    // 销量从高到低
+
+    private String keyword;         // 关键词
+    private String category;        // 分类（包含该文字即匹配）
+    private Double minPrice;        // 最低价格（含）
+    private Double maxPrice;        // 最高价格（含）
+    private Integer minStock;       // 最少库存（含），1 表示只看有货
+    private Integer maxStock;       // 最多库存（含），用于查找库存不足的商品
+    private String sortBy = SORT_DEFAULT; // 排序方式
+    private int offset;             // 跳过的条数
+    private int limit;              // 最多返回条数，0 表示不限
+    private long knownVersion = -1; // 客户端缓存的目录版本号，没有缓存时为 -1
+
+    public ProductQueryVO() {}
+
+    public ProductQueryVO(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public String getKeyword() { return keyword; }
+    public void setKeyword(String keyword) { this.keyword = keyword; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public Double getMinPrice() { return minPrice; }
+    public void setMinPrice(Double minPrice) { this.minPrice = minPrice; }
+
+    public Double getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(Double maxPrice) { this.maxPrice = maxPrice; }
+
+    public Integer getMinStock() { return minStock; }
+    public void setMinStock(Integer minStock) { this.minStock = minStock; }
+
+    public Integer getMaxStock() { return maxStock; }
+    public void setMaxStock(Integer maxStock) { this.maxStock = maxStock; }
+
+    public String getSortBy() { return sortBy; }
+    public void setSortBy(String sortBy) { this.sortBy = sortBy; }
+
+    public int getOffset() { return offset; }
+    public void setOffset(int offset) { this.offset = offset; }
+
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+
+    public long getKnownVersion() { return knownVersion; }
+    public void setKnownVersion(long knownVersion) { this.knownVersion = knownVersion; }
+
+    /**
+     * 查询条件是否相同（不比较 knownVersion），客户端据此复用缓存的结果
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ProductQueryVO)) return false;
+        ProductQueryVO q = (ProductQueryVO) o;
+        return offset == q.offset && limit == q.limit && Objects.equals(keyword, q.keyword)
+                && Objects.equals(category, q.category) && Objects.equals(minPrice, q.minPrice)
+                && Objects.equals(maxPrice, q.maxPrice) && Objects.equals(minStock, q.minStock)
+                && Objects.equals(maxStock, q.maxStock) && Objects.equals(sortBy, q.sortBy);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(keyword, category, minPrice, maxPrice, minStock, maxStock, sortBy, offset, limit);
+    }
+
+    @Override
+    public String toString() {
+        return "ProductQueryVO{keyword='" + keyword + "', category='" + category + "', price=[" + minPrice + ", " + maxPrice
+                + "], stock=[" + minStock + ", " + maxStock + "], sortBy=" + sortBy + ", offset=" + offset + ", limit=" + limit + "}";
+    }
+}
@@ -0,0 +1,57 @@
+package common.vo;
+
+import java.io.Serializable;
+
+/**
+ * 商品销售统计值对象
+ * 件数和销售额只计已支付（含已发货）的订单。库存周转率 = 近30天售出件数 / 平均库存，
+ * 平均库存按 (期初库存 + 当前库存) / 2 = 当前库存 + 近30天售出件数 / 2 估算（不计期间的补货）。
+ */
+public class ProductSalesVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Integer productId;         // 商品ID
+    private String productName;        // 商品名称
+    private long units;                // 累计售出件数
+    private double revenue;            // 累计销售额
+    private long shippedUnits;         // 累计已发货件数
+    private long unitsLast30Days;      // 近30天售出件数
+    private int stock = -1;            // 当前库存（-1 表示未知）
+    private double turnover = -1;      // 近30天库存周转率（-1 表示未知）
+    private double daysOfSupply = -1;  // 按近30天销量，当前库存可售天数（-1 表示近30天没有销量或库存未知）
+
+    public ProductSalesVO() {}
+
+    public Integer getProductId() { return productId; }
+    public void setProductId(Integer productId) { this.productId = productId; }
+
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public double getRevenue() { return revenue; }
+    public void setRevenue(double revenue) { this.revenue = revenue; }
+
+    public long getShippedUnits() { return shippedUnits; }
+    public void setShippedUnits(long shippedUnits) { this.shippedUnits = shippedUnits; }
+
+    public long getUnitsLast30Days() { return unitsLast30Days; }
+    public void setUnitsLast30Days(long unitsLast30Days) { this.unitsLast30Days = unitsLast30Days; }
+
+    public int getStock() { return stock; }
+    public void setStock(int stock) { this.stock = stock; }
+
+    public double getTurnover() { return turnover; }
+    public void setTurnover(double turnover) { this.turnover = turnover; }
+
+    public double getDaysOfSupply() { return daysOfSupply; }
+    public void setDaysOfSupply(double daysOfSupply) { this.daysOfSupply = daysOfSupply; }
+
+    @Override
+    public String toString() {
+        return "ProductSalesVO{" + productId + " " + productName + ", units=" + units + ", revenue=" + revenue
+                + ", last30=" + unitsLast30Days + ", stock=" + stock + ", turnover=" + turnover + '}';
+    }
+}
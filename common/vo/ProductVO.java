@@ -16,6 +16,7 @@ public class ProductVO implements Serializable {
     private String category;        // 分类
     private Double price;           // 价格
     private Integer stock;          // 库存
+    private Integer sales;          // 销量（未取消订单中的件数）
     private Timestamp createdTime;  // 创建时间
  
     public ProductVO() {}
@@ -47,6 +48,9 @@ public class ProductVO implements Serializable {
     public Integer getStock() { return stock; }
     public void setStock(Integer stock) { this.stock = stock; }
 
+    public Integer getSales() { return sales; }
+    public void setSales(Integer sales) { this.sales = sales; }
+
 
     public Timestamp getCreatedTime() { return createdTime; }
     public void setCreatedTime(Timestamp createdTime) { this.createdTime = createdTime; }
@@ -0,0 +1,44 @@
+package common.vo;
+
+import java.io.Serializable;
+
+/**
+ * 商城单日销售汇总值对象
+ * 订单按下单日期归入当天：已支付（含已发货）的订单计入销售额和件数，支付后取消的订单从中扣除。
+ */
+public class SalesDayVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String date;               // 日期 yyyy-MM-dd
+    private int placedOrders;          // 下单数
+    private int paidOrders;            // 已支付订单数（含已发货）
+    private int cancelledOrders;       // 已取消订单数
+    private long units;                // 已支付商品件数
+    private double revenue;            // 销售额
+
+    public SalesDayVO() {}
+
+    public String getDate() { return date; }
+    public void setDate(String date) { this.date = date; }
+
+    public int getPlacedOrders() { return placedOrders; }
+    public void setPlacedOrders(int placedOrders) { this.placedOrders = placedOrders; }
+
+    public int getPaidOrders() { return paidOrders; }
+    public void setPaidOrders(int paidOrders) { this.paidOrders = paidOrders; }
+
+    public int getCancelledOrders() { return cancelledOrders; }
+    public void setCancelledOrders(int cancelledOrders) { this.cancelledOrders = cancelledOrders; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public double getRevenue() { return revenue; }
+    public void setRevenue(double revenue) { this.revenue = revenue; }
+
+    @Override
+    public String toString() {
+        return "SalesDayVO{" + date + ", placed=" + placedOrders + ", paid=" + paidOrders
+                + ", cancelled=" + cancelledOrders + ", units=" + units + ", revenue=" + revenue + '}';
+    }
+}
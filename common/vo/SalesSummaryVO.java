@@ -0,0 +1,48 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 商城销售概况值对象
+ * 全部历史订单的累计值，以及最近若干天（含今天，按日期升序，没有订单的日期也有一行）的每日汇总。
+ */
+public class SalesSummaryVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long asOf;                                   // 统计时间（毫秒）
+    private int placedOrders;                            // 累计下单数
+    private int paidOrders;                              // 累计已支付订单数（含已发货）
+    private int cancelledOrders;                         // 累计已取消订单数
+    private int openOrders;                              // 待支付、已支付未发货的订单数
+    private long units;                                  // 累计已支付商品件数
+    private double revenue;                              // 累计销售额
+    private List<SalesDayVO> days = new ArrayList<>();   // 每日汇总
+
+    public SalesSummaryVO() {}
+
+    public long getAsOf() { return asOf; }
+    public void setAsOf(long asOf) { this.asOf = asOf; }
+
+    public int getPlacedOrders() { return placedOrders; }
+    public void setPlacedOrders(int placedOrders) { this.placedOrders = placedOrders; }
+
+    public int getPaidOrders() { return paidOrders; }
+    public void setPaidOrders(int paidOrders) { this.paidOrders = paidOrders; }
+
+    public int getCancelledOrders() { return cancelledOrders; }
+    public void setCancelledOrders(int cancelledOrders) { this.cancelledOrders = cancelledOrders; }
+
+    public int getOpenOrders() { return openOrders; }
+    public void setOpenOrders(int openOrders) { this.openOrders = openOrders; }
+
+    public long getUnits() { return units; }
+    public void setUnits(long units) { this.units = units; }
+
+    public double getRevenue() { return revenue; }
+    public void setRevenue(double revenue) { this.revenue = revenue; }
+
+    public List<SalesDayVO> getDays() { return days; }
+    public void setDays(List<SalesDayVO> days) { this.days = days; }
+}
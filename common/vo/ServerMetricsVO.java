@@ -0,0 +1,67 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务器运行指标值对象（管理员查看）
+ * 计数均为自服务器启动以来的累计值；requests 按请求类型统计处理耗时（含排队时间），
+ * databaseCalls 按 DAO/Service 类统计每次借用数据库连接的耗时。
+ */
+public class ServerMetricsVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long startTime;            // 服务器启动时间（毫秒时间戳）
+    private long uptimeMillis;         // 运行时长
+    private int activeConnections;     // 当前连接数
+    private int onlineUsers;           // 当前登录用户数
+    private long bytesIn;              // 累计接收字节数
+    private long bytesOut;             // 累计发送字节数
+    private long requestCount;         // 累计处理请求数
+    private long errorCount;           // 累计失败请求数
+    private long rejectedCount;        // 因模块线程池队列已满被拒绝的请求数
+    private int dbActiveConnections;   // 连接池借出中的连接数
+    private int dbIdleConnections;     // 连接池空闲连接数
+    private List<LatencyStatsVO> requests = new ArrayList<>();
+    private List<LatencyStatsVO> databaseCalls = new ArrayList<>();
+
+    public long getStartTime() { return startTime; }
+    public void setStartTime(long startTime) { this.startTime = startTime; }
+
+    public long getUptimeMillis() { return uptimeMillis; }
+    public void setUptimeMillis(long uptimeMillis) { this.uptimeMillis = uptimeMillis; }
+
+    public int getActiveConnections() { return activeConnections; }
+    public void setActiveConnections(int activeConnections) { this.activeConnections = activeConnections; }
+
+    public int getOnlineUsers() { return onlineUsers; }
+    public void setOnlineUsers(int onlineUsers) { this.onlineUsers = onlineUsers; }
+
+    public long getBytesIn() { return bytesIn; }
+    public void setBytesIn(long bytesIn) { this.bytesIn = bytesIn; }
+
+    public long getBytesOut() { return bytesOut; }
+    public void setBytesOut(long bytesOut) { this.bytesOut = bytesOut; }
+
+    public long getRequestCount() { return requestCount; }
+    public void setRequestCount(long requestCount) { this.requestCount = requestCount; }
+
+    public long getErrorCount() { return errorCount; }
+    public void setErrorCount(long errorCount) { this.errorCount = errorCount; }
+
+    public long getRejectedCount() { return rejectedCount; }
+    public void setRejectedCount(long rejectedCount) { this.rejectedCount = rejectedCount; }
+
+    public int getDbActiveConnections() { return dbActiveConnections; }
+    public void setDbActiveConnections(int dbActiveConnections) { this.dbActiveConnections = dbActiveConnections; }
+
+    public int getDbIdleConnections() { return dbIdleConnections; }
+    public void setDbIdleConnections(int dbIdleConnections) { this.dbIdleConnections = dbIdleConnections; }
+
+    public List<LatencyStatsVO> getRequests() { return requests; }
+    public void setRequests(List<LatencyStatsVO> requests) { this.requests = requests; }
+
+    public List<LatencyStatsVO> getDatabaseCalls() { return databaseCalls; }
+    public void setDatabaseCalls(List<LatencyStatsVO> databaseCalls) { this.databaseCalls = databaseCalls; }
+}
@@ -0,0 +1,44 @@
+package common.vo;
+
+import java.io.Serializable;
+
+/**
+ * 学生绩点值对象
+ * GPA = Σ(绩点 × 学分) / Σ学分，只计算已评分的课程；同一课程有多次成绩（重修）时按最近一次计算。
+ */
+public class StudentGpaVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Integer studentId;         // 学生ID
+    private double gpa;                // 平均学分绩点
+    private int totalCredits;          // 已评分课程的总学分
+    private int earnedCredits;         // 及格课程的学分
+    private int gradedCourses;         // 已评分课程数
+    private double averageGrade;       // 按学分加权的平均成绩
+
+    public StudentGpaVO() {}
+
+    public Integer getStudentId() { return studentId; }
+    public void setStudentId(Integer studentId) { this.studentId = studentId; }
+
+    public double getGpa() { return gpa; }
+    public void setGpa(double gpa) { this.gpa = gpa; }
+
+    public int getTotalCredits() { return totalCredits; }
+    public void setTotalCredits(int totalCredits) { this.totalCredits = totalCredits; }
+
+    public int getEarnedCredits() { return earnedCredits; }
+    public void setEarnedCredits(int earnedCredits) { this.earnedCredits = earnedCredits; }
+
+    public int getGradedCourses() { return gradedCourses; }
+    public void setGradedCourses(int gradedCourses) { this.gradedCourses = gradedCourses; }
+
+    public double getAverageGrade() { return averageGrade; }
+    public void setAverageGrade(double averageGrade) { this.averageGrade = averageGrade; }
+
+    @Override
+    public String toString() {
+        return "StudentGpaVO{studentId=" + studentId + ", gpa=" + String.format("%.2f", gpa)
+                + ", totalCredits=" + totalCredits + ", gradedCourses=" + gradedCourses + "}";
+    }
+}
@@ -0,0 +1,31 @@
+package common.vo;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 论坛主题分页结果值对象
+ * threads 中的 ThreadVO 为摘要行，content 只包含截断后的内容预览；
+ * 请求下一页时把 nextCursor 原样传回服务器即可，客户端不需要解析游标内容。
+ */
+public class ThreadFeedPageVO implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<ThreadVO> threads = new ArrayList<>();
+    private String nextCursor;     // 下一页游标，没有更多数据时为null
+    private boolean hasMore;       // 是否还有下一页
+    private Integer pageSize;      // 本次实际使用的每页数量
+
+    public List<ThreadVO> getThreads() { return threads; }
+    public void setThreads(List<ThreadVO> threads) { this.threads = threads; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isHasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+
+    public Integer getPageSize() { return pageSize; }
+    public void setPageSize(Integer pageSize) { this.pageSize = pageSize; }
+}
@@ -21,6 +21,7 @@ public class UserVO implements Serializable {
     private Double balance;         // 余额
     private Timestamp createdTime;  // 创建时间
     private Timestamp updatedTime;  // 更新时间
+    private String sessionToken;    // 会话令牌（登录成功时由服务器签发，用于断线重连后恢复会话）
     
     public UserVO() {}
     
@@ -126,6 +127,14 @@ public class UserVO implements Serializable {
         this.updatedTime = updatedTime;
     }
     
+    public String getSessionToken() {
+        return sessionToken;
+    }
+    
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+    
     // 别名方法，用于兼容性
     public String getLoginId() {
         return this.id;
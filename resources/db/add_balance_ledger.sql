@@ -0,0 +1,25 @@
+-- 为余额账本（BalanceLedger）添加余额流水表
+-- 充值、余额支付、取消订单退款都在余额变动的同一事务中追加一行，记录变动金额和变动后余额，只追加不修改；
+-- (order_id, type) 唯一，同一订单最多一次支付、一次退款
+
+USE vcampus;
+
+CREATE TABLE IF NOT EXISTS balance_transactions (
+    txn_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    order_id INT NULL COMMENT '关联订单（充值为空）',
+    type VARCHAR(20) NOT NULL COMMENT 'recharge/payment/refund',
+    amount DECIMAL(10,2) NOT NULL COMMENT '变动金额（支出为负）',
+    balance_after DECIMAL(10,2) NOT NULL COMMENT '变动后余额',
+    created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_order_type (order_id, type),
+    INDEX idx_user_txn (user_id, txn_id)
+) COMMENT='余额流水表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 显示表结构
+SHOW CREATE TABLE balance_transactions;
+
+-- 核对账目（可选，每个用户最后一条流水的 balance_after 应等于当前余额）
+-- SELECT t.user_id, t.balance_after, s.balance FROM balance_transactions t
+--   JOIN students s ON s.user_id = t.user_id
+--   WHERE t.txn_id = (SELECT MAX(txn_id) FROM balance_transactions WHERE user_id = t.user_id);
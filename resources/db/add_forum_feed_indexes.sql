@@ -0,0 +1,17 @@
+-- 为论坛主题分页（GET_THREAD_FEED）添加复合索引
+-- 索引列顺序与分页排序 (is_pinned DESC, last_post_time DESC, thread_id DESC) 一致，
+-- 每页只需沿索引顺序扫描 pageSize+1 行，不再对整张表排序
+
+USE vcampus;
+
+-- 全部分区
+ALTER TABLE forum_threads ADD INDEX idx_feed (status, is_pinned, last_post_time, thread_id);
+
+-- 按分区浏览
+ALTER TABLE forum_threads ADD INDEX idx_section_feed (status, section_id, is_pinned, last_post_time, thread_id);
+
+-- 显示已创建的索引
+SHOW INDEX FROM forum_threads WHERE Key_name LIKE 'idx_%feed';
+
+-- 检查执行计划（可选，应使用 idx_feed 且没有 Using filesort）
+-- EXPLAIN SELECT thread_id FROM forum_threads WHERE status = 1 ORDER BY is_pinned DESC, last_post_time DESC, thread_id DESC LIMIT 21;
@@ -0,0 +1,20 @@
+-- 为订单分页（GET_ORDER_PAGE）添加复合索引
+-- 索引列顺序与分页排序 (created_time DESC, order_id DESC) 一致，
+-- 按用户或状态筛选时各有一个以筛选列开头的索引，每页只需沿索引顺序扫描 pageSize+1 行，不再对整张表排序
+
+USE vcampus;
+
+-- 管理员浏览全部订单（可带时间范围）
+ALTER TABLE orders ADD INDEX idx_created (created_time, order_id);
+
+-- 用户的订单历史
+ALTER TABLE orders ADD INDEX idx_user_created (user_id, created_time, order_id);
+
+-- 按状态筛选
+ALTER TABLE orders ADD INDEX idx_status_created (status, created_time, order_id);
+
+-- 显示已创建的索引
+SHOW INDEX FROM orders WHERE Key_name LIKE 'idx_%created';
+
+-- 检查执行计划（可选，应使用 idx_user_created 且没有 Using filesort）
+-- EXPLAIN SELECT order_id FROM orders WHERE user_id = 1 ORDER BY created_time DESC, order_id DESC LIMIT 51;
@@ -370,6 +370,9 @@ CREATE TABLE IF NOT EXISTS orders (
     notes TEXT COMMENT '备注',
     created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_created (created_time, order_id),
+    INDEX idx_user_created (user_id, created_time, order_id),
+    INDEX idx_status_created (status, created_time, order_id),
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
 ) COMMENT='订单表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
@@ -400,6 +403,20 @@ CREATE TABLE IF NOT EXISTS shopping_cart (
   FOREIGN KEY (user_id) REFERENCES users (user_id) ON DELETE CASCADE,
   FOREIGN KEY (product_id) REFERENCES products (product_id) ON DELETE CASCADE
 ) COMMENT='用户购物车表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 余额流水表（只追加不修改，每次充值/支付/退款一行）
+CREATE TABLE IF NOT EXISTS balance_transactions (
+    txn_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    user_id INT NOT NULL,
+    order_id INT NULL COMMENT '关联订单（充值为空）',
+    type VARCHAR(20) NOT NULL COMMENT 'recharge/payment/refund',
+    amount DECIMAL(10,2) NOT NULL COMMENT '变动金额（支出为负）',
+    balance_after DECIMAL(10,2) NOT NULL COMMENT '变动后余额',
+    created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- 每个订单最多一次支付、一次退款
+    UNIQUE KEY uk_order_type (order_id, type),
+    INDEX idx_user_txn (user_id, txn_id)
+) COMMENT='余额流水表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 -- ========================================
 -- 论坛系统表
 -- ========================================
@@ -422,6 +439,8 @@ CREATE TABLE IF NOT EXISTS forum_threads (
     status INT DEFAULT 1 COMMENT '状态: 0-删除, 1-正常, 2-隐藏',
     created_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_feed (status, is_pinned, last_post_time, thread_id),
+    INDEX idx_section_feed (status, section_id, is_pinned, last_post_time, thread_id),
     FOREIGN KEY (author_id) REFERENCES users(user_id) ON DELETE CASCADE
     -- ,FOREIGN KEY (section_id) REFERENCES forum_sections(section_id) ON DELETE SET NULL
 ) COMMENT='论坛主题表' ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,33 @@
+@echo off
+chcp 65001 >nul
+echo ========================================
+echo vCampus性能基准测试
+echo ========================================
+echo.
+
+echo 检查编译状态...
+if not exist "bin" (
+    echo 错误: 项目尚未编译，请先运行 compile.bat
+    pause
+    exit /b 1
+)
+
+echo 编译基准测试模块...
+javac -cp "libs\*;bin;." -d bin -encoding UTF-8 benchmark\*.java
+if %errorlevel% neq 0 (
+    echo 基准测试模块编译失败！
+    pause
+    exit /b 1
+)
+
+echo 复制配置文件...
+copy resources\config.properties bin\ >nul 2>&1
+if exist "resources\config.local.properties" (
+    copy resources\config.local.properties bin\ >nul 2>&1
+)
+echo.
+
+rem 参数原样传给运行器，例如: run_benchmark.bat --seed --scale=100k --only=forum
+java -Dfile.encoding=UTF-8 -cp "bin;libs\*" benchmark.BenchmarkRunner %*
+
+pause
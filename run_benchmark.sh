@@ -0,0 +1,29 @@
+#!/bin/bash
+
+echo "========================================"
+echo " vCampus 性能基准测试"
+echo "========================================"
+echo
+
+echo "检查编译状态..."
+if [ ! -d "bin" ]; then
+    echo "错误: 项目尚未编译，请先运行 compile.sh"
+    exit 1
+fi
+
+echo "编译基准测试模块..."
+javac -cp "libs/*:bin:." -d bin -encoding UTF-8 benchmark/*.java
+if [ $? -ne 0 ]; then
+    echo "基准测试模块编译失败！"
+    exit 1
+fi
+
+echo "复制配置文件..."
+cp resources/config.properties bin/ >/dev/null 2>&1
+if [ -f "resources/config.local.properties" ]; then
+    cp resources/config.local.properties bin/ >/dev/null 2>&1
+fi
+echo
+
+# 参数原样传给运行器，例如: ./run_benchmark.sh --seed --scale=100k --only=forum
+java -Dfile.encoding=UTF-8 -cp "bin:libs/*" benchmark.BenchmarkRunner "$@"
@@ -0,0 +1,36 @@
+@echo off
+chcp 65001 >nul
+echo ========================================
+echo vCampus负载测试
+echo ========================================
+echo.
+
+if "%~1"=="" (
+    echo 用法: run_loadtest.bat 场景脚本 [选项]
+    echo 场景脚本见 benchmark\scenarios\，例如: run_loadtest.bat benchmark\scenarios\campus-mix.scn --clients=200
+    pause
+    exit /b 2
+)
+
+echo 检查编译状态...
+if not exist "bin" (
+    echo 错误: 项目尚未编译，请先运行 compile.bat
+    pause
+    exit /b 1
+)
+
+echo 编译基准测试模块...
+javac -cp "libs\*;bin;." -d bin -encoding UTF-8 benchmark\*.java
+if %errorlevel% neq 0 (
+    echo 基准测试模块编译失败！
+    pause
+    exit /b 1
+)
+echo.
+
+rem 退出码: 0 全部断言通过, 1 有断言未通过, 2 参数或脚本错误
+java -Dfile.encoding=UTF-8 -cp "bin;libs\*" benchmark.LoadGenerator %*
+set RESULT=%errorlevel%
+
+pause
+exit /b %RESULT%
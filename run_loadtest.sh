@@ -0,0 +1,29 @@
+#!/bin/bash
+
+echo "========================================"
+echo " vCampus 负载测试"
+echo "========================================"
+echo
+
+if [ $# -eq 0 ]; then
+    echo "用法: ./run_loadtest.sh 场景脚本 [选项]"
+    echo "场景脚本见 benchmark/scenarios/，例如: ./run_loadtest.sh benchmark/scenarios/campus-mix.scn --clients=200"
+    exit 2
+fi
+
+echo "检查编译状态..."
+if [ ! -d "bin" ]; then
+    echo "错误: 项目尚未编译，请先运行 compile.sh"
+    exit 1
+fi
+
+echo "编译基准测试模块..."
+javac -cp "libs/*:bin:." -d bin -encoding UTF-8 benchmark/*.java
+if [ $? -ne 0 ]; then
+    echo "基准测试模块编译失败！"
+    exit 1
+fi
+echo
+
+# 退出码: 0 全部断言通过, 1 有断言未通过, 2 参数或脚本错误
+java -Dfile.encoding=UTF-8 -cp "bin:libs/*" benchmark.LoadGenerator "$@"
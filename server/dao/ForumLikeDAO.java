@@ -1,14 +1,24 @@
 package server.dao;
 
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * 论坛点赞数据访问对象
  * 处理论坛主题和回复的点赞相关数据库操作
  */
 public class ForumLikeDAO {
+    private static final Log LOG = Log.get("forum");
+    
+    // 批量查询时每条 SQL 的 IN 列表最大长度
+    private static final int IN_BATCH_SIZE = 500;
     
     /**
      * 检查用户是否已点赞某个实体（主题或回复）
@@ -35,13 +45,66 @@ public class ForumLikeDAO {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
-            System.err.println("检查点赞状态失败: " + e.getMessage());
+            LOG.error("检查点赞状态失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
         return false;
     }
     
+    /**
+     * 批量查询用户在一组实体中已点赞的实体ID
+     * 列表页用一次查询（每 500 个ID一批，共用一个连接）代替逐行调用 isLiked
+     * @param entityType 实体类型：'thread' 或 'post'
+     * @param entityIds 实体ID集合
+     * @param userId 用户ID
+     * @return 已点赞的实体ID集合，查询失败时返回已得到的部分结果
+     */
+    public Set<Integer> findLikedIds(String entityType, Collection<Integer> entityIds, int userId) {
+        Set<Integer> liked = new HashSet<>();
+        if (entityIds == null || entityIds.isEmpty()) {
+            return liked;
+        }
+        
+        List<Integer> ids = new ArrayList<>(entityIds);
+        Connection conn = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = DatabaseUtil.getConnection();
+            for (int from = 0; from < ids.size(); from += IN_BATCH_SIZE) {
+                List<Integer> batch = ids.subList(from, Math.min(from + IN_BATCH_SIZE, ids.size()));
+                StringBuilder sql = new StringBuilder(
+                        "SELECT entity_id FROM forum_likes WHERE entity_type = ? AND user_id = ? AND entity_id IN (");
+                for (int i = 0; i < batch.size(); i++) {
+                    sql.append(i == 0 ? "?" : ",?");
+                }
+                sql.append(')');
+                
+                ps = conn.prepareStatement(sql.toString());
+                ps.setString(1, entityType);
+                ps.setInt(2, userId);
+                for (int i = 0; i < batch.size(); i++) {
+                    ps.setInt(i + 3, batch.get(i));
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    liked.add(rs.getInt(1));
+                }
+                rs.close();
+                ps.close();
+                rs = null;
+                ps = null;
+            }
+        } catch (SQLException e) {
+            LOG.error("批量检查点赞状态失败: {}", e.getMessage());
+        } finally {
+            DatabaseUtil.closeAll(conn, ps, rs);
+        }
+        return liked;
+    }
+    
     /**
      * 添加点赞记录
      * @param entityType 实体类型：'thread' 或 'post'
@@ -64,7 +127,7 @@ public class ForumLikeDAO {
             int affected = ps.executeUpdate();
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("添加点赞失败: " + e.getMessage());
+            LOG.error("添加点赞失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -93,7 +156,7 @@ public class ForumLikeDAO {
             int affected = ps.executeUpdate();
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("删除点赞失败: " + e.getMessage());
+            LOG.error("删除点赞失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -130,11 +193,11 @@ public class ForumLikeDAO {
             
             if (rs.next()) {
                 int count = rs.getInt(1);
-                System.out.println("[Forum][DAO] 获取点赞数量: entityType=" + entityType + ", entityId=" + entityId + ", count=" + count);
+                LOG.debug("[Forum][DAO] 获取点赞数量: entityType={}, entityId={}, count={}", entityType, entityId, count);
                 return count;
             }
         } catch (SQLException e) {
-            System.err.println("获取点赞数量失败: " + e.getMessage());
+            LOG.error("获取点赞数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -158,10 +221,10 @@ public class ForumLikeDAO {
             ps.setInt(2, threadId);
             
             int affected = ps.executeUpdate();
-            System.out.println("[Forum][DAO] 更新主题点赞数量: threadId=" + threadId + ", affected=" + affected);
+            LOG.debug("[Forum][DAO] 更新主题点赞数量: threadId={}, affected={}", threadId, affected);
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("更新主题点赞数量失败: " + e.getMessage());
+            LOG.error("更新主题点赞数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -187,7 +250,7 @@ public class ForumLikeDAO {
             int affected = ps.executeUpdate();
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("更新回复点赞数量失败: " + e.getMessage());
+            LOG.error("更新回复点赞数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -196,6 +259,7 @@ public class ForumLikeDAO {
     
     /**
      * 切换点赞状态（点赞/取消点赞）
+     * 主题的点赞数不在这里更新，由调用方通过 ForumThreadCache 计数
      * @param entityType 实体类型：'thread' 或 'post'
      * @param entityId 实体ID
      * @param userId 用户ID
@@ -233,11 +297,9 @@ public class ForumLikeDAO {
                 
                 int affected = ps.executeUpdate();
                 if (affected > 0) {
-                    // 在同一个事务中更新点赞数量
-                    if ("thread".equals(entityType)) {
-                        updateThreadLikeCountInTransaction(conn, entityId);
-                    } else if ("post".equals(entityType)) {
-                        updatePostLikeCountInTransaction(conn, entityId);
+                    // 回复点赞数在同一个事务中增减；主题点赞数由 ForumThreadCache 计数后批量写回
+                    if ("post".equals(entityType)) {
+                        adjustPostLikeCountInTransaction(conn, entityId, -1);
                     }
                     conn.commit();
                     return false; // 取消点赞成功
@@ -252,11 +314,9 @@ public class ForumLikeDAO {
                 
                 int affected = ps.executeUpdate();
                 if (affected > 0) {
-                    // 在同一个事务中更新点赞数量
-                    if ("thread".equals(entityType)) {
-                        updateThreadLikeCountInTransaction(conn, entityId);
-                    } else if ("post".equals(entityType)) {
-                        updatePostLikeCountInTransaction(conn, entityId);
+                    // 回复点赞数在同一个事务中增减；主题点赞数由 ForumThreadCache 计数后批量写回
+                    if ("post".equals(entityType)) {
+                        adjustPostLikeCountInTransaction(conn, entityId, 1);
                     }
                     conn.commit();
                     return true; // 点赞成功
@@ -267,13 +327,13 @@ public class ForumLikeDAO {
             return null; // 操作失败
             
         } catch (SQLException e) {
-            System.err.println("切换点赞状态失败: " + e.getMessage());
+            LOG.error("切换点赞状态失败: {}", e.getMessage());
             try {
                 if (conn != null) {
                     conn.rollback();
                 }
             } catch (SQLException rollbackEx) {
-                System.err.println("回滚事务失败: " + rollbackEx.getMessage());
+                LOG.error("回滚事务失败: {}", rollbackEx.getMessage());
             }
         } finally {
             try {
@@ -281,7 +341,7 @@ public class ForumLikeDAO {
                     conn.setAutoCommit(true);
                 }
             } catch (SQLException e) {
-                System.err.println("恢复自动提交失败: " + e.getMessage());
+                LOG.error("恢复自动提交失败: {}", e.getMessage());
             }
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -289,40 +349,21 @@ public class ForumLikeDAO {
     }
     
     /**
-     * 在事务中更新主题的点赞数量
-     * @param conn 数据库连接
-     * @param threadId 主题ID
-     * @return true表示成功，false表示失败
-     */
-    private boolean updateThreadLikeCountInTransaction(Connection conn, int threadId) {
-        String sql = "UPDATE forum_threads SET like_count = (SELECT COUNT(*) FROM forum_likes WHERE entity_type = 'thread' AND entity_id = ?) WHERE thread_id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, threadId);
-            ps.setInt(2, threadId);
-            int affected = ps.executeUpdate();
-            System.out.println("[Forum][DAO] 在事务中更新主题点赞数量: threadId=" + threadId + ", affected=" + affected);
-            return affected > 0;
-        } catch (SQLException e) {
-            System.err.println("在事务中更新主题点赞数量失败: " + e.getMessage());
-            return false;
-        }
-    }
-    
-    /**
-     * 在事务中更新回复的点赞数量
+     * 在事务中增减回复的点赞数量（不再重新统计整张点赞表）
      * @param conn 数据库连接
      * @param postId 回复ID
+     * @param delta 变化量
      * @return true表示成功，false表示失败
      */
-    private boolean updatePostLikeCountInTransaction(Connection conn, int postId) {
-        String sql = "UPDATE forum_posts SET like_count = (SELECT COUNT(*) FROM forum_likes WHERE entity_type = 'post' AND entity_id = ?) WHERE post_id = ?";
+    private boolean adjustPostLikeCountInTransaction(Connection conn, int postId, int delta) {
+        String sql = "UPDATE forum_posts SET like_count = GREATEST(like_count + ?, 0) WHERE post_id = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, postId);
+            ps.setInt(1, delta);
             ps.setInt(2, postId);
             int affected = ps.executeUpdate();
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("在事务中更新回复点赞数量失败: " + e.getMessage());
+            LOG.error("在事务中更新回复点赞数量失败: {}", e.getMessage());
             return false;
         }
     }
@@ -101,7 +101,7 @@ public interface PostDAO extends BaseDAO<PostVO, Integer> {
     String calculateReplyPath(Integer parentPostId);
     
     /**
-     * 更新主题的回复统计信息
+     * 更新主题的回复统计信息（最后回帖时间；回复数由 ForumThreadCache 计数）
      * @param threadId 主题ID
      * @return 更新成功返回true
      */
@@ -3,6 +3,7 @@ package server.dao.impl;
 import common.vo.CourseVO;
 import server.dao.CourseDAO;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,6 +14,7 @@ import java.util.List;
  * 实现课程相关的数据库操作
  */
 public class CourseDAOImpl implements CourseDAO {
+    private static final Log LOG = Log.get("course");
     
     @Override
     public CourseVO findById(Integer id) {
@@ -33,7 +35,7 @@ public class CourseDAOImpl implements CourseDAO {
                 return mapResultSetToCourseVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询课程失败: " + e.getMessage());
+            LOG.error("查询课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -83,7 +85,7 @@ public class CourseDAOImpl implements CourseDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("保存课程失败: " + e.getMessage());
+            LOG.error("保存课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -111,7 +113,7 @@ public class CourseDAOImpl implements CourseDAO {
                 return rs.getLong(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计课程数量失败: " + e.getMessage());
+            LOG.error("统计课程数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -152,7 +154,7 @@ public class CourseDAOImpl implements CourseDAO {
             
             return ps.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("更新课程失败: " + e.getMessage());
+            LOG.error("更新课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -173,7 +175,7 @@ public class CourseDAOImpl implements CourseDAO {
             ps.setInt(1, id);
             return ps.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("删除课程失败: " + e.getMessage());
+            LOG.error("删除课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -199,7 +201,7 @@ public class CourseDAOImpl implements CourseDAO {
                 return mapResultSetToCourseVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("根据课程代码查询课程失败: " + e.getMessage());
+            LOG.error("根据课程代码查询课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -283,7 +285,7 @@ public class CourseDAOImpl implements CourseDAO {
                 courses.add(course);
             }
         } catch (SQLException e) {
-            System.err.println("查询所有课程失败: " + e.getMessage());
+            LOG.error("查询所有课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -317,7 +319,7 @@ public class CourseDAOImpl implements CourseDAO {
                 return course;
             }
         } catch (SQLException e) {
-            System.err.println("根据ID查询课程失败: " + e.getMessage());
+            LOG.error("根据ID查询课程失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -339,7 +341,7 @@ public class CourseDAOImpl implements CourseDAO {
             ps.setInt(2, courseId);
             return ps.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("更新选课人数失败: " + e.getMessage());
+            LOG.error("更新选课人数失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -361,7 +363,7 @@ public class CourseDAOImpl implements CourseDAO {
             ps.setInt(2, courseId);
             return ps.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("增加选课人数失败: " + e.getMessage());
+            LOG.error("增加选课人数失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -386,7 +388,7 @@ public class CourseDAOImpl implements CourseDAO {
                 courses.add(mapResultSetToCourseVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("执行查询失败: " + e.getMessage());
+            LOG.error("执行查询失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -412,7 +414,7 @@ public class CourseDAOImpl implements CourseDAO {
                 courses.add(mapResultSetToCourseVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("执行参数查询失败: " + e.getMessage());
+            LOG.error("执行参数查询失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -1,10 +1,14 @@
 package server.dao.impl;
 
 import common.vo.EnrollmentVO;
+import common.vo.GradeVO;
 import server.dao.EnrollmentDAO;
 import server.dao.BaseDAO;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,6 +17,7 @@ import java.util.List;
  * 选课记录数据访问实现类
  */
 public class EnrollmentDAOImpl implements EnrollmentDAO {
+    private static final Log LOG = Log.get("course");
     
     @Override
     public EnrollmentVO findById(Integer id) {
@@ -29,7 +34,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 return mapResultSetToEnrollmentVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询选课记录失败: " + e.getMessage());
+            LOG.error("查询选课记录失败: {}", e.getMessage());
         }
         return null;
     }
@@ -47,7 +52,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 enrollments.add(mapResultSetToEnrollmentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询所有选课记录失败: " + e.getMessage());
+            LOG.error("查询所有选课记录失败: {}", e.getMessage());
         }
         return enrollments;
     }
@@ -82,7 +87,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("插入选课记录失败: " + e.getMessage());
+            LOG.error("插入选课记录失败: {}", e.getMessage());
         }
         return null;
     }
@@ -115,7 +120,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
             
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("更新选课记录失败: " + e.getMessage());
+            LOG.error("更新选课记录失败: {}", e.getMessage());
         }
         return false;
     }
@@ -131,7 +136,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
             stmt.setInt(1, id);
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("删除选课记录失败: " + e.getMessage());
+            LOG.error("删除选课记录失败: {}", e.getMessage());
         }
         return false;
     }
@@ -154,7 +159,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 enrollments.add(mapResultSetToEnrollmentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据学生ID查询选课记录失败: " + e.getMessage());
+            LOG.error("根据学生ID查询选课记录失败: {}", e.getMessage());
         }
         return enrollments;
     }
@@ -176,7 +181,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 enrollments.add(mapResultSetToEnrollmentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据课程ID查询选课记录失败: " + e.getMessage());
+            LOG.error("根据课程ID查询选课记录失败: {}", e.getMessage());
         }
         return enrollments;
     }
@@ -197,7 +202,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 return mapResultSetToEnrollmentVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("根据学生ID和课程ID查询选课记录失败: " + e.getMessage());
+            LOG.error("根据学生ID和课程ID查询选课记录失败: {}", e.getMessage());
         }
         return null;
     }
@@ -225,7 +230,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 enrollments.add(mapResultSetToEnrollmentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据状态查询选课记录失败: " + e.getMessage());
+            LOG.error("根据状态查询选课记录失败: {}", e.getMessage());
         }
         return enrollments;
     }
@@ -251,7 +256,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 enrollments.add(mapResultSetToEnrollmentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据学生ID和状态查询选课记录失败: " + e.getMessage());
+            LOG.error("根据学生ID和状态查询选课记录失败: {}", e.getMessage());
         }
         return enrollments;
     }
@@ -277,7 +282,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 enrollments.add(mapResultSetToEnrollmentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据课程ID和状态查询选课记录失败: " + e.getMessage());
+            LOG.error("根据课程ID和状态查询选课记录失败: {}", e.getMessage());
         }
         return enrollments;
     }
@@ -294,7 +299,62 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
     
     @Override
     public boolean updateGrade(Integer studentId, Integer courseId, Double grade) {
-        // 这个方法需要与成绩表关联，暂时返回false
+        if (studentId == null || courseId == null || grade == null) return false;
+        
+        // 成绩记在学生该课程最近一次（未退课）的选课记录上，重修时每次选课各有一条成绩
+        String findSql = "SELECT e.enrollment_id, e.semester, e.student_name, e.student_no, " +
+                        "c.course_name, c.course_code, c.credits, c.teacher_id, c.teacher_name " +
+                        "FROM enrollments e JOIN courses c ON c.course_id = e.course_id " +
+                        "WHERE e.student_id = ? AND e.course_id = ? AND e.status <> 'dropped' " +
+                        "ORDER BY e.enrollment_time DESC, e.enrollment_id DESC LIMIT 1";
+        String upsertSql = "INSERT INTO grades (enrollment_id, student_id, course_id, teacher_id, semester, " +
+                          "total_grade, grade_point, grade_level, graded_time, student_name, student_no, " +
+                          "course_name, course_code, credits, teacher_name) " +
+                          "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                          "ON DUPLICATE KEY UPDATE total_grade = VALUES(total_grade), grade_point = VALUES(grade_point), " +
+                          "grade_level = VALUES(grade_level), graded_time = VALUES(graded_time)";
+        
+        GradeVO computed = new GradeVO();
+        computed.applyTotalGrade(BigDecimal.valueOf(grade).setScale(2, RoundingMode.HALF_UP));
+        
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement findStmt = conn.prepareStatement(findSql)) {
+            
+            findStmt.setInt(1, studentId);
+            findStmt.setInt(2, courseId);
+            try (ResultSet rs = findStmt.executeQuery()) {
+                if (!rs.next()) {
+                    LOG.warn("更新成绩失败: 学生 {} 没有选修课程 {}", studentId, courseId);
+                    return false;
+                }
+                int teacherId = rs.getInt("teacher_id");
+                if (rs.wasNull()) {
+                    LOG.warn("更新成绩失败: 课程 {} 没有任课教师", courseId);
+                    return false;
+                }
+                
+                try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+                    stmt.setInt(1, rs.getInt("enrollment_id"));
+                    stmt.setInt(2, studentId);
+                    stmt.setInt(3, courseId);
+                    stmt.setInt(4, teacherId);
+                    stmt.setString(5, rs.getString("semester"));
+                    stmt.setBigDecimal(6, computed.getTotalGrade());
+                    stmt.setBigDecimal(7, computed.getGradePoint());
+                    stmt.setString(8, computed.getGradeLevel());
+                    stmt.setTimestamp(9, computed.getGradedTime());
+                    stmt.setString(10, rs.getString("student_name"));
+                    stmt.setString(11, rs.getString("student_no"));
+                    stmt.setString(12, rs.getString("course_name"));
+                    stmt.setString(13, rs.getString("course_code"));
+                    stmt.setInt(14, rs.getInt("credits"));
+                    stmt.setString(15, rs.getString("teacher_name"));
+                    return stmt.executeUpdate() > 0;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("更新成绩失败: {}", e.getMessage());
+        }
         return false;
     }
     
@@ -315,7 +375,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
             
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("更新选课状态失败: " + e.getMessage());
+            LOG.error("更新选课状态失败: {}", e.getMessage());
         }
         return false;
     }
@@ -333,7 +393,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
             
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("退课失败: " + e.getMessage());
+            LOG.error("退课失败: {}", e.getMessage());
         }
         return false;
     }
@@ -353,7 +413,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计学生选课数量失败: " + e.getMessage());
+            LOG.error("统计学生选课数量失败: {}", e.getMessage());
         }
         return 0;
     }
@@ -373,7 +433,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计课程选课人数失败: " + e.getMessage());
+            LOG.error("统计课程选课人数失败: {}", e.getMessage());
         }
         return 0;
     }
@@ -418,7 +478,7 @@ public class EnrollmentDAOImpl implements EnrollmentDAO {
                 return rs.getLong(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计选课记录数量失败: " + e.getMessage());
+            LOG.error("统计选课记录数量失败: {}", e.getMessage());
         }
         return 0;
     }
@@ -397,12 +397,18 @@ public class LibraryServiceImpl implements LibraryService {
     }
 
     @Override
-    public byte[] downloadDocument(int docId) {
+    public File getDocumentFile(int docId) {
         DocumentVO doc = getDocumentById(docId);
         if (doc == null) return null;
 
         File file = new File(BASE_PATH + doc.getStoragePath());
-        if (!file.exists()) return null;
+        return file.isFile() ? file : null;
+    }
+
+    @Override
+    public byte[] downloadDocument(int docId) {
+        File file = getDocumentFile(docId);
+        if (file == null) return null;
 
         try (FileInputStream fis = new FileInputStream(file);
              ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
@@ -421,6 +427,33 @@ public class LibraryServiceImpl implements LibraryService {
 
     @Override
     public boolean uploadDocument(DocumentVO doc, InputStream fileStream) {
+        return saveDocument(doc, outFile -> {
+            try (FileOutputStream fos = new FileOutputStream(outFile)) {
+                byte[] buffer = new byte[4096];
+                int len;
+                while ((len = fileStream.read(buffer)) != -1) {
+                    fos.write(buffer, 0, len);
+                }
+            }
+        }) != null;
+    }
+
+    @Override
+    public Integer importDocument(DocumentVO doc, java.nio.file.Path file) {
+        return saveDocument(doc, outFile -> java.nio.file.Files.move(file, outFile.toPath(),
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING));
+    }
+
+    /** 把文件写到文献的最终存储位置 */
+    private interface DocumentFileWriter {
+        void write(File outFile) throws IOException;
+    }
+
+    /**
+     * 插入文献记录，按新文献ID确定存储路径后写入文件
+     * @return 新文献ID，失败返回null
+     */
+    private Integer saveDocument(DocumentVO doc, DocumentFileWriter writer) {
         String relativePath = String.format("docs/%s/%d/%s.%s",
                 doc.getSubject(),
                 doc.getYear(),
@@ -448,41 +481,33 @@ public class LibraryServiceImpl implements LibraryService {
             stmt.setBoolean(12, doc.isPublic());
 
             int affected = stmt.executeUpdate();
-            if (affected == 0) return false;
+            if (affected == 0) return null;
 
             ResultSet keys = stmt.getGeneratedKeys();
-            if (keys.next()) {
-                int newId = keys.getInt(1);
-
-                String finalPath = String.format("docs/%s/%d/%d_%s.%s",
-                        doc.getSubject(),
-                        doc.getYear(),
-                        newId,
-                        doc.getTitle().replaceAll("\\s+", "_"),
-                        doc.getFileType());
-
-                File outFile = new File(BASE_PATH + finalPath);
-                outFile.getParentFile().mkdirs();
-
-                try (FileOutputStream fos = new FileOutputStream(outFile)) {
-                    byte[] buffer = new byte[4096];
-                    int len;
-                    while ((len = fileStream.read(buffer)) != -1) {
-                        fos.write(buffer, 0, len);
-                    }
-                }
-
-                String updateSql = "UPDATE library_documents SET storage_path = ? WHERE doc_id = ?";
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setString(1, finalPath);
-                    updateStmt.setInt(2, newId);
-                    updateStmt.executeUpdate();
-                }
+            if (!keys.next()) return null;
+            int newId = keys.getInt(1);
+
+            String finalPath = String.format("docs/%s/%d/%d_%s.%s",
+                    doc.getSubject(),
+                    doc.getYear(),
+                    newId,
+                    doc.getTitle().replaceAll("\\s+", "_"),
+                    doc.getFileType());
+
+            File outFile = new File(BASE_PATH + finalPath);
+            outFile.getParentFile().mkdirs();
+            writer.write(outFile);
+
+            String updateSql = "UPDATE library_documents SET storage_path = ? WHERE doc_id = ?";
+            try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+                updateStmt.setString(1, finalPath);
+                updateStmt.setInt(2, newId);
+                updateStmt.executeUpdate();
             }
-            return true;
+            return newId;
         } catch (SQLException | IOException e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
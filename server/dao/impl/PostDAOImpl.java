@@ -1,17 +1,24 @@
 package server.dao.impl;
 
 import common.vo.PostVO;
+import server.dao.ForumLikeDAO;
 import server.dao.PostDAO;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 论坛回复数据访问实现类
  */
 public class PostDAOImpl implements PostDAO {
+    private static final Log LOG = Log.get("forum");
+    
+    private final ForumLikeDAO likeDAO = new ForumLikeDAO();
     
     @Override
     public Integer insert(PostVO post) {
@@ -38,7 +45,7 @@ public class PostDAOImpl implements PostDAO {
             int affected = ps.executeUpdate();
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("更新回复失败: " + e.getMessage());
+            LOG.error("更新回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -70,7 +77,7 @@ public class PostDAOImpl implements PostDAO {
                 return mapResultSetToPostVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询回复失败: " + e.getMessage());
+            LOG.error("查询回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -99,7 +106,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getLong(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计回复数量失败: " + e.getMessage());
+            LOG.error("统计回复数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -118,7 +125,7 @@ public class PostDAOImpl implements PostDAO {
     
     @Override
     public List<PostVO> findByThreadIdWithUserInfo(Integer threadId, Integer currentUserId) {
-        System.out.println("[PostDAO] 查询主题回复: threadId=" + threadId + ", currentUserId=" + currentUserId);
+        LOG.debug("[PostDAO] 查询主题回复: threadId={}, currentUserId={}", threadId, currentUserId);
         List<PostVO> list = new ArrayList<>();
         
         String sql = "SELECT p.*, " +
@@ -164,23 +171,16 @@ public class PostDAOImpl implements PostDAO {
                 post.setQuotedContent(rs.getString("quoted_content"));
                 post.setQuotedAuthorName(rs.getString("quoted_author_name"));
                 
-                // 设置用户点赞状态
-                if (currentUserId != null) {
-                    boolean isLiked = isPostLiked(post.getPostId(), currentUserId);
-                    post.setIsLiked(isLiked);
-                } else {
-                    post.setIsLiked(false);
-                }
-                
                 list.add(post);
             }
             
-            System.out.println("[PostDAO] 查询到回复数量: " + list.size());
+            LOG.debug("[PostDAO] 查询到回复数量: {}", list.size());
         } catch (SQLException e) {
-            System.err.println("查询主题回复失败: " + e.getMessage());
+            LOG.error("查询主题回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
+        fillLikeState(list, currentUserId);
         return list;
     }
     
@@ -216,21 +216,14 @@ public class PostDAOImpl implements PostDAO {
             while (rs.next()) {
                 PostVO post = mapResultSetToPostVO(rs);
                 
-                // 设置用户点赞状态
-                if (currentUserId != null) {
-                    boolean isLiked = isPostLiked(post.getPostId(), currentUserId);
-                    post.setIsLiked(isLiked);
-                } else {
-                    post.setIsLiked(false);
-                }
-                
                 list.add(post);
             }
         } catch (SQLException e) {
-            System.err.println("查询子回复失败: " + e.getMessage());
+            LOG.error("查询子回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
+        fillLikeState(list, currentUserId);
         return list;
     }
     
@@ -263,7 +256,7 @@ public class PostDAOImpl implements PostDAO {
                 list.add(post);
             }
         } catch (SQLException e) {
-            System.err.println("根据路径查询回复失败: " + e.getMessage());
+            LOG.error("根据路径查询回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -299,7 +292,7 @@ public class PostDAOImpl implements PostDAO {
                 list.add(post);
             }
         } catch (SQLException e) {
-            System.err.println("查询用户回复失败: " + e.getMessage());
+            LOG.error("查询用户回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -353,12 +346,12 @@ public class PostDAOImpl implements PostDAO {
                     // 更新主题回复统计
                     updateThreadReplyStats(post.getThreadId());
                     
-                    System.out.println("[PostDAO] 创建回复成功: postId=" + postId + ", threadId=" + post.getThreadId() + ", replyLevel=" + replyLevel + ", replyPath=" + replyPath);
+                    LOG.info("[PostDAO] 创建回复成功: postId={}, threadId={}, replyLevel={}, replyPath={}", postId, post.getThreadId(), replyLevel, replyPath);
                     return postId;
                 }
             }
         } catch (SQLException e) {
-            System.err.println("创建回复失败: " + e.getMessage());
+            LOG.error("创建回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -394,7 +387,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getInt("reply_level");
             }
         } catch (SQLException e) {
-            System.err.println("获取回复层级失败: " + e.getMessage());
+            LOG.error("获取回复层级失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -418,7 +411,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getString("reply_path");
             }
         } catch (SQLException e) {
-            System.err.println("获取回复路径失败: " + e.getMessage());
+            LOG.error("获取回复路径失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -443,7 +436,7 @@ public class PostDAOImpl implements PostDAO {
                     return String.valueOf(rs.getInt(1));
                 }
             } catch (SQLException e) {
-                System.err.println("计算顶级回复路径失败: " + e.getMessage());
+                LOG.error("计算顶级回复路径失败: {}", e.getMessage());
             } finally {
                 DatabaseUtil.closeAll(conn, ps, rs);
             }
@@ -467,7 +460,7 @@ public class PostDAOImpl implements PostDAO {
                         return parentPath + "/" + rs.getInt(1);
                     }
                 } catch (SQLException e) {
-                    System.err.println("计算子回复路径失败: " + e.getMessage());
+                    LOG.error("计算子回复路径失败: {}", e.getMessage());
                 } finally {
                     DatabaseUtil.closeAll(conn, ps, rs);
                 }
@@ -479,7 +472,8 @@ public class PostDAOImpl implements PostDAO {
     
     @Override
     public boolean updateThreadReplyStats(Integer threadId) {
-        String sql = "UPDATE forum_threads SET reply_count = (SELECT COUNT(*) FROM forum_posts WHERE thread_id = ? AND status = 1), last_post_time = NOW() WHERE thread_id = ?";
+        // 回复数由 ForumThreadCache 计数后批量写回，这里只刷新最后回帖时间（按主键更新，不再统计回复表）
+        String sql = "UPDATE forum_threads SET last_post_time = NOW() WHERE thread_id = ?";
         Connection conn = null;
         PreparedStatement ps = null;
         
@@ -487,13 +481,12 @@ public class PostDAOImpl implements PostDAO {
             conn = DatabaseUtil.getConnection();
             ps = conn.prepareStatement(sql);
             ps.setInt(1, threadId);
-            ps.setInt(2, threadId);
             
             int affected = ps.executeUpdate();
-            System.out.println("[PostDAO] 更新主题回复统计: threadId=" + threadId + ", affected=" + affected);
+            LOG.debug("[PostDAO] 更新主题最后回帖时间: threadId={}, affected={}", threadId, affected);
             return affected > 0;
         } catch (SQLException e) {
-            System.err.println("更新主题回复统计失败: " + e.getMessage());
+            LOG.error("更新主题回复统计失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -502,7 +495,8 @@ public class PostDAOImpl implements PostDAO {
     
     @Override
     public boolean softDeletePost(Integer postId) {
-        String sql = "UPDATE forum_posts SET status = 0 WHERE post_id = ?";
+        // 只统计真正从正常变为删除的回复，重复删除不影响回复数
+        String sql = "UPDATE forum_posts SET status = 0 WHERE post_id = ? AND status = 1";
         Connection conn = null;
         PreparedStatement ps = null;
         
@@ -527,7 +521,7 @@ public class PostDAOImpl implements PostDAO {
                 return true;
             }
         } catch (SQLException e) {
-            System.err.println("软删除回复失败: " + e.getMessage());
+            LOG.error("软删除回复失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -551,7 +545,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
-            System.err.println("检查回复是否存在失败: " + e.getMessage());
+            LOG.error("检查回复是否存在失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -576,7 +570,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
-            System.err.println("检查回复是否属于主题失败: " + e.getMessage());
+            LOG.error("检查回复是否属于主题失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -608,7 +602,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getInt("reply_level") + 1;
             }
         } catch (SQLException e) {
-            System.err.println("计算回复层级失败: " + e.getMessage());
+            LOG.error("计算回复层级失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -636,7 +630,7 @@ public class PostDAOImpl implements PostDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            System.err.println("获取回复数量失败: " + e.getMessage());
+            LOG.error("获取回复数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -644,33 +638,22 @@ public class PostDAOImpl implements PostDAO {
     }
     
     /**
-     * 检查用户是否已点赞回复
-     * @param postId 回复ID
-     * @param userId 用户ID
-     * @return true表示已点赞
+     * 批量设置当前用户对一组回复的点赞状态（读取完整个列表后一次查询）
+     * @param list 回复列表
+     * @param currentUserId 当前用户ID，为null时全部设为未点赞
      */
-    private boolean isPostLiked(Integer postId, Integer userId) {
-        String sql = "SELECT COUNT(*) FROM forum_likes WHERE entity_type = 'post' AND entity_id = ? AND user_id = ?";
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        
-        try {
-            conn = DatabaseUtil.getConnection();
-            ps = conn.prepareStatement(sql);
-            ps.setInt(1, postId);
-            ps.setInt(2, userId);
-            rs = ps.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
+    private void fillLikeState(List<PostVO> list, Integer currentUserId) {
+        Set<Integer> liked = Collections.emptySet();
+        if (currentUserId != null && !list.isEmpty()) {
+            List<Integer> ids = new ArrayList<>(list.size());
+            for (PostVO post : list) {
+                ids.add(post.getPostId());
             }
-        } catch (SQLException e) {
-            System.err.println("检查回复点赞状态失败: " + e.getMessage());
-        } finally {
-            DatabaseUtil.closeAll(conn, ps, rs);
+            liked = likeDAO.findLikedIds("post", ids, currentUserId);
+        }
+        for (PostVO post : list) {
+            post.setIsLiked(liked.contains(post.getPostId()));
         }
-        return false;
     }
     
     /**
@@ -4,8 +4,17 @@ import server.service.StoreService;
 import common.vo.ProductVO;
 import common.vo.OrderVO;
 import common.vo.OrderItemVO;
+import common.vo.OrderPageVO;
+import common.vo.ProductPageVO;
+import common.vo.ProductQueryVO;
 import common.vo.ShoppingCartItemVO;
+import server.service.BalanceLedger;
+import server.service.InventoryReservations;
+import server.service.ProductCatalog;
+import server.service.SalesAnalytics;
+import server.service.ShoppingCartStore;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -13,14 +22,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 商店服务实现类
  * 负责商店模块的数据库操作
  */
 public class StoreServiceImpl implements StoreService {
+    private static final Log LOG = Log.get("store");
+    private static final AtomicLong ORDER_SEQ = new AtomicLong();
+    private static final int MAX_ORDER_PAGE_SIZE = 100;
 
     private static String URL ;
     private static String USER ;
@@ -61,6 +77,12 @@ public class StoreServiceImpl implements StoreService {
     // ===== 商品管理 =====
     @Override
     public List<ProductVO> searchProducts(String keyword) {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (catalog != null) {
+            ProductQueryVO query = new ProductQueryVO();
+            query.setKeyword(keyword);
+            return catalog.query(query).getProducts();
+        }
         List<ProductVO> list = new ArrayList<>();
         String sql = "SELECT * FROM products WHERE product_name LIKE ? OR description LIKE ?";
         try (Connection conn = getConnection();
@@ -70,36 +92,96 @@ public class StoreServiceImpl implements StoreService {
             ps.setString(2, like);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                ProductVO product = new ProductVO();
-                product.setProductId(rs.getInt("product_id"));
-                product.setProductName(rs.getString("product_name"));
-                product.setDescription(rs.getString("description"));
-                product.setPrice(rs.getDouble("price"));
-                product.setStock(rs.getInt("stock"));
-                product.setCategory(rs.getString("category"));
-                list.add(product);
+                list.add(mapProduct(rs));
         } }catch (SQLException e) {
             e.printStackTrace();
         }
         return list;
     }
 
+    @Override
+    public ProductPageVO queryProducts(ProductQueryVO query) {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (catalog != null) {
+            return catalog.query(query);
+        }
+        // 目录不可用时按原流程查询数据库（不支持按版本号判断是否修改）
+        ProductPageVO page = new ProductPageVO();
+        page.setVersion(-1);
+        List<Object> params = new ArrayList<>();
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (query.getKeyword() != null && !query.getKeyword().isEmpty()) {
+            where.append(" AND (p.product_name LIKE ? OR p.description LIKE ?)");
+            params.add("%" + query.getKeyword() + "%");
+            params.add("%" + query.getKeyword() + "%");
+        }
+        if (query.getCategory() != null && !query.getCategory().isEmpty()) {
+            where.append(" AND p.category LIKE ?");
+            params.add("%" + query.getCategory() + "%");
+        }
+        if (query.getMinPrice() != null) { where.append(" AND p.price >= ?"); params.add(query.getMinPrice()); }
+        if (query.getMaxPrice() != null) { where.append(" AND p.price <= ?"); params.add(query.getMaxPrice()); }
+        if (query.getMinStock() != null) { where.append(" AND p.stock >= ?"); params.add(query.getMinStock()); }
+        if (query.getMaxStock() != null) { where.append(" AND p.stock <= ?"); params.add(query.getMaxStock()); }
+        String order;
+        if (ProductQueryVO.SORT_PRICE_ASC.equals(query.getSortBy())) {
+            order = " ORDER BY p.price, p.product_id";
+        } else if (ProductQueryVO.SORT_PRICE_DESC.equals(query.getSortBy())) {
+            order = " ORDER BY p.price DESC, p.product_id";
+        } else if (ProductQueryVO.SORT_POPULARITY.equals(query.getSortBy())) {
+            order = " ORDER BY sales DESC, p.product_id";
+        } else {
+            order = " ORDER BY p.product_id";
+        }
+        String sql = "SELECT p.*, COALESCE((SELECT SUM(oi.quantity) FROM order_items oi JOIN orders o ON o.order_id = oi.order_id "
+                + "WHERE oi.product_id = p.product_id AND o.status <> 'cancelled'), 0) AS sales FROM products p" + where + order;
+        List<ProductVO> matched = new ArrayList<>();
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ProductVO product = mapProduct(rs);
+                    product.setSales(rs.getInt("sales"));
+                    matched.add(product);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        page.setTotal(matched.size());
+        int from = Math.min(Math.max(0, query.getOffset()), matched.size());
+        int to = query.getLimit() > 0 ? Math.min(matched.size(), from + query.getLimit()) : matched.size();
+        page.setProducts(new ArrayList<>(matched.subList(from, to)));
+        return page;
+    }
+
+    private static ProductVO mapProduct(ResultSet rs) throws SQLException {
+        ProductVO product = new ProductVO();
+        product.setProductId(rs.getInt("product_id"));
+        product.setProductName(rs.getString("product_name"));
+        product.setDescription(rs.getString("description"));
+        product.setPrice(rs.getDouble("price"));
+        product.setStock(rs.getInt("stock"));
+        product.setCategory(rs.getString("category"));
+        return product;
+    }
+
     @Override
     public ProductVO getProductById(Integer productId) {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (catalog != null) {
+            return productId == null ? null : catalog.get(productId);
+        }
         String sql = "SELECT * FROM products WHERE product_id = ?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, productId);
              ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                ProductVO product = new ProductVO();
-                product.setProductId(rs.getInt("product_id"));
-                product.setProductName(rs.getString("product_name"));
-                product.setDescription(rs.getString("description"));
-                product.setPrice(rs.getDouble("price"));
-                product.setStock(rs.getInt("stock"));
-                product.setCategory(rs.getString("category"));
-                return product;
+                return mapProduct(rs);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -107,6 +189,55 @@ public class StoreServiceImpl implements StoreService {
         return null;
     }
 
+    /**
+     * 购物车中各商品的名称、当前价格和图片（数量和小计由调用方填写）
+     * 商品目录可用时取自目录，否则用一条 IN 查询取出全部商品；已删除的商品不在结果中
+     * @return 商品ID -> 购物车行
+     */
+    private Map<Integer, ShoppingCartItemVO> getCartProducts(List<ShoppingCartStore.Line> lines) throws SQLException {
+        Map<Integer, ShoppingCartItemVO> result = new HashMap<>();
+        if (lines.isEmpty()) {
+            return result;
+        }
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (catalog != null) {
+            for (ShoppingCartStore.Line line : lines) {
+                ProductVO product = catalog.get(line.getProductId());
+                if (product != null) {
+                    ShoppingCartItemVO item = new ShoppingCartItemVO();
+                    item.setProductId(product.getProductId());
+                    item.setProductName(product.getProductName());
+                    item.setPrice(product.getPrice());
+                    item.setImageUrl(catalog.getImageUrl(product.getProductId()));
+                    result.put(product.getProductId(), item);
+                }
+            }
+            return result;
+        }
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT product_id, product_name, price, image_url FROM products WHERE product_id IN (" + in + ")")) {
+            for (int i = 0; i < lines.size(); i++) {
+                ps.setInt(i + 1, lines.get(i).getProductId());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ShoppingCartItemVO item = new ShoppingCartItemVO();
+                    item.setProductId(rs.getInt("product_id"));
+                    item.setProductName(rs.getString("product_name"));
+                    item.setPrice(rs.getDouble("price"));
+                    item.setImageUrl(rs.getString("image_url"));
+                    result.put(item.getProductId(), item);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean addProduct(ProductVO product) {
         String sqlWithId = "INSERT INTO products (product_id, product_name, description, price, stock, category) "
@@ -116,7 +247,7 @@ public class StoreServiceImpl implements StoreService {
         try (Connection conn = getConnection()) {
             PreparedStatement ps;
             if (product.getProductId() != null) {
-                ps = conn.prepareStatement(sqlWithId);
+                ps = conn.prepareStatement(sqlWithId, Statement.RETURN_GENERATED_KEYS);
                 ps.setInt(1, product.getProductId());
                 ps.setString(2, product.getProductName());
                 ps.setString(3, product.getDescription());
@@ -124,14 +255,30 @@ public class StoreServiceImpl implements StoreService {
                 ps.setInt(5, product.getStock());
                 ps.setString(6, product.getCategory());
             } else {
-                ps = conn.prepareStatement(sqlWithoutId);
+                ps = conn.prepareStatement(sqlWithoutId, Statement.RETURN_GENERATED_KEYS);
                 ps.setString(1, product.getProductName());
                 ps.setString(2, product.getDescription());
                 ps.setDouble(3, product.getPrice());
                 ps.setInt(4, product.getStock());
                 ps.setString(5, product.getCategory());
             }
-            return ps.executeUpdate() > 0;
+            try {
+                if (ps.executeUpdate() == 0) {
+                    return false;
+                }
+                Integer productId = product.getProductId();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        productId = rs.getInt(1);
+                    }
+                }
+                if (productId != null) {
+                    ProductCatalog.productsChanged(productId);
+                }
+                return true;
+            } finally {
+                ps.close();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -151,7 +298,12 @@ public class StoreServiceImpl implements StoreService {
             ps.setString(5, product.getCategory());
             ps.setInt(6, product.getProductId());
             
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                InventoryReservations.stockChanged(product.getProductId());
+                ProductCatalog.productsChanged(product.getProductId());
+            }
+            return updated;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -164,7 +316,13 @@ public class StoreServiceImpl implements StoreService {
         try (Connection conn = getConnection();
          PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setInt(1, productId);
-                return ps.executeUpdate() > 0;
+                boolean deleted = ps.executeUpdate() > 0;
+                if (deleted) {
+                    InventoryReservations.stockChanged(productId);
+                    ProductCatalog.productRemoved(productId);
+                    ShoppingCartStore.productRemoved(productId);
+                }
+                return deleted;
             }
          catch (SQLException e) {
             e.printStackTrace();
@@ -180,7 +338,12 @@ public class StoreServiceImpl implements StoreService {
             
             ps.setInt(1, quantityDelta);
             ps.setInt(2, productId);
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                InventoryReservations.stockChanged(productId);
+                ProductCatalog.productsChanged(productId);
+            }
+            return updated;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -191,6 +354,27 @@ public class StoreServiceImpl implements StoreService {
     @Override
     public List<ShoppingCartItemVO> getShoppingCart(Integer userId) {
         List<ShoppingCartItemVO> cartItems = new ArrayList<>();
+        ShoppingCartStore carts = ShoppingCartStore.getInstance();
+        if (carts != null && userId != null) {
+            // 购物车在内存中，商品名称、当前价格和图片取自商品目录（目录未启用时一次查询全部商品）
+            try {
+                List<ShoppingCartStore.Line> lines = carts.items(userId);
+                Map<Integer, ShoppingCartItemVO> products = getCartProducts(lines);
+                for (ShoppingCartStore.Line line : lines) {
+                    ShoppingCartItemVO item = products.get(line.getProductId());
+                    if (item == null) {
+                        continue;
+                    }
+                    item.setQuantity(line.getQuantity());
+                    item.setSubtotal(item.getPrice() * item.getQuantity());
+                    cartItems.add(item);
+                }
+                return cartItems;
+            } catch (SQLException e) {
+                LOG.error("[Store][Cart] 加载用户 {} 的购物车失败: {}", userId, e.getMessage());
+                return cartItems;
+            }
+        }
         String sql = "SELECT sc.product_id, p.product_name, p.price, sc.quantity, p.image_url " +
                      "FROM shopping_cart sc " +
                      "JOIN products p ON sc.product_id = p.product_id " +
@@ -241,6 +425,17 @@ public boolean addToCart(Integer userId, Integer productId, int quantity) {
     // 计算小计：subtotal = 单价 * 数量（解决subtotal无默认值问题）
     double subtotal = productPrice * quantity;
 
+    ShoppingCartStore carts = ShoppingCartStore.getInstance();
+    if (carts != null) {
+        try {
+            carts.add(userId, productId, quantity, productPrice);
+            return true;
+        } catch (SQLException e) {
+            LOG.error("[Store][Cart] 加载用户 {} 的购物车失败: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
 
     // 3. 关键：复用同一个Connection，确保事务控制有效（避免回滚错误）
     try (Connection conn = getConnection()) { // 外层try-with-resources管理连接，确保自动关闭
@@ -311,6 +506,15 @@ public boolean addToCart(Integer userId, Integer productId, int quantity) {
 
     @Override
     public boolean removeFromCart(Integer userId, Integer productId) {
+        ShoppingCartStore carts = ShoppingCartStore.getInstance();
+        if (carts != null && userId != null && productId != null) {
+            try {
+                return carts.remove(userId, productId);
+            } catch (SQLException e) {
+                LOG.error("[Store][Cart] 加载用户 {} 的购物车失败: {}", userId, e.getMessage());
+                return false;
+            }
+        }
         String sql = "DELETE FROM shopping_cart WHERE user_id = ? AND product_id = ?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -332,6 +536,18 @@ public boolean addToCart(Integer userId, Integer productId, int quantity) {
         if (product == null || product.getStock() < newQuantity) {
             return false;
         }
+        ShoppingCartStore carts = ShoppingCartStore.getInstance();
+        if (carts != null && userId != null) {
+            if (newQuantity <= 0 || product.getPrice() == null) {
+                return false;
+            }
+            try {
+                return carts.update(userId, productId, newQuantity, product.getPrice());
+            } catch (SQLException e) {
+                LOG.error("[Store][Cart] 加载用户 {} 的购物车失败: {}", userId, e.getMessage());
+                return false;
+            }
+        }
         
         String sql = "UPDATE shopping_cart SET quantity = ? WHERE user_id = ? AND product_id = ?";
         try (Connection conn = getConnection();
@@ -350,6 +566,15 @@ public boolean addToCart(Integer userId, Integer productId, int quantity) {
 
     @Override
     public boolean clearCart(Integer userId) {
+        ShoppingCartStore carts = ShoppingCartStore.getInstance();
+        if (carts != null && userId != null) {
+            try {
+                return carts.clear(userId);
+            } catch (SQLException e) {
+                LOG.error("[Store][Cart] 加载用户 {} 的购物车失败: {}", userId, e.getMessage());
+                return false;
+            }
+        }
         String sql = "DELETE FROM shopping_cart WHERE user_id = ?";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -391,6 +616,128 @@ public boolean addToCart(Integer userId, Integer productId, int quantity) {
         return orders;
     }
 
+    @Override
+    public OrderPageVO getOrderPage(String cursor, int pageSize, Integer userId, String status,
+                                    Timestamp from, Timestamp to) {
+        int limit = Math.max(1, Math.min(MAX_ORDER_PAGE_SIZE, pageSize));
+        OrderCursor after = OrderCursor.parse(cursor);
+
+        // 只读取摘要列，订单商品只统计行数；每页沿 (created_time, order_id) 索引读取 pageSize+1 行
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.order_id, o.order_no, o.user_id, o.total_amount, o.status, o.created_time, " +
+                "u.login_id AS user_login_id, COALESCE(s.name, te.name, a.username, u.login_id) AS user_name, " +
+                "(SELECT COUNT(*) FROM order_items oi WHERE oi.order_id = o.order_id) AS item_count " +
+                "FROM orders o " +
+                "LEFT JOIN users u ON o.user_id = u.user_id " +
+                "LEFT JOIN students s ON s.user_id = u.user_id " +
+                "LEFT JOIN teachers te ON te.user_id = u.user_id " +
+                "LEFT JOIN admins a ON a.user_id = u.user_id " +
+                "WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" AND o.user_id = ?");
+            params.add(userId);
+        }
+        if (status != null && !status.isEmpty()) {
+            if ("pending".equals(status) || "待支付".equals(status)) {
+                // 历史数据中未支付有两种写法
+                sql.append(" AND o.status IN (").append(InventoryReservations.UNPAID_STATUSES).append(")");
+            } else {
+                sql.append(" AND o.status = ?");
+                params.add(status);
+            }
+        }
+        if (from != null) {
+            sql.append(" AND o.created_time >= ?");
+            params.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND o.created_time < ?");
+            params.add(to);
+        }
+        if (after != null) {
+            sql.append(" AND (o.created_time < ? OR (o.created_time = ? AND o.order_id < ?))");
+            params.add(after.createdTime);
+            params.add(after.createdTime);
+            params.add(after.orderId);
+        }
+        sql.append(" ORDER BY o.created_time DESC, o.order_id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        OrderPageVO page = new OrderPageVO();
+        page.setPageSize(limit);
+        List<OrderVO> orders = new ArrayList<>(limit + 1);
+        OrderVO last = null;
+        try (Connection conn = getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (orders.size() == limit) {
+                        // 多读的一行只用于判断是否还有下一页
+                        page.setHasMore(true);
+                        break;
+                    }
+                    OrderVO order = new OrderVO();
+                    order.setOrderId(rs.getInt("order_id"));
+                    order.setOrderOn(rs.getString("order_no"));
+                    order.setUserId(rs.getInt("user_id"));
+                    order.setUserLoginId(rs.getString("user_login_id"));
+                    order.setUserName(rs.getString("user_name"));
+                    order.setTotalAmount(rs.getDouble("total_amount"));
+                    order.setStatusText(rs.getString("status"));
+                    order.setStatus("cancelled".equals(order.getStatusText()) ? 0 : 1);
+                    order.setCreatedTime(rs.getTimestamp("created_time"));
+                    order.setItemCount(rs.getInt("item_count"));
+                    orders.add(order);
+                    last = order;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Order] 分页查询订单失败: {}", e.getMessage());
+            return null;
+        }
+        page.setOrders(orders);
+        if (page.isHasMore() && last != null) {
+            page.setNextCursor(new OrderCursor(last.getCreatedTime(), last.getOrderId()).format());
+        }
+        return page;
+    }
+
+    /**
+     * 订单分页游标：created_time毫秒数|order_id
+     */
+    private static final class OrderCursor {
+        final Timestamp createdTime;
+        final int orderId;
+
+        OrderCursor(Timestamp createdTime, int orderId) {
+            this.createdTime = createdTime;
+            this.orderId = orderId;
+        }
+
+        String format() {
+            return createdTime.getTime() + "|" + orderId;
+        }
+
+        static OrderCursor parse(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            String[] parts = cursor.split("\\|", -1);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            try {
+                return new OrderCursor(new Timestamp(Long.parseLong(parts[0])), Integer.parseInt(parts[1]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+        }
+    }
+
     @Override
     public OrderVO getAdminOrderDetail(Integer orderId) {
         OrderVO order = null;
@@ -480,27 +827,34 @@ public List<OrderItemVO> getUserOrderHistory(Integer userId) {
     return orderItems;
 }
 
-    // 消费者查看订单
+    // 查看订单商品（分页摘要的订单商品按需获取）
     @Override
     public List<OrderItemVO> getOrderItems(Integer orderId, Integer userId) {
         List<OrderItemVO> orderItems = new ArrayList<>();
-        String sql = "SELECT oi.product_id, p.name AS product_name, oi.quantity, oi.price, p.image_url " +
+        if (orderId == null) {
+            return orderItems;
+        }
+        String sql = "SELECT oi.order_id, oi.product_id, p.product_name, oi.quantity, oi.unit_price " +
                      "FROM order_items oi " +
                      "JOIN products p ON oi.product_id = p.product_id " +
-                     "WHERE oi.order_id = ? AND oi.order_id IN (SELECT order_id FROM orders WHERE user_id = ?)";
+                     "WHERE oi.order_id = ?" +
+                     (userId != null ? " AND oi.order_id IN (SELECT order_id FROM orders WHERE user_id = ?)" : "");
         
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
             ps.setInt(1, orderId);
-            ps.setInt(2, userId);
+            if (userId != null) {
+                ps.setInt(2, userId);
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     OrderItemVO item = new OrderItemVO();
+                    item.setOrderId(rs.getInt("order_id"));
                     item.setProductId(rs.getInt("product_id"));
                     item.setProductName(rs.getString("product_name"));
                     item.setQuantity(rs.getInt("quantity"));
-                    item.setUnitPrice(rs.getDouble("price"));
+                    item.setUnitPrice(rs.getDouble("unit_price"));
                     //item.setImageUrl(rs.getString("image_url"));
                     orderItems.add(item);
                 }
@@ -513,120 +867,190 @@ public List<OrderItemVO> getUserOrderHistory(Integer userId) {
 
     @Override
     public OrderVO createOrder(Integer userId, List<Integer> productIds, List<Integer> quantities) {
+        if (userId == null || productIds == null || quantities == null
+                || productIds.isEmpty() || productIds.size() != quantities.size()) {
+            return null;
+        }
+        // 合并同一商品的多行，按商品ID排序（扣减库存和加锁都按这个顺序，避免死锁）
+        TreeMap<Integer, Integer> lines = new TreeMap<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            Integer productId = productIds.get(i);
+            Integer qty = quantities.get(i);
+            if (productId == null || qty == null || qty <= 0) {
+                return null;
+            }
+            lines.merge(productId, qty, Integer::sum);
+        }
+        int[] ids = lines.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] qtys = lines.values().stream().mapToInt(Integer::intValue).toArray();
+
+        InventoryReservations reservations = InventoryReservations.getInstance();
+        // 秒杀商品先在内存中预扣，售罄时直接拒绝
+        if (!reservations.hold(ids, qtys)) {
+            LOG.debug("[Store][Order] 用户 {} 下单失败: 秒杀商品已售罄", userId);
+            return null;
+        }
+        boolean committed = false;
+        int[] locked = reservations.lock(ids);
         Connection conn = null;
         try {
             conn = getConnection();
-                   conn.setAutoCommit(false); // 开启事务
-        
-        // 1. 创建订单主记录
-        String orderSql = "INSERT INTO orders (user_id, total_amount, status, created_time) VALUES (?, ?, '待支付', NOW())";
-        PreparedStatement orderPs = conn.prepareStatement(orderSql, Statement.RETURN_GENERATED_KEYS);
-        orderPs.setInt(1, userId);
-        
-        // 计算总金额并检查库存
-        double total = 0;
-        for (int i = 0; i < productIds.size(); i++) {
-            ProductVO product = getProductById(productIds.get(i));
-            if (product == null || product.getStock() < quantities.get(i)) {
+            conn.setAutoCommit(false); // 开启事务
+
+            // 1. 一次查询全部商品的价格
+            Map<Integer, Double> prices = new HashMap<>();
+            StringBuilder in = new StringBuilder();
+            for (int i = 0; i < ids.length; i++) {
+                in.append(i == 0 ? "?" : ", ?");
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT product_id, price FROM products WHERE product_id IN (" + in + ")")) {
+                for (int i = 0; i < ids.length; i++) {
+                    ps.setInt(i + 1, ids[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        prices.put(rs.getInt("product_id"), rs.getDouble("price"));
+                    }
+                }
+            }
+            if (prices.size() != ids.length) {
                 conn.rollback();
-                return null; // 库存不足
+                LOG.debug("[Store][Order] 用户 {} 下单失败: 商品不存在", userId);
+                return null;
             }
-            total += product.getPrice() * quantities.get(i);
-        }
-        orderPs.setDouble(2, total);
-        orderPs.executeUpdate();
-        
-        // 获取生成的订单ID
-        ResultSet rs = orderPs.getGeneratedKeys();
-        rs.next();
-        String orderOn = rs.getString(1);
-        
-        // 2. 创建订单项
-        String itemSql = "INSERT INTO order_items (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
-        PreparedStatement itemPs = conn.prepareStatement(itemSql);
-        
-        // 3. 扣减库存
-        String stockSql = "UPDATE products SET stock = stock - ? WHERE product_id = ?";
-        PreparedStatement stockPs = conn.prepareStatement(stockSql);
-        
-        for (int i = 0; i < productIds.size(); i++) {
-            Integer productId = productIds.get(i);
-            int qty = quantities.get(i);
-            ProductVO product = getProductById(productId);
-            
-            // 添加订单项
-            itemPs.setString(1, orderOn);
-            itemPs.setInt(2, productId);
-            itemPs.setInt(3, qty);
-            itemPs.setDouble(4, product.getPrice());
-            itemPs.addBatch();
-            
-            // 扣减库存
-            stockPs.setInt(1, qty);
-            stockPs.setInt(2, productId);
-            stockPs.addBatch();
+
+            // 2. 按条件扣减库存，任一商品不足则整单回滚
+            Integer shortage = reservations.reserve(conn, ids, qtys);
+            if (shortage != null) {
+                conn.rollback();
+                LOG.debug("[Store][Order] 用户 {} 下单失败: 商品 {} 库存不足", userId, shortage);
+                return null;
+            }
+
+            // 3. 创建订单主记录
+            double total = 0;
+            for (int i = 0; i < ids.length; i++) {
+                total += prices.get(ids[i]) * qtys[i];
+            }
+            String orderSql = "INSERT INTO orders (order_no, user_id, total_amount, status, created_time) VALUES (?, ?, ?, '待支付', NOW())";
+            String orderOn;
+            try (PreparedStatement orderPs = conn.prepareStatement(orderSql, Statement.RETURN_GENERATED_KEYS)) {
+                orderPs.setString(1, nextOrderNo());
+                orderPs.setInt(2, userId);
+                orderPs.setDouble(3, total);
+                orderPs.executeUpdate();
+                try (ResultSet rs = orderPs.getGeneratedKeys()) {
+                    rs.next();
+                    orderOn = rs.getString(1);
+                }
+            }
+
+            // 4. 创建订单项
+            String itemSql = "INSERT INTO order_items (order_id, product_id, quantity, unit_price, subtotal) VALUES (?, ?, ?, ?, ?)";
+            double[] subtotals = new double[ids.length];
+            try (PreparedStatement itemPs = conn.prepareStatement(itemSql)) {
+                for (int i = 0; i < ids.length; i++) {
+                    double price = prices.get(ids[i]);
+                    subtotals[i] = price * qtys[i];
+                    itemPs.setString(1, orderOn);
+                    itemPs.setInt(2, ids[i]);
+                    itemPs.setInt(3, qtys[i]);
+                    itemPs.setDouble(4, price);
+                    itemPs.setDouble(5, subtotals[i]);
+                    itemPs.addBatch();
+                }
+                itemPs.executeBatch();
+            }
+
+            // 5. 清空购物车
+            try (PreparedStatement cartPs = conn.prepareStatement("DELETE FROM shopping_cart WHERE user_id = ?")) {
+                cartPs.setInt(1, userId);
+                cartPs.executeUpdate();
+            }
+
+            conn.commit();
+            committed = true;
+            ProductCatalog.productsChanged(ids);
+            ShoppingCartStore.orderPlaced(userId);
+            SalesAnalytics.orderPlaced(Integer.parseInt(orderOn), ids, qtys, subtotals);
+
+            // 返回创建的订单
+            OrderVO order = new OrderVO();
+            order.setOrderOn(orderOn);
+            order.setUserId(userId);
+            order.setTotalAmount(total);
+            order.setStatus(1);
+            return order;
+
+        } catch (SQLException e) {
+            if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
+            e.printStackTrace();
+            return null;
+        } finally {
+            reservations.unlock(locked);
+            if (!committed) {
+                reservations.unhold(ids, qtys, ids.length);
+            }
+            if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
         }
-        
-        itemPs.executeBatch();
-        stockPs.executeBatch();
-        
-        // 4. 清空购物车
-        String cartSql = "DELETE FROM shopping_cart WHERE user_id = ?";
-        PreparedStatement cartPs = conn.prepareStatement(cartSql);
-        cartPs.setInt(1, userId);
-        cartPs.executeUpdate();
-        
-        conn.commit();
-        
-        // 返回创建的订单
-        OrderVO order = new OrderVO();
-        order.setOrderOn(orderOn);
-        order.setUserId(userId);
-        order.setTotalAmount(total);
-        order.setStatus(1);
-        return order;
-        
-    } catch (SQLException e) {
-        if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
-        e.printStackTrace();
-        return null;
-    } finally {
-        if (conn != null) try { conn.close(); } catch (SQLException e) {}
     }
-}
+
+    /**
+     * 生成订单号：ORD + 毫秒时间 + 3位序号
+     */
+    private static String nextOrderNo() {
+        long seq = ORDER_SEQ.getAndIncrement() % 1000;
+        return "ORD" + new java.text.SimpleDateFormat("yyyyMMddHHmmssSSS").format(new java.util.Date())
+                + String.format("%03d", seq);
+    }
 
     @Override
     public boolean cancelOrder(Integer orderId, Integer userId) {
-        String sql = "UPDATE orders SET status = 'cancelled' WHERE order_id = ? AND user_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            
-            ps.setInt(1, orderId);
-            ps.setInt(2, userId);
-            
-            int rowsUpdated = ps.executeUpdate();
+        if (orderId == null || userId == null) return false;
+        // 已取消、已发货的订单不能再取消，库存只归还一次
+        String sql = "UPDATE orders SET status = 'cancelled' WHERE order_id = ? AND user_id = ? " +
+                     "AND status NOT IN (" + InventoryReservations.FINISHED_STATUSES + ")";
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            conn.setAutoCommit(false);
+            int rowsUpdated;
+            InventoryReservations.Released released = null;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, orderId);
+                ps.setInt(2, userId);
+                rowsUpdated = ps.executeUpdate();
+            }
             if (rowsUpdated > 0) {
-                // Restore stock
-                String stockSql = "UPDATE products p " +
-                                  "JOIN order_items oi ON p.product_id = oi.product_id " +
-                                  "SET p.stock = p.stock + oi.quantity " +
-                                  "WHERE oi.order_id = ?";
-                
-                try (PreparedStatement stockPs = conn.prepareStatement(stockSql)) {
-                    stockPs.setInt(1, orderId);
-                    stockPs.executeUpdate();
-                }
-                return true;
+                // 归还库存
+                released = InventoryReservations.getInstance().release(conn, orderId);
+                // 已用余额支付的订单退回余额
+                BalanceLedger.getInstance().refund(conn, orderId);
+            }
+            conn.commit();
+            if (released != null) {
+                // 提交之后才把秒杀商品的可售数量加回内存
+                InventoryReservations.getInstance().restore(released);
+                ProductCatalog.productsChanged(released.getProductIds());
+                SalesAnalytics.orderCancelled(orderId);
             }
+            return rowsUpdated > 0;
         } catch (SQLException e) {
+            if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
             e.printStackTrace();
+        } finally {
+            if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
         }
         return false;
     }
 
     @Override
     public boolean payOrder(Integer orderId) {
-        String sql = "UPDATE orders SET status = 'paid' WHERE order_id = ?";
+        // 只改订单状态、不扣款，客户端的支付请求走 payWithBalance；这里不计入销售统计（收入以余额支付或发货为准）
+        // 只有未支付的订单可以支付，已超时取消（库存已归还）的订单不能再支付
+        String sql = "UPDATE orders SET status = 'paid' WHERE order_id = ? AND status IN (" +
+                     InventoryReservations.UNPAID_STATUSES + ")";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
@@ -640,12 +1064,17 @@ public List<OrderItemVO> getUserOrderHistory(Integer userId) {
 
     @Override
     public boolean shipOrder(Integer orderId) {
-        String sql = "UPDATE orders SET status = 'shipped', ship_date = NOW() WHERE order_id = ?";
+        // 只有已支付的订单可以发货，待支付、已取消的订单不能发货（否则会被计入销售额）
+        String sql = "UPDATE orders SET status = 'shipped' WHERE order_id = ? AND status IN ('paid', '已支付')";
         try (Connection conn = getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
             ps.setInt(1, orderId);
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() > 0) {
+                SalesAnalytics.orderShipped(orderId);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -666,141 +1095,24 @@ public boolean updateOrderStatus(Integer orderId, Integer newStatus) {
     return false;
 }*/
     // ===== 余额管理 =====
-public double getUserBalance(Integer userId) {
-    int role = -1;
-    // 1. 先查询用户角色
-    String roleSql = "SELECT role FROM users WHERE user_id = ?";
-    try (Connection conn = getConnection();
-         PreparedStatement rolePs = conn.prepareStatement(roleSql)) {
-        
-        rolePs.setInt(1, userId);
-        try (ResultSet roleRs = rolePs.executeQuery()) {
-            if (roleRs.next()) {
-                role = roleRs.getInt("role");
-            } else {
-                return -1; // 用户不存在
-            }
-        }
-        
-        // 2. 根据角色查询对应表的 balance
-        String balanceSql;
-        if (role == 0) {
-            balanceSql = "SELECT balance FROM students WHERE user_id = ?"; // 学生表
-        } else if (role == 1) {
-            balanceSql = "SELECT balance FROM teachers WHERE user_id = ?"; // 教师表
-        } else {
-            return -1; // 未知角色
-        }
-        
-        try (PreparedStatement balancePs = conn.prepareStatement(balanceSql)) {
-            balancePs.setInt(1, userId);
-            try (ResultSet balanceRs = balancePs.executeQuery()) {
-                if (balanceRs.next()) {
-                    return balanceRs.getDouble("balance"); // 这里才会正确找到 balance 列
-                } else {
-                    return -1; // 该角色对应的表中无此用户
-                }
-            }
-        }
-        
-    } catch (SQLException e) {
-        e.printStackTrace();
-        return -1;
+    // 余额的查询和变动都交给余额账本，支付时扣款、改订单状态和记账在同一事务的一条条件更新中完成
+
+    @Override
+    public double getUserBalance(Integer userId) {
+        if (userId == null) return -1;
+        return BalanceLedger.getInstance().balance(userId);
     }
-}
 
-@Override
-public boolean rechargeBalance(Integer userId, double amount) {
-    int role = -1;
-    String selectSql = "SELECT role FROM users WHERE user_id = ?";
-    
-    // 1. 查询用户角色
-    try (Connection conn = getConnection();
-         PreparedStatement selectPs = conn.prepareStatement(selectSql)) {
-        
-        selectPs.setInt(1, userId);
-        try (ResultSet rs = selectPs.executeQuery()) {
-            if (rs.next()) {
-                role = rs.getInt("role");
-            }
-        }
-        
-        // 2. 根据角色确定更新语句
-        String updateSql;
-        if (role == 0) {
-            updateSql = "UPDATE students SET balance = balance + ? WHERE user_id = ?";
-        } else if (role == 1) {
-            updateSql = "UPDATE teachers SET balance = balance + ? WHERE user_id = ?";
-        } else {
-            return false; // 未知角色，更新失败
-        }
-        
-        // 3. 创建新的PreparedStatement执行更新（关键修正：使用新的PS对象）
-        try (PreparedStatement updatePs = conn.prepareStatement(updateSql)) {
-            updatePs.setDouble(1, amount); // 第一个占位符：充值金额
-            updatePs.setInt(2, userId);    // 第二个占位符：用户ID
-            return updatePs.executeUpdate() > 0; // 执行更新并返回结果
-        }
-        
-    } catch (SQLException e) {
-        e.printStackTrace();
+    @Override
+    public boolean rechargeBalance(Integer userId, double amount) {
+        if (userId == null) return false;
+        return BalanceLedger.getInstance().recharge(userId, amount);
     }
-    return false;
-}
+
     @Override
     public boolean payWithBalance(Integer orderId, Integer userId) {
-        // Get order total
-        String getAmountSql = "SELECT total_amount FROM orders WHERE order_id = ?";
-        double amount = 0.0;
-        
-        try (Connection conn = getConnection();
-             PreparedStatement amountPs = conn.prepareStatement(getAmountSql)) {
-            
-            amountPs.setInt(1, orderId);
-            try (ResultSet rs = amountPs.executeQuery()) {
-                if (rs.next()) {
-                    amount = rs.getDouble("total_amount");
-                } else {
-                    return false; // Order not found
-                }
-            }
-            
-            // Check balance
-            double balance = getUserBalance(userId);
-            if (balance < amount) {
-                return false;
-            }
-            
-            // Deduct balance
-                    int r=2;
-        String sql = "SELECT role FROM users WHERE user_id = ?";
-        PreparedStatement ps = conn.prepareStatement(sql) ;
-            ps.setInt(1, userId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    r=rs.getInt("role");
-                }
-            }
-        if (r==0){
-            sql = "UPDATE students SET balance = balance + ? WHERE user_id = ?";
-        } else if (r==1){
-            sql = "UPDATE teachers SET balance = balance + ? WHERE user_id = ?";
-        } else {
-            return false; // Unknown role
-        }
-            
-                ps.setDouble(1, amount);
-                ps.setInt(2, userId);
-                ps.executeUpdate();
-                
-                // Update order status
-                payOrder(orderId);
-                return true;
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
+        if (orderId == null || userId == null) return false;
+        return BalanceLedger.getInstance().pay(orderId, userId);
     }
 
     // ===== 辅助方法 =====
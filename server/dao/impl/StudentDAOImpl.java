@@ -4,6 +4,7 @@ import common.vo.StudentVO;
 import common.vo.UserVO;
 import server.dao.StudentDAO;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,6 +14,7 @@ import java.util.List;
  * 学生数据访问实现类
  */
 public class StudentDAOImpl implements StudentDAO {
+    private static final Log LOG = Log.get("user");
     
     @Override
     public Integer insert(StudentVO student) {
@@ -40,7 +42,7 @@ public class StudentDAOImpl implements StudentDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("插入学生失败: " + e.getMessage());
+            LOG.error("插入学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -61,7 +63,7 @@ public class StudentDAOImpl implements StudentDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("删除学生失败: " + e.getMessage());
+            LOG.error("删除学生失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -87,7 +89,7 @@ public class StudentDAOImpl implements StudentDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("更新学生失败: " + e.getMessage());
+            LOG.error("更新学生失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -111,7 +113,7 @@ public class StudentDAOImpl implements StudentDAO {
                 return mapResultSetToStudentVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询学生失败: " + e.getMessage());
+            LOG.error("查询学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -135,7 +137,7 @@ public class StudentDAOImpl implements StudentDAO {
                 students.add(mapResultSetToStudentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询所有学生失败: " + e.getMessage());
+            LOG.error("查询所有学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -158,7 +160,7 @@ public class StudentDAOImpl implements StudentDAO {
                 return rs.getLong(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计学生数量失败: " + e.getMessage());
+            LOG.error("统计学生数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -180,7 +182,7 @@ public class StudentDAOImpl implements StudentDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("检查学生是否存在失败: " + e.getMessage());
+            LOG.error("检查学生是否存在失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
@@ -204,7 +206,7 @@ public class StudentDAOImpl implements StudentDAO {
                 return mapResultSetToStudentVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("根据用户ID查询学生失败: " + e.getMessage());
+            LOG.error("根据用户ID查询学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -228,7 +230,7 @@ public class StudentDAOImpl implements StudentDAO {
                 return mapResultSetToStudentVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("根据学号查询学生失败: " + e.getMessage());
+            LOG.error("根据学号查询学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -250,7 +252,7 @@ public class StudentDAOImpl implements StudentDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("检查学号是否存在失败: " + e.getMessage());
+            LOG.error("检查学号是否存在失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
@@ -293,7 +295,7 @@ public class StudentDAOImpl implements StudentDAO {
                 students.add(mapResultSetToStudentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据入学年份查询学生失败: " + e.getMessage());
+            LOG.error("根据入学年份查询学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -321,7 +323,7 @@ public class StudentDAOImpl implements StudentDAO {
                 students.add(student);
             }
         } catch (SQLException e) {
-            System.err.println("查询所有学生（含用户信息）失败: " + e.getMessage());
+            LOG.error("查询所有学生（含用户信息）失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -349,7 +351,7 @@ public class StudentDAOImpl implements StudentDAO {
                 return student;
             }
         } catch (SQLException e) {
-            System.err.println("查询学生（含用户信息）失败: " + e.getMessage());
+            LOG.error("查询学生（含用户信息）失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -378,7 +380,7 @@ public class StudentDAOImpl implements StudentDAO {
                 students.add(student);
             }
         } catch (SQLException e) {
-            System.err.println("根据姓名模糊查询学生失败: " + e.getMessage());
+            LOG.error("根据姓名模糊查询学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -404,7 +406,7 @@ public class StudentDAOImpl implements StudentDAO {
                 students.add(mapResultSetToStudentVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询学生失败: " + e.getMessage());
+            LOG.error("查询学生失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
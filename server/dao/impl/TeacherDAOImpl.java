@@ -4,6 +4,7 @@ import common.vo.TeacherVO;
 import common.vo.UserVO;
 import server.dao.TeacherDAO;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,6 +14,7 @@ import java.util.List;
  * 教师数据访问实现类
  */
 public class TeacherDAOImpl implements TeacherDAO {
+    private static final Log LOG = Log.get("user");
     
     @Override
     public Integer insert(TeacherVO teacher) {
@@ -39,7 +41,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("插入教师失败: " + e.getMessage());
+            LOG.error("插入教师失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -60,7 +62,7 @@ public class TeacherDAOImpl implements TeacherDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("删除教师失败: " + e.getMessage());
+            LOG.error("删除教师失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -86,7 +88,7 @@ public class TeacherDAOImpl implements TeacherDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("更新教师失败: " + e.getMessage());
+            LOG.error("更新教师失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -110,7 +112,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 return mapResultSetToTeacherVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询教师失败: " + e.getMessage());
+            LOG.error("查询教师失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -134,7 +136,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 teachers.add(mapResultSetToTeacherVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询所有教师失败: " + e.getMessage());
+            LOG.error("查询所有教师失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -157,7 +159,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 return rs.getLong(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计教师数量失败: " + e.getMessage());
+            LOG.error("统计教师数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -179,7 +181,7 @@ public class TeacherDAOImpl implements TeacherDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("检查教师是否存在失败: " + e.getMessage());
+            LOG.error("检查教师是否存在失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
@@ -189,7 +191,7 @@ public class TeacherDAOImpl implements TeacherDAO {
     @Override
     public TeacherVO findByUserId(Integer userId) {
         String sql = "SELECT * FROM teachers WHERE user_id = ?";
-        System.out.println("[DEBUG][TeacherDAOImpl] 执行SQL查询：" + sql + ", userId=" + userId);
+        LOG.debug("[TeacherDAOImpl] 执行SQL查询：{}, userId={}", sql, userId);
         
         Connection conn = null;
         PreparedStatement pstmt = null;
@@ -197,30 +199,30 @@ public class TeacherDAOImpl implements TeacherDAO {
         
         try {
             conn = DatabaseUtil.getConnection();
-            System.out.println("[DEBUG][TeacherDAOImpl] 数据库连接获取成功");
+            LOG.debug("[TeacherDAOImpl] 数据库连接获取成功");
             
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, userId);
-            System.out.println("[DEBUG][TeacherDAOImpl] 准备执行查询，参数userId=" + userId);
+            LOG.debug("[TeacherDAOImpl] 准备执行查询，参数userId={}", userId);
             
             rs = pstmt.executeQuery();
-            System.out.println("[DEBUG][TeacherDAOImpl] 查询执行完成");
+            LOG.debug("[TeacherDAOImpl] 查询执行完成");
             
             if (rs.next()) {
-                System.out.println("[DEBUG][TeacherDAOImpl] 找到匹配记录，开始映射数据");
+                LOG.debug("[TeacherDAOImpl] 找到匹配记录，开始映射数据");
                 TeacherVO teacher = mapResultSetToTeacherVO(rs);
-                System.out.println("[DEBUG][TeacherDAOImpl] 数据映射完成，教师信息：" + 
-                    (teacher != null ? ("ID=" + teacher.getId() + ", 姓名=" + teacher.getName()) : "null"));
+                if (teacher != null) {
+                    LOG.debug("[TeacherDAOImpl] 数据映射完成，教师信息：ID={}, 姓名={}", teacher.getId(), teacher.getName());
+                }
                 return teacher;
             } else {
-                System.err.println("[DEBUG][TeacherDAOImpl] 未找到匹配的教师记录，userId=" + userId);
+                LOG.warn("[TeacherDAOImpl] 未找到匹配的教师记录，userId={}", userId);
             }
         } catch (SQLException e) {
-            System.err.println("[DEBUG][TeacherDAOImpl] 根据用户ID查询教师失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[TeacherDAOImpl] 根据用户ID查询教师失败: {}", e.getMessage(), e);
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
-            System.out.println("[DEBUG][TeacherDAOImpl] 数据库资源已释放");
+            LOG.debug("[TeacherDAOImpl] 数据库资源已释放");
         }
         return null;
     }
@@ -242,7 +244,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 return mapResultSetToTeacherVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("根据工号查询教师失败: " + e.getMessage());
+            LOG.error("根据工号查询教师失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -264,7 +266,7 @@ public class TeacherDAOImpl implements TeacherDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("检查工号是否存在失败: " + e.getMessage());
+            LOG.error("检查工号是否存在失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
@@ -282,7 +284,7 @@ public class TeacherDAOImpl implements TeacherDAO {
     public List<TeacherVO> findByTitle(String title) {
         // 注意：当前数据库表中没有title字段，此方法返回空列表
         // 如果需要按职称查询，需要先在数据库中添加title字段
-        System.out.println("[DEBUG][TeacherDAOImpl] findByTitle: 当前数据库表中没有title字段，返回空列表");
+        LOG.debug("[TeacherDAOImpl] findByTitle: 当前数据库表中没有title字段，返回空列表");
         return new java.util.ArrayList<>();
     }
     
@@ -304,7 +306,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 teachers.add(mapResultSetToTeacherVOWithUserInfo(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询所有教师（含用户信息）失败: " + e.getMessage());
+            LOG.error("查询所有教师（含用户信息）失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -329,7 +331,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 return mapResultSetToTeacherVOWithUserInfo(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询教师（含用户信息）失败: " + e.getMessage());
+            LOG.error("查询教师（含用户信息）失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -360,7 +362,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            System.err.println("获取教师课程数量失败: " + e.getMessage());
+            LOG.error("获取教师课程数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -384,7 +386,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            System.err.println("获取教师学生数量失败: " + e.getMessage());
+            LOG.error("获取教师学生数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -410,7 +412,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 teachers.add(mapResultSetToTeacherVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询教师失败: " + e.getMessage());
+            LOG.error("查询教师失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -436,7 +438,7 @@ public class TeacherDAOImpl implements TeacherDAO {
                 teachers.add(mapResultSetToTeacherVOWithUserInfo(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询教师（含用户信息）失败: " + e.getMessage());
+            LOG.error("查询教师（含用户信息）失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
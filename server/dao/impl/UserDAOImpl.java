@@ -3,6 +3,7 @@ package server.dao.impl;
 import common.vo.UserVO;
 import server.dao.UserDAO;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -12,6 +13,7 @@ import java.util.List;
  * 用户数据访问实现类
  */
 public class UserDAOImpl implements UserDAO {
+    private static final Log LOG = Log.get("user");
     
     @Override
     public Integer insert(UserVO user) {
@@ -38,8 +40,7 @@ public class UserDAOImpl implements UserDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("插入用户失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("插入用户失败: {}", e.getMessage(), e);
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -60,7 +61,7 @@ public class UserDAOImpl implements UserDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("删除用户失败: " + e.getMessage());
+            LOG.error("删除用户失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -85,8 +86,7 @@ public class UserDAOImpl implements UserDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("更新用户失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("更新用户失败: {}", e.getMessage(), e);
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -110,7 +110,7 @@ public class UserDAOImpl implements UserDAO {
                 return mapResultSetToUserVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("查询用户失败: " + e.getMessage());
+            LOG.error("查询用户失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -134,7 +134,7 @@ public class UserDAOImpl implements UserDAO {
                 users.add(mapResultSetToUserVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("查询所有用户失败: " + e.getMessage());
+            LOG.error("查询所有用户失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -157,7 +157,7 @@ public class UserDAOImpl implements UserDAO {
                 return rs.getLong(1);
             }
         } catch (SQLException e) {
-            System.err.println("统计用户数量失败: " + e.getMessage());
+            LOG.error("统计用户数量失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -179,7 +179,7 @@ public class UserDAOImpl implements UserDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("检查用户是否存在失败: " + e.getMessage());
+            LOG.error("检查用户是否存在失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
@@ -203,7 +203,7 @@ public class UserDAOImpl implements UserDAO {
                 return mapResultSetToUserVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("根据登录ID查询用户失败: " + e.getMessage());
+            LOG.error("根据登录ID查询用户失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -228,7 +228,7 @@ public class UserDAOImpl implements UserDAO {
                 return mapResultSetToUserVO(rs);
             }
         } catch (SQLException e) {
-            System.err.println("用户认证失败: " + e.getMessage());
+            LOG.error("用户认证失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -250,7 +250,7 @@ public class UserDAOImpl implements UserDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("检查登录ID是否存在失败: " + e.getMessage());
+            LOG.error("检查登录ID是否存在失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
@@ -275,7 +275,7 @@ public class UserDAOImpl implements UserDAO {
                 users.add(mapResultSetToUserVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据角色查询用户失败: " + e.getMessage());
+            LOG.error("根据角色查询用户失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -285,7 +285,7 @@ public class UserDAOImpl implements UserDAO {
     @Override
     public List<UserVO> findByStatus(Integer status) {
         // 状态管理已移除，返回所有用户
-        System.out.println("根据状态查询用户: " + status + " (状态管理已简化，返回所有用户)");
+        LOG.debug("根据状态查询用户: {} (状态管理已简化，返回所有用户)", status);
         return findAll();
     }
     
@@ -304,7 +304,7 @@ public class UserDAOImpl implements UserDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("更新用户密码失败: " + e.getMessage());
+            LOG.error("更新用户密码失败: {}", e.getMessage());
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -327,8 +327,7 @@ public class UserDAOImpl implements UserDAO {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("更新用户余额失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("更新用户余额失败: {}", e.getMessage(), e);
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, null);
@@ -338,14 +337,14 @@ public class UserDAOImpl implements UserDAO {
     @Override
     public boolean activateUser(Integer userId) {
         // 状态管理已移除，此方法保留为兼容性，直接返回true
-        System.out.println("激活用户: " + userId + " (状态管理已简化)");
+        LOG.debug("激活用户: {} (状态管理已简化)", userId);
         return true;
     }
     
     @Override
     public boolean deactivateUser(Integer userId) {
         // 状态管理已移除，此方法保留为兼容性，直接返回true
-        System.out.println("停用用户: " + userId + " (状态管理已简化)");
+        LOG.debug("停用用户: {} (状态管理已简化)", userId);
         return true;
     }
     
@@ -368,8 +367,7 @@ public class UserDAOImpl implements UserDAO {
                 users.add(mapResultSetToUserVO(rs));
             }
         } catch (SQLException e) {
-            System.err.println("根据登录ID模糊查询用户失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("根据登录ID模糊查询用户失败: {}", e.getMessage(), e);
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
@@ -394,8 +392,7 @@ public class UserDAOImpl implements UserDAO {
                 return rs.getDouble("balance");
             }
         } catch (SQLException e) {
-            System.err.println("获取用户余额失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("获取用户余额失败: {}", e.getMessage(), e);
         } finally {
             DatabaseUtil.closeAll(conn, pstmt, rs);
         }
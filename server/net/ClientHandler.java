@@ -1,6 +1,7 @@
 package server.net;
 
 import common.protocol.Message;
+import common.protocol.MessageTransport;
 import common.protocol.MessageType;
 import common.protocol.StatusCode;
 import common.vo.UserVO;
@@ -9,12 +10,21 @@ import common.vo.TeacherVO;
 import common.vo.BookVO;
 import common.vo.BorrowRecordVO;
 import server.service.UserService;
+import server.service.EnrollmentEngine;
+import server.service.GradeStatsEngine;
+import server.service.SalesAnalytics;
+import server.service.ShoppingCartStore;
+import server.service.StudentTimetableCache;
+import server.util.ConfigUtil;
 import server.dao.impl.LibraryServiceImpl;
 import server.dao.impl.StoreServiceImpl;
+import server.util.Log;
 import common.vo.ProductVO;
+import common.vo.ProductQueryVO;
 import common.vo.ShoppingCartItemVO;
 import common.vo.OrderVO;
 import common.vo.OrderItemVO;
+import common.vo.OrderPageVO;
 import java.util.Map;
 
 import java.util.List;
@@ -22,6 +32,7 @@ import java.util.List;
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 客户端处理器
@@ -29,65 +40,81 @@ import java.net.SocketException;
  * 负责处理客户端请求并返回响应
  */
 public class ClientHandler implements Runnable {
+    private static final Log LOG = Log.get("net");
+
     private final Socket clientSocket;
     private final VCampusServer server;
-    private ObjectInputStream objectIn;
-    private ObjectOutputStream objectOut;
-    private Integer currentUserId; // 当前登录用户ID
-    private UserVO currentUser;    // 当前登录用户信息
-    private boolean isConnected = true;
+    private volatile MessageTransport transport; // 消息传输层，第一次读取时与客户端协商
+    private volatile Integer currentUserId; // 当前登录用户ID
+    private volatile UserVO currentUser;    // 当前登录用户信息
+    private volatile String sessionToken;   // 当前会话令牌（断线重连时用于恢复会话）
+    private volatile boolean isConnected = true;
+    private InputStream rawIn;
+    private OutputStream rawOut;
+    private volatile Runnable disconnectListener; // 连接断开回调（由连接引擎设置）
+    private final Object disconnectLock = new Object();
+    
+    // 当前线程正在处理的请求（用于在响应中回填请求ID）
+    private static final ThreadLocal<RequestContext> CURRENT_REQUEST = new ThreadLocal<>();
+    
+    // 路由表和业务服务，所有连接共用；服务对象不保存连接状态，每次调用各自从连接池取数据库连接
+    private static final HandlerRegistry ROUTES = createRoutes();
+    private static final UserService USER_SERVICE = new UserService();
+    private static final server.service.StudentService STUDENT_SERVICE = new server.service.StudentService();
+    private static final server.service.TeacherService TEACHER_SERVICE = new server.service.TeacherService();
+    private static final server.service.ForumService FORUM_SERVICE = new server.service.ForumService();
+    private static final server.service.CourseService COURSE_SERVICE = new server.service.CourseService();
+    private static final server.service.EnrollmentService ENROLLMENT_SERVICE = new server.service.EnrollmentService();
+    
+    // 图书馆、商店服务在类加载时读取 resources/config.properties，放在各自的持有类中延迟创建，
+    // 配置有问题时只影响对应模块的请求
+    private static final class LibraryHolder {
+        static final server.service.LibraryService INSTANCE = new LibraryServiceImpl();
+    }
     
-    // 业务服务
-    private final UserService userService;
+    private static final class StoreHolder {
+        static final server.service.StoreService INSTANCE = new StoreServiceImpl();
+    }
+    private server.service.FileTransferService fileTransfers; // 分块传输会话，第一次使用时创建
     
     public ClientHandler(Socket clientSocket, VCampusServer server) {
         this.clientSocket = clientSocket;
         this.server = server;
-        this.userService = new UserService();
         
         try {
-            // 创建输入输出流
-            this.objectOut = new ObjectOutputStream(clientSocket.getOutputStream());
-            this.objectIn = new ObjectInputStream(clientSocket.getInputStream());
-
+            // 创建输入输出流，传输协议在第一次读取消息时协商
+            this.rawIn = ServerMetrics.getInstance().countInput(clientSocket.getInputStream());
+            this.rawOut = ServerMetrics.getInstance().countOutput(clientSocket.getOutputStream());
         } catch (IOException e) {
-            System.err.println("创建客户端流失败: " + e.getMessage());
+            LOG.error("创建客户端流失败: {}", e.getMessage());
             disconnect();
         }
     }
     
+    /**
+     * 使用外部提供的字节流创建处理器（NIO 引擎使用）
+     * 传输协议由引擎在握手数据完整到达后调用 negotiateTransport 协商
+     * @param clientSocket 客户端套接字
+     * @param in 输入字节流
+     * @param out 输出字节流
+     * @param server 服务器
+     */
+    ClientHandler(Socket clientSocket, InputStream in, OutputStream out, VCampusServer server) {
+        this.clientSocket = clientSocket;
+        this.server = server;
+        this.rawIn = ServerMetrics.getInstance().countInput(in);
+        this.rawOut = ServerMetrics.getInstance().countOutput(out);
+    }
+    
     @Override
     public void run() {
         String clientInfo = clientSocket.getRemoteSocketAddress().toString();
-        System.out.println("客户端处理线程启动: " + clientInfo);
+        LOG.info("客户端处理线程启动: {}", clientInfo);
         
         try {
             // 主循环：处理客户端消息
             while (isConnected && !clientSocket.isClosed()) {
-                try {
-                    Object receivedObject = objectIn.readObject();
-                    
-                    if (receivedObject instanceof Message) {
-                        Message request = (Message) receivedObject;
-                        handleMessage(request);
-                    } else {
-                        System.err.println("收到无效消息类型: " + receivedObject.getClass().getName());
-                        sendErrorMessage("无效的消息格式");
-                    }
-                    
-                } catch (SocketException e) {
-                    // 客户端正常断开连接
-                    System.out.println("客户端断开连接: " + clientInfo);
-                    break;
-                } catch (EOFException e) {
-                    // 客户端关闭连接
-                    System.out.println("客户端关闭连接: " + clientInfo);
-                    break;
-                } catch (ClassNotFoundException e) {
-                    System.err.println("反序列化消息失败: " + e.getMessage());
-                    sendErrorMessage("消息格式错误");
-                } catch (IOException e) {
-                    System.err.println("读取客户端消息失败: " + e.getMessage());
+                if (!processNextMessage()) {
                     break;
                 }
             }
@@ -97,8 +124,55 @@ public class ClientHandler implements Runnable {
         }
     }
     
+    /**
+     * 读取并处理一条客户端消息
+     * @return 连接仍然可用返回true，连接已断开返回false
+     */
+    boolean processNextMessage() {
+        return readNext(true);
+    }
+    
+    /**
+     * 只完成传输协议协商，不读取消息（NIO 引擎在握手数据完整到达后调用）
+     * @return 连接仍然可用返回true，连接已断开返回false
+     */
+    boolean negotiateTransport() {
+        return readNext(false);
+    }
+    
+    private boolean readNext(boolean readMessage) {
+        String clientInfo = String.valueOf(clientSocket.getRemoteSocketAddress());
+        try {
+            if (transport == null) {
+                transport = MessageTransport.serverAccept(rawIn, rawOut,
+                        ConfigUtil.getInt("server.wire.compressThreshold", MessageTransport.DEFAULT_COMPRESS_THRESHOLD),
+                        ConfigUtil.getInt("server.wire.maxFrameSize", MessageTransport.DEFAULT_MAX_FRAME_SIZE));
+                LOG.debug("客户端传输协议: {} -> {}", clientInfo, transport.getCodecName());
+            }
+            if (!readMessage) {
+                return isConnected;
+            }
+            Message request = transport.readMessage();
+            handleMessage(request);
+            return isConnected;
+            
+        } catch (SocketException e) {
+            // 客户端正常断开连接
+            LOG.info("客户端断开连接: {}", clientInfo);
+        } catch (EOFException e) {
+            // 客户端关闭连接
+            LOG.info("客户端关闭连接: {}", clientInfo);
+        } catch (IOException e) {
+            LOG.error("读取客户端消息失败: {}", e.getMessage());
+        }
+        disconnect();
+        return false;
+    }
+    
     /**
      * 处理客户端消息
+     * 带请求ID的请求交给所属模块的线程池并行处理，响应可以乱序返回；
+     * 不带请求ID的请求和会话类请求（登录、注册、登出）仍在读线程中按顺序处理
      * @param request 请求消息
      */
     private void handleMessage(Message request) {
@@ -107,182 +181,167 @@ public class ClientHandler implements Runnable {
             return;
         }
         
-        System.out.println("处理消息: " + request.getType() + " from " + 
-                          (currentUser != null ? currentUser.getLoginId() : "未登录用户"));
+        long receivedAt = System.nanoTime();
+        HandlerRegistry.Route route = ROUTES.lookup(request.getType());
+        if (route == null || request.getRequestId() == 0 || route.getModule() == HandlerRegistry.Module.SESSION) {
+            dispatch(request, route, receivedAt);
+            return;
+        }
         
         try {
-            switch (request.getType()) {
-                case LOGIN_REQUEST:
-                    handleLogin(request);
-                    break;
-                    
-                case REGISTER_REQUEST:
-                    handleRegister(request);
-                    break;
-                    
-                case LOGOUT_REQUEST:
-                    handleLogout(request);
-                    break;
-                    
-                case GET_USER_INFO_REQUEST:
-                    handleGetUserInfo(request);
-                    break;
-                    
-                case UPDATE_USER_REQUEST:
-                    handleUpdateUser(request);
-                    break;
-                    
-                case GET_ALL_USERS_REQUEST:
-                    handleGetAllUsers(request);
-                    break;
-                    
-                case GET_STUDENT_INFO_REQUEST:
-                    handleGetStudentInfo(request);
-                    break;
-                    
-                case HEARTBEAT:
-                    handleHeartbeat(request);
-                    break;
-
-                // 图书馆模块请求
-                case SEARCH_BOOK_REQUEST:
-                    handleSearchBooks(request);
-                    break;
-                case BORROW_BOOK_REQUEST:
-                    handleBorrowBook(request);
-                    break;
-                case RETURN_BOOK_REQUEST:
-                    handleReturnBook(request);
-                    break;
-                case RENEW_BOOK_REQUEST:
-                    handleRenewBook(request);
-                    break;
-                case GET_BORROW_RECORDS_REQUEST:
-                    handleGetBorrowRecords(request);
-                    break;
-                case ADD_BOOK_REQUEST:
-                    handleAddBook(request);
-                    break;
-                case UPDATE_BOOK_REQUEST:
-                    handleUpdateBook(request);
-                    break;
-                case DELETE_BOOK_REQUEST:
-                    handleDeleteBook(request);
-                    break;
-                case GET_BOOK_BY_ID_REQUEST:
-                    handleGetBookById(request);
-                    break;
-                case SEARCH_DOCUMENTS_REQUEST:
-                    handleSearchDocuments(request);
-                    break;
-                case GET_DOCUMENT_REQUEST:
-                    handleGetDocument(request);
-                    break;
-                case DOWNLOAD_DOCUMENT_REQUEST:
-                    handleDownloadDocument(request);
-                    break;
-                case UPLOAD_DOCUMENT_REQUEST:
-                    handleUploadDocument(request);
-                    break;
-                case UPDATE_DOCUMENT_REQUEST:
-                    handleUpdateDocument(request);
-                    break;
-                case DELETE_DOCUMENT_REQUEST:
-                    handleDeleteDocument(request);
-                    break;
-
-                      // ================== 商店模块 ==================
-
-                      // ===== 商品管理 =====
-                case SEARCH_PRODUCTS_REQUEST:
-                    handleSearchProducts(request);
-                    break;
-                case ADD_PRODUCT_REQUEST:
-                    handleAddProduct(request);
-                    break;
-                case UPDATE_PRODUCT_REQUEST:
-                    handleUpdateProduct(request);
-                    break;
-                case DELETE_PRODUCT_REQUEST:
-                    handleDeleteProduct(request);
-                    break;
-                case GET_PRODUCT_BY_ID_REQUEST:
-                    handleGetProductById(request);
-                    break;
-                    // ===== 购物车管理 =====
-                case GET_SHOPPING_CART_REQUEST:
-                    handleGetShoppingCart(request);
-                    break;
-                case ADD_TO_CART_REQUEST:
-                    handleAddToCart(request);
-                    break;
-                case UPDATE_CART_ITEM_REQUEST:
-                    handleUpdateCartItem(request);
-                    break;
-                case REMOVE_FROM_CART_REQUEST:
-                    handleRemoveFromCart(request);
-                    break;
-                case CLEAR_CART_REQUEST:
-                    handleClearCart(request);
-                    break;
-// ===== 订单管理 =====
-                case CREATE_ORDER_REQUEST:
-                    handlePlaceOrder(request);
-                    break;
-                case GET_USER_ORDER_HISTORY_REQUEST:
-                    handleGetOrdersByUser(request);
-                    break;
-case GET_ADMIN_ORDER_DETAIL_REQUEST:
-    handleGetAdminOrderDetail(request);
-    break;
-case CANCEL_ORDER_REQUEST:
-    handleCancelOrder(request);
-    break;
-case GET_ORDER_ITEMS_REQUEST:
-    handleGetOrderItems(request);
-    break;
-case PAY_ORDER_REQUEST:
-    handlePayOrder(request);
-    break;
-case SHIP_ORDER_REQUEST:
-    handleShipOrder(request);
-    break;
-    case GET_ALL_USER_ORDERS_REQUEST:
-    handleGetAllUserOrders(request);
-    break;
-//库存管理
-case ADJUST_STOCK_REQUEST:
-    handleAdjustStock(request);
-    break;
-    // ===== 余额管理 =====
-case GET_USER_BALANCE_REQUEST:
-    handleGetUserBalance(request);
-    break;
-case RECHARGE_BALANCE_REQUEST:
-    handleRechargeBalance(request);
-    break;
-case PAY_WITH_BALANCE_REQUEST:
-    handlePayWithBalance(request);
-    break;
-
-                default:
-                    handleUnsupportedRequest(request);
-                    break;
+            server.getModuleExecutors().execute(route.getModule(), () -> dispatch(request, route, receivedAt));
+        } catch (RejectedExecutionException e) {
+            ServerMetrics.getInstance().recordRejected();
+            Message response = new Message(MessageType.SERVER_BUSY, StatusCode.SERVICE_UNAVAILABLE, null, "服务器繁忙，请稍后重试");
+            response.setRequestId(request.getRequestId());
+            sendMessage(response);
+        }
+    }
+    
+    /**
+     * 在当前线程中执行请求，期间发出的响应自动带上请求ID
+     * 从读到请求到处理完成的耗时（含排队时间）按请求类型计入服务器指标
+     * @param request 请求消息
+     * @param route 路由，未登记的消息类型为null
+     * @param receivedAt 读到请求时的 System.nanoTime()
+     */
+    private void dispatch(Message request, HandlerRegistry.Route route, long receivedAt) {
+        RequestContext previous = CURRENT_REQUEST.get();
+        RequestContext context = new RequestContext(this, request.getRequestId());
+        CURRENT_REQUEST.set(context);
+        server.getSessionManager().touch(sessionToken);
+        try {
+            LOG.debug("处理消息: {} from {}", request.getType(), currentUser != null ? currentUser.getLoginId() : "未登录用户");
+            if (route != null) {
+                route.getHandler().handle(this, request);
+            } else {
+                handleUnsupportedRequest(request);
             }
         } catch (Exception e) {
-            System.err.println("处理消息异常: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("处理消息异常: {}", e.getMessage(), e);
             sendErrorMessage("服务器内部错误: " + e.getMessage());
+        } finally {
+            ServerMetrics.getInstance().recordRequest(request.getType(), System.nanoTime() - receivedAt, context.failed);
+            if (previous != null) {
+                CURRENT_REQUEST.set(previous);
+            } else {
+                CURRENT_REQUEST.remove();
+            }
         }
     }
+    
+    /**
+     * 消息类型到处理方法的路由表，所有连接共用
+     */
+    private static HandlerRegistry createRoutes() {
+        HandlerRegistry.Module session = HandlerRegistry.Module.SESSION;
+        HandlerRegistry.Module user = HandlerRegistry.Module.USER;
+        HandlerRegistry.Module library = HandlerRegistry.Module.LIBRARY;
+        HandlerRegistry.Module store = HandlerRegistry.Module.STORE;
+        HandlerRegistry.Module forum = HandlerRegistry.Module.FORUM;
+        HandlerRegistry.Module course = HandlerRegistry.Module.COURSE;
+        return new HandlerRegistry()
+                // 会话与用户
+                .register(session, MessageType.LOGIN_REQUEST, ClientHandler::handleLogin)
+                .register(session, MessageType.REGISTER_REQUEST, ClientHandler::handleRegister)
+                .register(session, MessageType.LOGOUT_REQUEST, ClientHandler::handleLogout)
+                .register(session, MessageType.SESSION_RESUME_REQUEST, ClientHandler::handleSessionResume)
+                .register(user, MessageType.GET_USER_INFO_REQUEST, ClientHandler::handleGetUserInfo)
+                .register(user, MessageType.UPDATE_USER_REQUEST, ClientHandler::handleUpdateUser)
+                .register(user, MessageType.GET_ALL_USERS_REQUEST, ClientHandler::handleGetAllUsers)
+                .register(user, MessageType.GET_STUDENT_INFO_REQUEST, ClientHandler::handleGetStudentInfo)
+                .register(user, MessageType.GET_TEACHER_INFO_REQUEST, ClientHandler::handleGetTeacherInfo)
+                .register(user, MessageType.HEARTBEAT, ClientHandler::handleHeartbeat)
+                .register(user, MessageType.GET_SERVER_METRICS_REQUEST, ClientHandler::handleGetServerMetrics)
+
+                // 图书馆
+                .register(library, MessageType.SEARCH_BOOK_REQUEST, ClientHandler::handleSearchBooks)
+                .register(library, MessageType.BORROW_BOOK_REQUEST, ClientHandler::handleBorrowBook)
+                .register(library, MessageType.RETURN_BOOK_REQUEST, ClientHandler::handleReturnBook)
+                .register(library, MessageType.RENEW_BOOK_REQUEST, ClientHandler::handleRenewBook)
+                .register(library, MessageType.GET_BORROW_RECORDS_REQUEST, ClientHandler::handleGetBorrowRecords)
+                .register(library, MessageType.SEARCH_BORROW_HISTORY_REQUEST, ClientHandler::handleSearchBorrowHistory)
+                .register(library, MessageType.ADD_BOOK_REQUEST, ClientHandler::handleAddBook)
+                .register(library, MessageType.UPDATE_BOOK_REQUEST, ClientHandler::handleUpdateBook)
+                .register(library, MessageType.DELETE_BOOK_REQUEST, ClientHandler::handleDeleteBook)
+                .register(library, MessageType.GET_BOOK_BY_ID_REQUEST, ClientHandler::handleGetBookById)
+                .register(library, MessageType.SEARCH_DOCUMENTS_REQUEST, ClientHandler::handleSearchDocuments)
+                .register(library, MessageType.GET_DOCUMENT_REQUEST, ClientHandler::handleGetDocument)
+                .register(library, MessageType.DOWNLOAD_DOCUMENT_REQUEST, ClientHandler::handleDownloadDocument)
+                .register(library, MessageType.UPLOAD_DOCUMENT_REQUEST, ClientHandler::handleUploadDocument)
+                .register(library, MessageType.UPDATE_DOCUMENT_REQUEST, ClientHandler::handleUpdateDocument)
+                .register(library, MessageType.DELETE_DOCUMENT_REQUEST, ClientHandler::handleDeleteDocument)
+                .register(library, MessageType.FILE_DOWNLOAD_REQUEST, ClientHandler::handleFileDownload)
+                .register(library, MessageType.FILE_CHUNK_REQUEST, ClientHandler::handleFileChunkRequest)
+                .register(library, MessageType.FILE_UPLOAD_REQUEST, ClientHandler::handleFileUpload)
+                .register(library, MessageType.FILE_CHUNK_DATA, ClientHandler::handleFileChunkData)
+
+                // 商店：商品、购物车、订单、库存、余额
+                .register(store, MessageType.SEARCH_PRODUCTS_REQUEST, ClientHandler::handleSearchProducts)
+                .register(store, MessageType.QUERY_PRODUCTS_REQUEST, ClientHandler::handleQueryProducts)
+                .register(store, MessageType.ADD_PRODUCT_REQUEST, ClientHandler::handleAddProduct)
+                .register(store, MessageType.UPDATE_PRODUCT_REQUEST, ClientHandler::handleUpdateProduct)
+                .register(store, MessageType.DELETE_PRODUCT_REQUEST, ClientHandler::handleDeleteProduct)
+                .register(store, MessageType.GET_PRODUCT_BY_ID_REQUEST, ClientHandler::handleGetProductById)
+                .register(store, MessageType.GET_SHOPPING_CART_REQUEST, ClientHandler::handleGetShoppingCart)
+                .register(store, MessageType.ADD_TO_CART_REQUEST, ClientHandler::handleAddToCart)
+                .register(store, MessageType.UPDATE_CART_ITEM_REQUEST, ClientHandler::handleUpdateCartItem)
+                .register(store, MessageType.REMOVE_FROM_CART_REQUEST, ClientHandler::handleRemoveFromCart)
+                .register(store, MessageType.CLEAR_CART_REQUEST, ClientHandler::handleClearCart)
+                .register(store, MessageType.CREATE_ORDER_REQUEST, ClientHandler::handlePlaceOrder)
+                .register(store, MessageType.GET_USER_ORDER_HISTORY_REQUEST, ClientHandler::handleGetOrdersByUser)
+                .register(store, MessageType.GET_ADMIN_ORDER_DETAIL_REQUEST, ClientHandler::handleGetAdminOrderDetail)
+                .register(store, MessageType.CANCEL_ORDER_REQUEST, ClientHandler::handleCancelOrder)
+                .register(store, MessageType.GET_ORDER_ITEMS_REQUEST, ClientHandler::handleGetOrderItems)
+                .register(store, MessageType.PAY_ORDER_REQUEST, ClientHandler::handlePayOrder)
+                .register(store, MessageType.SHIP_ORDER_REQUEST, ClientHandler::handleShipOrder)
+                .register(store, MessageType.GET_ALL_USER_ORDERS_REQUEST, ClientHandler::handleGetAllUserOrders)
+                .register(store, MessageType.GET_ORDER_PAGE_REQUEST, ClientHandler::handleGetOrderPage)
+                .register(store, MessageType.ADJUST_STOCK_REQUEST, ClientHandler::handleAdjustStock)
+                .register(store, MessageType.GET_SALES_SUMMARY_REQUEST, ClientHandler::handleGetSalesSummary)
+                .register(store, MessageType.GET_TOP_PRODUCTS_REQUEST, ClientHandler::handleGetTopProducts)
+                .register(store, MessageType.GET_STOCK_TURNOVER_REQUEST, ClientHandler::handleGetStockTurnover)
+                .register(store, MessageType.GET_USER_BALANCE_REQUEST, ClientHandler::handleGetUserBalance)
+                .register(store, MessageType.RECHARGE_BALANCE_REQUEST, ClientHandler::handleRechargeBalance)
+                .register(store, MessageType.PAY_WITH_BALANCE_REQUEST, ClientHandler::handlePayWithBalance)
+
+                // 论坛
+                .register(forum, MessageType.GET_THREAD_FEED_REQUEST, ClientHandler::handleGetThreadFeed)
+                .register(forum, MessageType.GET_THREAD_DETAIL_REQUEST, ClientHandler::handleGetThreadDetail)
+                .register(forum, MessageType.GET_ALL_THREADS_REQUEST, ClientHandler::handleGetAllThreads)
+                .register(forum, MessageType.GET_FORUM_SECTIONS_REQUEST, ClientHandler::handleGetForumSections)
+                .register(forum, MessageType.GET_POSTS_REQUEST, ClientHandler::handleGetPosts)
+                .register(forum, MessageType.CREATE_THREAD_REQUEST, ClientHandler::handleCreateThread)
+                .register(forum, MessageType.CREATE_POST_REQUEST, ClientHandler::handleCreatePost)
+                .register(forum, MessageType.TOGGLE_THREAD_LIKE_REQUEST, ClientHandler::handleToggleThreadLike)
+                .register(forum, MessageType.TOGGLE_POST_LIKE_REQUEST, ClientHandler::handleTogglePostLike)
+                .register(forum, MessageType.SEARCH_THREADS_REQUEST, ClientHandler::handleSearchThreads)
+                .register(forum, MessageType.DELETE_THREAD_REQUEST, ClientHandler::handleDeleteThread)
+                .register(forum, MessageType.SET_THREAD_ESSENCE_REQUEST, ClientHandler::handleSetThreadEssence)
+
+                // 课程与选课
+                .register(course, MessageType.GET_ALL_COURSES_REQUEST, ClientHandler::handleGetAllCourses)
+                .register(course, MessageType.ADD_COURSE_REQUEST, ClientHandler::handleAddCourse)
+                .register(course, MessageType.UPDATE_COURSE_REQUEST, ClientHandler::handleUpdateCourse)
+                .register(course, MessageType.DELETE_COURSE_REQUEST, ClientHandler::handleDeleteCourse)
+                .register(course, MessageType.ENROLL_COURSE_REQUEST, ClientHandler::handleEnrollCourse)
+                .register(course, MessageType.DROP_COURSE_REQUEST, ClientHandler::handleDropCourse)
+                .register(course, MessageType.GET_ALL_ENROLLMENTS_REQUEST, ClientHandler::handleGetAllEnrollments)
+                .register(course, MessageType.GET_STUDENT_ENROLLMENTS_REQUEST, ClientHandler::handleGetStudentEnrollments)
+                .register(course, MessageType.GET_ENROLLMENTS_BY_COURSE_REQUEST, ClientHandler::handleGetEnrollmentsByCourse)
+                .register(course, MessageType.FIND_NON_CONFLICTING_COURSES_REQUEST, ClientHandler::handleFindNonConflictingCourses)
+                .register(course, MessageType.GET_MY_TIMETABLE_REQUEST, ClientHandler::handleGetMyTimetable)
+                .register(course, MessageType.UPDATE_GRADE_REQUEST, ClientHandler::handleUpdateGrade)
+                .register(course, MessageType.GET_COURSE_GRADE_STATS_REQUEST, ClientHandler::handleGetCourseGradeStats)
+                .register(course, MessageType.GET_MY_GPA_REQUEST, ClientHandler::handleGetMyGpa);
+    }
 
     // ================= 图书馆模块 =================
 
     private void handleSearchBooks(Message request) {
         try {
             String keyword = (String) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            List<BookVO> books = libraryService.searchBooks(keyword);
+            List<BookVO> books = LibraryHolder.INSTANCE.searchBooks(keyword);
 
             Message response = new Message(MessageType.SEARCH_BOOK_SUCCESS, StatusCode.SUCCESS, books, "搜索成功");
             sendMessage(response);
@@ -297,8 +356,7 @@ case PAY_WITH_BALANCE_REQUEST:
             Integer userId = (Integer) params[0];
             Integer bookId = (Integer) params[1];
 
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean success = libraryService.borrowBook(userId, bookId);
+            boolean success = LibraryHolder.INSTANCE.borrowBook(userId, bookId);
 
             Message response = new Message(
                     success ? MessageType.BORROW_BOOK_SUCCESS : MessageType.BORROW_BOOK_FAIL,
@@ -315,8 +373,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleReturnBook(Message request) {
         try {
             Integer borrowId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean success = libraryService.returnBook(borrowId);
+            boolean success = LibraryHolder.INSTANCE.returnBook(borrowId);
 
             Message response = new Message(
                     success ? MessageType.RETURN_BOOK_SUCCESS : MessageType.RETURN_BOOK_FAIL,
@@ -333,8 +390,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleRenewBook(Message request) {
         try {
             Integer borrowId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean success = libraryService.renewBook(borrowId);
+            boolean success = LibraryHolder.INSTANCE.renewBook(borrowId);
 
             Message response = new Message(
                     success ? MessageType.RENEW_BOOK_SUCCESS : MessageType.RENEW_BOOK_FAIL,
@@ -351,8 +407,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleGetBorrowRecords(Message request) {
         try {
             Integer userId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            List<BorrowRecordVO> records = libraryService.getBorrowHistory(userId);
+            List<BorrowRecordVO> records = LibraryHolder.INSTANCE.getBorrowHistory(userId);
 
             Message response = new Message(MessageType.GET_BORROW_RECORDS_SUCCESS, StatusCode.SUCCESS, records, "查询借阅记录成功");
             sendMessage(response);
@@ -361,11 +416,51 @@ case PAY_WITH_BALANCE_REQUEST:
         }
     }
 
+    /**
+     * 按关键字筛选借阅历史（书名、作者、ISBN），请求数据为 Map：userId、keyword
+     * 普通用户只能查询自己的记录
+     */
+    @SuppressWarnings("unchecked")
+    private void handleSearchBorrowHistory(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            Map<String, Object> params = request.getData() instanceof Map
+                    ? (Map<String, Object>) request.getData() : java.util.Collections.emptyMap();
+            Integer userId = (Integer) params.get("userId");
+            if (userId == null || !currentUser.isAdmin()) {
+                userId = currentUserId;
+            }
+            String keyword = params.get("keyword") != null ? params.get("keyword").toString().trim().toLowerCase() : "";
+
+            List<BorrowRecordVO> records = LibraryHolder.INSTANCE.getBorrowHistory(userId);
+            List<BorrowRecordVO> matched = new java.util.ArrayList<>();
+            if (records != null) {
+                for (BorrowRecordVO record : records) {
+                    if (keyword.isEmpty() || containsIgnoreCase(record.getBookTitle(), keyword)
+                            || containsIgnoreCase(record.getBookAuthor(), keyword)
+                            || containsIgnoreCase(record.getIsbn(), keyword)) {
+                        matched.add(record);
+                    }
+                }
+            }
+            sendMessage(new Message(MessageType.SEARCH_BORROW_HISTORY_SUCCESS, StatusCode.SUCCESS, matched, "查询借阅历史成功"));
+        } catch (Exception e) {
+            sendMessage(new Message(MessageType.SEARCH_BORROW_HISTORY_FAIL, StatusCode.INTERNAL_ERROR, null,
+                    "查询借阅历史失败: " + e.getMessage()));
+        }
+    }
+
+    private static boolean containsIgnoreCase(String text, String lowerKeyword) {
+        return text != null && text.toLowerCase().contains(lowerKeyword);
+    }
+
     private void handleAddBook(Message request) {
         try {
             BookVO book = (BookVO) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean success = libraryService.addBook(book);
+            boolean success = LibraryHolder.INSTANCE.addBook(book);
 
             Message response = new Message(
                     success ? MessageType.ADD_BOOK_SUCCESS : MessageType.ADD_BOOK_FAIL,
@@ -382,8 +477,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleUpdateBook(Message request) {
         try {
             BookVO book = (BookVO) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean success = libraryService.updateBook(book);
+            boolean success = LibraryHolder.INSTANCE.updateBook(book);
 
             Message response = new Message(
                     success ? MessageType.UPDATE_BOOK_SUCCESS : MessageType.UPDATE_BOOK_FAIL,
@@ -400,8 +494,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleDeleteBook(Message request) {
         try {
             Integer bookId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean success = libraryService.deleteBook(bookId);
+            boolean success = LibraryHolder.INSTANCE.deleteBook(bookId);
 
             Message response = new Message(
                     success ? MessageType.DELETE_BOOK_SUCCESS : MessageType.DELETE_BOOK_FAIL,
@@ -418,8 +511,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleGetBookById(Message request) {
         try {
             Integer bookId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            BookVO book = libraryService.getBookById(bookId);
+            BookVO book = LibraryHolder.INSTANCE.getBookById(bookId);
 
             if (book != null) {
                 Message response = new Message(MessageType.GET_BOOK_BY_ID_SUCCESS, StatusCode.SUCCESS, book, "查询成功");
@@ -445,9 +537,8 @@ case PAY_WITH_BALANCE_REQUEST:
             Integer startYear = (Integer) params.get("startYear");
             Integer endYear = (Integer) params.get("endYear");
 
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
             java.util.List<common.vo.DocumentVO> docs =
-                    libraryService.searchDocuments(keyword, subject, category, startYear, endYear);
+                    LibraryHolder.INSTANCE.searchDocuments(keyword, subject, category, startYear, endYear);
 
             Message response = new Message(MessageType.SEARCH_DOCUMENTS_RESPONSE,
                     StatusCode.SUCCESS, docs, "搜索文献成功");
@@ -460,8 +551,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleGetDocument(Message request) {
         try {
             Integer docId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            common.vo.DocumentVO doc = libraryService.getDocumentById(docId);
+            common.vo.DocumentVO doc = LibraryHolder.INSTANCE.getDocumentById(docId);
 
             Message response;
             if (doc != null) {
@@ -480,8 +570,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleDownloadDocument(Message request) {
         try {
             Integer docId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            byte[] fileData = libraryService.downloadDocument(docId);
+            byte[] fileData = LibraryHolder.INSTANCE.downloadDocument(docId);
 
             Message response;
             if (fileData != null) {
@@ -505,9 +594,8 @@ case PAY_WITH_BALANCE_REQUEST:
             byte[] fileBytes = (byte[]) uploadData.get("file");
 
             boolean ok = false;
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
             try (java.io.InputStream is = new java.io.ByteArrayInputStream(fileBytes)) {
-                ok = libraryService.uploadDocument(doc, is);
+                ok = LibraryHolder.INSTANCE.uploadDocument(doc, is);
             }
 
             Message response = new Message(MessageType.UPLOAD_DOCUMENT_RESPONSE,
@@ -518,11 +606,84 @@ case PAY_WITH_BALANCE_REQUEST:
         }
     }
 
+    // ---------- 分块传输 ----------
+
+    private synchronized server.service.FileTransferService getFileTransfers() {
+        if (fileTransfers == null) {
+            fileTransfers = new server.service.FileTransferService(LibraryHolder.INSTANCE);
+        }
+        return fileTransfers;
+    }
+
+    private void handleFileDownload(Message request) {
+        try {
+            Integer docId = (Integer) request.getData();
+            common.vo.FileTransferVO ready = getFileTransfers().openDownload(docId);
+            sendMessage(new Message(MessageType.FILE_DOWNLOAD_READY, StatusCode.SUCCESS, ready, "下载准备就绪"));
+        } catch (FileNotFoundException e) {
+            sendMessage(new Message(MessageType.FILE_DOWNLOAD_FAIL, StatusCode.NOT_FOUND, null, "文件不存在"));
+        } catch (Exception e) {
+            LOG.error("打开下载失败: {}", e.getMessage());
+            sendMessage(new Message(MessageType.FILE_DOWNLOAD_FAIL, StatusCode.INTERNAL_ERROR, null, "下载失败: " + e.getMessage()));
+        }
+    }
+
+    private void handleFileChunkRequest(Message request) {
+        try {
+            common.vo.FileChunkVO chunk = getFileTransfers().readChunk((common.vo.FileChunkVO) request.getData());
+            sendMessage(new Message(MessageType.FILE_CHUNK_DATA, StatusCode.SUCCESS, chunk, null));
+        } catch (IllegalArgumentException e) {
+            sendMessage(new Message(MessageType.FILE_DOWNLOAD_FAIL, StatusCode.BAD_REQUEST, null, e.getMessage()));
+        } catch (Exception e) {
+            LOG.error("读取文件分块失败: {}", e.getMessage());
+            sendMessage(new Message(MessageType.FILE_DOWNLOAD_FAIL, StatusCode.INTERNAL_ERROR, null, "读取文件失败: " + e.getMessage()));
+        }
+    }
+
+    private void handleFileUpload(Message request) {
+        if (currentUserId == null) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            common.vo.FileTransferVO ready = getFileTransfers().openUpload(
+                    (common.vo.FileTransferVO) request.getData(), currentUserId);
+            sendMessage(new Message(MessageType.FILE_UPLOAD_READY, StatusCode.SUCCESS, ready, "上传准备就绪"));
+        } catch (IllegalArgumentException e) {
+            sendMessage(new Message(MessageType.FILE_UPLOAD_FAIL, StatusCode.BAD_REQUEST, null, e.getMessage()));
+        } catch (Exception e) {
+            LOG.error("打开上传失败: {}", e.getMessage());
+            sendMessage(new Message(MessageType.FILE_UPLOAD_FAIL, StatusCode.INTERNAL_ERROR, null, "上传失败: " + e.getMessage()));
+        }
+    }
+
+    private void handleFileChunkData(Message request) {
+        if (currentUserId == null) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            common.vo.FileChunkVO chunk = (common.vo.FileChunkVO) request.getData();
+            Integer docId = getFileTransfers().writeChunk(chunk, currentUserId);
+            if (docId == null) {
+                // 确认时只带回下一个偏移量，不回传数据
+                chunk.setData(null);
+                sendMessage(new Message(MessageType.FILE_CHUNK_ACK, StatusCode.SUCCESS, chunk, null));
+            } else {
+                sendMessage(new Message(MessageType.FILE_UPLOAD_SUCCESS, StatusCode.SUCCESS, docId, "上传成功"));
+            }
+        } catch (IllegalArgumentException e) {
+            sendMessage(new Message(MessageType.FILE_UPLOAD_FAIL, StatusCode.BAD_REQUEST, null, e.getMessage()));
+        } catch (Exception e) {
+            LOG.error("写入文件分块失败: {}", e.getMessage());
+            sendMessage(new Message(MessageType.FILE_UPLOAD_FAIL, StatusCode.INTERNAL_ERROR, null, "上传失败: " + e.getMessage()));
+        }
+    }
+
     private void handleUpdateDocument(Message request) {
         try {
             common.vo.DocumentVO doc = (common.vo.DocumentVO) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean ok = libraryService.updateDocument(doc);
+            boolean ok = LibraryHolder.INSTANCE.updateDocument(doc);
 
             Message response = new Message(MessageType.UPDATE_DOCUMENT_RESPONSE,
                     ok ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST, ok, ok ? "更新成功" : "更新失败");
@@ -535,8 +696,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleDeleteDocument(Message request) {
         try {
             Integer docId = (Integer) request.getData();
-            server.service.LibraryService libraryService = new server.dao.impl.LibraryServiceImpl();
-            boolean ok = libraryService.deleteDocument(docId);
+            boolean ok = LibraryHolder.INSTANCE.deleteDocument(docId);
 
             Message response = new Message(MessageType.DELETE_DOCUMENT_RESPONSE,
                     ok ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST, ok, ok ? "删除成功" : "删除失败");
@@ -549,8 +709,7 @@ case PAY_WITH_BALANCE_REQUEST:
     private void handleSearchProducts(Message request) {
     try {
         String keyword = (String) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        List<ProductVO> products = storeService.searchProducts(keyword);
+        List<ProductVO> products = StoreHolder.INSTANCE.searchProducts(keyword);
         Message response = new Message(MessageType.SEARCH_PRODUCTS_SUCCESS, StatusCode.SUCCESS, products, "搜索成功");
         sendMessage(response);
     } catch (Exception e) {
@@ -558,11 +717,27 @@ case PAY_WITH_BALANCE_REQUEST:
     }
 }
 
+/**
+ * 按条件查询商品：请求数据为 ProductQueryVO，回复 ProductPageVO（带上的版本号未变化时只回复"未修改"）
+ */
+private void handleQueryProducts(Message request) {
+    if (!(request.getData() instanceof ProductQueryVO)) {
+        sendMessage(new Message(MessageType.QUERY_PRODUCTS_SUCCESS, StatusCode.BAD_REQUEST, null, "查询条件无效"));
+        return;
+    }
+    try {
+        ProductQueryVO query = (ProductQueryVO) request.getData();
+        sendMessage(new Message(MessageType.QUERY_PRODUCTS_SUCCESS, StatusCode.SUCCESS,
+                StoreHolder.INSTANCE.queryProducts(query), "查询成功"));
+    } catch (Exception e) {
+        sendErrorMessage("查询商品失败: " + e.getMessage());
+    }
+}
+
 private void handleAddProduct(Message request) {
     try {
         ProductVO product = (ProductVO) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.addProduct(product);
+        boolean success = StoreHolder.INSTANCE.addProduct(product);
         Message response = new Message(
                 success ? MessageType.ADD_PRODUCT_SUCCESS : MessageType.ADD_PRODUCT_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -578,8 +753,7 @@ private void handleAddProduct(Message request) {
 private void handleUpdateProduct(Message request) {
     try {
         ProductVO product = (ProductVO) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.updateProduct(product);
+        boolean success = StoreHolder.INSTANCE.updateProduct(product);
         Message response = new Message(
                 success ? MessageType.UPDATE_PRODUCT_SUCCESS : MessageType.UPDATE_PRODUCT_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -595,8 +769,7 @@ private void handleUpdateProduct(Message request) {
 private void handleDeleteProduct(Message request) {
     try {
         Integer productId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.deleteProduct(productId);
+        boolean success = StoreHolder.INSTANCE.deleteProduct(productId);
         Message response = new Message(
                 success ? MessageType.DELETE_PRODUCT_SUCCESS : MessageType.DELETE_PRODUCT_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -612,8 +785,7 @@ private void handleDeleteProduct(Message request) {
 private void handleGetShoppingCart(Message request) {
     try {
         Integer userId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        List<ShoppingCartItemVO> cart = storeService.getShoppingCart(userId);
+        List<ShoppingCartItemVO> cart = StoreHolder.INSTANCE.getShoppingCart(userId);
         Message response = new Message(MessageType.GET_SHOPPING_CART_SUCCESS, StatusCode.SUCCESS, cart, "获取购物车成功");
         sendMessage(response);
     } catch (Exception e) {
@@ -627,8 +799,7 @@ private void handleAddToCart(Message request) {
         Integer userId = (Integer) params[0];
         Integer productId = (Integer) params[1];
         int quantity = (int) params[2];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.addToCart(userId, productId, quantity);
+        boolean success = StoreHolder.INSTANCE.addToCart(userId, productId, quantity);
         Message response = new Message(
                 success ? MessageType.ADD_TO_CART_SUCCESS : MessageType.ADD_TO_CART_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -647,8 +818,7 @@ private void handleUpdateCartItem(Message request) {
         Integer userId = (Integer) params[0];
         Integer productId = (Integer) params[1];
         int newQuantity = (int) params[2];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.updateCartItem(userId, productId, newQuantity);
+        boolean success = StoreHolder.INSTANCE.updateCartItem(userId, productId, newQuantity);
         Message response = new Message(
                 success ? MessageType.UPDATE_CART_ITEM_SUCCESS : MessageType.UPDATE_CART_ITEM_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -666,8 +836,7 @@ private void handleRemoveFromCart(Message request) {
         Object[] params = (Object[]) request.getData();
         Integer userId = (Integer) params[0];
         Integer productId = (Integer) params[1];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.removeFromCart(userId, productId);
+        boolean success = StoreHolder.INSTANCE.removeFromCart(userId, productId);
         Message response = new Message(
                 success ? MessageType.REMOVE_FROM_CART_SUCCESS : MessageType.REMOVE_FROM_CART_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -683,8 +852,7 @@ private void handleRemoveFromCart(Message request) {
 private void handleClearCart(Message request) {
     try {
         Integer userId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.clearCart(userId);
+        boolean success = StoreHolder.INSTANCE.clearCart(userId);
         Message response = new Message(
                 success ? MessageType.CLEAR_CART_SUCCESS : MessageType.CLEAR_CART_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -705,8 +873,7 @@ private void handlePlaceOrder(Message request) {
         List<Integer> productIds = (List<Integer>) params.get("productIds");
         @SuppressWarnings("unchecked")
         List<Integer> quantities = (List<Integer>) params.get("quantities");
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        OrderVO order = storeService.createOrder(userId, productIds, quantities);
+        OrderVO order = StoreHolder.INSTANCE.createOrder(userId, productIds, quantities);
         boolean success = order != null;
         Message response = new Message(
                 success ? MessageType.CREATE_ORDER_SUCCESS : MessageType.CREATE_ORDER_FAIL,
@@ -723,8 +890,7 @@ private void handlePlaceOrder(Message request) {
 private void handleGetOrdersByUser(Message request) {
     try {
         Integer userId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        List<OrderItemVO> orders = storeService.getUserOrderHistory(userId);
+        List<OrderItemVO> orders = StoreHolder.INSTANCE.getUserOrderHistory(userId);
         Message response = new Message(MessageType.GET_USER_ORDER_HISTORY_SUCCESS, StatusCode.SUCCESS, orders, "获取订单历史成功");
         sendMessage(response);
     } catch (Exception e) {
@@ -734,8 +900,7 @@ private void handleGetOrdersByUser(Message request) {
 
 private void handleGetAllOrders(Message request) {
     try {
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        List<OrderVO> orders = storeService.getAllUserOrders();
+        List<OrderVO> orders = StoreHolder.INSTANCE.getAllUserOrders();
         Message response = new Message(MessageType.GET_ALL_USER_ORDERS_SUCCESS, StatusCode.SUCCESS, orders, "获取全部订单成功");
         sendMessage(response);
     } catch (Exception e) {
@@ -746,8 +911,7 @@ private void handleGetAllOrders(Message request) {
 private void handleCancelOrder(Message request) {
     try {
         Integer orderId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.cancelOrder(orderId, currentUserId);
+        boolean success = StoreHolder.INSTANCE.cancelOrder(orderId, currentUserId);
         Message response = new Message(
                 success ? MessageType.CANCEL_ORDER_SUCCESS : MessageType.CANCEL_ORDER_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -762,9 +926,14 @@ private void handleCancelOrder(Message request) {
 
 private void handleGetUserBalance(Message request) {
     try {
-        Integer userId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        Double balance = storeService.getUserBalance(userId);
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        // 只能查询自己的余额，管理员可查询任意用户
+        Integer userId = request.getData() instanceof Integer && currentUser.isAdmin()
+                ? (Integer) request.getData() : currentUserId;
+        Double balance = StoreHolder.INSTANCE.getUserBalance(userId);
         Message response = new Message(
                 MessageType.GET_USER_BALANCE_SUCCESS,
                 StatusCode.SUCCESS,
@@ -779,11 +948,15 @@ private void handleGetUserBalance(Message request) {
 
 private void handleRechargeBalance(Message request) {
     try {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
         Object[] params = (Object[]) request.getData();
-        Integer userId = (Integer) params[0];
-        Double amount = (Double) params[1];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.rechargeBalance(userId, amount);
+        // 只能给自己充值，管理员可给任意用户充值
+        Integer userId = params[0] instanceof Integer && currentUser.isAdmin() ? (Integer) params[0] : currentUserId;
+        double amount = ((Number) params[1]).doubleValue();
+        boolean success = StoreHolder.INSTANCE.rechargeBalance(userId, amount);
         Message response = new Message(
                 success ? MessageType.RECHARGE_BALANCE_SUCCESS : MessageType.RECHARGE_BALANCE_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -798,16 +971,19 @@ private void handleRechargeBalance(Message request) {
 
 private void handlePayWithBalance(Message request) {
     try {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        // 请求数据为 {订单ID, 用户ID}，只能用当前登录用户的余额支付自己的订单
         Object[] params = (Object[]) request.getData();
-        Integer userId = (Integer) params[0];
-        Double amount = (Double) params[1];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.payWithBalance(userId, amount.intValue());
+        Integer orderId = (Integer) params[0];
+        boolean success = StoreHolder.INSTANCE.payWithBalance(orderId, currentUserId);
         Message response = new Message(
                 success ? MessageType.PAY_WITH_BALANCE_SUCCESS : MessageType.PAY_WITH_BALANCE_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
                 null,
-                success ? "支付成功" : "支付失败，余额不足"
+                success ? "支付成功" : "支付失败：余额不足或订单不可支付"
         );
         sendMessage(response);
     } catch (Exception e) {
@@ -818,8 +994,7 @@ private void handlePayWithBalance(Message request) {
 private void handleGetProductById(Message request) {
     try {
         Integer productId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        ProductVO product = storeService.getProductById(productId);
+        ProductVO product = StoreHolder.INSTANCE.getProductById(productId);
         Message response;
         if (product != null) {
             response = new Message(MessageType.GET_PRODUCT_BY_ID_SUCCESS, StatusCode.SUCCESS, product, "查询成功");
@@ -837,8 +1012,7 @@ private void handleAdjustStock(Message request) {
         Object[] params = (Object[]) request.getData();
         Integer productId = (Integer) params[0];
         int quantityDelta = (int) params[1];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.adjustStock(productId, quantityDelta);
+        boolean success = StoreHolder.INSTANCE.adjustStock(productId, quantityDelta);
         Message response = new Message(
                 success ? MessageType.ADJUST_STOCK_SUCCESS : MessageType.ADJUST_STOCK_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -852,12 +1026,16 @@ private void handleAdjustStock(Message request) {
 }
 
 private void handleGetOrderItems(Message request) {
+    if (!isLoggedIn()) {
+        sendUnauthorizedMessage();
+        return;
+    }
     try {
         Object[] params = (Object[]) request.getData();
         Integer orderId = (Integer) params[0];
-        Integer userId = (Integer) params[1];
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        List<OrderItemVO> items = storeService.getOrderItems(orderId, userId);
+        // 管理员可以查看任意订单，其他用户只能查看自己的订单
+        Integer userId = currentUser.isAdmin() ? null : currentUserId;
+        List<OrderItemVO> items = StoreHolder.INSTANCE.getOrderItems(orderId, userId);
         Message response = new Message(MessageType.GET_ORDER_ITEMS_SUCCESS, StatusCode.SUCCESS, items, "获取订单项成功");
         sendMessage(response);
     } catch (Exception e) {
@@ -868,8 +1046,7 @@ private void handleGetOrderItems(Message request) {
 private void handleGetAdminOrderDetail(Message request) {
     try {
         Integer orderId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        OrderVO order = storeService.getAdminOrderDetail(orderId);
+        OrderVO order = StoreHolder.INSTANCE.getAdminOrderDetail(orderId);
         Message response;
         if (order != null) {
             response = new Message(MessageType.GET_ADMIN_ORDER_DETAIL_SUCCESS, StatusCode.SUCCESS, order, "获取订单详情成功");
@@ -884,14 +1061,18 @@ private void handleGetAdminOrderDetail(Message request) {
 
 private void handlePayOrder(Message request) {
     try {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        // 支付经过余额账本：只能支付自己的订单，扣款、改状态、记流水在同一事务中完成
         Integer orderId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.payOrder(orderId);
+        boolean success = StoreHolder.INSTANCE.payWithBalance(orderId, currentUserId);
         Message response = new Message(
                 success ? MessageType.PAY_ORDER_SUCCESS : MessageType.PAY_ORDER_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
                 null,
-                success ? "支付成功" : "支付失败"
+                success ? "支付成功" : "支付失败：余额不足或订单不可支付"
         );
         sendMessage(response);
     } catch (Exception e) {
@@ -901,8 +1082,7 @@ private void handlePayOrder(Message request) {
 
 private void handleGetAllUserOrders(Message request) {
     try {
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        List<OrderVO> orders = storeService.getAllUserOrders();
+        List<OrderVO> orders = StoreHolder.INSTANCE.getAllUserOrders();
         Message response = new Message(
                 MessageType.GET_ALL_USER_ORDERS_SUCCESS,
                 StatusCode.SUCCESS,
@@ -915,11 +1095,52 @@ private void handleGetAllUserOrders(Message request) {
     }
 }
 
+/**
+ * 游标分页获取订单摘要
+ * 请求数据为 Map：cursor（上一页返回的游标，第一页为null）、pageSize、status、userId（仅管理员可指定，
+ * 其他用户固定为自己）、fromTime、toTime（创建时间范围，Timestamp）
+ */
+@SuppressWarnings("unchecked")
+private void handleGetOrderPage(Message request) {
+    if (!isLoggedIn()) {
+        sendUnauthorizedMessage();
+        return;
+    }
+    try {
+        Map<String, Object> params = request.getData() instanceof Map
+                ? (Map<String, Object>) request.getData() : java.util.Collections.emptyMap();
+        String cursor = (String) params.get("cursor");
+        Integer pageSize = (Integer) params.get("pageSize");
+        Integer userId = currentUser.isAdmin() ? (Integer) params.get("userId") : currentUserId;
+        OrderPageVO page = StoreHolder.INSTANCE.getOrderPage(cursor, pageSize != null ? pageSize : 50, userId,
+                (String) params.get("status"), (java.sql.Timestamp) params.get("fromTime"),
+                (java.sql.Timestamp) params.get("toTime"));
+        Message response = new Message(
+                page != null ? MessageType.GET_ORDER_PAGE_SUCCESS : MessageType.GET_ORDER_PAGE_FAIL,
+                page != null ? StatusCode.SUCCESS : StatusCode.INTERNAL_ERROR,
+                page,
+                page != null ? "获取订单列表成功" : "获取订单列表失败"
+        );
+        sendMessage(response);
+    } catch (IllegalArgumentException | ClassCastException e) {
+        sendMessage(new Message(MessageType.GET_ORDER_PAGE_FAIL, StatusCode.BAD_REQUEST, null, e.getMessage()));
+    } catch (Exception e) {
+        sendErrorMessage("获取订单列表失败: " + e.getMessage());
+    }
+}
+
 private void handleShipOrder(Message request) {
     try {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        if (!currentUser.isAdmin()) {
+            sendMessage(new Message(MessageType.SHIP_ORDER_FAIL, StatusCode.FORBIDDEN, null, "只有管理员才能发货"));
+            return;
+        }
         Integer orderId = (Integer) request.getData();
-        server.service.StoreService storeService = new server.dao.impl.StoreServiceImpl();
-        boolean success = storeService.shipOrder(orderId);
+        boolean success = StoreHolder.INSTANCE.shipOrder(orderId);
         Message response = new Message(
                 success ? MessageType.SHIP_ORDER_SUCCESS : MessageType.SHIP_ORDER_FAIL,
                 success ? StatusCode.SUCCESS : StatusCode.BAD_REQUEST,
@@ -932,67 +1153,758 @@ private void handleShipOrder(Message request) {
     }
 }
 
-    //==========================================================================================
+/**
+ * 销售统计请求的公共检查：须为管理员，统计须已加载完成
+ * @return 统计实例；不满足时已回复失败消息并返回null
+ */
+private SalesAnalytics requireSalesAnalytics(MessageType failType) {
+    if (!isLoggedIn()) {
+        sendUnauthorizedMessage();
+        return null;
+    }
+    if (!currentUser.isAdmin()) {
+        sendMessage(new Message(failType, StatusCode.FORBIDDEN, null, "只有管理员才能查看销售统计"));
+        return null;
+    }
+    SalesAnalytics analytics = SalesAnalytics.getInstance();
+    if (analytics == null || !analytics.isReady()) {
+        sendMessage(new Message(failType, StatusCode.SERVICE_UNAVAILABLE, null,
+                analytics == null ? "销售统计未启用" : "销售统计正在加载，请稍后再试"));
+        return null;
+    }
+    return analytics;
+}
+
+/**
+ * 获取销售概况，请求数据为最近的天数（默认30）
+ */
+private void handleGetSalesSummary(Message request) {
+    SalesAnalytics analytics = requireSalesAnalytics(MessageType.GET_SALES_SUMMARY_FAIL);
+    if (analytics == null) {
+        return;
+    }
+    int days = request.getData() instanceof Integer ? (Integer) request.getData() : 30;
+    sendMessage(new Message(MessageType.GET_SALES_SUMMARY_SUCCESS, StatusCode.SUCCESS,
+            analytics.summary(days), "获取销售概况成功"));
+}
+
+/**
+ * 获取畅销商品排行，请求数据为 Map：limit（默认10）、by（"revenue" 按销售额，其他按件数）
+ */
+@SuppressWarnings("unchecked")
+private void handleGetTopProducts(Message request) {
+    SalesAnalytics analytics = requireSalesAnalytics(MessageType.GET_TOP_PRODUCTS_FAIL);
+    if (analytics == null) {
+        return;
+    }
+    Map<String, Object> params = request.getData() instanceof Map
+            ? (Map<String, Object>) request.getData() : java.util.Collections.emptyMap();
+    int limit = params.get("limit") instanceof Integer ? Math.max(1, Math.min(100, (Integer) params.get("limit"))) : 10;
+    sendMessage(new Message(MessageType.GET_TOP_PRODUCTS_SUCCESS, StatusCode.SUCCESS,
+            analytics.topProducts(limit, "revenue".equals(params.get("by"))), "获取商品排行成功"));
+}
+
+/**
+ * 获取库存周转率，请求数据为 Map：limit（默认20）、order（"fastest" 周转最快的在前，其他最慢的在前）
+ */
+@SuppressWarnings("unchecked")
+private void handleGetStockTurnover(Message request) {
+    SalesAnalytics analytics = requireSalesAnalytics(MessageType.GET_STOCK_TURNOVER_FAIL);
+    if (analytics == null) {
+        return;
+    }
+    Map<String, Object> params = request.getData() instanceof Map
+            ? (Map<String, Object>) request.getData() : java.util.Collections.emptyMap();
+    int limit = params.get("limit") instanceof Integer ? Math.max(1, Math.min(500, (Integer) params.get("limit"))) : 20;
+    sendMessage(new Message(MessageType.GET_STOCK_TURNOVER_SUCCESS, StatusCode.SUCCESS,
+            analytics.stockTurnover(limit, !"fastest".equals(params.get("order"))), "获取库存周转率成功"));
+}
+
+    // ================= 论坛模块 =================
 
     /**
-     * 处理登录请求
+     * 游标分页获取主题摘要
+     * 请求数据为 Map：cursor（上一页返回的游标，第一页为null）、pageSize、sectionId（可选）
      */
-    private void handleLogin(Message request) {
-        System.out.println("=== 处理登录请求 ===");
-        if (request.getData() instanceof UserVO) {
-            UserVO loginUser = (UserVO) request.getData();
-            System.out.println("收到登录请求 - ID: " + loginUser.getId());
-            
-            UserVO user = userService.login(loginUser.getId(), loginUser.getPassword());
-            if (user != null) {
-                // 登录成功
-                this.currentUserId = user.getUserId(); // 使用数据库的user_id
-                this.currentUser = user;
-                System.out.println("登录成功，保存会话：currentUserId=" + this.currentUserId + ", loginId=" + this.currentUser.getLoginId() + ", role=" + this.currentUser.getRoleName());
-                
-                // 添加到在线用户列表
-                server.addOnlineUser(currentUserId, this);
-                
-                // 清除密码信息（安全考虑）
-                user.setPassword(null);
-                
-                Message response = new Message(MessageType.LOGIN_SUCCESS, StatusCode.SUCCESS, user, "登录成功");
-                sendMessage(response);
-                
-                System.out.println("用户登录成功: " + user.getId() + " (" + user.getRoleName() + ")");
-            } else {
-                // 登录失败
-                System.out.println("登录失败，发送失败响应");
-                Message response = new Message(MessageType.LOGIN_FAIL, StatusCode.INVALID_PASSWORD, null, "用户名或密码错误");
-                sendMessage(response);
-            }
-        } else {
-            System.out.println("登录数据格式错误");
-            sendErrorMessage("登录数据格式错误");
+    @SuppressWarnings("unchecked")
+    private void handleGetThreadFeed(Message request) {
+        try {
+            Map<String, Object> params = request.getData() instanceof Map
+                    ? (Map<String, Object>) request.getData() : java.util.Collections.emptyMap();
+            String cursor = (String) params.get("cursor");
+            Integer pageSize = (Integer) params.get("pageSize");
+            Integer sectionId = (Integer) params.get("sectionId");
+
+            common.vo.ThreadFeedPageVO page = FORUM_SERVICE.getThreadFeed(cursor, pageSize != null ? pageSize : 20,
+                    sectionId, currentUserId);
+            Message response = new Message(
+                    page != null ? MessageType.GET_THREAD_FEED_SUCCESS : MessageType.GET_THREAD_FEED_FAIL,
+                    page != null ? StatusCode.SUCCESS : StatusCode.INTERNAL_ERROR,
+                    page,
+                    page != null ? "获取主题列表成功" : "获取主题列表失败"
+            );
+            sendMessage(response);
+        } catch (IllegalArgumentException e) {
+            sendMessage(new Message(MessageType.GET_THREAD_FEED_FAIL, StatusCode.BAD_REQUEST, null, e.getMessage()));
+        } catch (Exception e) {
+            sendErrorMessage("获取主题列表失败: " + e.getMessage());
         }
-        System.out.println("=== 登录请求处理完成 ===");
     }
-    
+
     /**
-     * 处理注册请求
+     * 获取主题详情并记录一次浏览，请求数据为主题ID
      */
-    private void handleRegister(Message request) {
+    private void handleGetThreadDetail(Message request) {
         try {
-            if (request.getData() instanceof UserVO) {
-                // 简单注册（只有基础用户信息）
+            Integer threadId = (Integer) request.getData();
+            common.vo.ThreadVO thread = threadId != null ? FORUM_SERVICE.getThreadDetail(threadId, currentUserId) : null;
+            Message response = new Message(
+                    thread != null ? MessageType.GET_THREAD_DETAIL_SUCCESS : MessageType.GET_THREAD_DETAIL_FAIL,
+                    thread != null ? StatusCode.SUCCESS : StatusCode.NOT_FOUND,
+                    thread,
+                    thread != null ? "获取主题详情成功" : "主题不存在或已删除"
+            );
+            sendMessage(response);
+        } catch (Exception e) {
+            sendErrorMessage("获取主题详情失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取全部主题（旧版论坛界面使用），附带当前用户的点赞状态
+     */
+    private void handleGetAllThreads(Message request) {
+        try {
+            List<common.vo.ThreadVO> threads = FORUM_SERVICE.getAllThreads(currentUserId);
+            sendMessage(new Message(MessageType.GET_ALL_THREADS_SUCCESS, StatusCode.SUCCESS, threads, "获取主题列表成功"));
+        } catch (Exception e) {
+            sendMessage(new Message(MessageType.GET_ALL_THREADS_FAIL, StatusCode.INTERNAL_ERROR, null,
+                    "获取主题列表失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取论坛分区列表
+     */
+    private void handleGetForumSections(Message request) {
+        try {
+            List<common.vo.ForumSectionVO> sections = FORUM_SERVICE.getAllSections();
+            sendMessage(new Message(MessageType.GET_FORUM_SECTIONS_SUCCESS, StatusCode.SUCCESS, sections, "获取分区列表成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取分区列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取主题下的全部回复，请求数据为主题ID
+     */
+    private void handleGetPosts(Message request) {
+        try {
+            Integer threadId = (Integer) request.getData();
+            if (threadId == null) {
+                sendErrorMessage("主题ID不能为空");
+                return;
+            }
+            List<common.vo.PostVO> posts = FORUM_SERVICE.getPostsByThreadId(threadId, currentUserId);
+            sendMessage(new Message(MessageType.GET_POSTS_SUCCESS, StatusCode.SUCCESS, posts, "获取回复成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取回复失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 发布主题，作者为当前登录用户，成功时返回新主题ID
+     */
+    private void handleCreateThread(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            common.vo.ThreadVO thread = (common.vo.ThreadVO) request.getData();
+            Integer threadId = thread != null ? FORUM_SERVICE.createThread(thread, currentUserId) : null;
+            if (threadId != null) {
+                sendMessage(new Message(MessageType.CREATE_THREAD_SUCCESS, StatusCode.SUCCESS, threadId, "发布主题成功"));
+            } else {
+                sendErrorMessage("发布主题失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("发布主题失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 发布回复，作者为当前登录用户
+     * 设置了 parentPostId 时作为楼中楼回复，设置了 quotePostId 时作为引用回复，否则直接回复主题
+     */
+    private void handleCreatePost(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            common.vo.PostVO post = (common.vo.PostVO) request.getData();
+            Integer postId = null;
+            if (post != null) {
+                if (post.getParentPostId() != null) {
+                    postId = FORUM_SERVICE.createSubReply(post, post.getParentPostId(), currentUserId);
+                } else if (post.getQuotePostId() != null) {
+                    postId = FORUM_SERVICE.createQuoteReply(post, post.getQuotePostId(), currentUserId);
+                } else {
+                    postId = FORUM_SERVICE.createPost(post, currentUserId);
+                }
+            }
+            if (postId != null) {
+                sendMessage(new Message(MessageType.CREATE_POST_SUCCESS, StatusCode.SUCCESS, postId, "发布回复成功"));
+            } else {
+                sendErrorMessage("发布回复失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("发布回复失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 切换主题点赞状态，请求数据为主题ID，返回 Map：isLiked、likeCount
+     */
+    private void handleToggleThreadLike(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            Integer threadId = (Integer) request.getData();
+            Boolean liked = threadId != null ? FORUM_SERVICE.toggleThreadLike(threadId, currentUserId) : null;
+            if (liked == null) {
+                sendErrorMessage("点赞操作失败");
+                return;
+            }
+            sendMessage(new Message(MessageType.TOGGLE_THREAD_LIKE_SUCCESS, StatusCode.SUCCESS,
+                    likeResult(liked, FORUM_SERVICE.getThreadLikeCount(threadId)), liked ? "点赞成功" : "已取消点赞"));
+        } catch (Exception e) {
+            sendErrorMessage("点赞操作失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 切换回复点赞状态，请求数据为回复ID，返回 Map：isLiked、likeCount
+     */
+    private void handleTogglePostLike(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            Integer postId = (Integer) request.getData();
+            Boolean liked = postId != null ? FORUM_SERVICE.togglePostLike(postId, currentUserId) : null;
+            if (liked == null) {
+                sendErrorMessage("点赞操作失败");
+                return;
+            }
+            sendMessage(new Message(MessageType.TOGGLE_POST_LIKE_SUCCESS, StatusCode.SUCCESS,
+                    likeResult(liked, FORUM_SERVICE.getPostLikeCount(postId)), liked ? "点赞成功" : "已取消点赞"));
+        } catch (Exception e) {
+            sendErrorMessage("点赞操作失败: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> likeResult(boolean liked, int likeCount) {
+        Map<String, Object> result = new java.util.HashMap<>();
+        result.put("isLiked", liked);
+        result.put("likeCount", likeCount);
+        return result;
+    }
+
+    /**
+     * 按关键字检索主题，请求数据为关键字
+     */
+    private void handleSearchThreads(Message request) {
+        try {
+            String keyword = request.getData() != null ? request.getData().toString().trim() : "";
+            if (keyword.isEmpty()) {
+                sendMessage(new Message(MessageType.SEARCH_THREADS_FAIL, StatusCode.BAD_REQUEST, null, "搜索关键字不能为空"));
+                return;
+            }
+            List<common.vo.ThreadVO> threads = FORUM_SERVICE.searchThreadsOptimized(keyword, currentUserId);
+            sendMessage(new Message(MessageType.SEARCH_THREADS_SUCCESS, StatusCode.SUCCESS, threads, "搜索完成"));
+        } catch (Exception e) {
+            sendMessage(new Message(MessageType.SEARCH_THREADS_FAIL, StatusCode.INTERNAL_ERROR, null,
+                    "搜索失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 删除主题（管理员），请求数据为主题ID
+     */
+    private void handleDeleteThread(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        if (!currentUser.isAdmin()) {
+            sendMessage(new Message(MessageType.ERROR, StatusCode.FORBIDDEN, null, "只有管理员才能删除主题"));
+            return;
+        }
+        try {
+            Integer threadId = (Integer) request.getData();
+            if (FORUM_SERVICE.deleteThread(threadId, currentUserId)) {
+                sendMessage(new Message(MessageType.DELETE_THREAD_SUCCESS, StatusCode.SUCCESS, threadId, "删除主题成功"));
+            } else {
+                sendErrorMessage("删除主题失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("删除主题失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 设置或取消精华主题（管理员），请求数据为 Map：threadId、isEssence
+     */
+    @SuppressWarnings("unchecked")
+    private void handleSetThreadEssence(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        if (!currentUser.isAdmin()) {
+            sendMessage(new Message(MessageType.ERROR, StatusCode.FORBIDDEN, null, "只有管理员才能设置精华主题"));
+            return;
+        }
+        try {
+            Map<String, Object> params = request.getData() instanceof Map
+                    ? (Map<String, Object>) request.getData() : java.util.Collections.emptyMap();
+            Integer threadId = (Integer) params.get("threadId");
+            Boolean isEssence = (Boolean) params.get("isEssence");
+            if (FORUM_SERVICE.setThreadEssence(threadId, isEssence, currentUserId)) {
+                sendMessage(new Message(MessageType.SET_THREAD_ESSENCE_SUCCESS, StatusCode.SUCCESS, threadId,
+                        Boolean.TRUE.equals(isEssence) ? "已设为精华" : "已取消精华"));
+            } else {
+                sendErrorMessage("设置精华主题失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("设置精华主题失败: " + e.getMessage());
+        }
+    }
+
+    // ================= 课程与选课模块 =================
+
+    /**
+     * 获取全部课程
+     */
+    private void handleGetAllCourses(Message request) {
+        try {
+            List<common.vo.CourseVO> courses = COURSE_SERVICE.getAllCourses();
+            sendMessage(new Message(MessageType.GET_ALL_COURSES_SUCCESS, StatusCode.SUCCESS, courses, "获取课程列表成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取课程列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 添加课程（管理员、教师）
+     */
+    private void handleAddCourse(Message request) {
+        if (!canManageCourses()) {
+            return;
+        }
+        try {
+            common.vo.CourseVO course = (common.vo.CourseVO) request.getData();
+            if (course != null && COURSE_SERVICE.createCourse(course)) {
+                sendMessage(new Message(MessageType.ADD_COURSE_SUCCESS, StatusCode.SUCCESS, course, "添加课程成功"));
+            } else {
+                sendErrorMessage("添加课程失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("添加课程失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 更新课程（管理员、教师），成功时返回更新后的课程
+     */
+    private void handleUpdateCourse(Message request) {
+        if (!canManageCourses()) {
+            return;
+        }
+        try {
+            common.vo.CourseVO course = (common.vo.CourseVO) request.getData();
+            if (COURSE_SERVICE.updateCourse(course)) {
+                common.vo.CourseVO updated = COURSE_SERVICE.getCourseById(course.getCourseId());
+                sendMessage(new Message(MessageType.UPDATE_COURSE_SUCCESS, StatusCode.SUCCESS,
+                        updated != null ? updated : course, "更新课程成功"));
+            } else {
+                sendErrorMessage("更新课程失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("更新课程失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 删除课程（管理员、教师），请求数据为课程ID
+     */
+    private void handleDeleteCourse(Message request) {
+        if (!canManageCourses()) {
+            return;
+        }
+        try {
+            Integer courseId = (Integer) request.getData();
+            if (COURSE_SERVICE.deleteCourse(courseId)) {
+                sendMessage(new Message(MessageType.DELETE_COURSE_SUCCESS, StatusCode.SUCCESS, courseId, "删除课程成功"));
+            } else {
+                sendErrorMessage("删除课程失败");
+            }
+        } catch (Exception e) {
+            sendErrorMessage("删除课程失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 学生选课，请求数据为课程ID；失败原因放在响应数据中
+     */
+    private void handleEnrollCourse(Message request) {
+        StudentVO student = requireStudent(MessageType.ENROLL_COURSE_FAIL);
+        if (student == null) {
+            return;
+        }
+        try {
+            Integer courseId = (Integer) request.getData();
+            EnrollmentEngine.Result result = courseId == null
+                    ? EnrollmentEngine.Result.COURSE_NOT_FOUND
+                    : ENROLLMENT_SERVICE.enroll(student.getStudentId(), courseId);
+            if (result == EnrollmentEngine.Result.SUCCESS) {
+                sendMessage(new Message(MessageType.ENROLL_COURSE_SUCCESS, StatusCode.SUCCESS, courseId, "选课成功"));
+            } else {
+                String error = result.getMessage();
+                sendMessage(new Message(MessageType.ENROLL_COURSE_FAIL, result.getStatusCode(), error, error));
+            }
+        } catch (Exception e) {
+            String error = "选课失败: " + e.getMessage();
+            sendMessage(new Message(MessageType.ENROLL_COURSE_FAIL, StatusCode.INTERNAL_ERROR, error, error));
+        }
+    }
+
+    /**
+     * 学生退课，请求数据为课程ID；失败原因放在响应数据中
+     */
+    private void handleDropCourse(Message request) {
+        StudentVO student = requireStudent(MessageType.DROP_COURSE_FAIL);
+        if (student == null) {
+            return;
+        }
+        try {
+            Integer courseId = (Integer) request.getData();
+            if (courseId != null && ENROLLMENT_SERVICE.dropCourse(student.getStudentId(), courseId)) {
+                sendMessage(new Message(MessageType.DROP_COURSE_SUCCESS, StatusCode.SUCCESS, courseId, "退课成功"));
+            } else {
+                String error = "未选该课程或退课失败";
+                sendMessage(new Message(MessageType.DROP_COURSE_FAIL, StatusCode.BAD_REQUEST, error, error));
+            }
+        } catch (Exception e) {
+            String error = "退课失败: " + e.getMessage();
+            sendMessage(new Message(MessageType.DROP_COURSE_FAIL, StatusCode.INTERNAL_ERROR, error, error));
+        }
+    }
+
+    /**
+     * 获取全部选课记录（管理员、教师）
+     */
+    private void handleGetAllEnrollments(Message request) {
+        if (!canManageCourses()) {
+            return;
+        }
+        try {
+            List<common.vo.EnrollmentVO> enrollments = ENROLLMENT_SERVICE.getAllEnrollments();
+            sendMessage(new Message(MessageType.GET_ALL_ENROLLMENTS_SUCCESS, StatusCode.SUCCESS, enrollments, "获取选课记录成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取选课记录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前登录学生的选课记录
+     */
+    private void handleGetStudentEnrollments(Message request) {
+        StudentVO student = requireStudent(MessageType.ERROR);
+        if (student == null) {
+            return;
+        }
+        try {
+            List<common.vo.EnrollmentVO> enrollments = ENROLLMENT_SERVICE.getEnrollmentsByStudentId(student.getStudentId());
+            sendMessage(new Message(MessageType.GET_STUDENT_ENROLLMENTS_SUCCESS, StatusCode.SUCCESS, enrollments, "获取选课记录成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取选课记录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查找与当前学生已选课程上课时间不冲突的课程，请求数据为候选课程ID列表（为空时检查所有课程）
+     */
+    @SuppressWarnings("unchecked")
+    private void handleFindNonConflictingCourses(Message request) {
+        StudentVO student = requireStudent(MessageType.ERROR);
+        if (student == null) {
+            return;
+        }
+        try {
+            List<Integer> candidates = request.getData() instanceof List ? (List<Integer>) request.getData() : null;
+            List<Integer> courseIds = ENROLLMENT_SERVICE.findNonConflictingCourses(student.getStudentId(), candidates);
+            sendMessage(new Message(MessageType.FIND_NON_CONFLICTING_COURSES_SUCCESS, StatusCode.SUCCESS,
+                    courseIds, "查找不冲突课程成功"));
+        } catch (Exception e) {
+            sendErrorMessage("查找不冲突课程失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前学生的周课表（已选课程的上课安排，按星期、开始时间排序）
+     */
+    private void handleGetMyTimetable(Message request) {
+        StudentVO student = requireStudent(MessageType.ERROR);
+        if (student == null) {
+            return;
+        }
+        try {
+            List<common.vo.CourseScheduleVO> timetable =
+                    StudentTimetableCache.getInstance().getTimetable(student.getStudentId());
+            sendMessage(new Message(MessageType.GET_MY_TIMETABLE_SUCCESS, StatusCode.SUCCESS, timetable, "获取课表成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取课表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 录入成绩（管理员、该课程的任课教师），请求数据为 Map: studentId, courseId, grade（0-100）
+     */
+    private void handleUpdateGrade(Message request) {
+        if (!canManageCourses()) {
+            return;
+        }
+        if (!(request.getData() instanceof Map)) {
+            sendMessage(new Message(MessageType.ERROR, StatusCode.BAD_REQUEST, null, "成绩数据格式错误"));
+            return;
+        }
+        try {
+            Map<?, ?> data = (Map<?, ?>) request.getData();
+            Object studentId = data.get("studentId");
+            Object courseId = data.get("courseId");
+            Object grade = data.get("grade");
+            if (!(studentId instanceof Number) || !(courseId instanceof Number) || !(grade instanceof Number)) {
+                sendMessage(new Message(MessageType.ERROR, StatusCode.BAD_REQUEST, null, "缺少学生ID、课程ID或成绩"));
+                return;
+            }
+            common.vo.CourseVO course = COURSE_SERVICE.getCourseById(((Number) courseId).intValue());
+            if (course == null) {
+                sendMessage(new Message(MessageType.ERROR, StatusCode.NOT_FOUND, null, "课程不存在"));
+                return;
+            }
+            if (!canManageCourse(course)) {
+                return;
+            }
+            boolean updated = ENROLLMENT_SERVICE.updateGrade(((Number) studentId).intValue(),
+                    ((Number) courseId).intValue(), ((Number) grade).doubleValue());
+            if (updated) {
+                sendMessage(new Message(MessageType.UPDATE_GRADE_SUCCESS, StatusCode.SUCCESS, null, "成绩录入成功"));
+            } else {
+                sendMessage(new Message(MessageType.ERROR, StatusCode.GRADE_UPDATE_FAILED, null,
+                        "成绩录入失败，请确认学生已选修该课程且成绩在0-100之间"));
+            }
+        } catch (Exception e) {
+            sendErrorMessage("成绩录入失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取课程成绩统计（管理员、教师），请求数据为课程ID（也接受课程代码）
+     */
+    private void handleGetCourseGradeStats(Message request) {
+        if (!canManageCourses()) {
+            return;
+        }
+        GradeStatsEngine engine = GradeStatsEngine.getInstance();
+        if (engine == null) {
+            sendMessage(new Message(MessageType.ERROR, StatusCode.SERVICE_UNAVAILABLE, null, "成绩统计暂不可用"));
+            return;
+        }
+        try {
+            Object data = request.getData();
+            common.vo.CourseVO course = data instanceof Integer
+                    ? COURSE_SERVICE.getCourseById((Integer) data)
+                    : data != null ? COURSE_SERVICE.getCourseByCode(data.toString()) : null;
+            if (course == null) {
+                sendMessage(new Message(MessageType.ERROR, StatusCode.NOT_FOUND, null, "课程不存在"));
+                return;
+            }
+            sendMessage(new Message(MessageType.GET_COURSE_GRADE_STATS_SUCCESS, StatusCode.SUCCESS,
+                    engine.getCourseStats(course.getCourseId()), "获取成绩统计成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取成绩统计失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取当前学生的绩点和已修学分
+     */
+    private void handleGetMyGpa(Message request) {
+        StudentVO student = requireStudent(MessageType.ERROR, "只有学生用户才能查看绩点");
+        if (student == null) {
+            return;
+        }
+        GradeStatsEngine engine = GradeStatsEngine.getInstance();
+        if (engine == null) {
+            sendMessage(new Message(MessageType.ERROR, StatusCode.SERVICE_UNAVAILABLE, null, "成绩统计暂不可用"));
+            return;
+        }
+        sendMessage(new Message(MessageType.GET_MY_GPA_SUCCESS, StatusCode.SUCCESS,
+                engine.getStudentGpa(student.getStudentId()), "获取绩点成功"));
+    }
+
+    /**
+     * 获取某门课程的选课名单（管理员、该课程的任课教师），请求数据为课程代码（也接受课程ID）
+     */
+    private void handleGetEnrollmentsByCourse(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        try {
+            Object data = request.getData();
+            common.vo.CourseVO course = data instanceof Integer
+                    ? COURSE_SERVICE.getCourseById((Integer) data)
+                    : data != null ? COURSE_SERVICE.getCourseByCode(data.toString()) : null;
+            if (course == null) {
+                sendMessage(new Message(MessageType.ERROR, StatusCode.NOT_FOUND, null, "课程不存在"));
+                return;
+            }
+            if (!canManageCourse(course)) {
+                return;
+            }
+            List<common.vo.EnrollmentVO> enrollments = ENROLLMENT_SERVICE.getEnrollmentsByCourseId(course.getCourseId());
+            sendMessage(new Message(MessageType.GET_ENROLLMENTS_BY_COURSE_SUCCESS, StatusCode.SUCCESS, enrollments, "获取选课名单成功"));
+        } catch (Exception e) {
+            sendErrorMessage("获取选课名单失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 检查当前用户能否管理指定课程（管理员，或该课程的任课教师），不能时直接回复错误（须已登录）
+     */
+    private boolean canManageCourse(common.vo.CourseVO course) {
+        if (currentUser.isAdmin()) {
+            return true;
+        }
+        TeacherVO teacher = currentUser.isTeacher() ? TEACHER_SERVICE.getTeacherByUserId(currentUserId) : null;
+        if (teacher != null && teacher.getId() != null && teacher.getId().equals(course.getTeacherId())) {
+            return true;
+        }
+        sendMessage(new Message(MessageType.ERROR, StatusCode.FORBIDDEN, null, "只有管理员和该课程的任课教师才能执行该操作"));
+        return false;
+    }
+
+    /**
+     * 检查当前用户能否管理课程（管理员、教师），不能时直接回复错误
+     */
+    private boolean canManageCourses() {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return false;
+        }
+        if (!currentUser.isAdmin() && !currentUser.isTeacher()) {
+            sendMessage(new Message(MessageType.ERROR, StatusCode.FORBIDDEN, null, "只有管理员和教师才能执行该操作"));
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 取得当前登录用户对应的学生信息，不是学生时用指定的失败类型回复（失败原因同时放在响应数据中）
+     * @return 学生信息，不满足条件返回null
+     */
+    private StudentVO requireStudent(MessageType failType) {
+        return requireStudent(failType, "只有学生用户才能选课");
+    }
+
+    /**
+     * 同 {@link #requireStudent(MessageType)}，不是学生时回复指定的失败原因
+     */
+    private StudentVO requireStudent(MessageType failType, String error) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return null;
+        }
+        StudentVO student = currentUser.isStudent() ? STUDENT_SERVICE.getStudentByUserId(currentUserId) : null;
+        if (student == null) {
+            sendMessage(new Message(failType, StatusCode.FORBIDDEN, error, error));
+        }
+        return student;
+    }
+
+    //==========================================================================================
+
+    /**
+     * 处理登录请求
+     */
+    private void handleLogin(Message request) {
+        LOG.debug("=== 处理登录请求 ===");
+        if (request.getData() instanceof UserVO) {
+            UserVO loginUser = (UserVO) request.getData();
+            LOG.debug("收到登录请求 - ID: {}", loginUser.getId());
+            
+            UserVO user = USER_SERVICE.login(loginUser.getId(), loginUser.getPassword());
+            if (user != null) {
+                // 登录成功
+                this.currentUserId = user.getUserId(); // 使用数据库的user_id
+                this.currentUser = user;
+                LOG.info("登录成功，保存会话：currentUserId={}, loginId={}, role={}", this.currentUserId, this.currentUser.getLoginId(), this.currentUser.getRoleName());
+                
+                // 添加到在线用户列表
+                server.addOnlineUser(currentUserId, this);
+                
+                // 清除密码信息（安全考虑）
+                user.setPassword(null);
+                
+                // 签发会话令牌，客户端断线重连后凭令牌恢复登录状态
+                server.getSessionManager().revoke(this.sessionToken);
+                this.sessionToken = server.getSessionManager().issue(user);
+                user.setSessionToken(this.sessionToken);
+                
+                Message response = new Message(MessageType.LOGIN_SUCCESS, StatusCode.SUCCESS, user, "登录成功");
+                sendMessage(response);
+                
+                LOG.info("用户登录成功: {} ({})", user.getId(), user.getRoleName());
+            } else {
+                // 登录失败
+                LOG.debug("登录失败，发送失败响应");
+                Message response = new Message(MessageType.LOGIN_FAIL, StatusCode.INVALID_PASSWORD, null, "用户名或密码错误");
+                sendMessage(response);
+            }
+        } else {
+            LOG.debug("登录数据格式错误");
+            sendErrorMessage("登录数据格式错误");
+        }
+        LOG.debug("=== 登录请求处理完成 ===");
+    }
+    
+    /**
+     * 处理注册请求
+     */
+    private void handleRegister(Message request) {
+        try {
+            if (request.getData() instanceof UserVO) {
+                // 简单注册（只有基础用户信息）
                 UserVO newUser = (UserVO) request.getData();
                 
-                Integer userId = userService.register(newUser);
+                Integer userId = USER_SERVICE.register(newUser);
                 if (userId != null) {
                     // 注册成功，账户自动激活
                     Message response = new Message(MessageType.REGISTER_SUCCESS, StatusCode.CREATED, userId, "注册成功，账户已激活");
                     sendMessage(response);
                     
-                    System.out.println("新用户注册: " + newUser.getId());
+                    LOG.info("新用户注册: {}", newUser.getId());
                 } else {
                     // 注册失败
                     String errorMsg = "注册失败";
-                    if (userService.loginIdExists(newUser.getId())) {
+                    if (USER_SERVICE.loginIdExists(newUser.getId())) {
                         errorMsg = "登录ID已存在";
                     }
                     Message response = new Message(MessageType.REGISTER_FAIL, StatusCode.USER_EXISTS, null, errorMsg);
@@ -1005,8 +1917,7 @@ private void handleShipOrder(Message request) {
                 sendErrorMessage("注册数据格式错误");
             }
         } catch (Exception e) {
-            System.err.println("处理注册请求失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("处理注册请求失败: {}", e.getMessage(), e);
             sendErrorMessage("注册处理失败: " + e.getMessage());
         }
     }
@@ -1048,17 +1959,17 @@ private void handleShipOrder(Message request) {
         }
         
         // 执行注册
-        Integer userId = userService.register(user, studentInfo, teacherInfo);
+        Integer userId = USER_SERVICE.register(user, studentInfo, teacherInfo);
         if (userId != null) {
             // 注册成功，账户自动激活
             Message response = new Message(MessageType.REGISTER_SUCCESS, StatusCode.CREATED, userId, "注册成功，账户已激活");
             sendMessage(response);
             
-            System.out.println("新用户详细注册: " + user.getId() + " (" + user.getRoleName() + ")");
+            LOG.info("新用户详细注册: {} ({})", user.getId(), user.getRoleName());
         } else {
             // 注册失败
             String errorMsg = "注册失败";
-            if (userService.loginIdExists(user.getId())) {
+            if (USER_SERVICE.loginIdExists(user.getId())) {
                 errorMsg = "登录ID已存在";
             }
             Message response = new Message(MessageType.REGISTER_FAIL, StatusCode.USER_EXISTS, null, errorMsg);
@@ -1072,9 +1983,12 @@ private void handleShipOrder(Message request) {
     private void handleLogout(Message request) {
         if (currentUserId != null) {
             server.removeOnlineUser(currentUserId);
-            System.out.println("用户登出: " + (currentUser != null ? currentUser.getId() : currentUserId));
+            ShoppingCartStore.userLeft(currentUserId, true);
+            LOG.info("用户登出: {}", currentUser != null ? currentUser.getId() : currentUserId);
         }
         
+        server.getSessionManager().revoke(sessionToken);
+        sessionToken = null;
         currentUserId = null;
         currentUser = null;
         
@@ -1082,6 +1996,29 @@ private void handleShipOrder(Message request) {
         sendMessage(response);
     }
     
+    /**
+     * 处理恢复会话请求
+     * 客户端断线重连后提交登录时获得的令牌，令牌有效则直接恢复登录状态
+     */
+    private void handleSessionResume(Message request) {
+        String token = request.getData() instanceof String ? (String) request.getData() : null;
+        UserVO user = server.getSessionManager().resume(token);
+        if (user == null) {
+            Message response = new Message(MessageType.SESSION_RESUME_FAIL, StatusCode.UNAUTHORIZED, null, "会话已过期，请重新登录");
+            sendMessage(response);
+            return;
+        }
+        
+        this.currentUserId = user.getUserId();
+        this.currentUser = user;
+        this.sessionToken = token;
+        server.addOnlineUser(currentUserId, this);
+        LOG.info("恢复会话: {} ({})", user.getId(), user.getRoleName());
+        
+        Message response = new Message(MessageType.SESSION_RESUME_SUCCESS, StatusCode.SUCCESS, user, "会话已恢复");
+        sendMessage(response);
+    }
+    
     /**
      * 处理获取用户信息请求
      */
@@ -1091,7 +2028,7 @@ private void handleShipOrder(Message request) {
             return;
         }
         
-        UserVO user = userService.getUserById(currentUserId);
+        UserVO user = USER_SERVICE.getUserById(currentUserId);
         if (user != null) {
             // 清除密码信息
             user.setPassword(null);
@@ -1118,23 +2055,39 @@ private void handleShipOrder(Message request) {
         }
         
         // 获取学生详细信息
-        System.out.println("准备查询学生信息，userId=" + currentUserId + ", loginId=" + currentUser.getLoginId());
-        server.service.StudentService studentService = new server.service.StudentService();
-        StudentVO student = studentService.getStudentByUserId(currentUserId);
+        LOG.debug("准备查询学生信息，userId={}, loginId={}", currentUserId, currentUser.getLoginId());
+        StudentVO student = STUDENT_SERVICE.getStudentByUserId(currentUserId);
         
         if (student != null) {
             // 设置用户信息
             student.setUserInfo(currentUser);
-            System.out.println("学生信息查询成功：姓名=" + student.getName() + ", 专业=" + student.getMajor());
+            LOG.debug("学生信息查询成功：姓名={}, 专业={}", student.getName(), student.getMajor());
             Message response = new Message(MessageType.GET_STUDENT_INFO_SUCCESS, StatusCode.SUCCESS, student, "获取学生信息成功");
             sendMessage(response);
         } else {
-            System.out.println("学生信息查询结果为空，userId=" + currentUserId);
+            LOG.debug("学生信息查询结果为空，userId={}", currentUserId);
             Message response = new Message(MessageType.GET_STUDENT_INFO_SUCCESS, StatusCode.NOT_FOUND, null, "学生信息不存在");
             sendMessage(response);
         }
     }
     
+    /**
+     * 处理获取教师信息请求，请求数据为用户ID，为空时查询当前登录用户
+     */
+    private void handleGetTeacherInfo(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        Integer userId = request.getData() instanceof Integer ? (Integer) request.getData() : currentUserId;
+        TeacherVO teacher = TEACHER_SERVICE.getTeacherByUserId(userId);
+        if (teacher != null) {
+            sendMessage(new Message(MessageType.GET_TEACHER_INFO_SUCCESS, StatusCode.SUCCESS, teacher, "获取教师信息成功"));
+        } else {
+            sendMessage(new Message(MessageType.GET_TEACHER_INFO_FAIL, StatusCode.NOT_FOUND, null, "教师信息不存在"));
+        }
+    }
+    
     /**
      * 处理更新用户信息请求
      */
@@ -1159,11 +2112,11 @@ private void handleShipOrder(Message request) {
                 updateUser.setUserId(currentUserId);
             }
             
-            boolean success = userService.updateUser(updateUser);
+            boolean success = USER_SERVICE.updateUser(updateUser);
             if (success) {
                 // 如果更新的是当前用户，刷新当前用户信息
                 if (currentUserId.equals(updateUser.getUserId())) {
-                    currentUser = userService.getUserById(currentUserId);
+                    currentUser = USER_SERVICE.getUserById(currentUserId);
                 }
                 
                 Message response = new Message(MessageType.UPDATE_USER_SUCCESS, StatusCode.SUCCESS, null, "更新成功");
@@ -1193,7 +2146,7 @@ private void handleShipOrder(Message request) {
             return;
         }
         
-        List<UserVO> users = userService.getAllUsers();
+        List<UserVO> users = USER_SERVICE.getAllUsers();
         // 清除所有用户的密码信息
         users.forEach(user -> user.setPassword(null));
         
@@ -1209,11 +2162,27 @@ private void handleShipOrder(Message request) {
         sendMessage(response);
     }
     
+    /**
+     * 获取服务器运行指标（管理员）
+     */
+    private void handleGetServerMetrics(Message request) {
+        if (!isLoggedIn()) {
+            sendUnauthorizedMessage();
+            return;
+        }
+        if (!currentUser.isAdmin()) {
+            sendMessage(new Message(MessageType.GET_SERVER_METRICS_FAIL, StatusCode.FORBIDDEN, null, "只有管理员才能查看服务器指标"));
+            return;
+        }
+        common.vo.ServerMetricsVO metrics = ServerMetrics.getInstance().snapshot();
+        sendMessage(new Message(MessageType.GET_SERVER_METRICS_SUCCESS, StatusCode.SUCCESS, metrics, "获取服务器指标成功"));
+    }
+    
     /**
      * 处理不支持的请求
      */
     private void handleUnsupportedRequest(Message request) {
-        System.err.println("不支持的请求类型: " + request.getType());
+        LOG.warn("不支持的请求类型: {}", request.getType());
         Message response = new Message(MessageType.INVALID_REQUEST, StatusCode.BAD_REQUEST, null, "不支持的请求类型");
         sendMessage(response);
     }
@@ -1223,15 +2192,32 @@ private void handleShipOrder(Message request) {
      * @param message 消息对象
      */
     public void sendMessage(Object message) {
-        if (!isConnected || objectOut == null) {
+        MessageTransport out = transport;
+        if (!isConnected || out == null) {
+            return;
+        }
+        if (!(message instanceof Message)) {
+            LOG.error("无法发送非Message对象: {}", message == null ? "null" : message.getClass().getName());
             return;
         }
         
+        // 回填请求ID：只对本连接正在处理的请求生效，广播等发往其他连接的消息不受影响
+        RequestContext context = CURRENT_REQUEST.get();
+        if (context != null && context.handler == this && message instanceof Message) {
+            Message response = (Message) message;
+            if (response.getRequestId() == 0) {
+                response.setRequestId(context.requestId);
+            }
+            if (response.getStatusCode() >= StatusCode.BAD_REQUEST) {
+                context.failed = true;
+            }
+        }
+        
         try {
-            objectOut.writeObject(message);
-            objectOut.flush();
+            // 传输层内部保证写出串行，编码可以在多个请求线程中并行进行
+            out.writeMessage((Message) message);
         } catch (IOException e) {
-            System.err.println("发送消息失败: " + e.getMessage());
+            LOG.error("发送消息失败: {}", e.getMessage());
             disconnect();
         }
     }
@@ -1265,29 +2251,50 @@ private void handleShipOrder(Message request) {
      * 断开连接
      */
     public void disconnect() {
-        if (!isConnected) {
-            return;
+        synchronized (disconnectLock) {
+            if (!isConnected) {
+                return;
+            }
+            isConnected = false;
         }
         
-        isConnected = false;
-        
         // 从服务器移除
         server.removeClientHandler(clientSocket);
+        // 立即写回购物车（会话可能恢复，购物车保留在内存中）
+        ShoppingCartStore.userLeft(currentUserId, false);
+        
+        server.service.FileTransferService transfers;
+        synchronized (this) {
+            transfers = fileTransfers;
+        }
+        if (transfers != null) {
+            transfers.close();
+        }
         
         // 关闭流
         try {
-            if (objectIn != null) {
-                objectIn.close();
-            }
-            if (objectOut != null) {
-                objectOut.close();
+            if (transport != null) {
+                transport.close();
             }
             if (clientSocket != null && !clientSocket.isClosed()) {
                 clientSocket.close();
             }
         } catch (IOException e) {
-            System.err.println("关闭连接失败: " + e.getMessage());
+            LOG.error("关闭连接失败: {}", e.getMessage());
         }
+        
+        Runnable listener = disconnectListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+    
+    /**
+     * 设置连接断开回调，连接引擎用于维护活跃连接计数
+     * @param listener 回调
+     */
+    void setDisconnectListener(Runnable listener) {
+        this.disconnectListener = listener;
     }
     
     /**
@@ -1313,4 +2320,18 @@ private void handleShipOrder(Message request) {
     public boolean isConnected() {
         return isConnected && clientSocket != null && !clientSocket.isClosed();
     }
+    
+    /**
+     * 请求上下文：处理请求的连接及其请求ID
+     */
+    private static final class RequestContext {
+        final ClientHandler handler;
+        final long requestId;
+        boolean failed; // 处理过程中发出过错误响应
+        
+        RequestContext(ClientHandler handler, long requestId) {
+            this.handler = handler;
+            this.requestId = requestId;
+        }
+    }
 }
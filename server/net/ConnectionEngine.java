@@ -0,0 +1,73 @@
+package server.net;
+
+import server.util.Log;
+
+import java.io.IOException;
+
+/**
+ * 连接引擎接口
+ * 负责监听端口、接受客户端连接并驱动 ClientHandler 处理消息。
+ * 不同实现决定线程模型：每连接一个虚拟线程，或 NIO 选择器加有界工作线程池。
+ */
+public interface ConnectionEngine {
+
+    /**
+     * 启动引擎并阻塞在接受连接的主循环中，直到 stop() 被调用
+     * @param port 监听端口
+     * @throws IOException 端口绑定失败
+     */
+    void start(int port) throws IOException;
+
+    /**
+     * 停止接受新连接并释放线程资源
+     */
+    void stop();
+
+    /**
+     * 获取引擎名称
+     * @return 引擎名称
+     */
+    String getName();
+
+    /**
+     * 累计接受的连接数
+     * @return 连接数
+     */
+    long getAcceptedCount();
+
+    /**
+     * 当前活跃连接数
+     * @return 连接数
+     */
+    int getActiveCount();
+
+    /**
+     * 已就绪但尚未被线程处理的连接/请求数
+     * @return 排队数
+     */
+    int getQueuedCount();
+
+    /**
+     * 根据配置创建连接引擎
+     * server.engine=virtual（默认）每连接一个虚拟线程，JVM 不支持虚拟线程（低于 Java 21）时改用 nio；
+     * server.engine=nio 使用选择器和有界工作线程池
+     * @param mode 引擎模式
+     * @param server 服务器
+     * @return 连接引擎
+     */
+    static ConnectionEngine create(String mode, VCampusServer server) {
+        if ("nio".equalsIgnoreCase(mode)) {
+            return new NioConnectionEngine(server);
+        }
+        Log log = Log.get("net");
+        if (!"virtual".equalsIgnoreCase(mode)) {
+            log.warn("未知的连接引擎模式: {}，使用 virtual", mode);
+        }
+        if (!ThreadPerConnectionEngine.isSupported()) {
+            // 平台线程每连接一个线程无法承载 server.maxConnections 个连接，改用 NIO
+            log.warn("当前JVM不支持虚拟线程，连接引擎改用 nio");
+            return new NioConnectionEngine(server);
+        }
+        return new ThreadPerConnectionEngine(server);
+    }
+}
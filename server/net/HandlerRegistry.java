@@ -0,0 +1,102 @@
+package server.net;
+
+import common.protocol.Message;
+import common.protocol.MessageType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 请求处理器注册表
+ * 按消息类型登记处理方法及其所属的业务模块，ClientHandler 据此把请求交给对应模块的线程池执行
+ */
+final class HandlerRegistry {
+
+    /**
+     * 业务模块，每个模块（会话除外）使用独立的有界线程池，某个模块处理缓慢时不会占满其他模块的线程
+     */
+    enum Module {
+        SESSION("session"),   // 登录、注册、登出、恢复会话，在读线程中按到达顺序处理
+        USER("user"),
+        LIBRARY("library"),
+        STORE("store"),
+        FORUM("forum"),
+        COURSE("course");
+
+        private final String configName;
+
+        Module(String configName) {
+            this.configName = configName;
+        }
+
+        /**
+         * 配置项中使用的模块名，例如 server.module.forum.threads
+         */
+        String getConfigName() {
+            return configName;
+        }
+    }
+
+    /**
+     * 请求处理方法
+     */
+    @FunctionalInterface
+    interface Handler {
+        void handle(ClientHandler client, Message request) throws Exception;
+    }
+
+    /**
+     * 一条路由：所属模块和处理方法
+     */
+    static final class Route {
+        private final Module module;
+        private final Handler handler;
+
+        Route(Module module, Handler handler) {
+            this.module = module;
+            this.handler = handler;
+        }
+
+        Module getModule() {
+            return module;
+        }
+
+        Handler getHandler() {
+            return handler;
+        }
+    }
+
+    private final Map<MessageType, Route> routes = new EnumMap<>(MessageType.class);
+
+    /**
+     * 登记处理方法
+     * @param module 所属模块
+     * @param type 请求消息类型
+     * @param handler 处理方法
+     * @return 注册表本身，便于连续登记
+     * @throws IllegalStateException 同一消息类型重复登记
+     */
+    HandlerRegistry register(Module module, MessageType type, Handler handler) {
+        if (routes.putIfAbsent(type, new Route(module, handler)) != null) {
+            throw new IllegalStateException("消息类型重复登记: " + type);
+        }
+        return this;
+    }
+
+    /**
+     * 查找消息类型对应的路由
+     * @param type 请求消息类型
+     * @return 路由，未登记返回null
+     */
+    Route lookup(MessageType type) {
+        return type != null ? routes.get(type) : null;
+    }
+
+    /**
+     * 已登记的全部路由（只读）
+     */
+    Map<MessageType, Route> routes() {
+        return Collections.unmodifiableMap(routes);
+    }
+}
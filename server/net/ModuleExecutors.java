@@ -0,0 +1,99 @@
+package server.net;
+
+import server.util.ConfigUtil;
+import server.util.Log;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按业务模块隔离的请求线程池
+ * 每个模块一个固定大小、有界队列的线程池，队列满时拒绝新请求（由调用方返回SERVER_BUSY），
+ * 这样论坛检索、文献导出等耗时请求最多占满本模块的线程，不影响登录、选课等其他模块。
+ *
+ * 配置项（缺省时使用括号中的默认值）：
+ *   server.module.&lt;模块&gt;.threads  线程数（CPU核数*2，至少2）
+ *   server.module.&lt;模块&gt;.queue    队列容量（512）
+ */
+final class ModuleExecutors {
+    private static final Log LOG = Log.get("net");
+
+    private final Map<HandlerRegistry.Module, ThreadPoolExecutor> executors =
+            new EnumMap<>(HandlerRegistry.Module.class);
+
+    ModuleExecutors() {
+        int defaultThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        for (HandlerRegistry.Module module : HandlerRegistry.Module.values()) {
+            if (module == HandlerRegistry.Module.SESSION) {
+                continue;
+            }
+            String prefix = "server.module." + module.getConfigName();
+            int threads = Math.max(1, ConfigUtil.getInt(prefix + ".threads", defaultThreads));
+            int queue = Math.max(1, ConfigUtil.getInt(prefix + ".queue", 512));
+            executors.put(module, createExecutor(module.getConfigName(), threads, queue));
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor(String name, int threads, int queue) {
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, name + "-worker-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 在模块线程池中执行任务
+     * @param module 业务模块
+     * @param task 任务
+     * @throws RejectedExecutionException 模块队列已满或服务器正在停止
+     */
+    void execute(HandlerRegistry.Module module, Runnable task) {
+        ThreadPoolExecutor executor = executors.get(module);
+        if (executor == null) {
+            throw new RejectedExecutionException("模块没有线程池: " + module);
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("模块 {} 繁忙，拒绝请求: 线程={}, 排队={}", module.getConfigName(),
+                    executor.getActiveCount(), executor.getQueue().size());
+            throw e;
+        }
+    }
+
+    /**
+     * 停止所有模块线程池，已在队列中的请求继续执行完
+     * 最多等待 server.module.shutdownTimeout 毫秒（默认10000），服务器随后才写回缓存、关闭连接池；
+     * 超时仍未结束的请求被中断
+     */
+    void shutdown() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(ConfigUtil.getLong("server.module.shutdownTimeout", 10000));
+        try {
+            for (Map.Entry<HandlerRegistry.Module, ThreadPoolExecutor> e : executors.entrySet()) {
+                ThreadPoolExecutor executor = e.getValue();
+                if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    LOG.warn("模块 {} 的请求未在超时前处理完，中断剩余 {} 个请求", e.getKey().getConfigName(),
+                            executor.getActiveCount() + executor.getQueue().size());
+                    executor.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executors.values().forEach(ThreadPoolExecutor::shutdownNow);
+        }
+    }
+}
@@ -0,0 +1,650 @@
+package server.net;
+
+import common.protocol.MessageTransport;
+import server.util.ConfigUtil;
+import server.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NIO 选择器连接引擎
+ * 一个选择器线程负责 accept、读写事件和分帧，消息处理交给有界工作线程池：
+ * <ul>
+ *   <li>选择器线程把读到的数据累积在连接自己的缓冲区中，握手数据或一整帧完整到达后才把连接提交给工作线程，
+ *       工作线程只处理内存中的完整帧，不会因为客户端发送缓慢而阻塞</li>
+ *   <li>处理期间暂停该连接的读事件，处理完再重新注册，同一连接上的请求仍按顺序处理，ClientHandler 的分发语义不变</li>
+ *   <li>响应先尝试直接写出，写不完的部分进入连接的发送队列，由选择器线程在可写事件中继续发送；
+ *       待发送数据超过 server.nio.maxPendingWrite 时断开不读取响应的客户端</li>
+ *   <li>工作队列已满时连接留在选择器线程的积压队列中稍后重试，不再读取新数据，
+ *       TCP 窗口被填满后客户端自然减速（背压）</li>
+ *   <li>活跃连接数达到 server.maxConnections 时暂停 accept</li>
+ *   <li>旧客户端的对象流无法在读取前分帧，交给独立线程按顺序读取（最多 server.nio.maxLegacyConnections 个）</li>
+ * </ul>
+ */
+class NioConnectionEngine implements ConnectionEngine {
+    private static final Log LOG = Log.get("net");
+    private static final int BUFFER_SIZE = 8192;
+    // 握手数据的最大长度：[魔数(4)][版本(1)][名称(2+65535)][指纹(2+65535)]
+    private static final int MAX_HANDSHAKE_SIZE = 4 + 1 + 2 * (2 + 65535);
+
+    private final VCampusServer server;
+    private final int workerThreads;
+    private final int queueCapacity;
+    private final int maxConnections;
+    private final int backlog;
+    private final int maxFrameSize;
+    private final int maxInputSize;
+    private final long maxPendingWrite;
+    private final int maxLegacyConnections;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private SelectionKey acceptKey;
+    private ThreadPoolExecutor workers;
+    private volatile boolean running = false;
+
+    // 工作线程处理完毕、等待重新注册读事件的连接
+    private final ConcurrentLinkedQueue<NioConnection> finishedQueue = new ConcurrentLinkedQueue<>();
+    // 发送队列由空变为非空、需要监听写事件的连接
+    private final ConcurrentLinkedQueue<NioConnection> writeQueue = new ConcurrentLinkedQueue<>();
+    // 因工作队列已满而暂缓提交的连接（仅选择器线程访问）
+    private final ArrayDeque<NioConnection> pending = new ArrayDeque<>();
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicInteger legacyCount = new AtomicInteger();
+    private final AtomicInteger legacySeq = new AtomicInteger();
+
+    NioConnectionEngine(VCampusServer server) {
+        this.server = server;
+        int cores = Runtime.getRuntime().availableProcessors();
+        this.workerThreads = Math.max(1, ConfigUtil.getInt("server.nio.workerThreads", cores * 2));
+        this.queueCapacity = Math.max(1, ConfigUtil.getInt("server.nio.queueCapacity", 1024));
+        this.maxConnections = Math.max(1, ConfigUtil.getInt("server.maxConnections", 10000));
+        this.backlog = ConfigUtil.getInt("server.acceptBacklog", 1024);
+        this.maxFrameSize = ConfigUtil.getInt("server.wire.maxFrameSize", MessageTransport.DEFAULT_MAX_FRAME_SIZE);
+        this.maxInputSize = Math.max(maxFrameSize + 5, MAX_HANDSHAKE_SIZE);
+        this.maxPendingWrite = Math.max(BUFFER_SIZE,
+                ConfigUtil.getLong("server.nio.maxPendingWrite", 2L * maxFrameSize));
+        this.maxLegacyConnections = Math.max(0, ConfigUtil.getInt("server.nio.maxLegacyConnections", 256));
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        AtomicInteger seq = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "nio-worker-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), backlog);
+        serverChannel.configureBlocking(false);
+        acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        LOG.info("NIO连接引擎启动: 工作线程={}, 队列容量={}, 最大连接数={}", workerThreads, queueCapacity,
+                maxConnections);
+
+        while (running) {
+            try {
+                selector.select(pending.isEmpty() ? 0 : 10);
+                if (!running) {
+                    break;
+                }
+                rearmFinished();
+                watchWrites();
+                drainPending();
+                updateAcceptInterest();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    try {
+                        if (key.isAcceptable()) {
+                            acceptConnections();
+                            continue;
+                        }
+                        NioConnection conn = (NioConnection) key.attachment();
+                        if (key.isWritable()) {
+                            flushOutput(conn);
+                        }
+                        if (key.isValid() && key.isReadable() && !conn.processing && !conn.legacy) {
+                            readInput(conn);
+                        }
+                    } catch (CancelledKeyException e) {
+                        // 连接已在其他线程中关闭
+                    }
+                }
+            } catch (ClosedChannelException | ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    LOG.error("NIO选择器异常: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void acceptConnections() throws IOException {
+        SocketChannel channel;
+        while (activeCount.get() < maxConnections && (channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            acceptedCount.incrementAndGet();
+            activeCount.incrementAndGet();
+
+            NioConnection conn = new NioConnection(channel);
+            // 传输层每次写出一整帧，发送队列本身起缓冲作用，不再套 BufferedOutputStream
+            ClientHandler handler = new ClientHandler(channel.socket(), conn.in, conn.out, server);
+            conn.handler = handler;
+            handler.setDisconnectListener(conn::onDisconnect);
+            if (!handler.isConnected()) {
+                conn.onDisconnect();
+                continue;
+            }
+            server.registerClientHandler(channel.socket(), handler);
+            conn.key = channel.register(selector, SelectionKey.OP_READ, conn);
+        }
+    }
+
+    /**
+     * 活跃连接数达到上限时停止监听 accept 事件
+     */
+    private void updateAcceptInterest() {
+        if (acceptKey == null || !acceptKey.isValid()) {
+            return;
+        }
+        int desired = activeCount.get() < maxConnections ? SelectionKey.OP_ACCEPT : 0;
+        if (acceptKey.interestOps() != desired) {
+            acceptKey.interestOps(desired);
+        }
+    }
+
+    /**
+     * 选择器线程：读取已到达的数据，凑齐握手数据或一整帧后再交给工作线程
+     */
+    private void readInput(NioConnection conn) {
+        int n;
+        try {
+            n = conn.readChannel();
+        } catch (IOException e) {
+            n = -1;
+        }
+        if (n < 0) {
+            close(conn);
+            return;
+        }
+        checkInput(conn);
+    }
+
+    /**
+     * 选择器线程：根据缓冲区中的数据决定提交处理、继续等待、转为兼容模式或关闭连接
+     */
+    private void checkInput(NioConnection conn) {
+        int length = conn.nextUnitLength();
+        if (length > 0) {
+            conn.processing = true;
+            updateInterest(conn);
+            dispatch(conn);
+        } else if (length == 0) {
+            updateInterest(conn);
+        } else if (!conn.negotiated) {
+            startLegacy(conn);
+        } else {
+            LOG.warn("客户端发送了无效的帧，断开连接: {}", conn.channel.socket().getRemoteSocketAddress());
+            close(conn);
+        }
+    }
+
+    /**
+     * 选择器线程：发送队列中的数据，发送失败时关闭连接
+     */
+    private void flushOutput(NioConnection conn) {
+        try {
+            conn.flushQueued();
+        } catch (IOException e) {
+            close(conn);
+            return;
+        }
+        updateInterest(conn);
+    }
+
+    /**
+     * 选择器线程：按连接状态设置关注的事件
+     */
+    private void updateInterest(NioConnection conn) {
+        SelectionKey key = conn.key;
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = conn.processing || conn.legacy ? 0 : SelectionKey.OP_READ;
+        if (conn.hasPendingOutput()) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        try {
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+            }
+        } catch (CancelledKeyException e) {
+            // 连接已关闭
+        }
+    }
+
+    /**
+     * 选择器线程：关闭连接
+     * ClientHandler.disconnect 会写回购物车等，交给工作线程执行；连接正在处理时等处理结束再关闭
+     */
+    private void close(NioConnection conn) {
+        conn.closing = true;
+        if (!conn.processing) {
+            conn.processing = true;
+            updateInterest(conn);
+            dispatch(conn);
+        }
+    }
+
+    private void dispatch(NioConnection conn) {
+        if (!submit(conn)) {
+            pending.addLast(conn);
+            pendingCount.incrementAndGet();
+        }
+    }
+
+    private void drainPending() {
+        while (!pending.isEmpty()) {
+            if (!submit(pending.peekFirst())) {
+                return;
+            }
+            pending.pollFirst();
+            pendingCount.decrementAndGet();
+        }
+    }
+
+    private boolean submit(NioConnection conn) {
+        try {
+            workers.execute(() -> serve(conn));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void rearmFinished() {
+        NioConnection conn;
+        while ((conn = finishedQueue.poll()) != null) {
+            conn.processing = false;
+            if (conn.closing) {
+                close(conn);
+            } else {
+                checkInput(conn);
+            }
+        }
+    }
+
+    private void watchWrites() {
+        NioConnection conn;
+        while ((conn = writeQueue.poll()) != null) {
+            updateInterest(conn);
+        }
+    }
+
+    /**
+     * 工作线程：处理该连接缓冲区中全部完整的帧，然后交还选择器
+     */
+    private void serve(NioConnection conn) {
+        ClientHandler handler = conn.handler;
+        try {
+            if (conn.closing) {
+                handler.disconnect();
+                return;
+            }
+            int length;
+            while ((length = conn.nextUnitLength()) > 0) {
+                conn.unitEnd = conn.inStart + length;
+                boolean connected = conn.negotiated ? handler.processNextMessage() : handler.negotiateTransport();
+                conn.finishUnit();
+                if (!connected) {
+                    return;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // 未预期的异常也要关闭连接，否则连接既不会重新注册读事件也不会释放
+            LOG.error("处理客户端消息异常，断开连接: " + e, e);
+            handler.disconnect();
+            return;
+        }
+
+        finishedQueue.add(conn);
+        selector.wakeup();
+    }
+
+    /**
+     * 选择器线程：旧客户端改由独立线程按顺序读取，选择器只负责发送队列
+     */
+    private void startLegacy(NioConnection conn) {
+        if (legacyCount.incrementAndGet() > maxLegacyConnections) {
+            legacyCount.decrementAndGet();
+            LOG.warn("兼容模式连接数已达上限 {}，断开连接: {}", maxLegacyConnections,
+                    conn.channel.socket().getRemoteSocketAddress());
+            close(conn);
+            return;
+        }
+        conn.legacy = true;
+        conn.unitEnd = conn.inEnd;
+        updateInterest(conn);
+        Thread t = new Thread(() -> serveLegacy(conn), "nio-legacy-" + legacySeq.incrementAndGet());
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void serveLegacy(NioConnection conn) {
+        try (Selector readSelector = Selector.open()) {
+            conn.channel.register(readSelector, SelectionKey.OP_READ);
+            conn.readSelector = readSelector;
+            conn.handler.run();
+        } catch (IOException e) {
+            LOG.error("兼容模式连接处理失败: {}", e.getMessage());
+            conn.handler.disconnect();
+        } finally {
+            legacyCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("关闭服务器通道失败: {}", e.getMessage());
+        }
+        if (selector != null) {
+            selector.wakeup();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOG.warn("关闭选择器失败: {}", e.getMessage());
+            }
+        }
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "nio";
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return (workers != null ? workers.getQueue().size() : 0) + pendingCount.get();
+    }
+
+    /**
+     * 单个 NIO 连接的状态
+     * 接收缓冲区由选择器线程和工作线程交替访问（处理期间选择器不读取该连接），交接经过线程池或并发队列
+     */
+    private final class NioConnection {
+        final SocketChannel channel;
+        final InputStream in = new ConnectionInput();
+        final OutputStream out = new ConnectionOutput();
+        volatile ClientHandler handler;
+        volatile SelectionKey key;
+        volatile boolean closing = false;
+        private boolean closed = false;
+
+        // 接收缓冲区：[inStart, inEnd) 为未处理的数据，工作线程只读到 unitEnd（当前帧末尾）
+        byte[] inBuf = new byte[BUFFER_SIZE];
+        int inStart;
+        int inEnd;
+        int unitEnd;
+        boolean negotiated = false;
+        // 仅选择器线程访问
+        boolean processing = false;
+        // 选择器线程在启动兼容模式线程前设置
+        boolean legacy = false;
+        // 兼容模式下等待数据到达的选择器
+        volatile Selector readSelector;
+
+        // 发送队列，写出和发送都在 outQueue 上同步
+        private final ArrayDeque<ByteBuffer> outQueue = new ArrayDeque<>();
+        private long outBytes;
+        private boolean outClosed = false;
+
+        NioConnection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void onDisconnect() {
+            if (!closed) {
+                closed = true;
+                closeOutput();
+                activeCount.decrementAndGet();
+                if (selector != null) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        /**
+         * 缓冲区开头下一个完整单元（握手数据或一帧）的长度
+         * @return 长度；数据不完整返回0；无效返回-1
+         */
+        int nextUnitLength() {
+            if (negotiated) {
+                return MessageTransport.frameLength(inBuf, inStart, inEnd - inStart, maxFrameSize);
+            }
+            return MessageTransport.handshakeLength(inBuf, inStart, inEnd - inStart);
+        }
+
+        /**
+         * 当前单元处理完毕，跳过处理器未读取的部分
+         */
+        void finishUnit() {
+            inStart = unitEnd;
+            negotiated = true;
+            if (inStart == inEnd) {
+                inStart = inEnd = unitEnd = 0;
+                if (inBuf.length > BUFFER_SIZE) {
+                    // 处理完大帧后释放扩大的缓冲区
+                    inBuf = new byte[BUFFER_SIZE];
+                }
+            }
+        }
+
+        /**
+         * 从通道读取数据到接收缓冲区，缓冲区满时先整理，仍不够再按需扩大
+         * @return 读到的字节数，连接已关闭返回-1
+         */
+        int readChannel() throws IOException {
+            if (inEnd == inBuf.length) {
+                if (inStart > 0) {
+                    System.arraycopy(inBuf, inStart, inBuf, 0, inEnd - inStart);
+                    inEnd -= inStart;
+                    unitEnd = Math.max(0, unitEnd - inStart);
+                    inStart = 0;
+                } else if (inBuf.length < maxInputSize) {
+                    inBuf = Arrays.copyOf(inBuf, (int) Math.min(maxInputSize, inBuf.length * 2L));
+                } else {
+                    throw new IOException("客户端数据超过最大帧长度");
+                }
+            }
+            int n = channel.read(ByteBuffer.wrap(inBuf, inEnd, inBuf.length - inEnd));
+            if (n > 0) {
+                inEnd += n;
+            }
+            return n;
+        }
+
+        /**
+         * 兼容模式：当前数据已读完时等待通道中的新数据
+         * @return 读到新数据返回true，连接已关闭返回false
+         */
+        private boolean awaitLegacyInput() throws IOException {
+            Selector waiter = readSelector;
+            if (inStart == inEnd) {
+                inStart = inEnd = 0;
+            }
+            while (true) {
+                int n = readChannel();
+                if (n > 0) {
+                    unitEnd = inEnd;
+                    return true;
+                }
+                if (n < 0 || !channel.isOpen()) {
+                    return false;
+                }
+                waiter.select(1000);
+                waiter.selectedKeys().clear();
+            }
+        }
+
+        boolean hasPendingOutput() {
+            synchronized (outQueue) {
+                return !outQueue.isEmpty();
+            }
+        }
+
+        /**
+         * 写出数据：发送队列为空时直接写入通道，写不完的部分进入发送队列
+         */
+        void write(byte[] b, int off, int len) throws IOException {
+            boolean wasEmpty;
+            synchronized (outQueue) {
+                if (outClosed) {
+                    throw new IOException("连接已关闭");
+                }
+                ByteBuffer src = ByteBuffer.wrap(b, off, len);
+                wasEmpty = outQueue.isEmpty();
+                if (wasEmpty) {
+                    channel.write(src);
+                }
+                if (!src.hasRemaining()) {
+                    return;
+                }
+                if (outBytes + src.remaining() > maxPendingWrite) {
+                    throw new IOException("客户端接收过慢，待发送数据超过上限");
+                }
+                outQueue.addLast(ByteBuffer.wrap(Arrays.copyOfRange(b, src.position(), off + len)));
+                outBytes += src.remaining();
+            }
+            if (wasEmpty) {
+                writeQueue.add(this);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * 选择器线程：发送队列中的数据，直到发送缓冲区再次写满
+         */
+        void flushQueued() throws IOException {
+            synchronized (outQueue) {
+                ByteBuffer head;
+                while ((head = outQueue.peekFirst()) != null) {
+                    outBytes -= channel.write(head);
+                    if (head.hasRemaining()) {
+                        return;
+                    }
+                    outQueue.pollFirst();
+                }
+            }
+        }
+
+        void closeOutput() {
+            synchronized (outQueue) {
+                outClosed = true;
+                outQueue.clear();
+                outBytes = 0;
+            }
+        }
+
+        /**
+         * 工作线程读取的输入流：只返回当前帧的数据，读完即结束，不会等待；兼容模式下等待新数据
+         */
+        private final class ConnectionInput extends InputStream {
+            @Override
+            public int read() throws IOException {
+                if (inStart >= unitEnd && !(legacy && awaitLegacyInput())) {
+                    return -1;
+                }
+                return inBuf[inStart++] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (inStart >= unitEnd && !(legacy && awaitLegacyInput())) {
+                    return -1;
+                }
+                int n = Math.min(len, unitEnd - inStart);
+                System.arraycopy(inBuf, inStart, b, off, n);
+                inStart += n;
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return Math.max(0, unitEnd - inStart);
+            }
+        }
+
+        private final class ConnectionOutput extends OutputStream {
+            @Override
+            public void write(int b) throws IOException {
+                NioConnection.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                NioConnection.this.write(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                closeOutput();
+            }
+        }
+    }
+}
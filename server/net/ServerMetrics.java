@@ -0,0 +1,422 @@
+package server.net;
+
+import com.sun.net.httpserver.HttpServer;
+import common.protocol.MessageType;
+import common.vo.LatencyStatsVO;
+import common.vo.ServerMetricsVO;
+import server.util.ConfigUtil;
+import server.util.ConnectionPool;
+import server.util.DatabaseUtil;
+import server.util.LatencyHistogram;
+import server.util.Log;
+
+import javax.management.ObjectName;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务器运行指标
+ * 每个请求类型一个无锁延迟直方图（从读到请求到处理完成，包含在模块线程池中排队的时间），
+ * 另有收发字节数、失败请求数、被拒绝请求数等计数，数据库耗时由连接池按借用连接的类统计。
+ * 记录一次请求只做几次原子累加，不加锁、不分配对象。
+ *
+ * 查看方式：
+ *   管理员发送 GET_SERVER_METRICS_REQUEST，返回 ServerMetricsVO；
+ *   JMX MBean vcampus:type=ServerMetrics（server.metrics.jmx）；
+ *   Prometheus 文本格式 HTTP 端点 http://server.metrics.httpHost:server.metrics.httpPort/metrics（端口为0时关闭）。
+ */
+public class ServerMetrics implements ServerMetricsMXBean {
+    private static final Log LOG = Log.get("net");
+    private static final String MBEAN_NAME = "vcampus:type=ServerMetrics";
+    private static final MessageType[] TYPES = MessageType.values();
+
+    private static ServerMetrics instance;
+
+    private final boolean enabled = ConfigUtil.getBoolean("server.metrics.enabled", true);
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicReferenceArray<TypeStats> typeStats = new AtomicReferenceArray<>(TYPES.length);
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile VCampusServer server;
+    private HttpServer httpServer;
+    private ObjectName mbeanName;
+
+    /**
+     * 单个请求类型的统计
+     */
+    private static final class TypeStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+    }
+
+    private ServerMetrics() {
+    }
+
+    public static synchronized ServerMetrics getInstance() {
+        if (instance == null) {
+            instance = new ServerMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * 服务器停止时关闭 HTTP 端点并注销 MBean
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.stopExporters();
+            instance = null;
+        }
+    }
+
+    // ================= 记录 =================
+
+    /**
+     * 记录一次请求的处理耗时
+     * @param type 请求类型
+     * @param nanos 耗时（纳秒）
+     * @param failed 处理时抛出异常或返回了错误响应
+     */
+    void recordRequest(MessageType type, long nanos, boolean failed) {
+        if (!enabled) {
+            return;
+        }
+        TypeStats stats = typeStats.get(type.ordinal());
+        if (stats == null) {
+            typeStats.compareAndSet(type.ordinal(), null, new TypeStats());
+            stats = typeStats.get(type.ordinal());
+        }
+        stats.latency.record(nanos);
+        if (failed) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * 记录一次因模块线程池已满而被拒绝的请求
+     */
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    /**
+     * 包装连接的输入流，统计接收字节数
+     */
+    InputStream countInput(InputStream in) {
+        if (!enabled || in == null) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesIn.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buf, int off, int len) throws IOException {
+                int n = in.read(buf, off, len);
+                if (n > 0) {
+                    bytesIn.add(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * 包装连接的输出流，统计发送字节数
+     */
+    OutputStream countOutput(OutputStream out) {
+        if (!enabled || out == null) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesOut.increment();
+            }
+
+            @Override
+            public void write(byte[] buf, int off, int len) throws IOException {
+                out.write(buf, off, len);
+                bytesOut.add(len);
+            }
+        };
+    }
+
+    // ================= 导出 =================
+
+    /**
+     * 绑定服务器（用于读取连接数）并按配置启动 JMX 和 HTTP 导出
+     * @param server 服务器
+     */
+    synchronized void start(VCampusServer server) {
+        this.server = server;
+        if (!enabled) {
+            return;
+        }
+        if (ConfigUtil.getBoolean("server.metrics.jmx", true) && mbeanName == null) {
+            try {
+                ObjectName name = new ObjectName(MBEAN_NAME);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+                mbeanName = name;
+            } catch (Exception e) {
+                LOG.error("注册监控MBean失败: {}", e.getMessage());
+            }
+        }
+        int port = ConfigUtil.getInt("server.metrics.httpPort", 9464);
+        if (port > 0 && httpServer == null) {
+            String host = ConfigUtil.getString("server.metrics.httpHost", "127.0.0.1");
+            try {
+                HttpServer http = HttpServer.create(new InetSocketAddress(host, port), 16);
+                http.createContext("/metrics", exchange -> {
+                    byte[] body = getPrometheusText().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream os = exchange.getResponseBody()) {
+                        os.write(body);
+                    }
+                });
+                http.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "metrics-http");
+                    t.setDaemon(true);
+                    return t;
+                }));
+                http.start();
+                httpServer = http;
+                LOG.info("监控指标: http://{}:{}/metrics", host, port);
+            } catch (IOException e) {
+                LOG.error("启动监控HTTP端点失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void stopExporters() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (Exception e) {
+                LOG.warn("注销监控MBean失败: {}", e.getMessage());
+            }
+            mbeanName = null;
+        }
+    }
+
+    // ================= 查询 =================
+
+    /**
+     * 当前全部指标的快照
+     */
+    public ServerMetricsVO snapshot() {
+        ServerMetricsVO vo = new ServerMetricsVO();
+        vo.setStartTime(startTime);
+        vo.setUptimeMillis(getUptimeMillis());
+        vo.setActiveConnections(getActiveConnections());
+        vo.setOnlineUsers(getOnlineUsers());
+        vo.setBytesIn(bytesIn.sum());
+        vo.setBytesOut(bytesOut.sum());
+        vo.setRejectedCount(rejected.sum());
+        List<LatencyStatsVO> requests = getRequestStats();
+        long count = 0;
+        long errors = 0;
+        for (LatencyStatsVO stats : requests) {
+            count += stats.getCount();
+            errors += stats.getErrors();
+        }
+        vo.setRequestCount(count);
+        vo.setErrorCount(errors);
+        vo.setRequests(requests);
+        vo.setDatabaseCalls(getDatabaseStats());
+        ConnectionPool.Stats pool = DatabaseUtil.getPoolStats();
+        if (pool != null) {
+            vo.setDbActiveConnections(pool.getActive());
+            vo.setDbIdleConnections(pool.getIdle());
+        }
+        return vo;
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        VCampusServer s = server;
+        return s != null ? s.getClientCount() : 0;
+    }
+
+    @Override
+    public int getOnlineUsers() {
+        VCampusServer s = server;
+        return s != null ? s.getOnlineUserCount() : 0;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getRequestCount() {
+        long count = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            TypeStats stats = typeStats.get(i);
+            if (stats != null) {
+                count += stats.latency.snapshot().getCount();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long count = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            TypeStats stats = typeStats.get(i);
+            if (stats != null) {
+                count += stats.errors.sum();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public List<LatencyStatsVO> getRequestStats() {
+        List<LatencyStatsVO> list = new ArrayList<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            TypeStats stats = typeStats.get(i);
+            if (stats != null) {
+                list.add(toVO(TYPES[i].name(), stats.latency.snapshot(), stats.errors.sum()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public List<LatencyStatsVO> getDatabaseStats() {
+        List<LatencyStatsVO> list = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram.Snapshot> e : DatabaseUtil.getCallerTimes().entrySet()) {
+            list.add(toVO(e.getKey(), e.getValue(), 0));
+        }
+        return list;
+    }
+
+    private static LatencyStatsVO toVO(String name, LatencyHistogram.Snapshot snapshot, long errors) {
+        LatencyStatsVO vo = new LatencyStatsVO();
+        vo.setName(name);
+        vo.setCount(snapshot.getCount());
+        vo.setErrors(errors);
+        vo.setMeanMicros(Math.round(snapshot.getMean() / 1000));
+        vo.setP50Micros(TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(50)));
+        vo.setP90Micros(TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(90)));
+        vo.setP99Micros(TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(99)));
+        vo.setP999Micros(TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(99.9)));
+        vo.setMaxMicros(TimeUnit.NANOSECONDS.toMicros(snapshot.getMax()));
+        return vo;
+    }
+
+    @Override
+    public String getPrometheusText() {
+        StringBuilder sb = new StringBuilder(8192);
+        gauge(sb, "vcampus_uptime_seconds", "服务器运行时长", getUptimeMillis() / 1000.0);
+        gauge(sb, "vcampus_connections", "当前客户端连接数", getActiveConnections());
+        gauge(sb, "vcampus_online_users", "当前登录用户数", getOnlineUsers());
+        counter(sb, "vcampus_received_bytes_total", "累计接收字节数", bytesIn.sum());
+        counter(sb, "vcampus_sent_bytes_total", "累计发送字节数", bytesOut.sum());
+        counter(sb, "vcampus_rejected_requests_total", "模块线程池已满被拒绝的请求数", rejected.sum());
+
+        sb.append("# HELP vcampus_request_duration_seconds 请求处理耗时(含排队)\n");
+        sb.append("# TYPE vcampus_request_duration_seconds summary\n");
+        StringBuilder errors = new StringBuilder();
+        errors.append("# HELP vcampus_request_errors_total 失败请求数\n");
+        errors.append("# TYPE vcampus_request_errors_total counter\n");
+        for (int i = 0; i < TYPES.length; i++) {
+            TypeStats stats = typeStats.get(i);
+            if (stats != null) {
+                String label = "type=\"" + TYPES[i].name() + "\"";
+                summary(sb, "vcampus_request_duration_seconds", label, stats.latency.snapshot());
+                errors.append("vcampus_request_errors_total{").append(label).append("} ")
+                        .append(stats.errors.sum()).append('\n');
+            }
+        }
+        sb.append(errors);
+
+        sb.append("# HELP vcampus_db_call_duration_seconds 每次借用数据库连接的耗时(按DAO/Service类)\n");
+        sb.append("# TYPE vcampus_db_call_duration_seconds summary\n");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> e : DatabaseUtil.getCallerTimes().entrySet()) {
+            summary(sb, "vcampus_db_call_duration_seconds", "caller=\"" + e.getKey() + "\"", e.getValue());
+        }
+        ConnectionPool.Stats pool = DatabaseUtil.getPoolStats();
+        if (pool != null) {
+            sb.append("# HELP vcampus_db_pool_connections 连接池连接数\n");
+            sb.append("# TYPE vcampus_db_pool_connections gauge\n");
+            sb.append("vcampus_db_pool_connections{state=\"active\"} ").append(pool.getActive()).append('\n');
+            sb.append("vcampus_db_pool_connections{state=\"idle\"} ").append(pool.getIdle()).append('\n');
+            counter(sb, "vcampus_db_pool_timeouts_total", "借用连接超时次数", pool.getTimeoutCount());
+        }
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" counter\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder sb, String name, String label, LatencyHistogram.Snapshot snapshot) {
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            sb.append(name).append('{').append(label).append(",quantile=\"").append(q).append("\"} ")
+                    .append(format(snapshot.getValueAtPercentile(q * 100) / 1e9)).append('\n');
+        }
+        sb.append(name).append("_sum{").append(label).append("} ").append(format(snapshot.getSum() / 1e9)).append('\n');
+        sb.append(name).append("_count{").append(label).append("} ").append(snapshot.getCount()).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,43 @@
+package server.net;
+
+import common.vo.LatencyStatsVO;
+
+import java.util.List;
+
+/**
+ * 服务器运行指标的 JMX 接口，注册名为 vcampus:type=ServerMetrics
+ * 可以用 jconsole / VisualVM 查看
+ */
+public interface ServerMetricsMXBean {
+
+    long getUptimeMillis();
+
+    int getActiveConnections();
+
+    int getOnlineUsers();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getRequestCount();
+
+    long getErrorCount();
+
+    long getRejectedCount();
+
+    /**
+     * 按请求类型统计的处理耗时
+     */
+    List<LatencyStatsVO> getRequestStats();
+
+    /**
+     * 按 DAO/Service 类统计的数据库连接借用耗时
+     */
+    List<LatencyStatsVO> getDatabaseStats();
+
+    /**
+     * Prometheus 文本格式的全部指标
+     */
+    String getPrometheusText();
+}
@@ -0,0 +1,118 @@
+package server.net;
+
+import common.vo.UserVO;
+import server.util.ConfigUtil;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话令牌管理
+ * 登录成功时签发令牌，客户端断线重连后用令牌恢复登录状态，无需再次提交密码。
+ * 令牌在最后一次使用后 server.session.ttl 毫秒内有效，登出时立即作废。
+ */
+class SessionManager {
+    private static final int TOKEN_BYTES = 24;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    SessionManager() {
+        this.ttlMillis = ConfigUtil.getLong("server.session.ttl", 30 * 60 * 1000L);
+    }
+
+    /**
+     * 为登录用户签发会话令牌
+     * @param user 用户信息
+     * @return 令牌
+     */
+    String issue(UserVO user) {
+        purgeExpired();
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        String token = new String(chars);
+        sessions.put(token, new Session(user));
+        return token;
+    }
+
+    /**
+     * 用令牌恢复会话
+     * @param token 令牌
+     * @return 会话对应的用户，令牌无效或已过期返回null
+     */
+    UserVO resume(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccess > ttlMillis) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session.user;
+    }
+
+    /**
+     * 连接仍在使用中时刷新令牌的有效期
+     * @param token 令牌
+     */
+    void touch(String token) {
+        if (token != null) {
+            Session session = sessions.get(token);
+            if (session != null) {
+                session.lastAccess = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * 作废令牌（登出）
+     * @param token 令牌
+     */
+    void revoke(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * 清空全部会话（服务器停止时）
+     */
+    void clear() {
+        sessions.clear();
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue().lastAccess > ttlMillis) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class Session {
+        final UserVO user;
+        volatile long lastAccess;
+
+        Session(UserVO user) {
+            this.user = user;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+}
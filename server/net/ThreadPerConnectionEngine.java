@@ -0,0 +1,171 @@
+package server.net;
+
+import server.util.ConfigUtil;
+import server.util.Log;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每连接一个虚拟线程的连接引擎（需要 Java 21+，较低版本的 JVM 上由 {@link ConnectionEngine#create} 改用 NIO 引擎）
+ * 用 server.maxConnections 限制并发连接数，达到上限时暂停 accept，
+ * 新连接留在内核的 backlog 队列中，形成自然的背压。
+ */
+class ThreadPerConnectionEngine implements ConnectionEngine {
+    private static final Log LOG = Log.get("net");
+
+    private final VCampusServer server;
+    private final int maxConnections;
+    private final int backlog;
+    private final Semaphore connectionPermits;
+    private ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private volatile boolean running = false;
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    ThreadPerConnectionEngine(VCampusServer server) {
+        this.server = server;
+        this.maxConnections = Math.max(1, ConfigUtil.getInt("server.maxConnections", 10000));
+        this.backlog = ConfigUtil.getInt("server.acceptBacklog", 1024);
+        this.connectionPermits = new Semaphore(maxConnections);
+        this.executor = createExecutor();
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        serverSocket = new ServerSocket(port, backlog);
+        running = true;
+
+        while (running) {
+            try {
+                connectionPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            Socket clientSocket;
+            try {
+                clientSocket = serverSocket.accept();
+            } catch (IOException e) {
+                connectionPermits.release();
+                if (running) {
+                    LOG.error("接受客户端连接失败: {}", e.getMessage());
+                }
+                continue;
+            }
+            acceptedCount.incrementAndGet();
+            activeCount.incrementAndGet();
+            queuedCount.incrementAndGet();
+            try {
+                // 兼容模式的对象流每条消息会分多次写出，关闭 Nagle 避免与延迟确认叠加产生 40ms 级停顿
+                clientSocket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                LOG.warn("设置TCP_NODELAY失败: {}", e.getMessage());
+            }
+
+            try {
+                executor.execute(() -> serve(clientSocket));
+            } catch (RuntimeException e) {
+                LOG.error("提交客户端处理任务失败: {}", e.getMessage());
+                queuedCount.decrementAndGet();
+                activeCount.decrementAndGet();
+                connectionPermits.release();
+                closeQuietly(clientSocket);
+            }
+        }
+    }
+
+    /**
+     * 在独立线程中驱动一个客户端连接直到断开
+     */
+    private void serve(Socket clientSocket) {
+        queuedCount.decrementAndGet();
+        try {
+            // 在处理线程而不是 accept 线程中创建 ClientHandler，协议握手也在这里完成
+            ClientHandler handler = new ClientHandler(clientSocket, server);
+            server.registerClientHandler(clientSocket, handler);
+            handler.run();
+        } finally {
+            activeCount.decrementAndGet();
+            connectionPermits.release();
+        }
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程（Java 21+）
+     * @return 支持返回true
+     */
+    static boolean isSupported() {
+        try {
+            java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建每任务一个虚拟线程的执行器（项目以 Java 17 编译，通过反射调用）
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("当前JVM不支持虚拟线程", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (serverSocket != null && !serverSocket.isClosed()) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                LOG.warn("关闭服务器套接字失败: {}", e.getMessage());
+            }
+        }
+        if (!executor.isShutdown()) {
+            executor.shutdown();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 连接已不可用
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "virtual-thread";
+    }
+
+    @Override
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+}
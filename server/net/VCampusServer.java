@@ -1,28 +1,31 @@
 package server.net;
 
+import server.util.ConfigUtil;
 import server.util.DatabaseUtil;
+import server.util.Log;
 
 import java.io.IOException;
-import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * vCampus服务器主类
  * 负责启动服务器，监听客户端连接，管理客户端会话
+ * 连接的线程模型由 ConnectionEngine 决定，通过 server.engine 配置（virtual 或 nio）
  */
 public class VCampusServer {
+    private static final Log LOG = Log.get("net");
     private static final int DEFAULT_PORT = 8888;
     private final int port;
-    private ServerSocket serverSocket;
-    private ExecutorService threadPool;
-    private boolean isRunning = false;
+    private final ConnectionEngine engine;
+    // 带请求ID的请求按所属模块在各自的线程池中并行处理（有界，队列满时返回 SERVER_BUSY）
+    private final ModuleExecutors moduleExecutors;
+    private volatile boolean isRunning = false;
     
     // 在线用户会话管理
     private final ConcurrentHashMap<Integer, ClientHandler> onlineUsers = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<Socket, ClientHandler> clientHandlers = new ConcurrentHashMap<>();
+    private final SessionManager sessionManager = new SessionManager();
     
     public VCampusServer() {
         this(DEFAULT_PORT);
@@ -30,7 +33,8 @@ public class VCampusServer {
     
     public VCampusServer(int port) {
         this.port = port;
-        this.threadPool = Executors.newCachedThreadPool();
+        this.engine = ConnectionEngine.create(ConfigUtil.getString("server.engine", "virtual"), this);
+        this.moduleExecutors = new ModuleExecutors();
     }
     
     /**
@@ -44,35 +48,35 @@ public class VCampusServer {
                 return;
             }
             
-            serverSocket = new ServerSocket(port);
             isRunning = true;
             
+            // 在后台加载论坛检索索引
+            server.service.ForumSearchIndex.getInstance();
+            
+            // 校正课程已选人数并加载选课引擎、课表冲突索引、成绩统计
+            server.service.EnrollmentEngine.getInstance();
+            server.service.TimetableIndex.getInstance();
+            server.service.GradeStatsEngine.getInstance();
+            
+            // 商品库存预占（启动超时未支付订单的取消线程）、商品目录和购物车写回线程
+            server.service.InventoryReservations.getInstance();
+            server.service.ProductCatalog.getInstance();
+            server.service.ShoppingCartStore.getInstance();
+            server.service.BalanceLedger.getInstance();
+            server.service.SalesAnalytics.getInstance();
+            
+            // 监控指标：JMX 和 Prometheus HTTP 端点
+            ServerMetrics.getInstance().start(this);
+            
             System.out.println("=================================");
             System.out.println("vCampus虚拟校园系统服务器启动成功");
             System.out.println("监听端口: " + port);
+            System.out.println("连接引擎: " + engine.getName());
             System.out.println("等待客户端连接...");
             System.out.println("=================================");
             
-            // 主循环：监听客户端连接
-            while (isRunning) {
-                try {
-                    Socket clientSocket = serverSocket.accept();
-                    
-                    // 为每个客户端创建处理线程
-                    ClientHandler handler = new ClientHandler(clientSocket, this);
-                    clientHandlers.put(clientSocket, handler);
-                    threadPool.execute(handler);
-                    
-                    String clientInfo = clientSocket.getRemoteSocketAddress().toString();
-                    System.out.println("新客户端连接: " + clientInfo);
-                    System.out.println("当前连接数: " + clientHandlers.size());
-                    
-                } catch (IOException e) {
-                    if (isRunning) {
-                        System.err.println("接受客户端连接失败: " + e.getMessage());
-                    }
-                }
-            }
+            // 主循环：由连接引擎监听并处理客户端连接
+            engine.start(port);
             
         } catch (IOException e) {
             System.err.println("服务器启动失败: " + e.getMessage());
@@ -85,31 +89,55 @@ public class VCampusServer {
      * 停止服务器
      */
     public void stop() {
+        if (!isRunning) {
+            return;
+        }
         System.out.println("正在停止服务器...");
         isRunning = false;
         
+        // 停止接受新连接，等待模块线程池中已接收的请求处理完，之后才能写回缓存、关闭连接池
+        engine.stop();
+        moduleExecutors.shutdown();
+        
         // 关闭所有客户端连接
         for (ClientHandler handler : clientHandlers.values()) {
             handler.disconnect();
         }
         clientHandlers.clear();
         onlineUsers.clear();
+        sessionManager.clear();
         
-        // 关闭线程池
-        if (threadPool != null && !threadPool.isShutdown()) {
-            threadPool.shutdown();
-        }
+        // 写回论坛缓存中尚未提交的计数和购物车
+        server.service.ForumThreadCache.shutdown();
+        server.service.ShoppingCartStore.shutdown();
+        server.service.ForumSearchIndex.shutdown();
+        server.service.EnrollmentEngine.shutdown();
+        server.service.TimetableIndex.shutdown();
+        server.service.StudentTimetableCache.shutdown();
+        server.service.GradeStatsEngine.shutdown();
+        server.service.InventoryReservations.shutdown();
+        server.service.ProductCatalog.shutdown();
+        server.service.BalanceLedger.shutdown();
+        server.service.SalesAnalytics.shutdown();
+        ServerMetrics.shutdown();
         
-        // 关闭服务器套接字
-        if (serverSocket != null && !serverSocket.isClosed()) {
-            try {
-                serverSocket.close();
-            } catch (IOException e) {
-                System.err.println("关闭服务器套接字失败: " + e.getMessage());
-            }
-        }
+        // 关闭数据库连接池
+        DatabaseUtil.shutdownPool();
         
         System.out.println("服务器已停止");
+        // 写出异步队列中剩余的日志
+        Log.shutdown();
+    }
+    
+    /**
+     * 登记新的客户端处理器（由连接引擎调用）
+     * @param socket 客户端套接字
+     * @param handler 客户端处理器
+     */
+    void registerClientHandler(Socket socket, ClientHandler handler) {
+        clientHandlers.put(socket, handler);
+        LOG.info("新客户端连接: {}", socket.getRemoteSocketAddress());
+        LOG.debug("当前连接数: {}", clientHandlers.size());
     }
     
     /**
@@ -120,7 +148,7 @@ public class VCampusServer {
     public void addOnlineUser(Integer userId, ClientHandler handler) {
         if (userId != null && handler != null) {
             onlineUsers.put(userId, handler);
-            System.out.println("用户上线: " + userId + ", 当前在线用户数: " + onlineUsers.size());
+            LOG.info("用户上线: {}, 当前在线用户数: {}", userId, onlineUsers.size());
         }
     }
     
@@ -131,7 +159,7 @@ public class VCampusServer {
     public void removeOnlineUser(Integer userId) {
         if (userId != null) {
             onlineUsers.remove(userId);
-            System.out.println("用户下线: " + userId + ", 当前在线用户数: " + onlineUsers.size());
+            LOG.info("用户下线: {}, 当前在线用户数: {}", userId, onlineUsers.size());
         }
     }
     
@@ -144,13 +172,13 @@ public class VCampusServer {
             ClientHandler handler = clientHandlers.remove(socket);
             if (handler != null) {
                 // 如果该处理器对应的用户在线，也要移除
+                // 同一用户可能已经在新连接上恢复了会话，只移除仍指向本连接的记录
                 Integer userId = handler.getCurrentUserId();
-                if (userId != null) {
-                    removeOnlineUser(userId);
+                if (userId != null && onlineUsers.remove(userId, handler)) {
+                    LOG.info("用户下线: {}, 当前在线用户数: {}", userId, onlineUsers.size());
                 }
             }
-            System.out.println("客户端断开连接: " + socket.getRemoteSocketAddress() + 
-                             ", 当前连接数: " + clientHandlers.size());
+            LOG.info("客户端断开连接: {}, 当前连接数: {}", socket.getRemoteSocketAddress(), clientHandlers.size());
         }
     }
     
@@ -179,6 +207,30 @@ public class VCampusServer {
         return clientHandlers.size();
     }
     
+    /**
+     * 获取会话令牌管理器
+     * @return 会话令牌管理器
+     */
+    SessionManager getSessionManager() {
+        return sessionManager;
+    }
+    
+    /**
+     * 获取连接引擎（用于查看 accept/活跃/排队计数）
+     * @return 连接引擎
+     */
+    public ConnectionEngine getEngine() {
+        return engine;
+    }
+    
+    /**
+     * 获取按模块隔离的请求线程池（处理带请求ID的流水线请求）
+     * @return 模块线程池
+     */
+    ModuleExecutors getModuleExecutors() {
+        return moduleExecutors;
+    }
+    
     /**
      * 检查服务器是否正在运行
      * @return 运行中返回true，已停止返回false
@@ -204,7 +256,7 @@ public class VCampusServer {
             try {
                 handler.sendMessage(message);
             } catch (Exception e) {
-                System.err.println("广播消息失败: " + e.getMessage());
+                LOG.error("广播消息失败: {}", e.getMessage());
             }
         }
     }
@@ -222,7 +274,7 @@ public class VCampusServer {
                 handler.sendMessage(message);
                 return true;
             } catch (Exception e) {
-                System.err.println("发送消息给用户 " + userId + " 失败: " + e.getMessage());
+                LOG.error("发送消息给用户 {} 失败: {}", userId, e.getMessage());
             }
         }
         return false;
@@ -232,15 +284,14 @@ public class VCampusServer {
      * 主方法：启动服务器
      */
     public static void main(String[] args) {
-        int port = DEFAULT_PORT;
+        int port = ConfigUtil.getInt("server.port", DEFAULT_PORT);
         
         // 解析命令行参数
         if (args.length > 0) {
             try {
                 port = Integer.parseInt(args[0]);
             } catch (NumberFormatException e) {
-                System.err.println("无效的端口号，使用默认端口: " + DEFAULT_PORT);
-                port = DEFAULT_PORT;
+                System.err.println("无效的端口号，使用配置端口: " + port);
             }
         }
         
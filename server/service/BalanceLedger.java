@@ -0,0 +1,294 @@
+package server.service;
+
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 余额账本
+ * 余额的充值、支付和退款都经过这里，每次变动在同一事务中追加一条 balance_transactions 记录（只增不改）：
+ * 1. 余额支付只用一条语句同时完成扣款和订单状态修改：
+ *    UPDATE orders JOIN 余额表 SET balance = balance - total_amount, status = 'paid'
+ *    WHERE 订单属于该用户且未支付 AND balance >= total_amount，受影响行数为0即余额不足或订单不可支付，不会重复扣款或扣成负数；
+ * 2. 同一用户的余额变动在进程内按用户分段加锁（server.store.balance.lockStripes 段）排队，
+ *    同一用户的并发支付在锁上等待，而不是各占一个数据库连接等待行锁；
+ * 3. 用户余额所在的表（学生 students、教师 teachers）按用户缓存，不再每次查询 users.role；
+ * 4. 已用余额支付的订单取消时在取消事务中按支付记录退款，账本的 (order_id, type) 唯一索引保证每个订单最多扣款、退款各一次。
+ */
+public class BalanceLedger {
+    private static final Log LOG = Log.get("store");
+
+    /** 账本记录类型 */
+    public static final String TYPE_RECHARGE = "recharge";
+    public static final String TYPE_PAYMENT = "payment";
+    public static final String TYPE_REFUND = "refund";
+
+    private static BalanceLedger instance;
+
+    private final ReentrantLock[] stripes;
+    // 用户ID -> 余额所在的表
+    private final ConcurrentHashMap<Integer, String> balanceTables = new ConcurrentHashMap<>();
+
+    /**
+     * @param stripeCount 锁分段数
+     */
+    private BalanceLedger(int stripeCount) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock(true);
+        }
+    }
+
+    /**
+     * 获取实例
+     * @return 实例
+     */
+    public static synchronized BalanceLedger getInstance() {
+        if (instance == null) {
+            instance = new BalanceLedger(ConfigUtil.getInt("server.store.balance.lockStripes", 256));
+            LOG.info("[Store][Balance] 余额账本已启用: lockStripes={}", instance.stripes.length);
+        }
+        return instance;
+    }
+
+    /**
+     * 释放实例（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        instance = null;
+    }
+
+    /**
+     * 用户所在的锁分段
+     */
+    private ReentrantLock lockFor(int userId) {
+        return stripes[Math.floorMod(userId * 0x9E3779B9, stripes.length)];
+    }
+
+    // ================= 查询 =================
+
+    /**
+     * 查询用户余额
+     * @param userId 用户ID
+     * @return 余额；用户不存在或没有余额账户（管理员）时返回-1
+     */
+    public double balance(int userId) {
+        try {
+            String table = balanceTable(userId);
+            if (table == null) {
+                return -1;
+            }
+            try (Connection conn = DatabaseUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement("SELECT balance FROM " + table + " WHERE user_id = ?")) {
+                ps.setInt(1, userId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getDouble(1) : -1;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Balance] 查询用户 {} 的余额失败: {}", userId, e.getMessage());
+            return -1;
+        }
+    }
+
+    // ================= 变动 =================
+
+    /**
+     * 充值
+     * @param userId 用户ID
+     * @param amount 金额（大于0，按分四舍五入）
+     * @return 是否成功
+     */
+    public boolean recharge(int userId, double amount) {
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            return false;
+        }
+        BigDecimal cents = BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP);
+        if (cents.signum() <= 0) {
+            return false;
+        }
+        String table;
+        try {
+            table = balanceTable(userId);
+        } catch (SQLException e) {
+            LOG.error("[Store][Balance] 查询用户 {} 的角色失败: {}", userId, e.getMessage());
+            return false;
+        }
+        if (table == null) {
+            return false;
+        }
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            int updated;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE " + table + " SET balance = balance + ? WHERE user_id = ?")) {
+                ps.setBigDecimal(1, cents);
+                ps.setInt(2, userId);
+                updated = ps.executeUpdate();
+            }
+            if (updated == 0) {
+                conn.rollback();
+                return false;
+            }
+            append(conn, table, userId, null, TYPE_RECHARGE, cents);
+            conn.commit();
+            LOG.debug("[Store][Balance] 用户 {} 充值 {}", userId, cents);
+            return true;
+        } catch (SQLException e) {
+            if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
+            LOG.error("[Store][Balance] 用户 {} 充值失败: {}", userId, e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
+            if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * 用余额支付订单：扣款、订单改为已支付、追加账本记录在同一事务中完成
+     * @param orderId 订单ID
+     * @param userId 用户ID（订单须属于该用户）
+     * @return 是否成功；订单不存在、不属于该用户、不是未支付状态或余额不足时返回false
+     */
+    public boolean pay(int orderId, int userId) {
+        String table;
+        try {
+            table = balanceTable(userId);
+        } catch (SQLException e) {
+            LOG.error("[Store][Balance] 查询用户 {} 的角色失败: {}", userId, e.getMessage());
+            return false;
+        }
+        if (table == null) {
+            return false;
+        }
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            int updated;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE orders o JOIN " + table + " b ON b.user_id = o.user_id "
+                    + "SET b.balance = b.balance - o.total_amount, o.status = 'paid' "
+                    + "WHERE o.order_id = ? AND o.user_id = ? AND o.status IN (" + InventoryReservations.UNPAID_STATUSES + ") "
+                    + "AND b.balance >= o.total_amount")) {
+                ps.setInt(1, orderId);
+                ps.setInt(2, userId);
+                updated = ps.executeUpdate();
+            }
+            if (updated == 0) {
+                conn.rollback();
+                LOG.debug("[Store][Balance] 用户 {} 支付订单 {} 失败: 余额不足或订单不可支付", userId, orderId);
+                return false;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO balance_transactions (user_id, order_id, type, amount, balance_after) "
+                    + "SELECT o.user_id, o.order_id, ?, -o.total_amount, b.balance FROM orders o "
+                    + "JOIN " + table + " b ON b.user_id = o.user_id WHERE o.order_id = ?")) {
+                ps.setString(1, TYPE_PAYMENT);
+                ps.setInt(2, orderId);
+                ps.executeUpdate();
+            }
+            conn.commit();
+            SalesAnalytics.orderPaid(orderId);
+            return true;
+        } catch (SQLException e) {
+            if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
+            LOG.error("[Store][Balance] 用户 {} 支付订单 {} 失败: {}", userId, orderId, e.getMessage());
+            return false;
+        } finally {
+            lock.unlock();
+            if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * 在调用方的事务中退还订单的余额支付（订单状态已由调用方改为取消之后调用；没有用余额支付时不做任何事）
+     * @param conn 事务中的连接
+     * @param orderId 订单ID
+     */
+    public void refund(Connection conn, int orderId) throws SQLException {
+        int userId;
+        BigDecimal paid;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT user_id, amount FROM balance_transactions WHERE order_id = ? AND type = ?")) {
+            ps.setInt(1, orderId);
+            ps.setString(2, TYPE_PAYMENT);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return;
+                }
+                userId = rs.getInt(1);
+                paid = rs.getBigDecimal(2).negate();
+            }
+        }
+        String table = balanceTable(userId);
+        if (table == null) {
+            throw new SQLException("用户 " + userId + " 没有余额账户，无法退款");
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE " + table + " SET balance = balance + ? WHERE user_id = ?")) {
+            ps.setBigDecimal(1, paid);
+            ps.setInt(2, userId);
+            ps.executeUpdate();
+        }
+        append(conn, table, userId, orderId, TYPE_REFUND, paid);
+        LOG.debug("[Store][Balance] 订单 {} 已取消，退还用户 {} 余额 {}", orderId, userId, paid);
+    }
+
+    /**
+     * 追加账本记录，变动后的余额取自同一事务中已加锁的余额行
+     */
+    private static void append(Connection conn, String table, int userId, Integer orderId, String type,
+                               BigDecimal amount) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO balance_transactions (user_id, order_id, type, amount, balance_after) "
+                + "SELECT user_id, ?, ?, ?, balance FROM " + table + " WHERE user_id = ?")) {
+            ps.setObject(1, orderId);
+            ps.setString(2, type);
+            ps.setBigDecimal(3, amount);
+            ps.setInt(4, userId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 用户余额所在的表（按用户缓存，角色不会改变）
+     * @return 表名；用户不存在或没有余额账户时返回null
+     */
+    private String balanceTable(int userId) throws SQLException {
+        String table = balanceTables.get(userId);
+        if (table != null) {
+            return table;
+        }
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT role FROM users WHERE user_id = ?")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                int role = rs.getInt(1);
+                table = role == 0 ? "students" : role == 1 ? "teachers" : null;
+            }
+        }
+        if (table != null) {
+            balanceTables.put(userId, table);
+        }
+        return table;
+    }
+}
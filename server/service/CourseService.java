@@ -3,6 +3,7 @@ package server.service;
 import common.vo.CourseVO;
 import server.dao.CourseDAO;
 import server.dao.impl.CourseDAOImpl;
+import server.util.Log;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,6 +13,8 @@ import java.util.List;
  * 处理课程相关的业务逻辑
  */
 public class CourseService {
+    private static final Log LOG = Log.get("course");
+
     private final CourseDAO courseDAO;
     
     public CourseService() {
@@ -104,7 +107,7 @@ public class CourseService {
         
         // 检查课程代码是否已存在
         if (courseDAO.existsByCourseCode(course.getCourseCode())) {
-            System.err.println("课程代码已存在: " + course.getCourseCode());
+            LOG.warn("课程代码已存在: {}", course.getCourseCode());
             return false;
         }
         
@@ -123,7 +126,11 @@ public class CourseService {
      */
     public boolean updateCourse(CourseVO course) {
         if (course == null || course.getCourseId() == null) return false;
-        return courseDAO.update(course);
+        if (!courseDAO.update(course)) return false;
+        EnrollmentEngine.courseChanged(course.getCourseId());
+        TimetableIndex.courseChanged(course.getCourseId());
+        StudentTimetableCache.courseChanged(course.getCourseId());
+        return true;
     }
     
     /**
@@ -133,7 +140,12 @@ public class CourseService {
      */
     public boolean deleteCourse(Integer courseId) {
         if (courseId == null) return false;
-        return courseDAO.deleteById(courseId);
+        if (!courseDAO.deleteById(courseId)) return false;
+        EnrollmentEngine.courseChanged(courseId);
+        TimetableIndex.courseChanged(courseId);
+        StudentTimetableCache.courseChanged(courseId);
+        GradeStatsEngine.courseChanged(courseId);
+        return true;
     }
     
     /**
@@ -0,0 +1,725 @@
+package server.service;
+
+import common.protocol.StatusCode;
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 选课引擎
+ * 选课高峰期大量学生同时抢少数热门课程，逐条"查询-判断-插入-更新人数"既会超卖名额，又会在 courses 行上排队。
+ * 引擎的做法：
+ * 1. 准入：每门课程一个内存原子计数器（启动时由数据库中的有效选课记录数初始化），学生-课程对的状态也在内存中，
+ *    判重和占名额都是一次 CAS，不访问数据库，名额不会超卖；
+ * 2. 持久化：被接受的选课请求进入队列，由一个写入线程成批提交——同一事务中按课程执行带容量条件的
+ *    enrolled_count 更新，再用一条多行 INSERT 写入选课记录；请求线程等待所在批次提交后返回。
+ *    队列空闲时一批只有一条，高峰期前一批提交期间到达的请求自然合并为下一批；
+ * 3. 批次失败（例如有记录被其他途径写入造成唯一键冲突）时回滚，改为逐条提交，只有出错的那条被拒绝，
+ *    被拒绝或写入失败的请求释放名额；
+ * 4. 启动时校正：按 enrollments 重新计算各课程的 enrolled_count，修正与实际记录数不一致的课程。
+ * 课程信息修改或删除后须调用 {@link #courseChanged(int)} 刷新容量。
+ */
+public class EnrollmentEngine {
+    private static final Log LOG = Log.get("course");
+
+    /** 计入课程容量的选课状态 */
+    private static final String ACTIVE_STATUSES = "'enrolled', 'completed'";
+    private static final String DEFAULT_SEMESTER = "2024-1";
+    private static final String DEFAULT_ACADEMIC_YEAR = "2024-2025";
+    private static final int MYSQL_DUPLICATE_KEY = 1062;
+
+    private static volatile EnrollmentEngine instance;
+
+    /**
+     * 选课结果
+     */
+    public enum Result {
+        SUCCESS(StatusCode.SUCCESS, "选课成功"),
+        COURSE_NOT_FOUND(StatusCode.NOT_FOUND, "课程不存在"),
+        STUDENT_NOT_FOUND(StatusCode.NOT_FOUND, "学生不存在"),
+        ALREADY_ENROLLED(StatusCode.ALREADY_ENROLLED, "已经选过该课程"),
+        COURSE_FULL(StatusCode.COURSE_FULL, "课程人数已满"),
+        SCHEDULE_CONFLICT(StatusCode.SCHEDULE_CONFLICT, "与已选课程的上课时间冲突"),
+        PENDING(StatusCode.SERVICE_UNAVAILABLE, "选课请求已受理，正在保存，请稍后刷新查看结果"),
+        FAILED(StatusCode.INTERNAL_ERROR, "选课失败");
+
+        private final int statusCode;
+        private final String message;
+
+        Result(int statusCode, String message) {
+            this.statusCode = statusCode;
+            this.message = message;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /** 学生-课程对的状态：PENDING 表示正在选课或退课，数据库尚未提交 */
+    private enum PairState { PENDING, ENROLLED, DROPPED }
+
+    private final int batchSize;
+    private final long waitMillis;
+    private final ConcurrentHashMap<Integer, Seats> courses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, PairState> pairs = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    // 写入批次与课程刷新互斥，刷新时数据库中的人数不包含正在提交的批次
+    private final Object writeLock = new Object();
+    private volatile boolean running = true;
+    private Thread writer;
+
+    private EnrollmentEngine() {
+        this.batchSize = Math.max(1, ConfigUtil.getInt("server.enrollment.batchSize", 500));
+        this.waitMillis = Math.max(100, ConfigUtil.getLong("server.enrollment.waitTimeout", 10_000L));
+    }
+
+    /**
+     * 获取引擎实例（第一次使用时校正并加载选课数据，启动写入线程）
+     * @return 引擎实例；未启用或加载失败时返回null，调用方按原流程直接访问数据库
+     */
+    public static EnrollmentEngine getInstance() {
+        EnrollmentEngine engine = instance;
+        if (engine != null) {
+            return engine;
+        }
+        synchronized (EnrollmentEngine.class) {
+            if (instance == null && ConfigUtil.getBoolean("server.enrollment.engine.enabled", true)) {
+                EnrollmentEngine created = new EnrollmentEngine();
+                try {
+                    created.load();
+                } catch (SQLException e) {
+                    LOG.error("[Course][Engine] 加载选课数据失败，暂时按原流程选课: {}", e.getMessage());
+                    return null;
+                }
+                created.start();
+                instance = created;
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * 停止写入线程，提交队列中剩余的请求（服务器停止时调用，须在关闭连接池之前）
+     */
+    public static synchronized void shutdown() {
+        EnrollmentEngine engine = instance;
+        if (engine != null) {
+            instance = null;
+            engine.running = false;
+            try {
+                engine.writer.join(30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 课程被修改或删除后刷新引擎中的容量和课程信息（引擎未启动时不做任何事）
+     * @param courseId 课程ID
+     */
+    public static void courseChanged(int courseId) {
+        EnrollmentEngine engine = instance;
+        if (engine != null) {
+            engine.reloadCourse(courseId);
+        }
+    }
+
+    private void start() {
+        writer = new Thread(this::writeLoop, "enrollment-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // ================= 选课与退课 =================
+
+    /**
+     * 学生选课
+     * 名额判断在内存中完成；被接受的请求等待所在批次写入数据库后返回
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     * @return 选课结果；等待写入超时返回 PENDING，请求仍会继续提交
+     */
+    public Result enroll(int studentId, int courseId) {
+        Seats seats = seatsOf(courseId);
+        if (seats == null) {
+            return Result.COURSE_NOT_FOUND;
+        }
+        long key = key(studentId, courseId);
+        PairState previous = pairs.putIfAbsent(key, PairState.PENDING);
+        boolean reenroll = false;
+        if (previous != null) {
+            if (previous != PairState.DROPPED || !pairs.replace(key, PairState.DROPPED, PairState.PENDING)) {
+                return Result.ALREADY_ENROLLED;
+            }
+            reenroll = true;
+        }
+        if (!seats.tryAcquire()) {
+            if (reenroll) {
+                pairs.put(key, PairState.DROPPED);
+            } else {
+                pairs.remove(key);
+            }
+            return Result.COURSE_FULL;
+        }
+        Request request = new Request(studentId, seats, reenroll);
+        queue.add(request);
+        return request.await(waitMillis);
+    }
+
+    /**
+     * 学生退课（只能退状态为已选课的课程），退课后立即释放名额
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     * @return 退课成功返回true；未选该课程、正在选课或退课失败返回false
+     */
+    public boolean drop(int studentId, int courseId) {
+        long key = key(studentId, courseId);
+        if (!pairs.replace(key, PairState.ENROLLED, PairState.PENDING)) {
+            return false;
+        }
+        boolean dropped = dropInDatabase(studentId, courseId);
+        if (dropped) {
+            Seats seats = courses.get(courseId);
+            if (seats != null) {
+                seats.release();
+            }
+            pairs.put(key, PairState.DROPPED);
+        } else {
+            pairs.put(key, PairState.ENROLLED);
+        }
+        return dropped;
+    }
+
+    /**
+     * 课程当前已占用的名额（包括已受理、尚未提交的选课）
+     * @param courseId 课程ID
+     * @return 已占用名额，课程不在引擎中返回-1
+     */
+    public int getTakenSeats(int courseId) {
+        Seats seats = courses.get(courseId);
+        return seats == null ? -1 : seats.taken.get();
+    }
+
+    /**
+     * 等待写入的请求数
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private boolean dropInDatabase(int studentId, int courseId) {
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            ps = conn.prepareStatement("UPDATE enrollments SET status = 'dropped', drop_time = NOW() "
+                    + "WHERE student_id = ? AND course_id = ? AND status = 'enrolled'");
+            ps.setInt(1, studentId);
+            ps.setInt(2, courseId);
+            if (ps.executeUpdate() == 0) {
+                conn.rollback();
+                return false;
+            }
+            ps.close();
+            ps = conn.prepareStatement(
+                    "UPDATE courses SET enrolled_count = enrolled_count - 1 WHERE course_id = ? AND enrolled_count > 0");
+            ps.setInt(1, courseId);
+            ps.executeUpdate();
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            LOG.error("[Course][Engine] 退课失败: studentId={}, courseId={}, {}", studentId, courseId, e.getMessage());
+            rollbackQuietly(conn);
+            return false;
+        } finally {
+            restoreAutoCommit(conn);
+            DatabaseUtil.closeAll(conn, ps, null);
+        }
+    }
+
+    private Seats seatsOf(int courseId) {
+        Seats seats = courses.get(courseId);
+        if (seats != null) {
+            return seats;
+        }
+        // 启动之后新建的课程，第一次选课时加载
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            CourseInfo info = queryCourse(conn, courseId);
+            if (info == null) {
+                return null;
+            }
+            Seats loaded = new Seats(courseId, info, countActive(conn, courseId));
+            Seats existing = courses.putIfAbsent(courseId, loaded);
+            return existing != null ? existing : loaded;
+        } catch (SQLException e) {
+            LOG.error("[Course][Engine] 加载课程失败: courseId={}, {}", courseId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void reloadCourse(int courseId) {
+        synchronized (writeLock) {
+            try (Connection conn = DatabaseUtil.getConnection()) {
+                CourseInfo info = queryCourse(conn, courseId);
+                if (info == null) {
+                    courses.remove(courseId);
+                    return;
+                }
+                // 修改课程时会连同客户端提交的 enrolled_count 一起写回，这里按实际记录数改正
+                try (PreparedStatement ps = conn.prepareStatement("UPDATE courses SET enrolled_count = "
+                        + "(SELECT COUNT(*) FROM enrollments WHERE course_id = ? AND status IN (" + ACTIVE_STATUSES + ")) "
+                        + "WHERE course_id = ?")) {
+                    ps.setInt(1, courseId);
+                    ps.setInt(2, courseId);
+                    ps.executeUpdate();
+                }
+                Seats seats = courses.get(courseId);
+                if (seats == null) {
+                    courses.putIfAbsent(courseId, new Seats(courseId, info, countActive(conn, courseId)));
+                } else {
+                    seats.info = info;
+                }
+            } catch (SQLException e) {
+                LOG.error("[Course][Engine] 刷新课程失败: courseId={}, {}", courseId, e.getMessage());
+            }
+        }
+    }
+
+    // ================= 启动加载与校正 =================
+
+    private void load() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseUtil.getConnection(); Statement st = conn.createStatement()) {
+            int fixed = st.executeUpdate("UPDATE courses c LEFT JOIN (SELECT course_id, COUNT(*) AS n FROM enrollments "
+                    + "WHERE status IN (" + ACTIVE_STATUSES + ") GROUP BY course_id) e ON e.course_id = c.course_id "
+                    + "SET c.enrolled_count = COALESCE(e.n, 0) "
+                    + "WHERE c.enrolled_count IS NULL OR c.enrolled_count <> COALESCE(e.n, 0)");
+            if (fixed > 0) {
+                LOG.warn("[Course][Engine] 已校正 {} 门课程的已选人数", fixed);
+            }
+
+            try (ResultSet rs = st.executeQuery("SELECT course_id, capacity, enrolled_count, semester, academic_year, "
+                    + "course_name, course_code, credits, teacher_name FROM courses")) {
+                while (rs.next()) {
+                    int courseId = rs.getInt("course_id");
+                    courses.put(courseId, new Seats(courseId, mapCourse(rs), rs.getInt("enrolled_count")));
+                }
+            }
+
+            st.setFetchSize(Integer.MIN_VALUE); // MySQL 驱动按行流式读取，选课记录很多时不占用大量内存
+            try (ResultSet rs = st.executeQuery("SELECT student_id, course_id, status FROM enrollments")) {
+                while (rs.next()) {
+                    String status = rs.getString(3);
+                    PairState state = "enrolled".equals(status) || "completed".equals(status)
+                            ? PairState.ENROLLED : PairState.DROPPED;
+                    // 同一学生在不同学期重修同一课程时，有一条有效记录即视为已选
+                    pairs.merge(key(rs.getInt(1), rs.getInt(2)), state,
+                            (a, b) -> a == PairState.ENROLLED ? a : b);
+                }
+            }
+        }
+        LOG.info("[Course][Engine] 选课引擎已启动: 课程数={}, 选课记录数={}, 耗时={}ms, batchSize={}",
+                courses.size(), pairs.size(), (System.nanoTime() - start) / 1_000_000, batchSize);
+    }
+
+    private static CourseInfo queryCourse(Connection conn, int courseId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT capacity, semester, academic_year, course_name, "
+                + "course_code, credits, teacher_name FROM courses WHERE course_id = ?")) {
+            ps.setInt(1, courseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapCourse(rs) : null;
+            }
+        }
+    }
+
+    private static int countActive(Connection conn, int courseId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM enrollments WHERE course_id = ? AND status IN (" + ACTIVE_STATUSES + ")")) {
+            ps.setInt(1, courseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static CourseInfo mapCourse(ResultSet rs) throws SQLException {
+        String semester = rs.getString("semester");
+        String academicYear = rs.getString("academic_year");
+        return new CourseInfo(rs.getInt("capacity"),
+                semester != null ? semester : DEFAULT_SEMESTER,
+                academicYear != null ? academicYear : DEFAULT_ACADEMIC_YEAR,
+                rs.getString("course_name"), rs.getString("course_code"), rs.getInt("credits"),
+                rs.getString("teacher_name"));
+    }
+
+    // ================= 批量写入 =================
+
+    private void writeLoop() {
+        List<Request> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            Request first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+            synchronized (writeLock) {
+                try {
+                    persist(batch);
+                } catch (RuntimeException e) {
+                    LOG.error("[Course][Engine] 写入选课记录异常: {}", e.getMessage(), e);
+                    for (Request r : batch) {
+                        if (!r.isDone()) {
+                            reject(r, Result.FAILED);
+                        }
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void persist(List<Request> batch) {
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            Map<Integer, String[]> students = loadStudents(conn, batch);
+            List<Request> valid = new ArrayList<>(batch.size());
+            for (Request r : batch) {
+                if (students.containsKey(r.studentId)) {
+                    valid.add(r);
+                } else {
+                    reject(r, Result.STUDENT_NOT_FOUND);
+                }
+            }
+            if (valid.isEmpty()) {
+                return;
+            }
+            conn.setAutoCommit(false);
+            try {
+                writeBatch(conn, valid, students);
+                conn.commit();
+                for (Request r : valid) {
+                    accept(r);
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("[Course][Engine] 已提交 {} 条选课记录", valid.size());
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                LOG.warn("[Course][Engine] 批量提交 {} 条选课记录失败，改为逐条提交: {}", valid.size(), e.getMessage());
+                for (Request r : valid) {
+                    persistOne(conn, r, students);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Course][Engine] 写入选课记录失败: {}", e.getMessage());
+            for (Request r : batch) {
+                if (!r.isDone()) {
+                    reject(r, Result.FAILED);
+                }
+            }
+        } finally {
+            restoreAutoCommit(conn);
+            DatabaseUtil.closeConnection(conn);
+        }
+    }
+
+    private void persistOne(Connection conn, Request r, Map<Integer, String[]> students) {
+        try {
+            writeBatch(conn, List.of(r), students);
+            conn.commit();
+            accept(r);
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            if (e instanceof CapacityException) {
+                LOG.warn("[Course][Engine] 课程 {} 的数据库人数已达容量，内存计数与数据库不一致", r.seats.courseId);
+                reject(r, Result.COURSE_FULL);
+            } else if (e.getErrorCode() == MYSQL_DUPLICATE_KEY || e instanceof AlreadyEnrolledException) {
+                // 记录已由其他途径写入，以数据库为准
+                r.seats.release();
+                pairs.put(key(r.studentId, r.seats.courseId), PairState.ENROLLED);
+                r.complete(Result.ALREADY_ENROLLED);
+            } else {
+                LOG.error("[Course][Engine] 写入选课记录失败: studentId={}, courseId={}, {}",
+                        r.studentId, r.seats.courseId, e.getMessage());
+                reject(r, Result.FAILED);
+            }
+        }
+    }
+
+    /**
+     * 在当前事务中写入一批选课：先按课程ID顺序做带容量条件的人数更新（固定加锁顺序，避免死锁），
+     * 再批量插入新记录、恢复曾退课的记录
+     */
+    private void writeBatch(Connection conn, List<Request> requests, Map<Integer, String[]> students) throws SQLException {
+        Map<Integer, Integer> perCourse = new TreeMap<>();
+        List<Request> inserts = new ArrayList<>(requests.size());
+        List<Request> reenrolls = new ArrayList<>();
+        for (Request r : requests) {
+            perCourse.merge(r.seats.courseId, 1, Integer::sum);
+            (r.reenroll ? reenrolls : inserts).add(r);
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE courses SET enrolled_count = enrolled_count + ? "
+                + "WHERE course_id = ? AND enrolled_count + ? <= capacity")) {
+            for (Map.Entry<Integer, Integer> e : perCourse.entrySet()) {
+                ps.setInt(1, e.getValue());
+                ps.setInt(2, e.getKey());
+                ps.setInt(3, e.getValue());
+                if (ps.executeUpdate() == 0) {
+                    throw new CapacityException(e.getKey());
+                }
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            StringBuilder sql = new StringBuilder("INSERT INTO enrollments (student_id, course_id, semester, academic_year, "
+                    + "enrollment_time, status, student_name, student_no, course_name, course_code, credits, teacher_name) VALUES ");
+            for (int i = 0; i < inserts.size(); i++) {
+                sql.append(i == 0 ? "" : ",").append("(?, ?, ?, ?, ?, 'enrolled', ?, ?, ?, ?, ?, ?)");
+            }
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int p = 1;
+                for (Request r : inserts) {
+                    CourseInfo course = r.seats.info;
+                    String[] student = students.get(r.studentId);
+                    ps.setInt(p++, r.studentId);
+                    ps.setInt(p++, r.seats.courseId);
+                    ps.setString(p++, course.semester);
+                    ps.setString(p++, course.academicYear);
+                    ps.setTimestamp(p++, new Timestamp(r.admittedAt));
+                    ps.setString(p++, student[0]);
+                    ps.setString(p++, student[1]);
+                    ps.setString(p++, course.courseName);
+                    ps.setString(p++, course.courseCode);
+                    ps.setInt(p++, course.credits);
+                    ps.setString(p++, course.teacherName);
+                }
+                ps.executeUpdate();
+            }
+        }
+
+        if (!reenrolls.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE enrollments SET status = 'enrolled', "
+                    + "enrollment_time = ?, drop_time = NULL, drop_reason = NULL "
+                    + "WHERE student_id = ? AND course_id = ? AND status = 'dropped'")) {
+                for (Request r : reenrolls) {
+                    ps.setTimestamp(1, new Timestamp(r.admittedAt));
+                    ps.setInt(2, r.studentId);
+                    ps.setInt(3, r.seats.courseId);
+                    ps.addBatch();
+                }
+                for (int affected : ps.executeBatch()) {
+                    if (affected == 0) {
+                        throw new AlreadyEnrolledException();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次查询批次中所有学生的姓名和学号（选课记录中的冗余字段），同时确认学生存在
+     */
+    private static Map<Integer, String[]> loadStudents(Connection conn, List<Request> batch) throws SQLException {
+        Set<Integer> idSet = new LinkedHashSet<>();
+        for (Request r : batch) {
+            idSet.add(r.studentId);
+        }
+        List<Integer> ids = new ArrayList<>(idSet);
+        Map<Integer, String[]> students = new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT student_id, name, student_no FROM students WHERE student_id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    students.put(rs.getInt(1), new String[]{rs.getString(2), rs.getString(3)});
+                }
+            }
+        }
+        return students;
+    }
+
+    private void accept(Request r) {
+        pairs.put(key(r.studentId, r.seats.courseId), PairState.ENROLLED);
+        r.complete(Result.SUCCESS);
+    }
+
+    private void reject(Request r, Result result) {
+        r.seats.release();
+        long key = key(r.studentId, r.seats.courseId);
+        if (r.reenroll) {
+            pairs.put(key, PairState.DROPPED);
+        } else {
+            pairs.remove(key);
+        }
+        r.complete(result);
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private static void restoreAutoCommit(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private static long key(int studentId, int courseId) {
+        return ((long) studentId << 32) | (courseId & 0xFFFFFFFFL);
+    }
+
+    // ================= 内部类型 =================
+
+    /**
+     * 课程的名额计数器和选课记录需要的课程信息
+     */
+    private static final class Seats {
+        final int courseId;
+        final AtomicInteger taken;
+        volatile CourseInfo info;
+
+        Seats(int courseId, CourseInfo info, int taken) {
+            this.courseId = courseId;
+            this.info = info;
+            this.taken = new AtomicInteger(taken);
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                int current = taken.get();
+                if (current >= info.capacity) {
+                    return false;
+                }
+                if (taken.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            taken.decrementAndGet();
+        }
+    }
+
+    private static final class CourseInfo {
+        final int capacity;
+        final String semester;
+        final String academicYear;
+        final String courseName;
+        final String courseCode;
+        final int credits;
+        final String teacherName;
+
+        CourseInfo(int capacity, String semester, String academicYear, String courseName, String courseCode,
+                   int credits, String teacherName) {
+            this.capacity = capacity;
+            this.semester = semester;
+            this.academicYear = academicYear;
+            this.courseName = courseName;
+            this.courseCode = courseCode;
+            this.credits = credits;
+            this.teacherName = teacherName;
+        }
+    }
+
+    private static final class Request {
+        final int studentId;
+        final Seats seats;
+        final boolean reenroll;
+        final long admittedAt = System.currentTimeMillis();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Result result;
+
+        Request(int studentId, Seats seats, boolean reenroll) {
+            this.studentId = studentId;
+            this.seats = seats;
+            this.reenroll = reenroll;
+        }
+
+        void complete(Result result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        Result await(long millis) {
+            try {
+                if (done.await(millis, TimeUnit.MILLISECONDS)) {
+                    return result;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Result.PENDING;
+        }
+    }
+
+    /** 数据库中的已选人数已达容量 */
+    private static final class CapacityException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        CapacityException(int courseId) {
+            super("课程已满: courseId=" + courseId);
+        }
+    }
+
+    /** 要恢复的退课记录已不是退课状态 */
+    private static final class AlreadyEnrolledException extends SQLException {
+        private static final long serialVersionUID = 1L;
+
+        AlreadyEnrolledException() {
+            super("选课记录已存在");
+        }
+    }
+}
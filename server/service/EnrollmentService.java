@@ -3,7 +3,9 @@ package server.service;
 import common.vo.EnrollmentVO;
 import server.dao.EnrollmentDAO;
 import server.dao.impl.EnrollmentDAOImpl;
+import server.util.Log;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -11,6 +13,8 @@ import java.util.List;
  * 处理选课记录相关的业务逻辑
  */
 public class EnrollmentService {
+    private static final Log LOG = Log.get("course");
+
     private final EnrollmentDAO enrollmentDAO;
     
     public EnrollmentService() {
@@ -127,7 +131,10 @@ public class EnrollmentService {
      */
     public boolean updateGrade(Integer studentId, Integer courseId, Double grade) {
         if (studentId == null || courseId == null || grade == null) return false;
-        return enrollmentDAO.updateGrade(studentId, courseId, grade);
+        if (grade < 0 || grade > 100) return false;
+        if (!enrollmentDAO.updateGrade(studentId, courseId, grade)) return false;
+        GradeStatsEngine.gradeChanged(studentId, courseId);
+        return true;
     }
     
     /**
@@ -139,7 +146,10 @@ public class EnrollmentService {
      */
     public boolean updateStatus(Integer studentId, Integer courseId, Integer status) {
         if (studentId == null || courseId == null || status == null) return false;
-        return enrollmentDAO.updateStatus(studentId, courseId, status);
+        if (!enrollmentDAO.updateStatus(studentId, courseId, status)) return false;
+        TimetableIndex.studentChanged(studentId);
+        StudentTimetableCache.studentChanged(studentId);
+        return true;
     }
     
     /**
@@ -150,7 +160,16 @@ public class EnrollmentService {
      */
     public boolean dropCourse(Integer studentId, Integer courseId) {
         if (studentId == null || courseId == null) return false;
-        return enrollmentDAO.dropCourse(studentId, courseId);
+        EnrollmentEngine engine = EnrollmentEngine.getInstance();
+        boolean dropped = engine != null ? engine.drop(studentId, courseId) : enrollmentDAO.dropCourse(studentId, courseId);
+        TimetableIndex timetable = TimetableIndex.getInstance();
+        if (dropped) {
+            if (timetable != null) {
+                timetable.release(studentId, courseId);
+            }
+            StudentTimetableCache.dropped(studentId, courseId);
+        }
+        return dropped;
     }
     
     /**
@@ -180,12 +199,62 @@ public class EnrollmentService {
      * @return 选课成功返回true，失败返回false
      */
     public boolean enrollCourse(Integer studentId, Integer courseId) {
-        if (studentId == null || courseId == null) return false;
+        return enroll(studentId, courseId) == EnrollmentEngine.Result.SUCCESS;
+    }
+    
+    /**
+     * 学生选课，返回具体结果
+     * 先检查与已选课程的上课时间冲突并占用上课时间（选课失败时释放），
+     * 再由选课引擎在内存中判断名额并批量写入数据库；引擎未启用或不可用时按原流程逐条查询和插入
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     * @return 选课结果
+     */
+    public EnrollmentEngine.Result enroll(Integer studentId, Integer courseId) {
+        if (studentId == null || courseId == null) return EnrollmentEngine.Result.FAILED;
+        
+        TimetableIndex timetable = TimetableIndex.getInstance();
+        if (timetable != null) {
+            Integer conflict = timetable.reserve(studentId, courseId);
+            if (conflict != null) {
+                LOG.debug("学生 {} 选课程 {} 与已选课程 {} 时间冲突", studentId, courseId, conflict);
+                return EnrollmentEngine.Result.SCHEDULE_CONFLICT;
+            }
+        }
         
+        EnrollmentEngine engine = EnrollmentEngine.getInstance();
+        EnrollmentEngine.Result result = engine != null ? engine.enroll(studentId, courseId) : enrollDirectly(studentId, courseId);
+        if (result == EnrollmentEngine.Result.SUCCESS || result == EnrollmentEngine.Result.PENDING) {
+            StudentTimetableCache.enrolled(studentId, courseId);
+        } else if (timetable != null && result != EnrollmentEngine.Result.ALREADY_ENROLLED) {
+            // 已受理（仍在写入）和已选过的课程保持占用，其余失败释放
+            timetable.release(studentId, courseId);
+        }
+        return result;
+    }
+    
+    /**
+     * 从候选课程中找出与学生已选课程上课时间不冲突的课程
+     * @param studentId 学生ID
+     * @param candidates 候选课程ID，为null时检查所有有上课安排的课程
+     * @return 不冲突的课程ID；课表索引不可用时原样返回候选课程
+     */
+    public List<Integer> findNonConflictingCourses(Integer studentId, List<Integer> candidates) {
+        TimetableIndex timetable = TimetableIndex.getInstance();
+        if (studentId == null || timetable == null) {
+            return candidates != null ? candidates : new ArrayList<>();
+        }
+        return timetable.findNonConflicting(studentId, candidates);
+    }
+    
+    /**
+     * 不经过选课引擎直接选课（名额检查与插入之间没有加锁，并发时可能超出容量）
+     */
+    private EnrollmentEngine.Result enrollDirectly(Integer studentId, Integer courseId) {
         // 检查是否已经选过这门课
         if (isEnrolled(studentId, courseId)) {
-            System.out.println("学生 " + studentId + " 已经选过课程 " + courseId);
-            return false;
+            LOG.debug("学生 {} 已经选过课程 {}", studentId, courseId);
+            return EnrollmentEngine.Result.ALREADY_ENROLLED;
         }
         
         try {
@@ -193,16 +262,19 @@ public class EnrollmentService {
             server.dao.CourseDAO courseDAO = new server.dao.impl.CourseDAOImpl();
             common.vo.CourseVO course = courseDAO.findById(courseId);
             if (course == null) {
-                System.out.println("课程不存在: " + courseId);
-                return false;
+                LOG.debug("课程不存在: {}", courseId);
+                return EnrollmentEngine.Result.COURSE_NOT_FOUND;
+            }
+            if (course.isFull()) {
+                return EnrollmentEngine.Result.COURSE_FULL;
             }
             
             // 获取学生信息
             server.dao.StudentDAO studentDAO = new server.dao.impl.StudentDAOImpl();
             common.vo.StudentVO student = studentDAO.findById(studentId);
             if (student == null) {
-                System.out.println("学生不存在: " + studentId);
-                return false;
+                LOG.debug("学生不存在: {}", studentId);
+                return EnrollmentEngine.Result.STUDENT_NOT_FOUND;
             }
             
             // 创建选课记录
@@ -227,16 +299,15 @@ public class EnrollmentService {
             // 插入选课记录
             Integer enrollmentId = enrollmentDAO.insert(enrollment);
             if (enrollmentId != null) {
-                System.out.println("选课记录创建成功，ID: " + enrollmentId);
-                return true;
+                LOG.info("选课记录创建成功，ID: {}", enrollmentId);
+                return EnrollmentEngine.Result.SUCCESS;
             } else {
-                System.out.println("选课记录创建失败");
-                return false;
+                LOG.debug("选课记录创建失败");
+                return EnrollmentEngine.Result.FAILED;
             }
         } catch (Exception e) {
-            System.err.println("选课过程中发生异常: " + e.getMessage());
-            e.printStackTrace();
-            return false;
+            LOG.error("选课过程中发生异常: {}", e.getMessage(), e);
+            return EnrollmentEngine.Result.FAILED;
         }
     }
 }
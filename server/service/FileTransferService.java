@@ -0,0 +1,392 @@
+package server.service;
+
+import common.vo.DocumentVO;
+import common.vo.FileChunkVO;
+import common.vo.FileTransferVO;
+import server.dao.impl.LibraryServiceImpl;
+import server.util.ConfigUtil;
+import server.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * 文献分块传输服务
+ * 每个客户端连接一个实例，保存该连接上打开的下载/上传会话，连接断开时调用 close 释放文件句柄。
+ *
+ * 下载：openDownload 返回文件大小、分块大小和整个文件的 CRC32C；之后客户端按偏移量请求分块，
+ * 服务器用 FileChannel 按位置读取，每个分块只占用一个分块大小的内存，分块之间没有顺序要求，
+ * 客户端可以同时请求多个分块，也可以从任意偏移量继续（断点续传）。
+ *
+ * 上传：数据先写入临时目录中的 .part 文件，文件名由上传者、文件大小和校验和决定，
+ * 同一个文件重新上传时从已有的 .part 文件末尾继续。分块必须按顺序发送，
+ * 最后一个分块写入后校验整个文件，通过后移动到文献存储位置并插入文献记录。
+ *
+ * 配置：server.file.chunkSize（分块大小，默认256KB），file.max.size（上传大小上限），
+ * file.upload.path（上传临时目录的父目录）。
+ */
+public class FileTransferService {
+    private static final Log LOG = Log.get("library");
+
+    private static final int MIN_CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_OPEN_DOWNLOADS = 8;            // 每个连接同时打开的下载会话
+    private static final long PART_EXPIRE_MILLIS = 24 * 3600_000L; // 超过一天未续传的临时文件会被清理
+    private static final int CHECKSUM_CACHE_SIZE = 256;
+
+    // 文件路径 -> 校验和，文件大小或修改时间变化后失效
+    private static final Map<String, long[]> CHECKSUM_CACHE = new LinkedHashMap<String, long[]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > CHECKSUM_CACHE_SIZE;
+        }
+    };
+    private static volatile long lastPartSweep;
+
+    private final LibraryService libraryService;
+    private final int chunkSize;
+    private final long maxUploadSize;
+    private final Path uploadDir;
+    private final Map<String, Download> downloads = new LinkedHashMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+
+    public FileTransferService() {
+        this(new LibraryServiceImpl());
+    }
+
+    public FileTransferService(LibraryService libraryService) {
+        this.libraryService = libraryService;
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE,
+                ConfigUtil.getInt("server.file.chunkSize", 256 * 1024)));
+        this.maxUploadSize = ConfigUtil.getLong("file.max.size", 1L << 30);
+        this.uploadDir = Paths.get(ConfigUtil.getString("file.upload.path", "uploads/"), ".partial");
+    }
+
+    // ---------- 下载 ----------
+
+    /**
+     * 打开文献下载会话
+     * @param docId 文献ID
+     * @return 会话信息（文件大小、分块大小、整个文件的校验和）
+     * @throws FileNotFoundException 文献或文件不存在
+     */
+    public FileTransferVO openDownload(int docId) throws IOException {
+        File file = libraryService.getDocumentFile(docId);
+        if (file == null) {
+            throw new FileNotFoundException("文献文件不存在: " + docId);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            long lastModified = file.lastModified();
+            Download download = new Download(channel, size);
+
+            FileTransferVO ready = new FileTransferVO();
+            ready.setTransferId(UUID.randomUUID().toString());
+            ready.setDocId(docId);
+            ready.setFileName(file.getName());
+            ready.setFileSize(size);
+            ready.setChunkSize(chunkSize);
+            ready.setLastModified(lastModified);
+            ready.setChecksum(checksumOf(file.getAbsolutePath(), channel, size, lastModified));
+
+            synchronized (downloads) {
+                downloads.put(ready.getTransferId(), download);
+                // 客户端放弃的下载不会通知服务器，超出数量时关闭最早打开的会话
+                Iterator<Download> it = downloads.values().iterator();
+                while (downloads.size() > MAX_OPEN_DOWNLOADS && it.hasNext()) {
+                    closeQuietly(it.next().channel);
+                    it.remove();
+                }
+            }
+            return ready;
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * 读取一个下载分块，可以并发调用
+     * @param request transferId、offset、length（length 不超过分块大小）
+     * @return 分块数据和校验和，读到文件末尾时 data 可能短于 length
+     * @throws IllegalArgumentException 会话不存在或参数越界
+     */
+    public FileChunkVO readChunk(FileChunkVO request) throws IOException {
+        Download download;
+        synchronized (downloads) {
+            download = downloads.get(request.getTransferId());
+        }
+        if (download == null) {
+            throw new IllegalArgumentException("下载会话不存在或已过期");
+        }
+        long offset = request.getOffset();
+        if (offset < 0 || offset > download.size || request.getLength() <= 0 || request.getLength() > chunkSize) {
+            throw new IllegalArgumentException("分块范围无效: offset=" + offset + ", length=" + request.getLength());
+        }
+        int length = (int) Math.min(request.getLength(), download.size - offset);
+        byte[] data = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        // 按位置读取不改变通道的当前位置，多个分块可以同时读
+        while (buffer.hasRemaining()) {
+            if (download.channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("文件在下载过程中被截断");
+            }
+        }
+        FileChunkVO chunk = new FileChunkVO(request.getTransferId(), offset, length);
+        chunk.setData(data);
+        chunk.setChecksum(crc32c(data, 0, length));
+        return chunk;
+    }
+
+    // ---------- 上传 ----------
+
+    /**
+     * 打开上传会话，已有同一文件的临时文件时从其末尾继续
+     * @param request 文件大小、整个文件的校验和和文献信息
+     * @param uploaderId 上传者ID（当前登录用户）
+     * @return 会话ID、分块大小和应从哪个偏移量继续发送
+     * @throws IllegalArgumentException 参数无效或文件超过大小上限
+     */
+    public FileTransferVO openUpload(FileTransferVO request, int uploaderId) throws IOException {
+        DocumentVO doc = request.getDocument();
+        if (doc == null || doc.getTitle() == null || doc.getTitle().trim().isEmpty()) {
+            throw new IllegalArgumentException("缺少文献信息");
+        }
+        long size = request.getFileSize();
+        if (size < 0 || size > maxUploadSize) {
+            throw new IllegalArgumentException("文件大小超出限制: " + size + " > " + maxUploadSize);
+        }
+        Files.createDirectories(uploadDir);
+        sweepExpiredParts();
+
+        String transferId = uploaderId + "_" + size + "_" + Long.toHexString(request.getChecksum());
+        Path part = uploadDir.resolve(transferId + ".part");
+        Upload upload = uploads.get(transferId);
+        if (upload != null) {
+            synchronized (upload) {
+                closeQuietly(upload.channel);
+            }
+        }
+        FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long offset = channel.size();
+        if (offset > size) {
+            channel.truncate(0);
+            offset = 0;
+        }
+        doc.setUploaderId(uploaderId);
+        doc.setFileSize(size);
+        upload = new Upload(part, channel, size, request.getChecksum(), doc, offset);
+        uploads.put(transferId, upload);
+
+        FileTransferVO ready = new FileTransferVO();
+        ready.setTransferId(transferId);
+        ready.setFileName(request.getFileName());
+        ready.setFileSize(size);
+        ready.setChunkSize(chunkSize);
+        ready.setOffset(offset);
+        ready.setChecksum(request.getChecksum());
+        if (offset > 0) {
+            LOG.debug("[File][Transfer] 续传上传: {}, 已接收 {}/{}", transferId, offset, size);
+        }
+        return ready;
+    }
+
+    /**
+     * 写入一个上传分块，分块必须按顺序到达
+     * @param chunk transferId、offset、data、checksum
+     * @param uploaderId 当前登录用户，须与打开上传会话的用户相同
+     * @return 未完成时返回null，调用方用 chunk 的新 offset 确认；全部写入并校验通过后返回新文献ID
+     * @throws IllegalArgumentException 会话不存在或不属于该用户、偏移量不连续或分块校验失败（客户端可从确认的偏移量重发）
+     * @throws IOException 写入失败、整个文件校验失败或保存文献失败
+     */
+    public Integer writeChunk(FileChunkVO chunk, int uploaderId) throws IOException {
+        Upload upload = chunk.getTransferId() != null ? uploads.get(chunk.getTransferId()) : null;
+        // 会话ID由上传者、文件大小和校验和组成，可以被猜到，须核对上传者
+        if (upload == null || upload.document.getUploaderId() != uploaderId) {
+            throw new IllegalArgumentException("上传会话不存在或已过期");
+        }
+        synchronized (upload) {
+            byte[] data = chunk.getData() != null ? chunk.getData() : new byte[0];
+            if (chunk.getOffset() != upload.position) {
+                throw new IllegalArgumentException("分块偏移量不连续: 期望 " + upload.position + ", 收到 " + chunk.getOffset());
+            }
+            // 空分块只用于在数据已经全部收到时（例如上次保存失败后重新上传）触发校验和保存
+            if (data.length > chunkSize || upload.position + data.length > upload.size
+                    || (data.length == 0 && upload.position < upload.size)) {
+                throw new IllegalArgumentException("分块大小无效: " + data.length);
+            }
+            if (crc32c(data, 0, data.length) != chunk.getChecksum()) {
+                throw new IllegalArgumentException("分块校验失败: offset=" + chunk.getOffset());
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                upload.channel.write(buffer, upload.position + buffer.position());
+            }
+            upload.position += data.length;
+            chunk.setOffset(upload.position);
+            if (upload.position < upload.size) {
+                return null;
+            }
+            return finishUpload(chunk.getTransferId(), upload);
+        }
+    }
+
+    private Integer finishUpload(String transferId, Upload upload) throws IOException {
+        uploads.remove(transferId);
+        try {
+            upload.channel.force(false);
+            long checksum = checksumOf(upload.channel, upload.size);
+            if (checksum != upload.checksum) {
+                throw new IOException("文件校验失败，请重新上传");
+            }
+        } catch (IOException e) {
+            closeQuietly(upload.channel);
+            Files.deleteIfExists(upload.part);
+            throw e;
+        }
+        closeQuietly(upload.channel);
+        Integer docId = libraryService.importDocument(upload.document, upload.part);
+        if (docId == null) {
+            // 临时文件保留，客户端重新上传时直接进入校验和保存
+            throw new IOException("保存文献失败");
+        }
+        LOG.info("[File][Transfer] 上传完成: 文献ID={}, 大小={}", docId, upload.size);
+        return docId;
+    }
+
+    // ---------- 公共 ----------
+
+    /**
+     * 关闭本连接的所有会话（上传的临时文件保留用于续传）
+     */
+    public void close() {
+        synchronized (downloads) {
+            for (Download download : downloads.values()) {
+                closeQuietly(download.channel);
+            }
+            downloads.clear();
+        }
+        for (Upload upload : uploads.values()) {
+            synchronized (upload) {
+                closeQuietly(upload.channel);
+            }
+        }
+        uploads.clear();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    private static long checksumOf(String path, FileChannel channel, long size, long lastModified) throws IOException {
+        synchronized (CHECKSUM_CACHE) {
+            long[] cached = CHECKSUM_CACHE.get(path);
+            if (cached != null && cached[0] == size && cached[1] == lastModified) {
+                return cached[2];
+            }
+        }
+        long checksum = checksumOf(channel, size);
+        synchronized (CHECKSUM_CACHE) {
+            CHECKSUM_CACHE.put(path, new long[]{size, lastModified, checksum});
+        }
+        return checksum;
+    }
+
+    /**
+     * 用固定大小的直接缓冲区顺序计算整个文件的 CRC32C
+     */
+    private static long checksumOf(FileChannel channel, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            position += n;
+        }
+        return crc.getValue();
+    }
+
+    private static long crc32c(byte[] data, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    /**
+     * 清理过期的上传临时文件，最多每小时执行一次
+     */
+    private void sweepExpiredParts() {
+        long now = System.currentTimeMillis();
+        if (now - lastPartSweep < 3600_000L) {
+            return;
+        }
+        lastPartSweep = now;
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(uploadDir, "*.part")) {
+            for (Path part : parts) {
+                if (now - Files.getLastModifiedTime(part).toMillis() > PART_EXPIRE_MILLIS) {
+                    Files.deleteIfExists(part);
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("[File][Transfer] 清理上传临时文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("[File][Transfer] 关闭文件失败: {}", e.getMessage());
+        }
+    }
+
+    private static final class Download {
+        final FileChannel channel;
+        final long size;
+
+        Download(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    private static final class Upload {
+        final Path part;
+        final FileChannel channel;
+        final long size;
+        final long checksum;
+        final DocumentVO document;
+        long position;
+
+        Upload(Path part, FileChannel channel, long size, long checksum, DocumentVO document, long position) {
+            this.part = part;
+            this.channel = channel;
+            this.size = size;
+            this.checksum = checksum;
+            this.document = document;
+            this.position = position;
+        }
+    }
+}
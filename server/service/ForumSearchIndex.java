@@ -0,0 +1,852 @@
+package server.service;
+
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 论坛全文检索索引
+ * 进程内的倒排索引，每个主题（标题 + 正文）和每条回复各为一个文档：
+ * 1. 分词：连续的汉字、假名、谚文按相邻两字切分（单独一个字时保留单字），字母和数字按单词切分并转为小写；
+ * 2. 检索：文档须包含查询的全部词，按 BM25 打分，主题得分 = 主题文档得分 + 命中回复的最高得分 × 0.5；
+ * 3. 更新：新建主题、新建/修改/删除回复、删除主题时增量更新；
+ * 4. 持久化：定期（server.forum.search.snapshotInterval）和服务器停止时写入快照文件，
+ *    启动时加载快照后只补建快照之后新增的主题和回复。
+ * 索引在后台线程中加载，加载完成前 search 返回 null，由调用方退回数据库搜索。
+ */
+public class ForumSearchIndex {
+    private static final Log LOG = Log.get("forum");
+
+    private static final int SNAPSHOT_MAGIC = 0x56435349; // "VCSI"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final byte TYPE_THREAD = 0;
+    private static final byte TYPE_POST = 1;
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int TITLE_WEIGHT = 2;      // 标题中的词按出现两次计
+    private static final float POST_WEIGHT = 0.5f;  // 回复命中对主题得分的贡献
+    private static final int MAX_WORD_LENGTH = 32;
+
+    private static ForumSearchIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Path snapshotPath;
+    private Index index;                          // 加载完成前为null
+    private List<Consumer<Index>> pendingOps;     // 加载期间的增量更新，加载完成后重放
+    private boolean dirty;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 创建只在内存中的空索引（不加载数据库、不写快照），用于对比测试
+     */
+    ForumSearchIndex() {
+        this.snapshotPath = null;
+        this.index = new Index();
+    }
+
+    private ForumSearchIndex(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        this.pendingOps = new ArrayList<>();
+    }
+
+    /**
+     * 获取索引实例（第一次使用时在后台加载快照或从数据库建立索引）
+     * @return 索引实例
+     */
+    public static synchronized ForumSearchIndex getInstance() {
+        if (instance == null) {
+            if (!ConfigUtil.getBoolean("server.forum.search.enabled", true)) {
+                // 未启用：始终未就绪，搜索走数据库
+                instance = new ForumSearchIndex(null);
+                instance.pendingOps = null;
+                return instance;
+            }
+            instance = new ForumSearchIndex(Paths.get(
+                    ConfigUtil.getString("server.forum.search.snapshot", "data/forum_search.idx")));
+            instance.start(Math.max(10_000L, ConfigUtil.getLong("server.forum.search.snapshotInterval", 600_000L)));
+        }
+        return instance;
+    }
+
+    /**
+     * 停止后台线程并写入快照（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            if (instance.scheduler != null) {
+                instance.scheduler.shutdownNow();
+            }
+            instance.saveSnapshot();
+            instance = null;
+        }
+    }
+
+    private void start(long snapshotInterval) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "forum-search-index");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::load);
+        scheduler.scheduleWithFixedDelay(this::saveSnapshot, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 索引是否已加载完成
+     * @return true表示 search 的结果可以直接使用
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ================= 检索 =================
+
+    /**
+     * 搜索主题
+     * @param keyword 关键词
+     * @param limit 最多返回的主题数
+     * @return 按相关度从高到低排列的主题ID，索引未就绪返回null
+     */
+    public List<Integer> search(String keyword, int limit) {
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return null;
+            }
+            return index.search(keyword, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ================= 增量更新 =================
+
+    /**
+     * 索引新建的主题
+     * @param threadId 主题ID
+     * @param title 标题
+     * @param content 正文
+     */
+    public void addThread(int threadId, String title, String content) {
+        apply(idx -> idx.put(TYPE_THREAD, threadId, threadId, title, content));
+    }
+
+    /**
+     * 主题被删除：主题及其回复不再出现在搜索结果中
+     * @param threadId 主题ID
+     */
+    public void removeThread(int threadId) {
+        apply(idx -> idx.removeThread(threadId));
+    }
+
+    /**
+     * 索引新建或修改后的回复
+     * @param postId 回复ID
+     * @param threadId 所属主题ID
+     * @param content 内容
+     */
+    public void addPost(int postId, int threadId, String content) {
+        apply(idx -> idx.put(TYPE_POST, postId, threadId, null, content));
+    }
+
+    /**
+     * 回复被删除
+     * @param postId 回复ID
+     */
+    public void removePost(int postId) {
+        apply(idx -> idx.remove(TYPE_POST, postId));
+    }
+
+    private void apply(Consumer<Index> op) {
+        lock.writeLock().lock();
+        try {
+            if (index != null) {
+                op.accept(index);
+                dirty = true;
+            } else if (pendingOps != null) {
+                pendingOps.add(op);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ================= 加载与快照 =================
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        Index loaded = null;
+        if (Files.isRegularFile(snapshotPath)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath), 1 << 16))) {
+                loaded = Index.read(in);
+                LOG.info("[Forum][Search] 已加载索引快照: {}, 文档数={}", snapshotPath, loaded.liveDocs);
+            } catch (IOException e) {
+                LOG.warn("[Forum][Search] 索引快照无效，重新建立索引: {}", e.getMessage());
+            }
+        }
+        boolean rebuilt = loaded == null;
+        if (rebuilt) {
+            loaded = new Index();
+        }
+        int before = loaded.liveDocs;
+        try {
+            indexThreads(loaded, loaded.maxThreadId);
+            indexPosts(loaded, loaded.maxPostId);
+        } catch (SQLException e) {
+            LOG.error("[Forum][Search] 从数据库建立索引失败，1 分钟后重试: {}", e.getMessage());
+            scheduler.schedule(this::load, 1, TimeUnit.MINUTES);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            index = loaded;
+            for (Consumer<Index> op : pendingOps) {
+                op.accept(index);
+            }
+            dirty = rebuilt || loaded.liveDocs != before || !pendingOps.isEmpty();
+            pendingOps = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info("[Forum][Search] 索引就绪: 文档数={}, 词数={}, 新增文档={}, 耗时={}ms", loaded.liveDocs, loaded.terms.size(), (loaded.liveDocs - before), (System.currentTimeMillis() - start));
+    }
+
+    private void indexThreads(Index idx, int afterId) throws SQLException {
+        String sql = "SELECT thread_id, title, content FROM forum_threads WHERE status = 1 AND thread_id > ? ORDER BY thread_id";
+        Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE); // MySQL 驱动逐行读取，不把整张表读入内存
+            ps.setInt(1, afterId);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                int threadId = rs.getInt(1);
+                idx.put(TYPE_THREAD, threadId, threadId, rs.getString(2), rs.getString(3));
+            }
+        } finally {
+            DatabaseUtil.closeAll(conn, ps, rs);
+        }
+    }
+
+    private void indexPosts(Index idx, int afterId) throws SQLException {
+        String sql = "SELECT p.post_id, p.thread_id, p.content FROM forum_posts p " +
+                "JOIN forum_threads t ON t.thread_id = p.thread_id " +
+                "WHERE p.status = 1 AND t.status = 1 AND p.post_id > ? ORDER BY p.post_id";
+        Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setInt(1, afterId);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                idx.put(TYPE_POST, rs.getInt(1), rs.getInt(2), null, rs.getString(3));
+            }
+        } finally {
+            DatabaseUtil.closeAll(conn, ps, rs);
+        }
+    }
+
+    /**
+     * 有未保存的变化时写入快照（写入期间检索不受影响，增量更新等待写入完成）
+     */
+    void saveSnapshot() {
+        if (snapshotPath == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (index == null || !dirty) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            writeSnapshot(snapshotPath);
+            dirty = false;
+            LOG.info("[Forum][Search] 已写入索引快照: {}, 耗时={}ms", snapshotPath, (System.currentTimeMillis() - start));
+        } catch (IOException e) {
+            LOG.error("[Forum][Search] 写入索引快照失败: {}", e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 把当前索引写入快照文件（先写临时文件再替换）
+     * @param target 快照文件
+     * @throws IOException 写入失败
+     */
+    void writeSnapshot(Path target) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path dir = target.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                index.write(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从快照文件创建只在内存中的索引，用于对比测试
+     * @param source 快照文件
+     * @return 索引
+     * @throws IOException 读取失败或格式不匹配
+     */
+    static ForumSearchIndex readSnapshot(Path source) throws IOException {
+        ForumSearchIndex result = new ForumSearchIndex();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source), 1 << 16))) {
+            result.index = Index.read(in);
+        }
+        return result;
+    }
+
+    // ================= 分词 =================
+
+    /**
+     * 分词：连续的 CJK 字符切分为相邻两字（单独一个字时保留单字），字母和数字按单词切分并转为小写
+     * @param text 文本
+     * @return 词列表（可能重复）
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < n && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < n && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start <= MAX_WORD_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase());
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    // ================= 索引结构 =================
+
+    /**
+     * 倒排表：文档号递增排列（更新文档时分配新文档号，旧文档号标记删除），词频最多记 127
+     */
+    private static final class Postings {
+        int[] docs;
+        byte[] tfs;
+        int size;
+
+        Postings(int capacity) {
+            docs = new int[capacity];
+            tfs = new byte[capacity];
+        }
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                int capacity = size + (size >> 1) + 1;
+                docs = Arrays.copyOf(docs, capacity);
+                tfs = Arrays.copyOf(tfs, capacity);
+            }
+            docs[size] = doc;
+            tfs[size] = (byte) Math.min(tf, 127);
+            size++;
+        }
+
+        /**
+         * 从 from 开始查找第一个文档号 >= doc 的位置
+         */
+        int seek(int doc, int from) {
+            // 先按步长倍增找到区间再二分，相邻查找的文档号通常很接近
+            int lo = from;
+            int step = 1;
+            while (lo < size && docs[lo] < doc) {
+                from = lo;
+                lo += step;
+                step <<= 1;
+            }
+            int hi = Math.min(lo, size - 1);
+            lo = from;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (docs[mid] < doc) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    private static final class Hit {
+        final int threadId;
+        final float score;
+
+        Hit(int threadId, float score) {
+            this.threadId = threadId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 按主题累计得分，避免装箱。命中的主题较多时直接按主题ID下标存放，
+     * 否则用开放寻址表（主题ID从1开始，0表示空槽）。每个槽位存 [主题文档得分, 回复最高得分]
+     */
+    private static final class ThreadScores {
+        final int[] keys;    // 按下标存放时为null
+        final float[] scores;
+        private final int mask;
+
+        ThreadScores(int expected, int maxThreadId) {
+            if (expected * 4L >= maxThreadId) {
+                keys = null;
+                scores = new float[(maxThreadId + 1) * 2];
+                mask = 0;
+            } else {
+                int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+                keys = new int[capacity];
+                scores = new float[capacity * 2];
+                mask = capacity - 1;
+            }
+        }
+
+        void add(int threadId, boolean threadDoc, float score) {
+            int slot = threadId;
+            if (keys != null) {
+                slot = (threadId * 0x9E3779B9) >>> 1 & mask;
+                while (keys[slot] != 0 && keys[slot] != threadId) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = threadId;
+            }
+            if (threadDoc) {
+                scores[slot * 2] = score;
+            } else if (score > scores[slot * 2 + 1]) {
+                scores[slot * 2 + 1] = score;
+            }
+        }
+
+        int slots() {
+            return scores.length / 2;
+        }
+
+        /**
+         * @return 槽位对应的主题ID，空槽返回0（BM25得分总是大于0）
+         */
+        int threadAt(int slot) {
+            if (keys != null) {
+                return keys[slot];
+            }
+            return scores[slot * 2] > 0 || scores[slot * 2 + 1] > 0 ? slot : 0;
+        }
+
+        float total(int slot) {
+            return scores[slot * 2] + POST_WEIGHT * scores[slot * 2 + 1];
+        }
+    }
+
+    private static final class Index {
+        byte[] docType = new byte[1024];
+        int[] docEntity = new int[1024];
+        int[] docThread = new int[1024];
+        int[] docLen = new int[1024];
+        int docCount;
+        final BitSet deleted = new BitSet();
+        int liveDocs;
+        long totalLen;
+        final HashMap<String, Postings> terms = new HashMap<>();
+        final HashMap<Character, List<Postings>> charTerms = new HashMap<>(); // 汉字 -> 包含该字的词的倒排表
+        final HashMap<Long, Integer> entityDocs = new HashMap<>();
+        final Set<Integer> deletedThreads = new HashSet<>();
+        int maxThreadId;
+        int maxPostId;
+
+        private static long key(byte type, int entityId) {
+            return ((long) type << 32) | (entityId & 0xFFFFFFFFL);
+        }
+
+        void put(byte type, int entityId, int threadId, String title, String content) {
+            remove(type, entityId);
+            HashMap<String, int[]> tf = new HashMap<>();
+            int len = count(tokenize(title), TITLE_WEIGHT, tf) + count(tokenize(content), 1, tf);
+
+            int doc = allocate(type, entityId, threadId, len);
+            for (Map.Entry<String, int[]> e : tf.entrySet()) {
+                postingsOf(e.getKey(), 2).add(doc, e.getValue()[0]);
+            }
+            entityDocs.put(key(type, entityId), doc);
+            if (type == TYPE_THREAD) {
+                maxThreadId = Math.max(maxThreadId, entityId);
+                deletedThreads.remove(entityId);
+            } else {
+                maxPostId = Math.max(maxPostId, entityId);
+            }
+        }
+
+        private Postings postingsOf(String term, int capacity) {
+            Postings p = terms.get(term);
+            if (p == null) {
+                p = new Postings(capacity);
+                terms.put(term, p);
+                for (int i = 0; i < term.length(); i++) {
+                    char c = term.charAt(i);
+                    if (isCjk(c) && term.indexOf(c) == i) {
+                        charTerms.computeIfAbsent(c, k -> new ArrayList<>()).add(p);
+                    }
+                }
+            }
+            return p;
+        }
+
+        private static int count(List<String> tokens, int weight, HashMap<String, int[]> tf) {
+            for (String token : tokens) {
+                tf.computeIfAbsent(token, k -> new int[1])[0] += weight;
+            }
+            return tokens.size() * weight;
+        }
+
+        private int allocate(byte type, int entityId, int threadId, int len) {
+            if (docCount == docType.length) {
+                int capacity = docCount * 2;
+                docType = Arrays.copyOf(docType, capacity);
+                docEntity = Arrays.copyOf(docEntity, capacity);
+                docThread = Arrays.copyOf(docThread, capacity);
+                docLen = Arrays.copyOf(docLen, capacity);
+            }
+            int doc = docCount++;
+            docType[doc] = type;
+            docEntity[doc] = entityId;
+            docThread[doc] = threadId;
+            docLen[doc] = len;
+            liveDocs++;
+            totalLen += len;
+            return doc;
+        }
+
+        boolean remove(byte type, int entityId) {
+            Integer doc = entityDocs.remove(key(type, entityId));
+            if (doc == null) {
+                return false;
+            }
+            deleted.set(doc);
+            liveDocs--;
+            totalLen -= docLen[doc];
+            return true;
+        }
+
+        void removeThread(int threadId) {
+            remove(TYPE_THREAD, threadId);
+            // 回复文档保留，检索时按主题过滤
+            deletedThreads.add(threadId);
+        }
+
+        List<Integer> search(String keyword, int limit) {
+            List<Integer> result = new ArrayList<>();
+            Set<String> queryTerms = new LinkedHashSet<>(tokenize(keyword));
+            if (queryTerms.isEmpty() || limit <= 0) {
+                return result;
+            }
+            Postings[] lists = new Postings[queryTerms.size()];
+            int n = 0;
+            for (String term : queryTerms) {
+                Postings p = postingsFor(term);
+                if (p == null || p.size == 0) {
+                    return result;
+                }
+                lists[n++] = p;
+            }
+            // 从最短的倒排表开始求交集
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+            float[] idf = new float[n];
+            for (int j = 0; j < n; j++) {
+                idf[j] = (float) Math.log(1 + (liveDocs - lists[j].size + 0.5) / (lists[j].size + 0.5));
+            }
+            float avgLen = liveDocs > 0 ? (float) totalLen / liveDocs : 1f;
+
+            ThreadScores scores = new ThreadScores(Math.min(lists[0].size, maxThreadId + 1), maxThreadId);
+            int[] cursors = new int[n];
+            Postings first = lists[0];
+            outer:
+            for (int i = 0; i < first.size; i++) {
+                int doc = first.docs[i];
+                if (deleted.get(doc)) {
+                    continue;
+                }
+                float norm = K1 * (1 - B + B * docLen[doc] / avgLen);
+                float score = bm25(first.tfs[i], idf[0], norm);
+                for (int j = 1; j < n; j++) {
+                    Postings p = lists[j];
+                    int pos = p.seek(doc, cursors[j]);
+                    cursors[j] = pos;
+                    if (pos == p.size) {
+                        break outer;
+                    }
+                    if (p.docs[pos] != doc) {
+                        continue outer;
+                    }
+                    score += bm25(p.tfs[pos], idf[j], norm);
+                }
+                scores.add(docThread[doc], docType[doc] == TYPE_THREAD, score);
+            }
+
+            // 取得分最高的 limit 个主题，同分时较新的主题在前
+            Comparator<Hit> order = (x, y) -> x.score != y.score ? Float.compare(x.score, y.score)
+                    : Integer.compare(x.threadId, y.threadId);
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, order);
+            boolean checkDeleted = !deletedThreads.isEmpty();
+            for (int slot = 0; slot < scores.slots(); slot++) {
+                int threadId = scores.threadAt(slot);
+                if (threadId == 0 || (checkDeleted && deletedThreads.contains(threadId))) {
+                    continue;
+                }
+                float score = scores.total(slot);
+                if (top.size() == limit) {
+                    Hit min = top.peek();
+                    if (score < min.score || (score == min.score && threadId < min.threadId)) {
+                        continue;
+                    }
+                }
+                top.offer(new Hit(threadId, score));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            Integer[] ids = new Integer[top.size()];
+            for (int i = ids.length - 1; i >= 0; i--) {
+                ids[i] = top.poll().threadId;
+            }
+            result.addAll(Arrays.asList(ids));
+            return result;
+        }
+
+        private static float bm25(byte tf, float idf, float norm) {
+            return idf * (tf * (K1 + 1)) / (tf + norm);
+        }
+
+        /**
+         * 单个汉字查询：合并所有包含该字的词的倒排表
+         */
+        private Postings postingsFor(String term) {
+            Postings exact = terms.get(term);
+            if (term.length() != 1 || !isCjk(term.charAt(0))) {
+                return exact;
+            }
+            List<Postings> lists = charTerms.get(term.charAt(0));
+            if (lists == null) {
+                return exact;
+            }
+            // 按文档号累加词频，再顺序扫描生成合并后的倒排表
+            byte[] tfs = new byte[docCount];
+            int count = 0;
+            for (Postings p : lists) {
+                for (int i = 0; i < p.size; i++) {
+                    int doc = p.docs[i];
+                    if (tfs[doc] == 0) {
+                        count++;
+                    }
+                    tfs[doc] = (byte) Math.min(127, tfs[doc] + p.tfs[i]);
+                }
+            }
+            Postings result = new Postings(Math.max(1, count));
+            for (int doc = 0; doc < docCount; doc++) {
+                if (tfs[doc] != 0) {
+                    result.add(doc, tfs[doc]);
+                }
+            }
+            return result;
+        }
+
+        // ---------- 快照 ----------
+
+        /**
+         * 写入快照：只写未删除的文档并重新编号，倒排表中的文档号按差值变长编码
+         */
+        void write(DataOutputStream out) throws IOException {
+            int[] remap = new int[docCount];
+            int live = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                remap[doc] = deleted.get(doc) ? -1 : live++;
+            }
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(maxThreadId);
+            out.writeInt(maxPostId);
+            out.writeInt(live);
+            for (int doc = 0; doc < docCount; doc++) {
+                if (remap[doc] >= 0) {
+                    out.writeByte(docType[doc]);
+                    out.writeInt(docEntity[doc]);
+                    out.writeInt(docThread[doc]);
+                    out.writeInt(docLen[doc]);
+                }
+            }
+            out.writeInt(deletedThreads.size());
+            for (Integer threadId : deletedThreads) {
+                out.writeInt(threadId);
+            }
+
+            int termCount = 0;
+            for (Postings p : terms.values()) {
+                if (countLive(p, remap) > 0) {
+                    termCount++;
+                }
+            }
+            out.writeInt(termCount);
+            for (Map.Entry<String, Postings> e : terms.entrySet()) {
+                Postings p = e.getValue();
+                int size = countLive(p, remap);
+                if (size == 0) {
+                    continue;
+                }
+                out.writeUTF(e.getKey());
+                writeVarInt(out, size);
+                int prev = 0;
+                for (int i = 0; i < p.size; i++) {
+                    int doc = remap[p.docs[i]];
+                    if (doc >= 0) {
+                        writeVarInt(out, doc - prev);
+                        out.writeByte(p.tfs[i]);
+                        prev = doc;
+                    }
+                }
+            }
+        }
+
+        private static int countLive(Postings p, int[] remap) {
+            int live = 0;
+            for (int i = 0; i < p.size; i++) {
+                if (remap[p.docs[i]] >= 0) {
+                    live++;
+                }
+            }
+            return live;
+        }
+
+        static Index read(DataInputStream in) throws IOException {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("快照格式不匹配");
+            }
+            Index idx = new Index();
+            idx.maxThreadId = in.readInt();
+            idx.maxPostId = in.readInt();
+            int docs = in.readInt();
+            for (int i = 0; i < docs; i++) {
+                byte type = in.readByte();
+                int entityId = in.readInt();
+                int threadId = in.readInt();
+                int len = in.readInt();
+                int doc = idx.allocate(type, entityId, threadId, len);
+                idx.entityDocs.put(key(type, entityId), doc);
+            }
+            int deletedThreads = in.readInt();
+            for (int i = 0; i < deletedThreads; i++) {
+                idx.deletedThreads.add(in.readInt());
+            }
+            int termCount = in.readInt();
+            for (int t = 0; t < termCount; t++) {
+                String term = in.readUTF();
+                int size = readVarInt(in);
+                Postings p = idx.postingsOf(term, Math.max(1, size));
+                int doc = 0;
+                for (int i = 0; i < size; i++) {
+                    doc += readVarInt(in);
+                    if (doc >= docs) {
+                        throw new IOException("快照数据损坏");
+                    }
+                    p.add(doc, in.readByte());
+                }
+            }
+            return idx;
+        }
+
+        private static void writeVarInt(DataOutput out, int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private static int readVarInt(DataInput in) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("快照数据损坏");
+        }
+    }
+}
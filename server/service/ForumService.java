@@ -4,48 +4,75 @@ import common.vo.PostVO;
 import common.vo.ThreadVO;
 import server.util.DatabaseUtil;
 import common.vo.ForumSectionVO;
+import common.vo.ThreadFeedPageVO;
 import server.dao.ForumLikeDAO;
 import server.service.PostService;
+import server.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 论坛服务：提供主题与回复的基础查询/创建能力
  */
 public class ForumService {
+    private static final Log LOG = Log.get("forum");
+    
+    private static final int MAX_FEED_PAGE_SIZE = 100;
+    private static final int FEED_PREVIEW_LENGTH = 120;  // 分页摘要中内容预览的最大字符数
+    private static final int SEARCH_RESULT_LIMIT = 200;  // 检索索引返回的最大主题数
+    
+    // 主题列表和主题详情共用的查询列
+    private static final String THREAD_SELECT =
+            "SELECT t.thread_id, t.title, t.content, t.author_id, t.reply_count, t.view_count, t.like_count, t.favorite_count, t.created_time, t.updated_time, t.status, " +
+            "t.section_id, t.is_essence, t.is_pinned, fs.name AS section_name, " +
+            "COALESCE(s.name, te.name, a.username, u.login_id) AS author_name, u.login_id AS author_login_id, u.role AS author_role " +
+            "FROM forum_threads t " +
+            "LEFT JOIN forum_sections fs ON t.section_id = fs.section_id " +
+            "LEFT JOIN users u ON t.author_id = u.user_id " +
+            "LEFT JOIN students s ON s.user_id = u.user_id " +
+            "LEFT JOIN teachers te ON te.user_id = u.user_id " +
+            "LEFT JOIN admins a ON a.user_id = u.user_id ";
     
     private ForumLikeDAO likeDAO = new ForumLikeDAO();
     private PostService postService = new PostService();
+    private ForumThreadCache threadCache = ForumThreadCache.getInstance();
+    private ForumSearchIndex searchIndex = ForumSearchIndex.getInstance();
 
     public List<ThreadVO> getAllThreads() {
         return getAllThreads(null);
     }
     
     public List<ThreadVO> getAllThreads(Integer currentUserId) {
-        System.out.println("[Forum][Server][DAO] 准备执行SQL: 查询所有主题");
-        System.out.println("[DEBUG] ========== 开始查询所有论坛主题 ==========");
+        List<ThreadVO> cached = threadCache.getListing();
+        if (cached != null) {
+            LOG.debug("[Forum][Service] 主题列表命中缓存，总数={}", cached.size());
+            fillLikeState(cached, currentUserId);
+            return cached;
+        }
+        long stamp = threadCache.loadStamp();
+        Set<Integer> pinnedIds = new HashSet<>();
+        boolean loaded = false;
+        
+        LOG.debug("[Forum][Server][DAO] 准备执行SQL: 查询所有主题");
+        LOG.debug("========== 开始查询所有论坛主题 ==========");
         List<ThreadVO> list = new ArrayList<ThreadVO>();
-        String sql = "SELECT t.thread_id, t.title, t.content, t.author_id, t.reply_count, t.view_count, t.like_count, t.favorite_count, t.created_time, t.updated_time, t.status, " +
-                "t.section_id, t.is_essence, fs.name AS section_name, " +
-                "COALESCE(s.name, te.name, a.username, u.login_id) AS author_name, u.login_id AS author_login_id, u.role AS author_role " +
-                "FROM forum_threads t " +
-                "LEFT JOIN forum_sections fs ON t.section_id = fs.section_id " +
-                "LEFT JOIN users u ON t.author_id = u.user_id " +
-                "LEFT JOIN students s ON s.user_id = u.user_id " +
-                "LEFT JOIN teachers te ON te.user_id = u.user_id " +
-                "LEFT JOIN admins a ON a.user_id = u.user_id " +
-                "WHERE t.status = 1 ORDER BY t.is_pinned DESC, t.last_post_time DESC, t.created_time DESC";
-        System.out.println("[DEBUG] SQL查询语句: " + sql);
+        String sql = THREAD_SELECT + "WHERE t.status = 1 ORDER BY t.is_pinned DESC, t.last_post_time DESC, t.created_time DESC";
+        LOG.debug("SQL查询语句: {}", sql);
 
         Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
         try {
             conn = DatabaseUtil.getConnection();
-            System.out.println("[Forum][Server][DAO] 获取连接成功: " + (conn != null));
+            LOG.debug("[Forum][Server][DAO] 获取连接成功: {}", conn != null);
             
             ps = conn.prepareStatement(sql);
-            System.out.println("[Forum][Server][DAO] 预编译完成，开始执行查询");
+            LOG.debug("[Forum][Server][DAO] 预编译完成，开始执行查询");
             rs = ps.executeQuery();
             
             int count = 0;
@@ -83,65 +110,261 @@ public class ForumService {
                     int role = rs.getInt("author_role");
                     isAnnouncement = (role == 2);
                     vo.setIsAnnouncement(isAnnouncement);
-                    System.out.println("[DEBUG] 帖子ID=" + vo.getThreadId() + ", 作者ID=" + vo.getAuthorId() + ", 角色=" + role + ", 是否公告=" + isAnnouncement);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("帖子ID={}, 作者ID={}, 角色={}, 是否公告={}", vo.getThreadId(), vo.getAuthorId(), role, isAnnouncement);
+                    }
                 } catch (Exception e) {
                     vo.setIsAnnouncement(false);
-                    System.out.println("[DEBUG] 获取角色信息失败: " + e.getMessage());
+                    LOG.debug("获取角色信息失败: {}", e.getMessage());
                 }
                 
-                // 调试输出：检查点赞和回复数据
-                try {
-                    Integer replyCount = (Integer) rs.getObject("reply_count");
-                    Integer likeCount = (Integer) rs.getObject("like_count");
-                    Integer viewCount = (Integer) rs.getObject("view_count");
-                    Integer favoriteCount = (Integer) rs.getObject("favorite_count");
-                    System.out.println("[DEBUG] 帖子ID=" + vo.getThreadId() + ", 标题=" + vo.getTitle() + 
-                                     ", 回复数=" + replyCount + ", 点赞数=" + likeCount + 
-                                     ", 浏览数=" + viewCount + ", 收藏数=" + favoriteCount);
-                } catch (Exception e) {
-                    System.out.println("[DEBUG] 获取统计数据失败: " + e.getMessage());
+                // 调试输出：检查点赞和回复数据（每行都要额外读取列，只在开启DEBUG时执行）
+                if (LOG.isDebugEnabled()) {
+                    try {
+                        Integer replyCount = (Integer) rs.getObject("reply_count");
+                        Integer likeCount = (Integer) rs.getObject("like_count");
+                        Integer viewCount = (Integer) rs.getObject("view_count");
+                        Integer favoriteCount = (Integer) rs.getObject("favorite_count");
+                        LOG.debug("帖子ID={}, 标题={}, 回复数={}, 点赞数={}, 浏览数={}, 收藏数={}", vo.getThreadId(), vo.getTitle(), replyCount, likeCount, viewCount, favoriteCount);
+                    } catch (Exception e) {
+                        LOG.debug("获取统计数据失败: {}", e.getMessage());
+                    }
                 }
                 
-                // 设置用户点赞状态
-                if (currentUserId != null) {
-                    boolean isLiked = likeDAO.isLiked("thread", vo.getThreadId(), currentUserId);
-                    vo.setIsLiked(isLiked);
-                } else {
-                    vo.setIsLiked(false);
+                if (rs.getBoolean("is_pinned")) {
+                    pinnedIds.add(vo.getThreadId());
                 }
-                
                 list.add(vo);
                 count++;
                 
                 if (count <= 3) {
-                    System.out.println("[Forum][Server][DAO] 示例数据: id=" + vo.getThreadId() + ", title=" + vo.getTitle());
+                    LOG.debug("[Forum][Server][DAO] 示例数据: id={}, title={}", vo.getThreadId(), vo.getTitle());
                 }
             }
-            System.out.println("[Forum][Server][DAO] 查询结束，总数=" + count);
-            System.out.println("[DEBUG] ========== 查询完成，返回数据列表 ==========");
-            System.out.println("[DEBUG] 返回的ThreadVO列表大小: " + list.size());
-            for (ThreadVO vo : list) {
-                System.out.println("[DEBUG] 最终返回数据 - ID=" + vo.getThreadId() + 
-                                 ", 标题=" + vo.getTitle() + 
-                                 ", 作者=" + vo.getAuthorName() + 
-                                 ", 是否公告=" + vo.getIsAnnouncement() + 
-                                 ", 回复数=" + vo.getReplyCount());
+            LOG.debug("[Forum][Server][DAO] 查询结束，总数={}", count);
+            LOG.debug("========== 查询完成，返回数据列表 ==========");
+            LOG.debug("返回的ThreadVO列表大小: {}", list.size());
+            if (LOG.isDebugEnabled()) {
+                for (ThreadVO vo : list) {
+                    LOG.debug("最终返回数据 - ID={}, 标题={}, 作者={}, 是否公告={}, 回复数={}", vo.getThreadId(), vo.getTitle(), vo.getAuthorName(), vo.getIsAnnouncement(), vo.getReplyCount());
+                }
             }
+            loaded = true;
         } catch (SQLException e) {
-            System.err.println("查询主题失败: " + e.getMessage());
-            System.out.println("[DEBUG] SQL异常详情: " + e.toString());
+            LOG.error("查询主题失败: {}", e.getMessage());
+            LOG.debug("SQL异常详情: {}", e);
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
+        if (loaded) {
+            threadCache.putListing(list, pinnedIds, stamp);
+        }
+        threadCache.applyPendingCounts(list);
+        fillLikeState(list, currentUserId);
         return list;
     }
+    
+    /**
+     * 获取主题详情并记录一次浏览
+     * @param threadId 主题ID
+     * @param currentUserId 当前用户ID（用于设置点赞状态）
+     * @return 主题，不存在或已删除返回null
+     */
+    public ThreadVO getThreadDetail(int threadId, Integer currentUserId) {
+        ThreadVO vo = getThreadById(threadId, currentUserId);
+        if (vo != null) {
+            threadCache.addView(threadId);
+            vo.setViewCount((vo.getViewCount() != null ? vo.getViewCount() : 0) + 1);
+        }
+        return vo;
+    }
+    
+    /**
+     * 获取单个主题，优先读取缓存
+     * @param threadId 主题ID
+     * @param currentUserId 当前用户ID（用于设置点赞状态）
+     * @return 主题，不存在或已删除返回null
+     */
+    public ThreadVO getThreadById(int threadId, Integer currentUserId) {
+        ThreadVO vo = threadCache.get(threadId);
+        if (vo == null) {
+            long stamp = threadCache.loadStamp();
+            String sql = THREAD_SELECT + "WHERE t.thread_id = ? AND t.status = 1";
+            Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
+            try {
+                conn = DatabaseUtil.getConnection();
+                ps = conn.prepareStatement(sql);
+                ps.setInt(1, threadId);
+                rs = ps.executeQuery();
+                if (rs.next()) {
+                    vo = createThreadVOFromResultSet(rs, currentUserId);
+                    threadCache.put(vo, rs.getBoolean("is_pinned"), stamp);
+                    threadCache.applyPendingCounts(Collections.singletonList(vo));
+                }
+            } catch (SQLException e) {
+                LOG.error("[Forum][Service] 查询主题失败: threadId={}, {}", threadId, e.getMessage());
+            } finally {
+                DatabaseUtil.closeAll(conn, ps, rs);
+            }
+        }
+        if (vo != null) {
+            vo.setIsLiked(currentUserId != null && likeDAO.isLiked("thread", threadId, currentUserId));
+        }
+        return vo;
+    }
 
+    /**
+     * 游标分页获取主题摘要
+     * 排序与 getAllThreads 一致（置顶优先、最后回帖时间倒序），以 (is_pinned, last_post_time, thread_id) 为游标，
+     * 每页只读取固定数量的行和截断后的内容预览，耗时和数据量不随论坛历史增长。
+     * @param cursor 上一页返回的游标，null 表示第一页
+     * @param pageSize 每页数量（1-100）
+     * @param sectionId 分区ID，null 表示全部分区
+     * @param currentUserId 当前用户ID（用于设置点赞状态）
+     * @return 分页结果
+     */
+    public ThreadFeedPageVO getThreadFeed(String cursor, int pageSize, Integer sectionId, Integer currentUserId) {
+        int limit = Math.max(1, Math.min(MAX_FEED_PAGE_SIZE, pageSize));
+        FeedCursor after = FeedCursor.parse(cursor);
+        
+        StringBuilder sql = new StringBuilder(
+                "SELECT t.thread_id, t.title, LEFT(t.content, ?) AS content_preview, CHAR_LENGTH(t.content) AS content_length, " +
+                "t.author_id, t.reply_count, t.view_count, t.like_count, t.favorite_count, t.created_time, t.updated_time, t.status, " +
+                "t.section_id, t.is_essence, t.is_pinned, t.last_post_time, fs.name AS section_name, " +
+                "COALESCE(s.name, te.name, a.username, u.login_id) AS author_name, u.login_id AS author_login_id, u.role AS author_role " +
+                "FROM forum_threads t " +
+                "LEFT JOIN forum_sections fs ON t.section_id = fs.section_id " +
+                "LEFT JOIN users u ON t.author_id = u.user_id " +
+                "LEFT JOIN students s ON s.user_id = u.user_id " +
+                "LEFT JOIN teachers te ON te.user_id = u.user_id " +
+                "LEFT JOIN admins a ON a.user_id = u.user_id " +
+                "WHERE t.status = 1");
+        List<Object> params = new ArrayList<>();
+        params.add(FEED_PREVIEW_LENGTH);
+        if (sectionId != null) {
+            sql.append(" AND t.section_id = ?");
+            params.add(sectionId);
+        }
+        if (after != null) {
+            // 降序排列时 last_post_time 为 NULL 的行排在同一置顶分组的最后
+            sql.append(" AND (t.is_pinned < ? OR (t.is_pinned = ? AND (");
+            params.add(after.pinned);
+            params.add(after.pinned);
+            if (after.lastPostTime != null) {
+                sql.append("t.last_post_time < ? OR t.last_post_time IS NULL OR (t.last_post_time = ? AND t.thread_id < ?)");
+                params.add(after.lastPostTime);
+                params.add(after.lastPostTime);
+            } else {
+                sql.append("t.last_post_time IS NULL AND t.thread_id < ?");
+            }
+            params.add(after.threadId);
+            sql.append(")))");
+        }
+        sql.append(" ORDER BY t.is_pinned DESC, t.last_post_time DESC, t.thread_id DESC LIMIT ?");
+        params.add(limit + 1);
+        
+        ThreadFeedPageVO page = new ThreadFeedPageVO();
+        page.setPageSize(limit);
+        List<ThreadVO> list = new ArrayList<>(limit + 1);
+        FeedCursor last = null;
+        Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                if (list.size() == limit) {
+                    // 多读的一行只用于判断是否还有下一页
+                    page.setHasMore(true);
+                    break;
+                }
+                ThreadVO vo = new ThreadVO();
+                vo.setThreadId(rs.getInt("thread_id"));
+                vo.setTitle(rs.getString("title"));
+                String preview = rs.getString("content_preview");
+                if (preview != null && rs.getInt("content_length") > FEED_PREVIEW_LENGTH) {
+                    preview = preview + "...";
+                }
+                vo.setContent(preview);
+                vo.setAuthorId((Integer) rs.getObject("author_id"));
+                vo.setReplyCount((Integer) rs.getObject("reply_count"));
+                vo.setViewCount((Integer) rs.getObject("view_count"));
+                vo.setLikeCount((Integer) rs.getObject("like_count"));
+                vo.setFavoriteCount((Integer) rs.getObject("favorite_count"));
+                vo.setCreatedTime(rs.getTimestamp("created_time"));
+                vo.setUpdatedTime(rs.getTimestamp("updated_time"));
+                vo.setStatus((Integer) rs.getObject("status"));
+                vo.setSectionId((Integer) rs.getObject("section_id"));
+                vo.setSectionName(rs.getString("section_name"));
+                vo.setIsEssence(rs.getBoolean("is_essence"));
+                vo.setAuthorName(rs.getString("author_name"));
+                vo.setAuthorLoginId(rs.getString("author_login_id"));
+                // 管理员发布的帖子标记为公告（users.role = 2）
+                vo.setIsAnnouncement(rs.getInt("author_role") == 2);
+                list.add(vo);
+                
+                last = new FeedCursor(rs.getBoolean("is_pinned") ? 1 : 0, rs.getTimestamp("last_post_time"), vo.getThreadId());
+            }
+        } catch (SQLException e) {
+            LOG.error("[Forum][Service] 分页查询主题失败: {}", e.getMessage());
+            return null;
+        } finally {
+            DatabaseUtil.closeAll(conn, ps, rs);
+        }
+        
+        threadCache.applyPendingCounts(list);
+        fillLikeState(list, currentUserId);
+        page.setThreads(list);
+        if (page.isHasMore() && last != null) {
+            page.setNextCursor(last.format());
+        }
+        return page;
+    }
+    
+    /**
+     * 主题分页游标：is_pinned|last_post_time毫秒数（NULL 为空）|thread_id
+     */
+    private static final class FeedCursor {
+        final int pinned;
+        final Timestamp lastPostTime;
+        final int threadId;
+        
+        FeedCursor(int pinned, Timestamp lastPostTime, int threadId) {
+            this.pinned = pinned;
+            this.lastPostTime = lastPostTime;
+            this.threadId = threadId;
+        }
+        
+        String format() {
+            return pinned + "|" + (lastPostTime != null ? String.valueOf(lastPostTime.getTime()) : "") + "|" + threadId;
+        }
+        
+        static FeedCursor parse(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return null;
+            }
+            String[] parts = cursor.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            try {
+                Timestamp time = parts[1].isEmpty() ? null : new Timestamp(Long.parseLong(parts[1]));
+                return new FeedCursor(Integer.parseInt(parts[0]), time, Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+        }
+    }
+    
     public List<PostVO> getPostsByThreadId(int threadId) {
         return getPostsByThreadId(threadId, null);
     }
     
     public List<PostVO> getPostsByThreadId(int threadId, Integer currentUserId) {
-        System.out.println("[Forum][Service] 获取主题回复: threadId=" + threadId + ", currentUserId=" + currentUserId);
+        LOG.debug("[Forum][Service] 获取主题回复: threadId={}, currentUserId={}", threadId, currentUserId);
         return postService.getPostsByThreadId(threadId, currentUserId);
     }
 
@@ -149,7 +372,7 @@ public class ForumService {
      * 查询所有启用的分区（板块），按 sort_order 升序
      */
     public List<ForumSectionVO> getAllSections() {
-        System.out.println("[Forum][Server][DAO] 准备执行SQL: 查询分区列表");
+        LOG.debug("[Forum][Server][DAO] 准备执行SQL: 查询分区列表");
         List<ForumSectionVO> sections = new ArrayList<ForumSectionVO>();
         String sql = "SELECT section_id, name, description, sort_order, status, created_time FROM forum_sections WHERE status = 1 ORDER BY sort_order ASC, section_id ASC";
         Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
@@ -167,9 +390,9 @@ public class ForumService {
                 vo.setCreatedTime(rs.getTimestamp("created_time"));
                 sections.add(vo);
             }
-            System.out.println("[Forum][Server][DAO] 分区查询结束，返回条数=" + sections.size());
+            LOG.debug("[Forum][Server][DAO] 分区查询结束，返回条数={}", sections.size());
         } catch (SQLException e) {
-            System.err.println("查询论坛分区失败: " + e.getMessage());
+            LOG.error("查询论坛分区失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -195,11 +418,14 @@ public class ForumService {
             if (affected > 0) {
                 rs = ps.getGeneratedKeys();
                 if (rs.next()) {
-                    return rs.getInt(1);
+                    int threadId = rs.getInt(1);
+                    threadCache.invalidateListing();
+                    searchIndex.addThread(threadId, thread.getTitle(), thread.getContent());
+                    return threadId;
                 }
             }
         } catch (SQLException e) {
-            System.err.println("创建主题失败: " + e.getMessage());
+            LOG.error("创建主题失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
@@ -207,26 +433,10 @@ public class ForumService {
     }
 
     public Integer createPost(PostVO post, int authorUserId) {
-        System.out.println("[Forum][Service] 创建主题回复: threadId=" + post.getThreadId() + ", authorUserId=" + authorUserId);
+        LOG.debug("[Forum][Service] 创建主题回复: threadId={}, authorUserId={}", post.getThreadId(), authorUserId);
         return postService.createThreadReply(post, authorUserId);
     }
 
-    private void updateThreadReplyMeta(int threadId) {
-        String sql = "UPDATE forum_threads SET reply_count = (SELECT COUNT(*) FROM forum_posts WHERE thread_id = ? AND status = 1), last_post_time = NOW() WHERE thread_id = ?";
-        Connection conn = null; PreparedStatement ps = null;
-        try {
-            conn = DatabaseUtil.getConnection();
-            ps = conn.prepareStatement(sql);
-            ps.setInt(1, threadId);
-            ps.setInt(2, threadId);
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("更新主题元信息失败: " + e.getMessage());
-        } finally {
-            DatabaseUtil.closeAll(conn, ps, null);
-        }
-    }
-    
     /**
      * 切换主题点赞状态
      * @param threadId 主题ID
@@ -234,8 +444,13 @@ public class ForumService {
      * @return true表示点赞成功，false表示取消点赞成功，null表示操作失败
      */
     public Boolean toggleThreadLike(int threadId, int userId) {
-        System.out.println("[Forum][Service] 切换主题点赞状态: threadId=" + threadId + ", userId=" + userId);
-        return likeDAO.toggleLike("thread", threadId, userId);
+        LOG.debug("[Forum][Service] 切换主题点赞状态: threadId={}, userId={}", threadId, userId);
+        Boolean liked = likeDAO.toggleLike("thread", threadId, userId);
+        if (liked != null) {
+            // 点赞数由缓存计数后批量写回
+            threadCache.addLikes(threadId, liked ? 1 : -1);
+        }
+        return liked;
     }
     
     /**
@@ -245,7 +460,7 @@ public class ForumService {
      * @return true表示点赞成功，false表示取消点赞成功，null表示操作失败
      */
     public Boolean togglePostLike(int postId, int userId) {
-        System.out.println("[Forum][Service] 切换回复点赞状态: postId=" + postId + ", userId=" + userId);
+        LOG.debug("[Forum][Service] 切换回复点赞状态: postId={}, userId={}", postId, userId);
         return likeDAO.toggleLike("post", postId, userId);
     }
     
@@ -275,6 +490,10 @@ public class ForumService {
      * @return 点赞数量
      */
     public int getThreadLikeCount(int threadId) {
+        ThreadVO vo = getThreadById(threadId, null);
+        if (vo != null && vo.getLikeCount() != null) {
+            return vo.getLikeCount();
+        }
         return likeDAO.getLikeCount("thread", threadId);
     }
     
@@ -296,7 +515,7 @@ public class ForumService {
      * @return 搜索结果帖子列表
      */
     public List<ThreadVO> searchThreadsOptimized(String keyword, Integer currentUserId) {
-        System.out.println("[Forum][Service] 优化搜索帖子: keyword=" + keyword + ", currentUserId=" + currentUserId);
+        LOG.debug("[Forum][Service] 优化搜索帖子: keyword={}, currentUserId={}", keyword, currentUserId);
         
         if (keyword == null || keyword.trim().isEmpty()) {
             return new ArrayList<>();
@@ -304,18 +523,71 @@ public class ForumService {
         
         keyword = keyword.trim();
         
+        // 检索索引就绪时直接使用索引结果（包括无结果），不再访问全文索引和 LIKE 扫描
+        List<Integer> threadIds = searchIndex.search(keyword, SEARCH_RESULT_LIMIT);
+        if (threadIds != null) {
+            List<ThreadVO> results = findThreadsByIds(threadIds);
+            LOG.debug("[Forum][Service] 检索索引搜索完成，结果数={}", results.size());
+            threadCache.applyPendingCounts(results);
+            fillLikeState(results, currentUserId);
+            return results;
+        }
+        
         // 首先尝试使用全文索引搜索
         List<ThreadVO> results = searchWithFullText(keyword, currentUserId);
         
         // 如果全文索引搜索失败或结果为空，降级到LIKE搜索
         if (results.isEmpty()) {
-            System.out.println("[Forum][Service] 全文索引搜索无结果，降级到LIKE搜索");
+            LOG.debug("[Forum][Service] 全文索引搜索无结果，降级到LIKE搜索");
             results = searchWithLike(keyword, currentUserId);
         }
         
         return results;
     }
     
+    /**
+     * 按给定顺序读取一组主题（已删除的主题跳过）
+     * @param threadIds 主题ID
+     * @return 主题列表，顺序与 threadIds 一致
+     */
+    private List<ThreadVO> findThreadsByIds(List<Integer> threadIds) {
+        List<ThreadVO> list = new ArrayList<>();
+        if (threadIds.isEmpty()) {
+            return list;
+        }
+        StringBuilder sql = new StringBuilder(THREAD_SELECT).append("WHERE t.status = 1 AND t.thread_id IN (");
+        for (int i = 0; i < threadIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        sql.append(')');
+        
+        Map<Integer, ThreadVO> found = new HashMap<>();
+        Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            ps = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < threadIds.size(); i++) {
+                ps.setInt(i + 1, threadIds.get(i));
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                ThreadVO vo = createThreadVOFromResultSet(rs, null);
+                found.put(vo.getThreadId(), vo);
+            }
+        } catch (SQLException e) {
+            LOG.error("[Forum][Service] 读取搜索结果失败: {}", e.getMessage());
+        } finally {
+            DatabaseUtil.closeAll(conn, ps, rs);
+        }
+        for (Integer id : threadIds) {
+            ThreadVO vo = found.get(id);
+            if (vo != null) {
+                list.add(vo);
+            }
+        }
+        return list;
+    }
+    
     /**
      * 使用全文索引搜索帖子
      * @param keyword 搜索关键词
@@ -354,7 +626,7 @@ public class ForumService {
             ps.setString(3, keyword); // 帖子全文搜索
             ps.setString(4, keyword); // 评论全文搜索
             
-            System.out.println("[Forum][Service] 执行全文索引搜索: " + keyword);
+            LOG.debug("[Forum][Service] 执行全文索引搜索: {}", keyword);
             rs = ps.executeQuery();
             
             while (rs.next()) {
@@ -362,15 +634,17 @@ public class ForumService {
                 list.add(vo);
             }
             
-            System.out.println("[Forum][Service] 全文索引搜索完成，结果数=" + list.size());
+            LOG.debug("[Forum][Service] 全文索引搜索完成，结果数={}", list.size());
             
         } catch (SQLException e) {
-            System.err.println("全文索引搜索失败: " + e.getMessage());
+            LOG.error("全文索引搜索失败: {}", e.getMessage());
             // 不抛出异常，让调用方降级到LIKE搜索
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
         
+        threadCache.applyPendingCounts(list);
+        fillLikeState(list, currentUserId);
         return list;
     }
     
@@ -408,7 +682,7 @@ public class ForumService {
             ps.setString(2, searchPattern); // 内容搜索  
             ps.setString(3, searchPattern); // 评论搜索
             
-            System.out.println("[Forum][Service] 执行LIKE模糊搜索: " + keyword);
+            LOG.debug("[Forum][Service] 执行LIKE模糊搜索: {}", keyword);
             rs = ps.executeQuery();
             
             while (rs.next()) {
@@ -416,17 +690,41 @@ public class ForumService {
                 list.add(vo);
             }
             
-            System.out.println("[Forum][Service] LIKE搜索完成，结果数=" + list.size());
+            LOG.debug("[Forum][Service] LIKE搜索完成，结果数={}", list.size());
             
         } catch (SQLException e) {
-            System.err.println("LIKE搜索失败: " + e.getMessage());
+            LOG.error("LIKE搜索失败: {}", e.getMessage());
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
         
+        threadCache.applyPendingCounts(list);
+        fillLikeState(list, currentUserId);
         return list;
     }
     
+    /**
+     * 批量设置当前用户对一页主题的点赞状态（一次查询代替逐行查询）
+     * @param list 主题列表
+     * @param currentUserId 当前用户ID，为null时全部设为未点赞
+     */
+    private void fillLikeState(List<ThreadVO> list, Integer currentUserId) {
+        if (currentUserId == null || list.isEmpty()) {
+            for (ThreadVO vo : list) {
+                vo.setIsLiked(false);
+            }
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(list.size());
+        for (ThreadVO vo : list) {
+            ids.add(vo.getThreadId());
+        }
+        Set<Integer> liked = likeDAO.findLikedIds("thread", ids, currentUserId);
+        for (ThreadVO vo : list) {
+            vo.setIsLiked(liked.contains(vo.getThreadId()));
+        }
+    }
+    
     /**
      * 从ResultSet创建ThreadVO对象的辅助方法
      * @param rs ResultSet对象
@@ -472,13 +770,8 @@ public class ForumService {
             vo.setIsAnnouncement(false);
         }
         
-        // 设置用户点赞状态
-        if (currentUserId != null) {
-            boolean isLiked = likeDAO.isLiked("thread", vo.getThreadId(), currentUserId);
-            vo.setIsLiked(isLiked);
-        } else {
-            vo.setIsLiked(false);
-        }
+        // 点赞状态由调用方在整页读取完成后批量填充
+        vo.setIsLiked(false);
         
         return vo;
     }
@@ -495,7 +788,7 @@ public class ForumService {
      * @return 创建的回复ID，失败返回null
      */
     public Integer createSubReply(PostVO post, Integer parentPostId, Integer authorUserId) {
-        System.out.println("[Forum][Service] 创建子回复: parentPostId=" + parentPostId + ", authorUserId=" + authorUserId);
+        LOG.debug("[Forum][Service] 创建子回复: parentPostId={}, authorUserId={}", parentPostId, authorUserId);
         return postService.createSubReply(post, parentPostId, authorUserId);
     }
     
@@ -507,7 +800,7 @@ public class ForumService {
      * @return 创建的回复ID，失败返回null
      */
     public Integer createQuoteReply(PostVO post, Integer quotePostId, Integer authorUserId) {
-        System.out.println("[Forum][Service] 创建引用回复: quotePostId=" + quotePostId + ", authorUserId=" + authorUserId);
+        LOG.debug("[Forum][Service] 创建引用回复: quotePostId={}, authorUserId={}", quotePostId, authorUserId);
         return postService.createQuoteReply(post, quotePostId, authorUserId);
     }
     
@@ -527,7 +820,7 @@ public class ForumService {
      * @return 子回复列表
      */
     public List<PostVO> getSubReplies(Integer parentPostId, Integer currentUserId) {
-        System.out.println("[Forum][Service] 获取子回复: parentPostId=" + parentPostId + ", currentUserId=" + currentUserId);
+        LOG.debug("[Forum][Service] 获取子回复: parentPostId={}, currentUserId={}", parentPostId, currentUserId);
         return postService.getSubReplies(parentPostId, currentUserId);
     }
     
@@ -537,7 +830,7 @@ public class ForumService {
      * @return 回复对象，不存在返回null
      */
     public PostVO getPostById(Integer postId) {
-        System.out.println("[Forum][Service] 获取回复详情: postId=" + postId);
+        LOG.debug("[Forum][Service] 获取回复详情: postId={}", postId);
         return postService.getPostById(postId);
     }
     
@@ -548,7 +841,7 @@ public class ForumService {
      * @return 更新成功返回true
      */
     public boolean updatePost(PostVO post, Integer userId) {
-        System.out.println("[Forum][Service] 更新回复: postId=" + post.getPostId() + ", userId=" + userId);
+        LOG.debug("[Forum][Service] 更新回复: postId={}, userId={}", post.getPostId(), userId);
         return postService.updatePost(post, userId);
     }
     
@@ -559,7 +852,7 @@ public class ForumService {
      * @return 删除成功返回true
      */
     public boolean deletePost(Integer postId, Integer userId) {
-        System.out.println("[Forum][Service] 删除回复: postId=" + postId + ", userId=" + userId);
+        LOG.debug("[Forum][Service] 删除回复: postId={}, userId={}", postId, userId);
         return postService.deletePost(postId, userId);
     }
     
@@ -569,7 +862,7 @@ public class ForumService {
      * @return 回复列表
      */
     public List<PostVO> getUserPosts(Integer authorId) {
-        System.out.println("[Forum][Service] 获取用户回复: authorId=" + authorId);
+        LOG.debug("[Forum][Service] 获取用户回复: authorId={}", authorId);
         return postService.getUserPosts(authorId);
     }
     
@@ -619,26 +912,26 @@ public class ForumService {
      * @return 搜索结果帖子列表
      */
     public List<ThreadVO> searchThreads(String keyword, Integer currentUserId) {
-        System.out.println("[Forum][Service] ========== 开始搜索帖子 ==========");
-        System.out.println("[Forum][Service] 搜索帖子: keyword=" + keyword + ", currentUserId=" + currentUserId);
+        LOG.debug("[Forum][Service] ========== 开始搜索帖子 ==========");
+        LOG.debug("[Forum][Service] 搜索帖子: keyword={}, currentUserId={}", keyword, currentUserId);
         
         if (keyword == null || keyword.trim().isEmpty()) {
-            System.out.println("[Forum][Service] 搜索关键词为空，返回空列表");
+            LOG.debug("[Forum][Service] 搜索关键词为空，返回空列表");
             return new ArrayList<>();
         }
         
         keyword = keyword.trim();
-        System.out.println("[Forum][Service] 处理后的关键词: '" + keyword + "'");
+        LOG.debug("[Forum][Service] 处理后的关键词: '{}'", keyword);
         
         // 首先尝试使用优化的搜索方法（包含全文索引和LIKE降级）
         try {
             List<ThreadVO> optimizedResults = searchThreadsOptimized(keyword, currentUserId);
-            if (optimizedResults != null && !optimizedResults.isEmpty()) {
-                System.out.println("[Forum][Service] 优化搜索成功，返回结果数: " + optimizedResults.size());
+            if (optimizedResults != null && (!optimizedResults.isEmpty() || searchIndex.isReady())) {
+                LOG.debug("[Forum][Service] 优化搜索成功，返回结果数: {}", optimizedResults.size());
                 return optimizedResults;
             }
         } catch (Exception e) {
-            System.out.println("[Forum][Service] 优化搜索失败，降级到基本搜索: " + e.getMessage());
+            LOG.debug("[Forum][Service] 优化搜索失败，降级到基本搜索: {}", e.getMessage());
         }
         
         // 如果优化搜索失败，使用基本的LIKE搜索
@@ -659,13 +952,13 @@ public class ForumService {
                 "t.title LIKE ? OR t.content LIKE ? OR p.content LIKE ?" +
                 ") ORDER BY t.is_pinned DESC, t.last_post_time DESC, t.created_time DESC";
         
-        System.out.println("[DEBUG] 搜索SQL查询语句: " + sql);
-        System.out.println("[DEBUG] 搜索关键词: " + keyword);
+        LOG.debug("搜索SQL查询语句: {}", sql);
+        LOG.debug("搜索关键词: {}", keyword);
 
         Connection conn = null; PreparedStatement ps = null; ResultSet rs = null;
         try {
             conn = DatabaseUtil.getConnection();
-            System.out.println("[Forum][Service] 获取连接成功: " + (conn != null));
+            LOG.debug("[Forum][Service] 获取连接成功: {}", conn != null);
             
             ps = conn.prepareStatement(sql);
             String searchPattern = "%" + keyword + "%";
@@ -673,7 +966,7 @@ public class ForumService {
             ps.setString(2, searchPattern); // 内容搜索  
             ps.setString(3, searchPattern); // 评论搜索
             
-            System.out.println("[Forum][Service] 预编译完成，开始执行搜索查询");
+            LOG.debug("[Forum][Service] 预编译完成，开始执行搜索查询");
             rs = ps.executeQuery();
             
             int count = 0;
@@ -715,33 +1008,27 @@ public class ForumService {
                     vo.setIsAnnouncement(false);
                 }
                 
-                // 设置用户点赞状态
-                if (currentUserId != null) {
-                    boolean isLiked = likeDAO.isLiked("thread", vo.getThreadId(), currentUserId);
-                    vo.setIsLiked(isLiked);
-                } else {
-                    vo.setIsLiked(false);
-                }
-                
                 list.add(vo);
                 count++;
                 
                 if (count <= 3) {
-                    System.out.println("[Forum][Service] 搜索结果示例: id=" + vo.getThreadId() + ", title=" + vo.getTitle());
+                    LOG.debug("[Forum][Service] 搜索结果示例: id={}, title={}", vo.getThreadId(), vo.getTitle());
                 }
             }
-            System.out.println("[Forum][Service] 搜索结束，找到结果数=" + count);
-            System.out.println("[Forum][Service] ========== 搜索帖子完成 ==========");
+            LOG.debug("[Forum][Service] 搜索结束，找到结果数={}", count);
+            LOG.debug("[Forum][Service] ========== 搜索帖子完成 ==========");
             
         } catch (SQLException e) {
-            System.err.println("[Forum][Service] 搜索帖子失败: " + e.getMessage());
-            System.out.println("[Forum][Service] SQL异常详情: " + e.toString());
+            LOG.error("[Forum][Service] 搜索帖子失败: {}", e.getMessage());
+            LOG.debug("[Forum][Service] SQL异常详情: {}", e);
             e.printStackTrace();
         } finally {
             DatabaseUtil.closeAll(conn, ps, rs);
         }
         
-        System.out.println("[Forum][Service] 最终返回搜索结果数量: " + list.size());
+        LOG.debug("[Forum][Service] 最终返回搜索结果数量: {}", list.size());
+        threadCache.applyPendingCounts(list);
+        fillLikeState(list, currentUserId);
         return list;
     }
     
@@ -753,7 +1040,7 @@ public class ForumService {
      */
     public boolean deleteThread(Integer threadId, Integer adminId) {
         if (threadId == null || adminId == null) {
-            System.err.println("[Forum][Service] 删除帖子参数无效: threadId=" + threadId + ", adminId=" + adminId);
+            LOG.warn("[Forum][Service] 删除帖子参数无效: threadId={}, adminId={}", threadId, adminId);
             return false;
         }
         
@@ -773,11 +1060,13 @@ public class ForumService {
             
             if (rowsAffected > 0) {
                 conn.commit();
-                System.out.println("[Forum][Service] 帖子删除成功: threadId=" + threadId + ", adminId=" + adminId);
+                threadCache.remove(threadId);
+                searchIndex.removeThread(threadId);
+                LOG.info("[Forum][Service] 帖子删除成功: threadId={}, adminId={}", threadId, adminId);
                 return true;
             } else {
                 conn.rollback();
-                System.out.println("[Forum][Service] 帖子删除失败，可能帖子不存在或已被删除: threadId=" + threadId);
+                LOG.debug("[Forum][Service] 帖子删除失败，可能帖子不存在或已被删除: threadId={}", threadId);
                 return false;
             }
             
@@ -785,16 +1074,15 @@ public class ForumService {
             try {
                 if (conn != null) conn.rollback();
             } catch (Exception rollbackEx) {
-                System.err.println("[Forum][Service] 回滚删除帖子事务失败: " + rollbackEx.getMessage());
+                LOG.error("[Forum][Service] 回滚删除帖子事务失败: {}", rollbackEx.getMessage());
             }
-            System.err.println("[Forum][Service] 删除帖子异常: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[Forum][Service] 删除帖子异常: {}", e.getMessage(), e);
             return false;
         } finally {
             try {
                 if (conn != null) conn.setAutoCommit(true);
             } catch (Exception autoCommitEx) {
-                System.err.println("[Forum][Service] 恢复自动提交失败: " + autoCommitEx.getMessage());
+                LOG.error("[Forum][Service] 恢复自动提交失败: {}", autoCommitEx.getMessage());
             }
             DatabaseUtil.closeAll(conn, ps, null);
         }
@@ -809,8 +1097,7 @@ public class ForumService {
      */
     public boolean setThreadEssence(Integer threadId, Boolean isEssence, Integer adminId) {
         if (threadId == null || isEssence == null || adminId == null) {
-            System.err.println("[Forum][Service] 设置精华帖参数无效: threadId=" + threadId + 
-                             ", isEssence=" + isEssence + ", adminId=" + adminId);
+            LOG.warn("[Forum][Service] 设置精华帖参数无效: threadId={}, isEssence={}, adminId={}", threadId, isEssence, adminId);
             return false;
         }
         
@@ -829,17 +1116,17 @@ public class ForumService {
             int rowsAffected = ps.executeUpdate();
             
             if (rowsAffected > 0) {
+                threadCache.setEssence(threadId, isEssence);
                 String action = isEssence ? "设为精华" : "取消精华";
-                System.out.println("[Forum][Service] " + action + "成功: threadId=" + threadId + ", adminId=" + adminId);
+                LOG.info("[Forum][Service] {}成功: threadId={}, adminId={}", action, threadId, adminId);
                 return true;
             } else {
-                System.out.println("[Forum][Service] 设置精华状态失败，可能帖子不存在: threadId=" + threadId);
+                LOG.debug("[Forum][Service] 设置精华状态失败，可能帖子不存在: threadId={}", threadId);
                 return false;
             }
             
         } catch (Exception e) {
-            System.err.println("[Forum][Service] 设置精华帖异常: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[Forum][Service] 设置精华帖异常: {}", e.getMessage(), e);
             return false;
         } finally {
             DatabaseUtil.closeAll(conn, ps, null);
@@ -0,0 +1,455 @@
+package server.service;
+
+import common.vo.ThreadVO;
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 论坛主题缓存
+ * 1. 主题摘要按 LRU 缓存，最多 server.forum.cache.maxThreads 条；主题列表缓存为有序的主题ID，
+ *    列表中的主题都还在缓存里时 getAllThreads 直接由内存返回；
+ * 2. 点赞数、回复数、浏览数的变化先累加到按主题分散的内存计数器中，每隔 server.forum.cache.flushInterval 毫秒
+ *    批量写回 forum_threads，读取时在缓存值上叠加尚未写回的增量。
+ * 返回的 ThreadVO 都是副本，调用方可以自由修改（例如填充点赞状态）。
+ */
+public class ForumThreadCache {
+    private static final Log LOG = Log.get("forum");
+
+    private static ForumThreadCache instance;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private final int maxThreads;
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    // 主题列表顺序（置顶在前，其余按最后回帖时间倒序），null 表示需要从数据库重新加载
+    private List<Integer> listing;
+    private int pinnedInListing;
+
+    // 写回开始和结束时各加一，奇数表示正在写回；加载期间版本变化的结果不放入缓存，避免重复叠加增量
+    private long flushEpoch;
+
+    // 尚未写回的增量；ConcurrentHashMap.merge 按主题加锁，不同主题的计数互不竞争
+    private final ConcurrentHashMap<Integer, Delta> pending = new ConcurrentHashMap<>();
+    // 正在写回的增量（数据库尚未提交，缓存中的基准值也还没有包含）
+    private final Map<Integer, Delta> inFlight = new HashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    private ForumThreadCache() {
+        this.maxThreads = Math.max(1, ConfigUtil.getInt("server.forum.cache.maxThreads", 5000));
+        this.entries = new LinkedHashMap<Integer, Entry>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxThreads;
+            }
+        };
+
+        long interval = Math.max(100, ConfigUtil.getLong("server.forum.cache.flushInterval", 5000L));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "forum-counter-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                LOG.error("[Forum][Cache] 计数写回异常: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        LOG.info("[Forum][Cache] 主题缓存已启用: maxThreads={}, flushInterval={}ms", maxThreads, interval);
+    }
+
+    /**
+     * 获取缓存实例（第一次使用时创建并启动写回线程）
+     * @return 缓存实例
+     */
+    public static synchronized ForumThreadCache getInstance() {
+        if (instance == null) {
+            instance = new ForumThreadCache();
+        }
+        return instance;
+    }
+
+    /**
+     * 停止写回线程并写回全部剩余增量（服务器停止时调用，须在关闭连接池之前）
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.flusher.shutdown();
+            instance.flush();
+            instance = null;
+        }
+    }
+
+    // ================= 读取 =================
+
+    /**
+     * 开始从数据库加载之前取得版本号，加载完成后随结果一起交给 put/putListing
+     * @return 版本号
+     */
+    public long loadStamp() {
+        synchronized (lock) {
+            return flushEpoch;
+        }
+    }
+
+    /**
+     * 从缓存读取完整的主题列表
+     * @return 主题列表副本，列表未缓存或不完整时返回null
+     */
+    public List<ThreadVO> getListing() {
+        synchronized (lock) {
+            if (listing == null) {
+                return null;
+            }
+            List<ThreadVO> result = new ArrayList<>(listing.size());
+            for (Integer id : listing) {
+                Entry entry = entries.get(id);
+                if (entry == null) {
+                    // 部分主题已被淘汰，整个列表重新加载
+                    listing = null;
+                    return null;
+                }
+                result.add(entry.snapshot(this));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 从缓存读取单个主题
+     * @param threadId 主题ID
+     * @return 主题副本，未缓存返回null
+     */
+    public ThreadVO get(int threadId) {
+        synchronized (lock) {
+            Entry entry = entries.get(threadId);
+            return entry != null ? entry.snapshot(this) : null;
+        }
+    }
+
+    /**
+     * 缓存从数据库读取的单个主题
+     * @param vo 主题（计数为数据库中的值）
+     * @param pinned 是否置顶
+     * @param stamp 加载前取得的版本号
+     */
+    public void put(ThreadVO vo, boolean pinned, long stamp) {
+        synchronized (lock) {
+            if (stamp == flushEpoch && (stamp & 1) == 0) {
+                entries.put(vo.getThreadId(), new Entry(copy(vo), pinned));
+            }
+        }
+    }
+
+    /**
+     * 缓存从数据库读取的完整主题列表
+     * @param threads 主题列表，顺序与数据库排序一致（计数为数据库中的值）
+     * @param pinnedIds 其中置顶的主题ID
+     * @param stamp 加载前取得的版本号
+     */
+    public void putListing(List<ThreadVO> threads, Set<Integer> pinnedIds, long stamp) {
+        synchronized (lock) {
+            if (stamp != flushEpoch || (stamp & 1) != 0) {
+                return;
+            }
+            if (threads.size() > maxThreads) {
+                LOG.debug("[Forum][Cache] 主题数量({})超过缓存容量，主题列表不缓存", threads.size());
+                listing = null;
+                return;
+            }
+            List<Integer> ids = new ArrayList<>(threads.size());
+            for (ThreadVO vo : threads) {
+                boolean pinned = pinnedIds.contains(vo.getThreadId());
+                entries.put(vo.getThreadId(), new Entry(copy(vo), pinned));
+                ids.add(vo.getThreadId());
+            }
+            listing = ids;
+            pinnedInListing = pinnedIds.size();
+        }
+    }
+
+    /**
+     * 在直接从数据库读取的主题（搜索、分页等）上叠加尚未写回的计数增量
+     * @param threads 主题列表
+     */
+    public void applyPendingCounts(Collection<ThreadVO> threads) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (ThreadVO vo : threads) {
+            Delta delta = pending.get(vo.getThreadId());
+            if (delta != null) {
+                delta.applyTo(vo);
+            }
+        }
+    }
+
+    // ================= 计数 =================
+
+    /**
+     * 记录点赞数变化
+     * @param threadId 主题ID
+     * @param delta 变化量（点赞 +1，取消 -1）
+     */
+    public void addLikes(int threadId, int delta) {
+        pending.merge(threadId, new Delta(delta, 0, 0), Delta::plus);
+    }
+
+    /**
+     * 记录浏览
+     * @param threadId 主题ID
+     */
+    public void addView(int threadId) {
+        pending.merge(threadId, new Delta(0, 0, 1), Delta::plus);
+    }
+
+    /**
+     * 记录回复数变化；回复和删除回复都会刷新主题的最后回帖时间，主题移到所在分组的最前面
+     * @param threadId 主题ID
+     * @param delta 变化量（新回复 +1，删除回复 -1）
+     */
+    public void addReplies(int threadId, int delta) {
+        pending.merge(threadId, new Delta(0, delta, 0), Delta::plus);
+        synchronized (lock) {
+            if (listing == null) {
+                return;
+            }
+            Entry entry = entries.get(threadId);
+            if (entry == null || !listing.remove(Integer.valueOf(threadId))) {
+                listing = null;
+                return;
+            }
+            listing.add(entry.pinned ? 0 : Math.min(pinnedInListing, listing.size()), threadId);
+        }
+    }
+
+    // ================= 失效 =================
+
+    /**
+     * 主题被删除：从缓存和主题列表中移除
+     * @param threadId 主题ID
+     */
+    public void remove(int threadId) {
+        synchronized (lock) {
+            Entry entry = entries.remove(threadId);
+            if (listing == null || !listing.remove(Integer.valueOf(threadId))) {
+                return;
+            }
+            if (entry == null) {
+                // 不知道是否置顶，无法维护分组位置
+                listing = null;
+            } else if (entry.pinned) {
+                pinnedInListing--;
+            }
+        }
+    }
+
+    /**
+     * 更新缓存中主题的精华状态
+     * @param threadId 主题ID
+     * @param isEssence 是否精华
+     */
+    public void setEssence(int threadId, boolean isEssence) {
+        synchronized (lock) {
+            Entry entry = entries.get(threadId);
+            if (entry != null) {
+                entry.vo.setIsEssence(isEssence);
+            }
+        }
+    }
+
+    /**
+     * 主题列表发生变化（例如新建主题），下次读取时重新加载
+     */
+    public void invalidateListing() {
+        synchronized (lock) {
+            listing = null;
+        }
+    }
+
+    // ================= 写回 =================
+
+    /**
+     * 把尚未写回的增量批量写入数据库（一个连接、一个事务）
+     * 写入失败时增量放回内存，下次再试。
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Integer, Delta> batch = new HashMap<>();
+            for (Integer id : pending.keySet()) {
+                Delta delta = pending.remove(id);
+                if (delta != null && !delta.isZero()) {
+                    batch.put(id, delta);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            synchronized (lock) {
+                inFlight.putAll(batch);
+                flushEpoch++;
+            }
+            boolean ok = write(batch);
+            synchronized (lock) {
+                for (Map.Entry<Integer, Delta> e : batch.entrySet()) {
+                    if (ok) {
+                        Entry entry = entries.get(e.getKey());
+                        if (entry != null) {
+                            e.getValue().applyTo(entry.vo);
+                        }
+                    } else {
+                        pending.merge(e.getKey(), e.getValue(), Delta::plus);
+                    }
+                    inFlight.remove(e.getKey());
+                }
+                flushEpoch++;
+            }
+            if (ok) {
+                LOG.debug("[Forum][Cache] 写回主题计数: {} 个主题", batch.size());
+            }
+        }
+    }
+
+    private boolean write(Map<Integer, Delta> batch) {
+        String sql = "UPDATE forum_threads SET like_count = GREATEST(like_count + ?, 0), " +
+                "reply_count = GREATEST(reply_count + ?, 0), view_count = view_count + ? WHERE thread_id = ?";
+        Connection conn = null;
+        PreparedStatement ps = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            ps = conn.prepareStatement(sql);
+            for (Map.Entry<Integer, Delta> e : batch.entrySet()) {
+                Delta delta = e.getValue();
+                ps.setInt(1, delta.likes);
+                ps.setInt(2, delta.replies);
+                ps.setInt(3, delta.views);
+                ps.setInt(4, e.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            LOG.error("[Forum][Cache] 写回主题计数失败，稍后重试: {}", e.getMessage());
+            try {
+                if (conn != null) {
+                    conn.rollback();
+                }
+            } catch (SQLException rollbackEx) {
+                LOG.error("回滚事务失败: {}", rollbackEx.getMessage());
+            }
+            return false;
+        } finally {
+            try {
+                if (conn != null) {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                LOG.error("恢复自动提交失败: {}", e.getMessage());
+            }
+            DatabaseUtil.closeAll(conn, ps, null);
+        }
+    }
+
+    private static ThreadVO copy(ThreadVO src) {
+        ThreadVO vo = new ThreadVO();
+        vo.setThreadId(src.getThreadId());
+        vo.setTitle(src.getTitle());
+        vo.setContent(src.getContent());
+        vo.setAuthorId(src.getAuthorId());
+        vo.setReplyCount(src.getReplyCount());
+        vo.setViewCount(src.getViewCount());
+        vo.setLikeCount(src.getLikeCount());
+        vo.setFavoriteCount(src.getFavoriteCount());
+        vo.setCreatedTime(src.getCreatedTime());
+        vo.setUpdatedTime(src.getUpdatedTime());
+        vo.setStatus(src.getStatus());
+        vo.setSectionId(src.getSectionId());
+        vo.setSectionName(src.getSectionName());
+        vo.setAuthorName(src.getAuthorName());
+        vo.setAuthorLoginId(src.getAuthorLoginId());
+        vo.setIsAnnouncement(src.getIsAnnouncement());
+        vo.setIsLiked(src.getIsLiked());
+        vo.setIsEssence(src.getIsEssence());
+        return vo;
+    }
+
+    /**
+     * 缓存项：计数为数据库中已提交的值
+     */
+    private static final class Entry {
+        final ThreadVO vo;
+        final boolean pinned;
+
+        Entry(ThreadVO vo, boolean pinned) {
+            this.vo = vo;
+            this.pinned = pinned;
+        }
+
+        /** 调用方须持有 lock */
+        ThreadVO snapshot(ForumThreadCache cache) {
+            ThreadVO copy = copy(vo);
+            Delta flushing = cache.inFlight.get(vo.getThreadId());
+            if (flushing != null) {
+                flushing.applyTo(copy);
+            }
+            Delta delta = cache.pending.get(vo.getThreadId());
+            if (delta != null) {
+                delta.applyTo(copy);
+            }
+            return copy;
+        }
+    }
+
+    /**
+     * 计数增量（不可变）
+     */
+    private static final class Delta {
+        final int likes;
+        final int replies;
+        final int views;
+
+        Delta(int likes, int replies, int views) {
+            this.likes = likes;
+            this.replies = replies;
+            this.views = views;
+        }
+
+        Delta plus(Delta other) {
+            return new Delta(likes + other.likes, replies + other.replies, views + other.views);
+        }
+
+        boolean isZero() {
+            return likes == 0 && replies == 0 && views == 0;
+        }
+
+        void applyTo(ThreadVO vo) {
+            vo.setLikeCount(Math.max(0, (vo.getLikeCount() != null ? vo.getLikeCount() : 0) + likes));
+            vo.setReplyCount(Math.max(0, (vo.getReplyCount() != null ? vo.getReplyCount() : 0) + replies));
+            vo.setViewCount((vo.getViewCount() != null ? vo.getViewCount() : 0) + views);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package server.service;
+
+import common.vo.GradeStatsVO;
+import common.vo.GradeVO;
+import common.vo.StudentGpaVO;
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 成绩统计引擎
+ * 启动时一次读取 grades 表中已评分的成绩，之后常驻内存并随成绩录入增量更新，查看统计时不再扫描成绩表：
+ * 1. 每门课程：人数、成绩和、成绩平方和（以 0.01 分为单位的整数，均值和方差没有累积误差）、
+ *    各等级人数，以及按 0.1 分分桶的成绩分布（分位数查询扫描一遍分桶，误差不超过 0.1 分）；
+ * 2. 每名学生：Σ(绩点 × 学分)、Σ学分、及格学分，同一课程有多次成绩（重修）时只计最近一次。
+ * 分桶分布可以直接减去旧成绩，成绩被修改时先减去旧的贡献再加上新的贡献，不需要重新统计。
+ * 成绩写入数据库后须调用 {@link #gradeChanged(int, int)}，课程删除后须调用 {@link #courseChanged(int)}。
+ */
+public class GradeStatsEngine {
+    private static final Log LOG = Log.get("course");
+
+    /** 等级从高到低，与 GradeVO 的等级划分一致 */
+    private static final String[] LEVELS = {"A+", "A", "B+", "B", "C+", "C", "D+", "D", "F"};
+    private static final int BUCKETS = 1001;            // 0.0 - 100.0 分，每 0.1 分一个桶
+    private static final long PASS_SCORE = 6000;        // 及格线（0.01 分）
+
+    private static final String GRADE_COLUMNS = "g.grade_id, g.student_id, g.course_id, g.total_grade, "
+            + "g.grade_point, g.grade_level, COALESCE(g.credits, c.credits, 0) AS credits";
+    private static final String ORDER = " ORDER BY g.student_id, g.course_id, g.graded_time, g.grade_id";
+
+    private static volatile GradeStatsEngine instance;
+
+    private final ConcurrentHashMap<Integer, CourseStats> courses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, StudentStats> students = new ConcurrentHashMap<>();
+    // 同一时刻只有一个线程修改统计，读取只锁单门课程或单名学生
+    private final Object updateLock = new Object();
+
+    /**
+     * 创建空的引擎（不访问数据库），成绩通过 {@link #replace(int, int, List)} 加入，用于对比测试
+     */
+    GradeStatsEngine() {
+    }
+
+    /**
+     * 获取引擎实例（第一次使用时从数据库加载已评分的成绩）
+     * @return 引擎实例；未启用或加载失败时返回null，调用方按原流程查询
+     */
+    public static GradeStatsEngine getInstance() {
+        GradeStatsEngine engine = instance;
+        if (engine != null) {
+            return engine;
+        }
+        synchronized (GradeStatsEngine.class) {
+            if (instance == null && ConfigUtil.getBoolean("server.grade.stats.enabled", true)) {
+                GradeStatsEngine created = new GradeStatsEngine();
+                try {
+                    created.load();
+                } catch (SQLException e) {
+                    LOG.error("[Course][Grade] 加载成绩失败，暂不提供成绩统计: {}", e.getMessage());
+                    return null;
+                }
+                instance = created;
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * 释放引擎（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        instance = null;
+    }
+
+    private void load() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            int rows = 0;
+            for (Map.Entry<Long, List<GradeRecord>> e : query(conn, "", null).entrySet()) {
+                replace(studentOf(e.getKey()), courseOf(e.getKey()), e.getValue());
+                rows += e.getValue().size();
+            }
+            LOG.info("[Course][Grade] 已加载 {} 条成绩（{} 门课程，{} 名学生），耗时 {} ms",
+                    rows, courses.size(), students.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    // ================= 增量更新 =================
+
+    /**
+     * 学生某门课程的成绩写入数据库后调用：重新读取该学生该课程的成绩并更新统计（引擎未加载时不做任何事）
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     */
+    public static void gradeChanged(int studentId, int courseId) {
+        GradeStatsEngine engine = instance;
+        if (engine == null) {
+            return;
+        }
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Map<Long, List<GradeRecord>> loaded = query(conn,
+                    " AND g.student_id = ? AND g.course_id = ?", new int[]{studentId, courseId});
+            List<GradeRecord> records = loaded.get(key(studentId, courseId));
+            engine.replace(studentId, courseId, records == null ? Collections.emptyList() : records);
+        } catch (SQLException e) {
+            LOG.error("[Course][Grade] 刷新学生 {} 课程 {} 的成绩统计失败: {}", studentId, courseId, e.getMessage());
+        }
+    }
+
+    /**
+     * 课程被修改或删除后调用：重新读取该课程的全部成绩（引擎未加载时不做任何事）
+     * @param courseId 课程ID
+     */
+    public static void courseChanged(int courseId) {
+        GradeStatsEngine engine = instance;
+        if (engine == null) {
+            return;
+        }
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Map<Long, List<GradeRecord>> loaded = query(conn, " AND g.course_id = ?", new int[]{courseId});
+            synchronized (engine.updateLock) {
+                Set<Integer> affected = new HashSet<>();
+                CourseStats stats = engine.courses.get(courseId);
+                if (stats != null) {
+                    affected.addAll(stats.studentIds());
+                }
+                for (Long key : loaded.keySet()) {
+                    affected.add(studentOf(key));
+                }
+                for (Integer studentId : affected) {
+                    List<GradeRecord> records = loaded.get(key(studentId, courseId));
+                    engine.replace(studentId, courseId, records == null ? Collections.emptyList() : records);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Course][Grade] 刷新课程 {} 的成绩统计失败: {}", courseId, e.getMessage());
+        }
+    }
+
+    /**
+     * 用新的成绩记录替换学生某门课程原有的全部成绩记录
+     * @param records 该学生该课程的成绩，按评分时间排序（最后一条为最近一次），为空时表示没有成绩
+     */
+    void replace(int studentId, int courseId, List<GradeRecord> records) {
+        synchronized (updateLock) {
+            StudentStats student = students.get(studentId);
+            List<GradeRecord> old = student == null ? null : student.records(courseId);
+            CourseStats course = courses.get(courseId);
+            if (old != null && course != null) {
+                synchronized (course) {
+                    for (GradeRecord r : old) {
+                        course.remove(studentId, r);
+                    }
+                }
+            }
+            if (!records.isEmpty()) {
+                course = courses.computeIfAbsent(courseId, k -> new CourseStats());
+                synchronized (course) {
+                    for (GradeRecord r : records) {
+                        course.add(studentId, r);
+                    }
+                }
+            } else if (course != null && course.count == 0) {
+                courses.remove(courseId);
+            }
+            if (student == null && !records.isEmpty()) {
+                student = new StudentStats();
+                students.put(studentId, student);
+            }
+            if (student != null) {
+                synchronized (student) {
+                    student.put(courseId, records.isEmpty() ? null : new ArrayList<>(records));
+                }
+                if (student.courseCount() == 0) {
+                    students.remove(studentId);
+                }
+            }
+        }
+    }
+
+    // ================= 查询 =================
+
+    /**
+     * 课程的成绩统计
+     * @param courseId 课程ID
+     * @return 统计结果，没有已评分的成绩时人数为0
+     */
+    public GradeStatsVO getCourseStats(int courseId) {
+        GradeStatsVO vo = new GradeStatsVO();
+        vo.setCourseId(courseId);
+        Map<String, Integer> levels = new LinkedHashMap<>();
+        for (String level : LEVELS) {
+            levels.put(level, 0);
+        }
+        vo.setLevelCounts(levels);
+        CourseStats stats = courses.get(courseId);
+        if (stats == null) {
+            return vo;
+        }
+        synchronized (stats) {
+            int n = stats.count;
+            if (n == 0) {
+                return vo;
+            }
+            vo.setCount(n);
+            double mean = (double) stats.sum / n;
+            // 方差 = (nΣx² - (Σx)²) / n²，分子用整数计算
+            double variance = (double) (n * stats.sumSq - stats.sum * stats.sum) / ((double) n * n);
+            vo.setMean(mean / 100);
+            vo.setStdDev(Math.sqrt(Math.max(0, variance)) / 100);
+            vo.setMin(stats.valueAtRank(1));
+            vo.setMax(stats.valueAtRank(n));
+            vo.setP25(stats.percentile(25));
+            vo.setMedian(stats.percentile(50));
+            vo.setP75(stats.percentile(75));
+            vo.setP90(stats.percentile(90));
+            vo.setPassRate((double) stats.passed / n);
+            for (int i = 0; i < LEVELS.length; i++) {
+                levels.put(LEVELS[i], stats.levelCounts[i]);
+            }
+        }
+        return vo;
+    }
+
+    /**
+     * 学生的绩点
+     * @param studentId 学生ID
+     * @return 绩点统计，没有已评分的课程时各项为0
+     */
+    public StudentGpaVO getStudentGpa(int studentId) {
+        StudentGpaVO vo = new StudentGpaVO();
+        vo.setStudentId(studentId);
+        StudentStats stats = students.get(studentId);
+        if (stats == null) {
+            return vo;
+        }
+        synchronized (stats) {
+            vo.setGradedCourses(stats.courseCount());
+            vo.setTotalCredits((int) stats.credits);
+            vo.setEarnedCredits((int) stats.earnedCredits);
+            if (stats.credits > 0) {
+                vo.setGpa((double) stats.weightedPoints / stats.credits / 100);
+                vo.setAverageGrade((double) stats.weightedScores / stats.credits / 100);
+            }
+        }
+        return vo;
+    }
+
+    // ================= 数据读取 =================
+
+    /**
+     * 读取已评分的成绩，按学生和课程分组
+     * @param filter 附加的 WHERE 条件（以 AND 开头）
+     * @param params 条件参数
+     */
+    private static Map<Long, List<GradeRecord>> query(Connection conn, String filter, int[] params) throws SQLException {
+        String sql = "SELECT " + GRADE_COLUMNS + " FROM grades g LEFT JOIN courses c ON c.course_id = g.course_id "
+                + "WHERE g.total_grade IS NOT NULL" + filter + ORDER;
+        Map<Long, List<GradeRecord>> result = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setInt(i + 1, params[i]);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    GradeRecord record = GradeRecord.of(rs.getInt("grade_id"), rs.getBigDecimal("total_grade"),
+                            rs.getBigDecimal("grade_point"), rs.getString("grade_level"), rs.getInt("credits"));
+                    result.computeIfAbsent(key(rs.getInt("student_id"), rs.getInt("course_id")),
+                            k -> new ArrayList<>()).add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long key(int studentId, int courseId) {
+        return ((long) studentId << 32) | (courseId & 0xffffffffL);
+    }
+
+    private static int studentOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int courseOf(long key) {
+        return (int) key;
+    }
+
+    private static int levelIndex(String level) {
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(level)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 一条已评分的成绩（分数、绩点以 0.01 为单位）
+     */
+    static final class GradeRecord {
+        final int gradeId;
+        final long score;
+        final long point;
+        final int level;
+        final int credits;
+
+        private GradeRecord(int gradeId, long score, long point, int level, int credits) {
+            this.gradeId = gradeId;
+            this.score = score;
+            this.point = point;
+            this.level = level;
+            this.credits = credits;
+        }
+
+        /**
+         * @param point 绩点，为空时按总成绩计算
+         * @param level 等级，为空或无法识别时按总成绩计算
+         */
+        static GradeRecord of(int gradeId, BigDecimal total, BigDecimal point, String level, int credits) {
+            if (point == null || levelIndex(level) < 0) {
+                GradeVO derived = new GradeVO();
+                derived.applyTotalGrade(total);
+                point = point == null ? derived.getGradePoint() : point;
+                level = levelIndex(level) < 0 ? derived.getGradeLevel() : level;
+            }
+            return new GradeRecord(gradeId, hundredths(total), hundredths(point), levelIndex(level), Math.max(0, credits));
+        }
+
+        private static long hundredths(BigDecimal value) {
+            return value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+    }
+
+    /**
+     * 一门课程的累计统计（由所属对象的锁保护）
+     */
+    private static final class CourseStats {
+        int count;
+        long sum;
+        long sumSq;
+        int passed;
+        final int[] levelCounts = new int[LEVELS.length];
+        final int[] buckets = new int[BUCKETS];
+        // 学生ID -> 该学生在本课程的成绩条数，课程修改时用于找出受影响的学生
+        final Map<Integer, Integer> studentCounts = new HashMap<>();
+
+        void add(int studentId, GradeRecord r) {
+            apply(r, 1);
+            studentCounts.merge(studentId, 1, Integer::sum);
+        }
+
+        void remove(int studentId, GradeRecord r) {
+            apply(r, -1);
+            studentCounts.computeIfPresent(studentId, (k, v) -> v > 1 ? v - 1 : null);
+        }
+
+        private void apply(GradeRecord r, int sign) {
+            count += sign;
+            sum += sign * r.score;
+            sumSq += sign * r.score * r.score;
+            if (r.score >= PASS_SCORE) {
+                passed += sign;
+            }
+            if (r.level >= 0) {
+                levelCounts[r.level] += sign;
+            }
+            buckets[bucket(r.score)] += sign;
+        }
+
+        Set<Integer> studentIds() {
+            return new HashSet<>(studentCounts.keySet());
+        }
+
+        private static int bucket(long score) {
+            return (int) Math.max(0, Math.min(BUCKETS - 1, score / 10));
+        }
+
+        /**
+         * 第 p 百分位数（最近秩法）
+         */
+        double percentile(double p) {
+            long rank = (long) Math.ceil(p / 100 * count);
+            return valueAtRank(Math.max(1, rank));
+        }
+
+        /**
+         * 从低到高第 rank 个成绩所在分桶的下界
+         */
+        double valueAtRank(long rank) {
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i / 10.0;
+                }
+            }
+            return (BUCKETS - 1) / 10.0;
+        }
+    }
+
+    /**
+     * 一名学生的绩点累计（由所属对象的锁保护）
+     */
+    private static final class StudentStats {
+        // 课程ID -> 该课程的成绩记录（最后一条计入绩点）
+        private final Map<Integer, List<GradeRecord>> byCourse = new HashMap<>();
+        long weightedPoints;
+        long weightedScores;
+        long credits;
+        long earnedCredits;
+
+        List<GradeRecord> records(int courseId) {
+            synchronized (this) {
+                return byCourse.get(courseId);
+            }
+        }
+
+        int courseCount() {
+            synchronized (this) {
+                return byCourse.size();
+            }
+        }
+
+        void put(int courseId, List<GradeRecord> records) {
+            List<GradeRecord> old = records == null ? byCourse.remove(courseId) : byCourse.put(courseId, records);
+            if (old != null) {
+                apply(old.get(old.size() - 1), -1);
+            }
+            if (records != null) {
+                apply(records.get(records.size() - 1), 1);
+            }
+        }
+
+        private void apply(GradeRecord r, int sign) {
+            weightedPoints += sign * r.point * r.credits;
+            weightedScores += sign * r.score * r.credits;
+            credits += sign * r.credits;
+            if (r.score >= PASS_SCORE) {
+                earnedCredits += sign * r.credits;
+            }
+        }
+    }
+}
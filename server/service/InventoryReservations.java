@@ -0,0 +1,378 @@
+package server.service;
+
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商品库存预占
+ * 下单时库存的扣减（预占）和订单取消、超时后的归还都经过这里：
+ * 1. 扣减使用条件更新 stock = stock - ? WHERE stock >= ?，受影响行数为0即库存不足，数据库是库存的唯一依据，不会超卖；
+ * 2. 同一商品的下单在进程内按商品分段加锁（server.store.lockStripes 段，按段号从小到大加锁，不会死锁），
+ *    热门商品的并发下单在锁上排队，而不是各占一个数据库连接等待行锁；
+ * 3. 秒杀商品（server.store.flashSale.productIds）另有内存中的可售数量，先在内存中原子扣减，
+ *    售罄后的下单直接拒绝，不再访问数据库；内存数量只用于提前拒绝，与数据库不一致时以数据库为准并重新加载；
+ * 4. 待支付订单超过 server.store.reservation.ttl 毫秒未支付时由后台线程取消并归还库存（为0时不过期）。
+ * 商品库存被其他途径修改后须调用 {@link #stockChanged(int)}。
+ */
+public class InventoryReservations {
+    private static final Log LOG = Log.get("store");
+
+    /** 未支付订单的状态（历史数据中两种写法都有） */
+    public static final String UNPAID_STATUSES = "'pending', '待支付'";
+    /** 已结束、不能再取消的订单状态 */
+    public static final String FINISHED_STATUSES = "'cancelled', 'shipped', 'delivered'";
+
+    private static InventoryReservations instance;
+
+    private final ReentrantLock[] stripes;
+    private final Set<Integer> flashSaleIds;
+    // 秒杀商品ID -> 内存中的可售数量，第一次使用时从数据库加载
+    private final ConcurrentHashMap<Integer, AtomicInteger> available = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;      // 超时订单的取消线程，不过期时为null
+
+    private InventoryReservations() {
+        this(ConfigUtil.getInt("server.store.lockStripes", 256),
+                parseIds(ConfigUtil.getString("server.store.flashSale.productIds", "")));
+        // 默认不过期：启用前创建的未支付订单没有约定保留时间，不能在上线后的第一次检查时全部取消
+        long ttl = ConfigUtil.getLong("server.store.reservation.ttl", 0L);
+        if (ttl > 0) {
+            long interval = Math.max(1000, ConfigUtil.getLong("server.store.reservation.sweepInterval", 60_000L));
+            ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "store-reservation-expiry");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.scheduleWithFixedDelay(() -> {
+                try {
+                    expireUnpaid(ttl);
+                } catch (Exception e) {
+                    LOG.error("[Store][Inventory] 取消超时订单异常: {}", e.getMessage());
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+            sweeper = executor;
+        }
+        LOG.info("[Store][Inventory] 库存预占已启用: lockStripes={}, 秒杀商品 {} 个, 未支付订单保留 {} ms",
+                stripes.length, flashSaleIds.size(), ttl);
+    }
+
+    private InventoryReservations(int stripeCount, Set<Integer> flashSaleIds) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.flashSaleIds = flashSaleIds;
+    }
+
+    /**
+     * 获取实例（第一次使用时创建并启动超时订单的取消线程）
+     * @return 实例
+     */
+    public static synchronized InventoryReservations getInstance() {
+        if (instance == null) {
+            instance = new InventoryReservations();
+        }
+        return instance;
+    }
+
+    /**
+     * 停止超时订单的取消线程（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            if (instance.sweeper != null) {
+                instance.sweeper.shutdownNow();
+            }
+            instance = null;
+        }
+    }
+
+    private static synchronized InventoryReservations existing() {
+        return instance;
+    }
+
+    // ================= 预占 =================
+
+    /**
+     * 在内存中预扣秒杀商品的可售数量（普通商品不做任何事）
+     * @param productIds 商品ID（不重复）
+     * @param quantities 对应的数量
+     * @return 全部预扣成功返回true；任一商品不足时已扣的全部退回并返回false
+     */
+    public boolean hold(int[] productIds, int[] quantities) {
+        for (int i = 0; i < productIds.length; i++) {
+            AtomicInteger counter = counter(productIds[i]);
+            if (counter == null) {
+                continue;
+            }
+            int qty = quantities[i];
+            int left;
+            do {
+                left = counter.get();
+            } while (left >= qty && !counter.compareAndSet(left, left - qty));
+            if (left < qty) {
+                unhold(productIds, quantities, i);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 退回 {@link #hold(int[], int[])} 预扣的前 count 项（下单失败时调用）
+     */
+    public void unhold(int[] productIds, int[] quantities, int count) {
+        for (int i = 0; i < count; i++) {
+            AtomicInteger counter = available.get(productIds[i]);
+            if (counter != null) {
+                counter.addAndGet(quantities[i]);
+            }
+        }
+    }
+
+    /**
+     * 按商品所在的锁分段从小到大加锁，返回的分段号须交给 {@link #unlock(int[])}
+     * @param productIds 商品ID
+     * @return 已加锁的分段号
+     */
+    public int[] lock(int[] productIds) {
+        int[] held = Arrays.stream(productIds).map(this::stripe).sorted().distinct().toArray();
+        for (int s : held) {
+            stripes[s].lock();
+        }
+        return held;
+    }
+
+    public void unlock(int[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            stripes[held[i]].unlock();
+        }
+    }
+
+    private int stripe(int productId) {
+        return Math.floorMod(productId * 0x9E3779B9, stripes.length);
+    }
+
+    /**
+     * 在调用方的事务中按条件扣减库存（商品ID从小到大，与其他事务的加锁顺序一致）
+     * @param conn 事务中的连接
+     * @param productIds 商品ID（不重复，已排序）
+     * @param quantities 对应的数量
+     * @return 库存不足的商品ID，全部扣减成功返回null
+     */
+    public Integer reserve(Connection conn, int[] productIds, int[] quantities) throws SQLException {
+        String sql = "UPDATE products SET stock = stock - ? WHERE product_id = ? AND stock >= ?";
+        // 逐条执行：批量执行时驱动可能不返回每条语句的受影响行数
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < productIds.length; i++) {
+                ps.setInt(1, quantities[i]);
+                ps.setInt(2, productIds[i]);
+                ps.setInt(3, quantities[i]);
+                if (ps.executeUpdate() == 0) {
+                    // 内存中的可售数量与数据库不一致，下次使用时重新加载
+                    available.remove(productIds[i]);
+                    return productIds[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 在调用方的事务中把订单的商品数量归还库存（订单状态已由调用方改为取消之后调用）
+     * 秒杀商品的内存可售数量此时不变，事务提交之后须调用 {@link #restore(Released)}；回滚时不需要处理
+     * @param conn 事务中的连接
+     * @param orderId 订单ID
+     * @return 归还的商品和数量
+     */
+    public Released release(Connection conn, int orderId) throws SQLException {
+        List<int[]> items = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT product_id, SUM(quantity) FROM order_items WHERE order_id = ? GROUP BY product_id ORDER BY product_id")) {
+            ps.setInt(1, orderId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new int[]{rs.getInt(1), rs.getInt(2)});
+                }
+            }
+        }
+        int[] productIds = new int[items.size()];
+        int[] quantities = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            productIds[i] = items.get(i)[0];
+            quantities[i] = items.get(i)[1];
+        }
+        if (productIds.length > 0) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE products SET stock = stock + ? WHERE product_id = ?")) {
+                for (int i = 0; i < productIds.length; i++) {
+                    ps.setInt(1, quantities[i]);
+                    ps.setInt(2, productIds[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        return new Released(productIds, quantities);
+    }
+
+    /**
+     * 归还库存的事务提交之后调用：把归还的数量加回秒杀商品的内存可售数量
+     * @param released {@link #release(Connection, int)} 的结果
+     */
+    public void restore(Released released) {
+        unhold(released.productIds, released.quantities, released.productIds.length);
+    }
+
+    /**
+     * 商品库存被其他途径修改（调整库存、修改或删除商品）后调用：丢弃内存中的可售数量
+     * @param productId 商品ID
+     */
+    public static void stockChanged(int productId) {
+        InventoryReservations reservations = existing();
+        if (reservations != null) {
+            reservations.available.remove(productId);
+        }
+    }
+
+    /**
+     * 秒杀商品的可售数量计数器，第一次使用时从数据库加载
+     * @return 计数器；不是秒杀商品或加载失败时返回null（只由数据库判断）
+     */
+    private AtomicInteger counter(int productId) {
+        if (!flashSaleIds.contains(productId)) {
+            return null;
+        }
+        AtomicInteger counter = available.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT stock FROM products WHERE product_id = ?")) {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                int stock = rs.next() ? rs.getInt(1) : 0;
+                return available.computeIfAbsent(productId, k -> new AtomicInteger(stock));
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Inventory] 加载商品 {} 的库存失败: {}", productId, e.getMessage());
+            return null;
+        }
+    }
+
+    // ================= 超时订单 =================
+
+    /**
+     * 取消创建超过 ttl 毫秒仍未支付的订单并归还库存，每个订单一个事务
+     */
+    void expireUnpaid(long ttl) {
+        List<Integer> expired = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT order_id FROM orders WHERE status IN ("
+                     + UNPAID_STATUSES + ") AND created_time < ? ORDER BY order_id LIMIT 500")) {
+            ps.setTimestamp(1, new java.sql.Timestamp(System.currentTimeMillis() - ttl));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    expired.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Inventory] 查询超时订单失败: {}", e.getMessage());
+            return;
+        }
+        int cancelled = 0;
+        for (Integer orderId : expired) {
+            if (cancelUnpaid(orderId)) {
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            LOG.info("[Store][Inventory] 已取消 {} 个超时未支付的订单并归还库存", cancelled);
+        }
+    }
+
+    private boolean cancelUnpaid(int orderId) {
+        Connection conn = null;
+        try {
+            conn = DatabaseUtil.getConnection();
+            conn.setAutoCommit(false);
+            int updated;
+            Released released = null;
+            // 只有仍未支付时才取消，与同时进行的支付互斥
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE orders SET status = 'cancelled' WHERE order_id = ? AND status IN ("
+                    + UNPAID_STATUSES + ")")) {
+                ps.setInt(1, orderId);
+                updated = ps.executeUpdate();
+            }
+            if (updated > 0) {
+                released = release(conn, orderId);
+            }
+            conn.commit();
+            if (released != null) {
+                restore(released);
+                ProductCatalog.productsChanged(released.getProductIds());
+                SalesAnalytics.orderCancelled(orderId);
+            }
+            return updated > 0;
+        } catch (SQLException e) {
+            if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
+            LOG.error("[Store][Inventory] 取消超时订单 {} 失败: {}", orderId, e.getMessage());
+            return false;
+        } finally {
+            if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
+        }
+    }
+
+    /**
+     * 取消订单时归还的库存
+     */
+    public static final class Released {
+        private final int[] productIds;
+        private final int[] quantities;
+
+        Released(int[] productIds, int[] quantities) {
+            this.productIds = productIds;
+            this.quantities = quantities;
+        }
+
+        public int[] getProductIds() {
+            return productIds;
+        }
+
+        public int[] getQuantities() {
+            return quantities;
+        }
+    }
+
+    private static Set<Integer> parseIds(String value) {
+        Set<Integer> ids = new HashSet<>();
+        for (String part : value.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            try {
+                ids.add(Integer.parseInt(part));
+            } catch (NumberFormatException e) {
+                LOG.warn("[Store][Inventory] 忽略无效的秒杀商品ID: {}", part);
+            }
+        }
+        return ids;
+    }
+}
@@ -1,6 +1,8 @@
 package server.service;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import common.vo.BookVO;
 import common.vo.BorrowRecordVO;
@@ -40,12 +42,18 @@ public interface LibraryService {
     // 根据文献ID获取详情
     DocumentVO getDocumentById(int docId);
 
+    // 文献在磁盘上的文件，不存在时返回null（分块下载使用）
+    File getDocumentFile(int docId);
+
     // 下载文献：返回文件字节流
     byte[] downloadDocument(int docId);
 
     // 上传文献（管理员）：插入记录 + 保存文件
     boolean uploadDocument(DocumentVO doc, InputStream fileStream);
 
+    // 上传文献（分块上传完成后）：插入记录，把已校验的临时文件移动到存储位置，返回新文献ID，失败返回null
+    Integer importDocument(DocumentVO doc, Path file);
+
     // 编辑文献信息（不涉及文件）
     boolean updateDocument(DocumentVO doc);
 
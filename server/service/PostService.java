@@ -4,6 +4,7 @@ import common.vo.PostVO;
 import server.dao.PostDAO;
 import server.dao.impl.PostDAOImpl;
 import server.dao.ForumLikeDAO;
+import server.util.Log;
 
 import java.util.List;
 
@@ -12,6 +13,7 @@ import java.util.List;
  * 提供回复相关的业务逻辑处理
  */
 public class PostService {
+    private static final Log LOG = Log.get("forum");
     
     private PostDAO postDAO = new PostDAOImpl();
     private ForumLikeDAO likeDAO = new ForumLikeDAO();
@@ -32,7 +34,7 @@ public class PostService {
      * @return 回复列表
      */
     public List<PostVO> getPostsByThreadId(Integer threadId, Integer currentUserId) {
-        System.out.println("[PostService] 获取主题回复: threadId=" + threadId + ", currentUserId=" + currentUserId);
+        LOG.debug("[PostService] 获取主题回复: threadId={}, currentUserId={}", threadId, currentUserId);
         return postDAO.findByThreadIdWithUserInfo(threadId, currentUserId);
     }
     
@@ -52,7 +54,7 @@ public class PostService {
      * @return 子回复列表
      */
     public List<PostVO> getSubReplies(Integer parentPostId, Integer currentUserId) {
-        System.out.println("[PostService] 获取子回复: parentPostId=" + parentPostId + ", currentUserId=" + currentUserId);
+        LOG.debug("[PostService] 获取子回复: parentPostId={}, currentUserId={}", parentPostId, currentUserId);
         return postDAO.findByParentPostIdWithUserInfo(parentPostId, currentUserId);
     }
     
@@ -63,11 +65,11 @@ public class PostService {
      * @return 创建的回复ID，失败返回null
      */
     public Integer createThreadReply(PostVO post, Integer authorUserId) {
-        System.out.println("[PostService] 创建主题回复: threadId=" + post.getThreadId() + ", authorUserId=" + authorUserId);
+        LOG.debug("[PostService] 创建主题回复: threadId={}, authorUserId={}", post.getThreadId(), authorUserId);
         
         // 验证参数
         if (post == null || post.getThreadId() == null || post.getContent() == null || authorUserId == null) {
-            System.err.println("[PostService] 创建主题回复失败：参数不完整");
+            LOG.warn("[PostService] 创建主题回复失败：参数不完整");
             return null;
         }
         
@@ -75,7 +77,7 @@ public class PostService {
         post.setParentPostId(null);
         post.setQuotePostId(null);
         
-        return postDAO.createReply(post, authorUserId);
+        return onReplyCreated(post, postDAO.createReply(post, authorUserId));
     }
     
     /**
@@ -86,27 +88,27 @@ public class PostService {
      * @return 创建的回复ID，失败返回null
      */
     public Integer createSubReply(PostVO post, Integer parentPostId, Integer authorUserId) {
-        System.out.println("[PostService] 创建子回复: parentPostId=" + parentPostId + ", authorUserId=" + authorUserId);
+        LOG.debug("[PostService] 创建子回复: parentPostId={}, authorUserId={}", parentPostId, authorUserId);
         
         // 验证参数
         if (post == null || parentPostId == null || post.getContent() == null || authorUserId == null) {
-            System.err.println("[PostService] 创建子回复失败：参数不完整");
+            LOG.warn("[PostService] 创建子回复失败：参数不完整");
             return null;
         }
         
         // 验证父回复是否存在
         if (!postDAO.existsPost(parentPostId)) {
-            System.err.println("[PostService] 创建子回复失败：父回复不存在");
+            LOG.warn("[PostService] 创建子回复失败：父回复不存在");
             return null;
         }
         
         // 验证父回复是否属于同一主题
         if (!postDAO.isPostBelongsToThread(parentPostId, post.getThreadId())) {
-            System.err.println("[PostService] 创建子回复失败：父回复不属于同一主题");
+            LOG.warn("[PostService] 创建子回复失败：父回复不属于同一主题");
             return null;
         }
         
-        return postDAO.createSubReply(post, parentPostId, authorUserId);
+        return onReplyCreated(post, postDAO.createSubReply(post, parentPostId, authorUserId));
     }
     
     /**
@@ -117,27 +119,27 @@ public class PostService {
      * @return 创建的回复ID，失败返回null
      */
     public Integer createQuoteReply(PostVO post, Integer quotePostId, Integer authorUserId) {
-        System.out.println("[PostService] 创建引用回复: quotePostId=" + quotePostId + ", authorUserId=" + authorUserId);
+        LOG.debug("[PostService] 创建引用回复: quotePostId={}, authorUserId={}", quotePostId, authorUserId);
         
         // 验证参数
         if (post == null || quotePostId == null || post.getContent() == null || authorUserId == null) {
-            System.err.println("[PostService] 创建引用回复失败：参数不完整");
+            LOG.warn("[PostService] 创建引用回复失败：参数不完整");
             return null;
         }
         
         // 验证被引用的回复是否存在
         if (!postDAO.existsPost(quotePostId)) {
-            System.err.println("[PostService] 创建引用回复失败：被引用的回复不存在");
+            LOG.warn("[PostService] 创建引用回复失败：被引用的回复不存在");
             return null;
         }
         
         // 验证被引用的回复是否属于同一主题
         if (!postDAO.isPostBelongsToThread(quotePostId, post.getThreadId())) {
-            System.err.println("[PostService] 创建引用回复失败：被引用的回复不属于同一主题");
+            LOG.warn("[PostService] 创建引用回复失败：被引用的回复不属于同一主题");
             return null;
         }
         
-        return postDAO.createQuoteReply(post, quotePostId, authorUserId);
+        return onReplyCreated(post, postDAO.createQuoteReply(post, quotePostId, authorUserId));
     }
     
     /**
@@ -146,7 +148,7 @@ public class PostService {
      * @return 回复对象，不存在返回null
      */
     public PostVO getPostById(Integer postId) {
-        System.out.println("[PostService] 获取回复详情: postId=" + postId);
+        LOG.debug("[PostService] 获取回复详情: postId={}", postId);
         return postDAO.findById(postId);
     }
     
@@ -157,28 +159,32 @@ public class PostService {
      * @return 更新成功返回true
      */
     public boolean updatePost(PostVO post, Integer userId) {
-        System.out.println("[PostService] 更新回复: postId=" + post.getPostId() + ", userId=" + userId);
+        LOG.debug("[PostService] 更新回复: postId={}, userId={}", post.getPostId(), userId);
         
         // 验证参数
         if (post == null || post.getPostId() == null || post.getContent() == null || userId == null) {
-            System.err.println("[PostService] 更新回复失败：参数不完整");
+            LOG.warn("[PostService] 更新回复失败：参数不完整");
             return false;
         }
         
         // 验证回复是否存在
         PostVO existingPost = postDAO.findById(post.getPostId());
         if (existingPost == null) {
-            System.err.println("[PostService] 更新回复失败：回复不存在");
+            LOG.warn("[PostService] 更新回复失败：回复不存在");
             return false;
         }
         
         // 验证权限（只有作者可以编辑）
         if (!existingPost.getAuthorId().equals(userId)) {
-            System.err.println("[PostService] 更新回复失败：无权限编辑");
+            LOG.warn("[PostService] 更新回复失败：无权限编辑");
             return false;
         }
         
-        return postDAO.update(post);
+        boolean updated = postDAO.update(post);
+        if (updated && existingPost.getThreadId() != null) {
+            ForumSearchIndex.getInstance().addPost(post.getPostId(), existingPost.getThreadId(), post.getContent());
+        }
+        return updated;
     }
     
     /**
@@ -188,28 +194,47 @@ public class PostService {
      * @return 删除成功返回true
      */
     public boolean deletePost(Integer postId, Integer userId) {
-        System.out.println("[PostService] 删除回复: postId=" + postId + ", userId=" + userId);
+        LOG.debug("[PostService] 删除回复: postId={}, userId={}", postId, userId);
         
         // 验证参数
         if (postId == null || userId == null) {
-            System.err.println("[PostService] 删除回复失败：参数不完整");
+            LOG.warn("[PostService] 删除回复失败：参数不完整");
             return false;
         }
         
         // 验证回复是否存在
         PostVO existingPost = postDAO.findById(postId);
         if (existingPost == null) {
-            System.err.println("[PostService] 删除回复失败：回复不存在");
+            LOG.warn("[PostService] 删除回复失败：回复不存在");
             return false;
         }
         
         // 验证权限（只有作者可以删除）
         if (!existingPost.getAuthorId().equals(userId)) {
-            System.err.println("[PostService] 删除回复失败：无权限删除");
+            LOG.warn("[PostService] 删除回复失败：无权限删除");
             return false;
         }
         
-        return postDAO.softDeletePost(postId);
+        boolean deleted = postDAO.softDeletePost(postId);
+        if (deleted && existingPost.getThreadId() != null) {
+            ForumThreadCache.getInstance().addReplies(existingPost.getThreadId(), -1);
+            ForumSearchIndex.getInstance().removePost(postId);
+        }
+        return deleted;
+    }
+    
+    /**
+     * 回复创建成功后累加主题回复数并加入检索索引
+     * @param post 回复对象
+     * @param postId 新回复ID，创建失败为null
+     * @return postId
+     */
+    private Integer onReplyCreated(PostVO post, Integer postId) {
+        if (postId != null && post.getThreadId() != null) {
+            ForumThreadCache.getInstance().addReplies(post.getThreadId(), 1);
+            ForumSearchIndex.getInstance().addPost(postId, post.getThreadId(), post.getContent());
+        }
+        return postId;
     }
     
     /**
@@ -219,17 +244,17 @@ public class PostService {
      * @return true表示点赞成功，false表示取消点赞成功，null表示操作失败
      */
     public Boolean togglePostLike(Integer postId, Integer userId) {
-        System.out.println("[PostService] 切换回复点赞状态: postId=" + postId + ", userId=" + userId);
+        LOG.debug("[PostService] 切换回复点赞状态: postId={}, userId={}", postId, userId);
         
         // 验证参数
         if (postId == null || userId == null) {
-            System.err.println("[PostService] 切换回复点赞失败：参数不完整");
+            LOG.warn("[PostService] 切换回复点赞失败：参数不完整");
             return null;
         }
         
         // 验证回复是否存在
         if (!postDAO.existsPost(postId)) {
-            System.err.println("[PostService] 切换回复点赞失败：回复不存在");
+            LOG.warn("[PostService] 切换回复点赞失败：回复不存在");
             return null;
         }
         
@@ -261,7 +286,7 @@ public class PostService {
      * @return 回复列表
      */
     public List<PostVO> getUserPosts(Integer authorId) {
-        System.out.println("[PostService] 获取用户回复: authorId=" + authorId);
+        LOG.debug("[PostService] 获取用户回复: authorId={}", authorId);
         return postDAO.findByAuthorId(authorId);
     }
     
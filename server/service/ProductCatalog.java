@@ -0,0 +1,500 @@
+package server.service;
+
+import common.vo.ProductPageVO;
+import common.vo.ProductQueryVO;
+import common.vo.ProductVO;
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品目录
+ * 全部商品常驻内存，搜索和筛选不再访问数据库：
+ * 1. 关键词：商品名称和描述（转为小写）中每两个相邻字符为一个词建倒排表，查询时取关键词各个两字词的倒排表求交集，
+ *    再对候选商品逐个确认包含整个关键词，结果与 LIKE '%关键词%' 相同；关键词只有一个字符时使用单字倒排表；
+ * 2. 价格、库存各有一个有序索引，只有区间条件时直接取区间内的商品；
+ * 3. 可按价格或销量（未取消订单中的件数）排序。
+ * 目录有版本号，任何商品的信息、库存、销量变化时加一；客户端带上缓存结果的版本号查询，未变化时服务器只回复"未修改"。
+ * 数据库中的商品修改后须调用 {@link #productsChanged(int...)}（在事务提交之后），商品删除后调用 {@link #productRemoved(int)}。
+ * 返回的 ProductVO 由所有读取者共享，调用方不能修改。
+ */
+public class ProductCatalog {
+    private static final Log LOG = Log.get("store");
+
+    private static final String PRODUCT_COLUMNS = "p.product_id, p.product_name, p.description, p.price, p.stock, "
+            + "p.category, p.created_time, p.image_url";
+    private static final String SOLD = "SELECT oi.product_id, SUM(oi.quantity) FROM order_items oi "
+            + "JOIN orders o ON o.order_id = oi.order_id WHERE o.status <> 'cancelled'";
+
+    private static volatile ProductCatalog instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong version = new AtomicLong(1);
+    private final AtomicLong loadSeq = new AtomicLong();
+    private final HashMap<Integer, Item> items = new HashMap<>();
+    private final HashMap<Integer, Set<Integer>> grams = new HashMap<>();        // 两字词或单字 -> 商品ID
+    private final TreeMap<Double, Set<Integer>> byPrice = new TreeMap<>();
+    private final TreeMap<Integer, Set<Integer>> byStock = new TreeMap<>();
+
+    /**
+     * 创建空的目录（不访问数据库），商品通过 {@link #put(ProductVO, String, int, long)} 加入，用于对比测试
+     */
+    ProductCatalog() {
+    }
+
+    /**
+     * 获取目录实例（第一次使用时从数据库加载全部商品和销量）
+     * @return 目录实例；未启用或加载失败时返回null，调用方按原流程查询数据库
+     */
+    public static ProductCatalog getInstance() {
+        ProductCatalog catalog = instance;
+        if (catalog != null) {
+            return catalog;
+        }
+        synchronized (ProductCatalog.class) {
+            if (instance == null && ConfigUtil.getBoolean("server.store.catalog.enabled", true)) {
+                ProductCatalog created = new ProductCatalog();
+                try {
+                    created.load();
+                } catch (SQLException e) {
+                    LOG.error("[Store][Catalog] 加载商品目录失败，暂时按原流程查询商品: {}", e.getMessage());
+                    return null;
+                }
+                instance = created;
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * 已加载的目录，不触发加载
+     * @return 目录实例；未启用、未加载或加载失败时返回null
+     */
+    static ProductCatalog current() {
+        return instance;
+    }
+
+    /**
+     * 释放目录（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        instance = null;
+    }
+
+    private void load() throws SQLException {
+        long start = System.currentTimeMillis();
+        long seq = loadSeq.incrementAndGet();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Map<Integer, Integer> sold = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(SOLD + " GROUP BY oi.product_id");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sold.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT " + PRODUCT_COLUMNS + " FROM products p");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ProductVO vo = mapProduct(rs);
+                    put(vo, rs.getString("image_url"), sold.getOrDefault(vo.getProductId(), 0), seq);
+                }
+            }
+        }
+        LOG.info("[Store][Catalog] 已加载 {} 件商品，耗时 {} ms", items.size(), System.currentTimeMillis() - start);
+    }
+
+    // ================= 更新 =================
+
+    /**
+     * 商品新增、修改或库存、销量变化（事务提交之后）调用：从数据库重新读取这些商品（目录未加载时不做任何事）
+     * @param productIds 商品ID
+     */
+    public static void productsChanged(int... productIds) {
+        ProductCatalog catalog = instance;
+        if (catalog == null || productIds.length == 0) {
+            return;
+        }
+        // 读取开始前取序号，同一商品的两次读取按序号先后生效，后开始的读取看到的数据不会比先开始的旧
+        long seq = catalog.loadSeq.incrementAndGet();
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < productIds.length; i++) {
+            in.append(i == 0 ? "?" : ", ?");
+        }
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Map<Integer, Integer> sold = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(SOLD + " AND oi.product_id IN (" + in + ") GROUP BY oi.product_id")) {
+                for (int i = 0; i < productIds.length; i++) {
+                    ps.setInt(i + 1, productIds[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        sold.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+            }
+            Set<Integer> found = new HashSet<>();
+            try (PreparedStatement ps = conn.prepareStatement("SELECT " + PRODUCT_COLUMNS
+                    + " FROM products p WHERE p.product_id IN (" + in + ")")) {
+                for (int i = 0; i < productIds.length; i++) {
+                    ps.setInt(i + 1, productIds[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ProductVO vo = mapProduct(rs);
+                        found.add(vo.getProductId());
+                        catalog.put(vo, rs.getString("image_url"), sold.getOrDefault(vo.getProductId(), 0), seq);
+                    }
+                }
+            }
+            for (int id : productIds) {
+                if (!found.contains(id)) {
+                    catalog.remove(id, seq);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Catalog] 刷新商品失败，重新加载整个目录: {}", e.getMessage());
+            // 无法确认这些商品的最新状态，丢弃目录，下次使用时重新加载
+            synchronized (ProductCatalog.class) {
+                if (instance == catalog) {
+                    instance = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 商品删除后调用
+     * @param productId 商品ID
+     */
+    public static void productRemoved(int productId) {
+        ProductCatalog catalog = instance;
+        if (catalog != null) {
+            catalog.remove(productId, catalog.loadSeq.incrementAndGet());
+        }
+    }
+
+    /**
+     * 加入或替换一件商品
+     * @param imageUrl 商品图片（products.image_url，不放进 ProductVO，只在购物车等需要时单独取）
+     * @param seq 读取序号，比该商品已生效的序号小时忽略（读取结果已过时）
+     */
+    void put(ProductVO vo, String imageUrl, int sold, long seq) {
+        vo.setSales(sold);
+        Item item = new Item(vo, imageUrl, seq);
+        lock.writeLock().lock();
+        try {
+            Item old = items.get(vo.getProductId());
+            if (old != null && old.seq > seq) {
+                return;
+            }
+            if (old != null) {
+                unindex(old);
+            }
+            items.put(vo.getProductId(), item);
+            index(item);
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int productId, long seq) {
+        lock.writeLock().lock();
+        try {
+            Item old = items.get(productId);
+            if (old != null && old.seq <= seq) {
+                unindex(old);
+                items.remove(productId);
+                version.incrementAndGet();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Item item) {
+        int id = item.vo.getProductId();
+        for (int gram : gramsOf(item.text)) {
+            grams.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+        }
+        byPrice.computeIfAbsent(item.price, k -> new HashSet<>()).add(id);
+        byStock.computeIfAbsent(item.stock, k -> new HashSet<>()).add(id);
+    }
+
+    private void unindex(Item item) {
+        int id = item.vo.getProductId();
+        for (int gram : gramsOf(item.text)) {
+            removeFrom(grams, gram, id);
+        }
+        removeFrom(byPrice, item.price, id);
+        removeFrom(byStock, item.stock, id);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Integer>> map, K key, int id) {
+        Set<Integer> ids = map.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    // ================= 查询 =================
+
+    /**
+     * @return 当前目录版本号
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 按ID获取商品
+     * @return 商品，不存在时返回null
+     */
+    public ProductVO get(int productId) {
+        lock.readLock().lock();
+        try {
+            Item item = items.get(productId);
+            return item == null ? null : item.vo;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按ID获取商品图片
+     * @return 图片（products.image_url），商品不存在或没有图片时返回null
+     */
+    public String getImageUrl(int productId) {
+        lock.readLock().lock();
+        try {
+            Item item = items.get(productId);
+            return item == null ? null : item.imageUrl;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 全部商品（顺序不定）
+     * @return 商品列表
+     */
+    public List<ProductVO> all() {
+        lock.readLock().lock();
+        try {
+            List<ProductVO> list = new ArrayList<>(items.size());
+            for (Item item : items.values()) {
+                list.add(item.vo);
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按条件查询商品
+     * @param query 查询条件
+     * @return 查询结果；knownVersion 与当前版本相同时只返回版本号和"未修改"
+     */
+    public ProductPageVO query(ProductQueryVO query) {
+        ProductPageVO page = new ProductPageVO();
+        lock.readLock().lock();
+        try {
+            long current = version.get();
+            page.setVersion(current);
+            if (query.getKnownVersion() == current) {
+                page.setNotModified(true);
+                return page;
+            }
+            List<Item> matched = new ArrayList<>();
+            for (Item item : candidates(query)) {
+                if (matches(item, query)) {
+                    matched.add(item);
+                }
+            }
+            matched.sort(comparator(query.getSortBy()));
+            page.setTotal(matched.size());
+            int from = Math.min(Math.max(0, query.getOffset()), matched.size());
+            int to = query.getLimit() > 0 ? Math.min(matched.size(), from + query.getLimit()) : matched.size();
+            List<ProductVO> products = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                products.add(matched.get(i).vo);
+            }
+            page.setProducts(products);
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 取候选商品：有关键词时取各词倒排表的交集，否则有价格或库存区间时取区间内的商品，都没有时为全部商品
+     */
+    private Collection<Item> candidates(ProductQueryVO query) {
+        String keyword = normalize(query.getKeyword());
+        if (!keyword.isEmpty()) {
+            List<Set<Integer>> postings = new ArrayList<>();
+            for (int gram : queryGramsOf(keyword)) {
+                Set<Integer> ids = grams.get(gram);
+                if (ids == null) {
+                    return new ArrayList<>();
+                }
+                postings.add(ids);
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            List<Item> result = new ArrayList<>();
+            for (Integer id : postings.get(0)) {
+                boolean all = true;
+                for (int i = 1; i < postings.size() && all; i++) {
+                    all = postings.get(i).contains(id);
+                }
+                Item item = all ? items.get(id) : null;
+                // 两字词都出现不代表整个关键词出现，逐个确认
+                if (item != null && item.text.contains(keyword)) {
+                    result.add(item);
+                }
+            }
+            return result;
+        }
+        if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+            return range(byPrice, query.getMinPrice(), query.getMaxPrice(),
+                    Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        if (query.getMinStock() != null || query.getMaxStock() != null) {
+            return range(byStock, query.getMinStock(), query.getMaxStock(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        return items.values();
+    }
+
+    private <K extends Comparable<K>> List<Item> range(NavigableMap<K, Set<Integer>> index, K min, K max, K lowest, K highest) {
+        K from = min == null ? lowest : min;
+        K to = max == null ? highest : max;
+        List<Item> result = new ArrayList<>();
+        if (from.compareTo(to) > 0) {
+            return result;
+        }
+        for (Set<Integer> ids : index.subMap(from, true, to, true).values()) {
+            for (Integer id : ids) {
+                result.add(items.get(id));
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(Item item, ProductQueryVO query) {
+        if (query.getMinPrice() != null && item.price < query.getMinPrice()) return false;
+        if (query.getMaxPrice() != null && item.price > query.getMaxPrice()) return false;
+        if (query.getMinStock() != null && item.stock < query.getMinStock()) return false;
+        if (query.getMaxStock() != null && item.stock > query.getMaxStock()) return false;
+        String category = query.getCategory();
+        if (category != null && !category.isEmpty()) {
+            return item.vo.getCategory() != null && item.vo.getCategory().contains(category);
+        }
+        return true;
+    }
+
+    private static Comparator<Item> comparator(String sortBy) {
+        Comparator<Item> byId = Comparator.comparingInt(item -> item.vo.getProductId());
+        if (ProductQueryVO.SORT_PRICE_ASC.equals(sortBy)) {
+            return Comparator.<Item>comparingDouble(item -> item.price).thenComparing(byId);
+        }
+        if (ProductQueryVO.SORT_PRICE_DESC.equals(sortBy)) {
+            return Comparator.<Item>comparingDouble(item -> -item.price).thenComparing(byId);
+        }
+        if (ProductQueryVO.SORT_POPULARITY.equals(sortBy)) {
+            return Comparator.<Item>comparingInt(item -> -item.sold).thenComparing(byId);
+        }
+        return byId;
+    }
+
+    // ================= 分词 =================
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+
+    /**
+     * 商品文本的索引词：全部单字和两字词。
+     * 两个字符编码为一个 int（第一个字符在高16位），单字编码为字符本身（高16位为0，文本中不会出现字符 \0，不会与两字词重复）
+     */
+    private static Set<Integer> gramsOf(String text) {
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < text.length(); i++) {
+            result.add((int) text.charAt(i));
+            if (i + 1 < text.length()) {
+                result.add(bigram(text, i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 关键词的查询词：只有一个字符时为该单字，否则为全部两字词
+     */
+    private static Set<Integer> queryGramsOf(String keyword) {
+        Set<Integer> result = new HashSet<>();
+        if (keyword.length() == 1) {
+            result.add((int) keyword.charAt(0));
+        }
+        for (int i = 0; i + 1 < keyword.length(); i++) {
+            result.add(bigram(keyword, i));
+        }
+        return result;
+    }
+
+    private static int bigram(String text, int i) {
+        return (text.charAt(i) << 16) | text.charAt(i + 1);
+    }
+
+    private static ProductVO mapProduct(ResultSet rs) throws SQLException {
+        ProductVO product = new ProductVO();
+        product.setProductId(rs.getInt("product_id"));
+        product.setProductName(rs.getString("product_name"));
+        product.setDescription(rs.getString("description"));
+        product.setPrice(rs.getDouble("price"));
+        product.setStock(rs.getInt("stock"));
+        product.setCategory(rs.getString("category"));
+        product.setCreatedTime(rs.getTimestamp("created_time"));
+        return product;
+    }
+
+    /**
+     * 目录中的一件商品（不可变）
+     */
+    private static final class Item {
+        final ProductVO vo;
+        final String imageUrl;
+        final String text;      // 小写的名称和描述，中间以换行分隔（关键词不含换行，不会跨越两者匹配）
+        final double price;
+        final int stock;
+        final int sold;
+        final long seq;
+
+        Item(ProductVO vo, String imageUrl, long seq) {
+            this.vo = vo;
+            this.imageUrl = imageUrl;
+            this.text = normalize(vo.getProductName()) + "\n" + normalize(vo.getDescription());
+            this.price = vo.getPrice() == null ? 0 : vo.getPrice();
+            this.stock = vo.getStock() == null ? 0 : vo.getStock();
+            this.sold = vo.getSales() == null ? 0 : vo.getSales();
+            this.seq = seq;
+        }
+    }
+}
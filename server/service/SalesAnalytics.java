@@ -0,0 +1,706 @@
+package server.service;
+
+import common.vo.ProductSalesVO;
+import common.vo.ProductVO;
+import common.vo.SalesDayVO;
+import common.vo.SalesSummaryVO;
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商城销售统计
+ * 启动时在后台按订单ID分批（server.store.analytics.backfillChunk 个订单一批）读取历史订单和订单明细，
+ * 之后随下单、支付、发货、取消增量更新，查看统计时不再扫描 orders / order_items：
+ * 1. 每天（按下单日期）：下单数、已支付订单数、已取消订单数、已支付件数和销售额（以分为单位的整数）；
+ * 2. 每件商品：累计售出件数、销售额、已发货件数，以及近30天每天的售出件数（按日期取模的环形数组）；
+ * 3. 按件数、按销售额各维护一个有序集合，取前 N 名只需顺序读取前 N 个。
+ * 已支付、已发货的订单计入销售额；支付后取消的订单从中扣除。只有待支付、已支付未发货的订单可能再改变统计，
+ * 它们的明细留在内存中，发货或取消后即丢弃；下单超过 WINDOW 天仍未完成的订单也移出内存，只按订单ID记下已计入的状态，
+ * 之后再收到它的通知时从数据库重新读取。状态只会向前推进（待支付 → 已支付 → 已发货/已取消），
+ * 重复或过时的通知不会重复计数。
+ * 订单写入数据库（事务提交之后）须调用 {@link #orderPlaced}、{@link #orderPaid}、{@link #orderShipped}、{@link #orderCancelled}。
+ */
+public class SalesAnalytics {
+    private static final Log LOG = Log.get("store");
+
+    /** 周转率统计的天数 */
+    static final int WINDOW = 30;
+
+    // 订单状态，按推进顺序排列
+    static final int PENDING = 0;
+    static final int PAID = 1;
+    static final int SHIPPED = 2;
+    static final int CANCELLED = 3;
+
+    private static SalesAnalytics instance;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    // 待支付、已支付未发货的订单
+    private final HashMap<Integer, OpenOrder> open = new HashMap<>();
+    // 超过统计窗口仍未完成、已移出内存的订单（按订单ID置位，分别记录按待支付、已支付计入的订单）
+    private final BitSet staleUnpaid = new BitSet();
+    private final BitSet stalePaid = new BitSet();
+    // 日期（epochDay） -> 当天汇总
+    private final TreeMap<Long, DayStats> days = new TreeMap<>();
+    private final HashMap<Integer, ProductStats> products = new HashMap<>();
+    private final TreeSet<ProductStats> byUnits = new TreeSet<>(
+            Comparator.comparingLong((ProductStats p) -> -p.units).thenComparingInt(p -> p.productId));
+    private final TreeSet<ProductStats> byRevenue = new TreeSet<>(
+            Comparator.comparingLong((ProductStats p) -> -p.revenueCents).thenComparingInt(p -> p.productId));
+    private final DayStats totals = new DayStats();
+
+    private boolean ready;
+    // 加载期间收到通知的订单，加载完成后按数据库中的状态补上
+    private Set<Integer> pendingIds = new LinkedHashSet<>();
+    // 已加载的最大订单ID
+    private int loadedMaxId;
+    private ScheduledExecutorService loader;
+
+    /**
+     * 创建空的统计，由 {@link #getInstance} 启动后台加载
+     */
+    private SalesAnalytics() {
+    }
+
+    /**
+     * 获取实例（第一次使用时在后台分批加载历史订单）
+     * @return 实例；未启用时返回null
+     */
+    public static synchronized SalesAnalytics getInstance() {
+        if (instance == null && ConfigUtil.getBoolean("server.store.analytics.enabled", true)) {
+            instance = new SalesAnalytics();
+            instance.start(Math.max(100, ConfigUtil.getInt("server.store.analytics.backfillChunk", 2000)));
+        }
+        return instance;
+    }
+
+    /**
+     * 停止加载线程并释放实例（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            if (instance.loader != null) {
+                instance.loader.shutdownNow();
+            }
+            instance = null;
+        }
+    }
+
+    private static synchronized SalesAnalytics existing() {
+        return instance;
+    }
+
+    private void start(int chunk) {
+        loader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "store-sales-analytics");
+            t.setDaemon(true);
+            return t;
+        });
+        loader.execute(() -> backfill(chunk));
+        loader.scheduleWithFixedDelay(this::evictStale, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * 统计是否已加载完成
+     * @return true表示查询结果包含全部订单
+     */
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    // ================= 加载 =================
+
+    /**
+     * 按订单ID分批读取历史订单，每批一次读取订单、一次读取明细；失败时1分钟后从中断处继续
+     */
+    private void backfill(int chunk) {
+        long start = System.currentTimeMillis();
+        int orders = 0;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement orderPs = conn.prepareStatement("SELECT order_id, status, created_time FROM orders "
+                     + "WHERE order_id > ? ORDER BY order_id LIMIT ?");
+             PreparedStatement itemPs = conn.prepareStatement("SELECT oi.order_id, oi.product_id, oi.quantity, oi.subtotal, "
+                     + "p.product_name FROM order_items oi LEFT JOIN products p ON p.product_id = oi.product_id "
+                     + "WHERE oi.order_id > ? AND oi.order_id <= ?")) {
+            while (!Thread.currentThread().isInterrupted()) {
+                int after;
+                synchronized (this) {
+                    after = loadedMaxId;
+                }
+                LinkedHashMap<Integer, OrderRow> rows = new LinkedHashMap<>();
+                orderPs.setInt(1, after);
+                orderPs.setInt(2, chunk);
+                try (ResultSet rs = orderPs.executeQuery()) {
+                    while (rs.next()) {
+                        OrderRow row = new OrderRow();
+                        row.state = stateOf(rs.getString("status"));
+                        row.day = dayOf(rs.getTimestamp("created_time"));
+                        rows.put(rs.getInt("order_id"), row);
+                    }
+                }
+                if (rows.isEmpty()) {
+                    break;
+                }
+                int last = 0;
+                for (Integer orderId : rows.keySet()) {
+                    last = orderId;
+                }
+                itemPs.setInt(1, after);
+                itemPs.setInt(2, last);
+                Map<Integer, String> names = new HashMap<>();
+                try (ResultSet rs = itemPs.executeQuery()) {
+                    while (rs.next()) {
+                        OrderRow row = rows.get(rs.getInt("order_id"));
+                        if (row != null) {
+                            row.add(rs.getInt("product_id"), rs.getInt("quantity"), cents(rs.getBigDecimal("subtotal")));
+                            String name = rs.getString("product_name");
+                            if (name != null) {
+                                names.put(rs.getInt("product_id"), name);
+                            }
+                        }
+                    }
+                }
+                synchronized (this) {
+                    for (Map.Entry<Integer, OrderRow> e : rows.entrySet()) {
+                        OrderRow row = e.getValue();
+                        place(e.getKey(), row.day, row.state, row.productIds(), row.qtys(), row.cents());
+                    }
+                    names.forEach((productId, name) -> {
+                        ProductStats stats = products.get(productId);
+                        if (stats != null) {
+                            stats.name = name;
+                        }
+                    });
+                    loadedMaxId = last;
+                }
+                orders += rows.size();
+            }
+            finishLoad(conn);
+            synchronized (this) {
+                LOG.info("[Store][Analytics] 销售统计就绪: 本次加载订单 {} 个（{} 天，{} 件商品），耗时 {} ms",
+                        orders, days.size(), products.size(), System.currentTimeMillis() - start);
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Analytics] 加载历史订单失败，1 分钟后从订单 {} 之后继续: {}", loadedMaxId, e.getMessage());
+            loader.schedule(() -> backfill(chunk), 1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * 补上加载期间收到通知的订单：已加载的订单推进到数据库中的状态，加载之后才创建的订单按数据库中的状态加入
+     * （在锁内读取数据库，补完之前新的通知等待，不会被旧的读取结果覆盖）
+     */
+    private synchronized void finishLoad(Connection conn) throws SQLException {
+        for (Integer orderId : pendingIds) {
+            OrderRow row = null;
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT status, created_time FROM orders WHERE order_id = ?")) {
+                ps.setInt(1, orderId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        row = new OrderRow();
+                        row.state = stateOf(rs.getString("status"));
+                        row.day = dayOf(rs.getTimestamp("created_time"));
+                    }
+                }
+            }
+            if (row == null) {
+                continue;
+            }
+            if (open.containsKey(orderId)) {
+                advance(orderId, row.state);
+            } else if (orderId > loadedMaxId) {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT product_id, quantity, subtotal FROM order_items WHERE order_id = ?")) {
+                    ps.setInt(1, orderId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            row.add(rs.getInt("product_id"), rs.getInt("quantity"), cents(rs.getBigDecimal("subtotal")));
+                        }
+                    }
+                }
+                place(orderId, row.day, row.state, row.productIds(), row.qtys(), row.cents());
+            }
+        }
+        pendingIds = null;
+        ready = true;
+    }
+
+    // ================= 增量更新 =================
+
+    /**
+     * 订单创建（事务提交之后）调用
+     * @param orderId 订单ID
+     * @param productIds 商品ID
+     * @param qtys 各商品数量
+     * @param subtotals 各商品小计
+     */
+    public static void orderPlaced(int orderId, int[] productIds, int[] qtys, double[] subtotals) {
+        SalesAnalytics analytics = existing();
+        if (analytics == null) {
+            return;
+        }
+        long[] cents = new long[subtotals.length];
+        for (int i = 0; i < subtotals.length; i++) {
+            cents[i] = cents(BigDecimal.valueOf(subtotals[i]));
+        }
+        long day = LocalDate.now(analytics.zone).toEpochDay();
+        synchronized (analytics) {
+            if (!analytics.ready) {
+                analytics.pendingIds.add(orderId);
+            } else {
+                analytics.place(orderId, day, PENDING, productIds, qtys, cents);
+            }
+        }
+    }
+
+    /**
+     * 订单支付成功后调用
+     */
+    public static void orderPaid(int orderId) {
+        changed(orderId, PAID);
+    }
+
+    /**
+     * 订单发货后调用
+     */
+    public static void orderShipped(int orderId) {
+        changed(orderId, SHIPPED);
+    }
+
+    /**
+     * 订单取消后调用
+     */
+    public static void orderCancelled(int orderId) {
+        changed(orderId, CANCELLED);
+    }
+
+    private static void changed(int orderId, int state) {
+        SalesAnalytics analytics = existing();
+        if (analytics == null) {
+            return;
+        }
+        synchronized (analytics) {
+            if (!analytics.ready) {
+                analytics.pendingIds.add(orderId);
+            } else if (analytics.staleUnpaid.get(orderId) || analytics.stalePaid.get(orderId)) {
+                analytics.reloadStale(orderId);
+            } else {
+                analytics.advance(orderId, state);
+            }
+        }
+    }
+
+    /**
+     * 把下单超过 WINDOW 天仍未完成的订单移出内存（加载线程每小时执行一次）
+     */
+    private synchronized void evictStale() {
+        if (!ready) {
+            return;
+        }
+        long cutoff = LocalDate.now(zone).toEpochDay() - WINDOW;
+        int evicted = 0;
+        for (Iterator<Map.Entry<Integer, OpenOrder>> it = open.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, OpenOrder> e = it.next();
+            if (e.getValue().day <= cutoff) {
+                (e.getValue().state == PAID ? stalePaid : staleUnpaid).set(e.getKey());
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            LOG.debug("[Store][Analytics] {} 个超过 {} 天未完成的订单已移出内存", evicted, WINDOW);
+        }
+    }
+
+    /**
+     * 已移出内存的订单又收到通知：在加载线程中按数据库中的状态重新读取（调用方持有锁）
+     */
+    private void reloadStale(int orderId) {
+        int counted = stalePaid.get(orderId) ? PAID : PENDING;
+        staleUnpaid.clear(orderId);
+        stalePaid.clear(orderId);
+        try {
+            loader.execute(() -> restoreStale(orderId, counted));
+        } catch (RejectedExecutionException e) {
+            // 服务器正在停止
+        }
+    }
+
+    /**
+     * 从数据库重新读取订单，按移出时已计入的状态放回内存后推进到数据库中的状态
+     * （在锁内读取数据库，读取期间的新通知等待，不会被旧的读取结果覆盖）
+     */
+    private synchronized void restoreStale(int orderId, int counted) {
+        OrderRow row = null;
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT status, created_time FROM orders WHERE order_id = ?")) {
+                ps.setInt(1, orderId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        row = new OrderRow();
+                        row.state = stateOf(rs.getString("status"));
+                        row.day = dayOf(rs.getTimestamp("created_time"));
+                    }
+                }
+            }
+            if (row == null) {
+                return;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT product_id, quantity, subtotal FROM order_items WHERE order_id = ?")) {
+                ps.setInt(1, orderId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        row.add(rs.getInt("product_id"), rs.getInt("quantity"), cents(rs.getBigDecimal("subtotal")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Store][Analytics] 重新读取订单 {} 失败，下次收到通知时重试: {}", orderId, e.getMessage());
+            (counted == PAID ? stalePaid : staleUnpaid).set(orderId);
+            return;
+        }
+        OpenOrder order = new OpenOrder(row.day, row.productIds(), row.qtys(), row.cents());
+        order.state = counted;
+        open.put(orderId, order);
+        advance(orderId, row.state);
+    }
+
+    /**
+     * 加入一个订单（已加入的订单忽略）
+     * @param day 下单日期（epochDay）
+     * @param state 当前状态
+     */
+    synchronized void place(int orderId, long day, int state, int[] productIds, int[] qtys, long[] cents) {
+        if (open.containsKey(orderId)) {
+            return;
+        }
+        OpenOrder order = new OpenOrder(day, productIds, qtys, cents);
+        DayStats stats = days.computeIfAbsent(day, k -> new DayStats());
+        stats.placed++;
+        totals.placed++;
+        open.put(orderId, order);
+        if (state != PENDING) {
+            advance(orderId, state);
+        }
+    }
+
+    /**
+     * 把未完成的订单推进到新状态（不是向前推进的状态、已完成或未知的订单忽略）
+     */
+    synchronized void advance(int orderId, int state) {
+        OpenOrder order = open.get(orderId);
+        if (order == null || state <= order.state) {
+            return;
+        }
+        DayStats day = days.get(order.day);
+        if (order.state == PENDING && (state == PAID || state == SHIPPED)) {
+            count(order, day, 1);
+        } else if (order.state == PAID && state == CANCELLED) {
+            count(order, day, -1);
+        }
+        if (state == SHIPPED) {
+            for (int i = 0; i < order.productIds.length; i++) {
+                products.computeIfAbsent(order.productIds[i], ProductStats::new).shippedUnits += order.qtys[i];
+            }
+        } else if (state == CANCELLED) {
+            day.cancelled++;
+            totals.cancelled++;
+        }
+        if (state == SHIPPED || state == CANCELLED) {
+            open.remove(orderId);
+        } else {
+            order.state = state;
+        }
+    }
+
+    /**
+     * 订单计入（sign=1）或扣出（sign=-1）销售额
+     */
+    private void count(OpenOrder order, DayStats day, int sign) {
+        long today = LocalDate.now(zone).toEpochDay();
+        day.paid += sign;
+        totals.paid += sign;
+        for (int i = 0; i < order.productIds.length; i++) {
+            long units = (long) sign * order.qtys[i];
+            long cents = sign * order.cents[i];
+            day.units += units;
+            day.revenueCents += cents;
+            totals.units += units;
+            totals.revenueCents += cents;
+            ProductStats stats = products.computeIfAbsent(order.productIds[i], ProductStats::new);
+            byUnits.remove(stats);
+            byRevenue.remove(stats);
+            stats.units += units;
+            stats.revenueCents += cents;
+            stats.addRecent(order.day, (int) units, today);
+            if (stats.units != 0 || stats.revenueCents != 0) {
+                byUnits.add(stats);
+                byRevenue.add(stats);
+            }
+        }
+    }
+
+    // ================= 查询 =================
+
+    /**
+     * 销售概况
+     * @param dayCount 最近的天数（含今天，1-366）
+     * @return 累计值和每日汇总
+     */
+    public synchronized SalesSummaryVO summary(int dayCount) {
+        dayCount = Math.max(1, Math.min(366, dayCount));
+        SalesSummaryVO vo = new SalesSummaryVO();
+        vo.setAsOf(System.currentTimeMillis());
+        vo.setPlacedOrders(totals.placed);
+        vo.setPaidOrders(totals.paid);
+        vo.setCancelledOrders(totals.cancelled);
+        vo.setOpenOrders(open.size() + staleUnpaid.cardinality() + stalePaid.cardinality());
+        vo.setUnits(totals.units);
+        vo.setRevenue(yuan(totals.revenueCents));
+        long today = LocalDate.now(zone).toEpochDay();
+        List<SalesDayVO> list = new ArrayList<>(dayCount);
+        for (long d = today - dayCount + 1; d <= today; d++) {
+            DayStats stats = days.get(d);
+            SalesDayVO day = new SalesDayVO();
+            day.setDate(LocalDate.ofEpochDay(d).toString());
+            if (stats != null) {
+                day.setPlacedOrders(stats.placed);
+                day.setPaidOrders(stats.paid);
+                day.setCancelledOrders(stats.cancelled);
+                day.setUnits(stats.units);
+                day.setRevenue(yuan(stats.revenueCents));
+            }
+            list.add(day);
+        }
+        vo.setDays(list);
+        return vo;
+    }
+
+    /**
+     * 销量前 N 名的商品
+     * @param limit 最多返回的商品数
+     * @param byRevenue true 按销售额排序，false 按件数排序
+     */
+    public List<ProductSalesVO> topProducts(int limit, boolean byRevenue) {
+        ProductCatalog catalog = ProductCatalog.current();
+        long today = LocalDate.now(zone).toEpochDay();
+        List<ProductSalesVO> list = new ArrayList<>();
+        synchronized (this) {
+            for (ProductStats stats : byRevenue ? this.byRevenue : byUnits) {
+                if (list.size() >= limit) {
+                    break;
+                }
+                list.add(toVO(stats, stats.productId, catalog, today));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 商品库存周转率（商品目录可用时包括没有销量的商品）
+     * @param limit 最多返回的商品数
+     * @param slowest true 周转最慢的在前，false 最快的在前；库存未知的排在最后
+     */
+    public List<ProductSalesVO> stockTurnover(int limit, boolean slowest) {
+        ProductCatalog catalog = ProductCatalog.current();
+        long today = LocalDate.now(zone).toEpochDay();
+        List<ProductSalesVO> list = new ArrayList<>();
+        synchronized (this) {
+            if (catalog != null) {
+                for (ProductVO product : catalog.all()) {
+                    list.add(toVO(products.get(product.getProductId()), product.getProductId(), catalog, today));
+                }
+            } else {
+                for (ProductStats stats : products.values()) {
+                    list.add(toVO(stats, stats.productId, null, today));
+                }
+            }
+        }
+        Comparator<ProductSalesVO> order = Comparator.comparingDouble(ProductSalesVO::getTurnover);
+        if (!slowest) {
+            order = order.reversed();
+        }
+        list.sort(Comparator.comparing((ProductSalesVO p) -> p.getTurnover() < 0)
+                .thenComparing(order).thenComparing(ProductSalesVO::getProductId));
+        return list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    private ProductSalesVO toVO(ProductStats stats, int productId, ProductCatalog catalog, long today) {
+        ProductSalesVO vo = new ProductSalesVO();
+        vo.setProductId(productId);
+        ProductVO product = catalog != null ? catalog.get(productId) : null;
+        vo.setProductName(product != null ? product.getProductName() : stats != null ? stats.name : null);
+        long recent = 0;
+        if (stats != null) {
+            vo.setUnits(stats.units);
+            vo.setRevenue(yuan(stats.revenueCents));
+            vo.setShippedUnits(stats.shippedUnits);
+            recent = stats.recent(today);
+            vo.setUnitsLast30Days(recent);
+        }
+        if (product != null) {
+            int stock = product.getStock();
+            vo.setStock(stock);
+            double average = stock + recent / 2.0;
+            vo.setTurnover(average > 0 ? recent / average : 0);
+            vo.setDaysOfSupply(recent > 0 ? stock * (double) WINDOW / recent : -1);
+        }
+        return vo;
+    }
+
+    // ================= 工具 =================
+
+    private long dayOf(Timestamp time) {
+        return (time != null ? time.toInstant() : Instant.now()).atZone(zone).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * 数据库中的状态（英文或中文）对应的统计状态，未知状态按待支付处理
+     */
+    static int stateOf(String status) {
+        if (status == null) {
+            return PENDING;
+        }
+        switch (status) {
+            case "paid": case "已支付":
+                return PAID;
+            case "shipped": case "delivered": case "已发货": case "已送达":
+                return SHIPPED;
+            case "cancelled": case "已取消":
+                return CANCELLED;
+            default:
+                return PENDING;
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static double yuan(long cents) {
+        return BigDecimal.valueOf(cents, 2).doubleValue();
+    }
+
+    private static final class DayStats {
+        int placed;
+        int paid;
+        int cancelled;
+        long units;
+        long revenueCents;
+    }
+
+    private static final class OpenOrder {
+        final long day;
+        final int[] productIds;
+        final int[] qtys;
+        final long[] cents;
+        int state = PENDING;
+
+        OpenOrder(long day, int[] productIds, int[] qtys, long[] cents) {
+            this.day = day;
+            this.productIds = productIds;
+            this.qtys = qtys;
+            this.cents = cents;
+        }
+    }
+
+    private static final class ProductStats {
+        final int productId;
+        String name;
+        long units;
+        long revenueCents;
+        long shippedUnits;
+        // 近 WINDOW 天每天的售出件数，下标为日期取模
+        final long[] recentDay = new long[WINDOW];
+        final long[] recentUnits = new long[WINDOW];
+
+        ProductStats(int productId) {
+            this.productId = productId;
+            Arrays.fill(recentDay, Long.MIN_VALUE);
+        }
+
+        void addRecent(long day, int units, long today) {
+            if (day <= today - WINDOW || day > today) {
+                return;
+            }
+            int slot = (int) Math.floorMod(day, (long) WINDOW);
+            if (recentDay[slot] != day) {
+                if (recentDay[slot] > day) {
+                    return;
+                }
+                recentDay[slot] = day;
+                recentUnits[slot] = 0;
+            }
+            recentUnits[slot] += units;
+        }
+
+        long recent(long today) {
+            long sum = 0;
+            for (int i = 0; i < WINDOW; i++) {
+                if (recentDay[i] > today - WINDOW && recentDay[i] <= today) {
+                    sum += recentUnits[i];
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * 加载时读到的一个订单
+     */
+    private static final class OrderRow {
+        long day;
+        int state;
+        final List<int[]> lines = new ArrayList<>();
+        final List<Long> lineCents = new ArrayList<>();
+
+        void add(int productId, int qty, long cents) {
+            lines.add(new int[]{productId, qty});
+            lineCents.add(cents);
+        }
+
+        int[] productIds() {
+            return lines.stream().mapToInt(l -> l[0]).toArray();
+        }
+
+        int[] qtys() {
+            return lines.stream().mapToInt(l -> l[1]).toArray();
+        }
+
+        long[] cents() {
+            return lineCents.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+}
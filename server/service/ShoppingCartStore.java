@@ -0,0 +1,468 @@
+package server.service;
+
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车存储（先写内存，后台批量写回）
+ * 1. 每个用户的购物车第一次使用时从 shopping_cart 加载，之后的加入、修改数量、移除、清空都只修改内存（O(1)）；
+ * 2. 修改过的商品行记为待写回，同一行的多次修改只保留最后一次；后台线程每隔 server.store.cart.flushInterval 毫秒
+ *    把所有用户待写回的行合并为一批 INSERT ... ON DUPLICATE KEY UPDATE 和一批 DELETE 写入数据库；
+ * 3. 用户登出、连接断开时立即写回该用户的购物车，服务器停止时写回全部（须在关闭连接池之前）；
+ *    写回失败的行保留在内存中，下次重试；
+ * 4. 内存中的购物车超过 server.store.cart.maxUsers 个时淘汰最久未使用、且已全部写回的购物车。
+ * 购物车的所有修改都须经过这里；下单事务在数据库中清空购物车，提交后调用 {@link #orderPlaced(int)}，
+ * 商品删除后调用 {@link #productRemoved(int)}。
+ */
+public class ShoppingCartStore {
+    private static final Log LOG = Log.get("store");
+
+    private static final String UPSERT = "INSERT INTO shopping_cart (user_id, product_id, quantity, price, subtotal) "
+            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE quantity = VALUES(quantity), price = VALUES(price), "
+            + "subtotal = VALUES(subtotal)";
+    private static final String DELETE = "DELETE FROM shopping_cart WHERE user_id = ? AND product_id = ?";
+
+    private static ShoppingCartStore instance;
+    // 服务器停止后不再创建新实例，否则停止后才到达的修改只留在新实例的内存中，不会再被写回
+    private static boolean closed = false;
+
+    private final ConcurrentHashMap<Integer, Cart> carts = new ConcurrentHashMap<>();
+    // 有待写回修改的购物车（每个购物车最多排队一次）
+    private final ConcurrentLinkedQueue<Cart> dirty = new ConcurrentLinkedQueue<>();
+    // 写回互斥：同一行的两次写回不会乱序到达数据库
+    private final Object flushLock = new Object();
+    private final int maxUsers;
+    private final ScheduledExecutorService flusher;
+
+    private ShoppingCartStore() {
+        this.maxUsers = Math.max(1, ConfigUtil.getInt("server.store.cart.maxUsers", 20000));
+        long interval = Math.max(100, ConfigUtil.getLong("server.store.cart.flushInterval", 1000L));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "store-cart-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flushDirty();
+                evictIdle();
+            } catch (Exception e) {
+                LOG.error("[Store][Cart] 购物车写回异常: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        LOG.info("[Store][Cart] 购物车内存存储已启用: maxUsers={}, flushInterval={}ms", maxUsers, interval);
+    }
+
+    /**
+     * 获取实例（第一次使用时创建并启动写回线程）
+     * @return 实例；未启用（server.store.cart.enabled=false）或已停止时返回null，调用方直接读写数据库
+     */
+    public static synchronized ShoppingCartStore getInstance() {
+        if (instance == null && !closed && ConfigUtil.getBoolean("server.store.cart.enabled", true)) {
+            instance = new ShoppingCartStore();
+        }
+        return instance;
+    }
+
+    /**
+     * 停止写回线程并写回全部购物车（服务器停止时调用，须在关闭连接池之前）
+     */
+    public static synchronized void shutdown() {
+        closed = true;
+        if (instance != null) {
+            instance.flusher.shutdown();
+            instance.flushDirty();
+            instance = null;
+        }
+    }
+
+    private static synchronized ShoppingCartStore existing() {
+        return instance;
+    }
+
+    // ================= 读取和修改 =================
+
+    /**
+     * 购物车中的一行：商品ID、数量和加入时的单价
+     */
+    public static final class Line {
+        private final int productId;
+        private final int quantity;
+        private final double price;
+
+        Line(int productId, int quantity, double price) {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        public int getProductId() { return productId; }
+        public int getQuantity() { return quantity; }
+        public double getPrice() { return price; }
+    }
+
+    /**
+     * 获取用户购物车的全部行（按加入顺序）
+     * @param userId 用户ID
+     * @return 行列表副本
+     * @throws SQLException 第一次加载失败
+     */
+    public List<Line> items(int userId) throws SQLException {
+        while (true) {
+            Cart cart = cart(userId);
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.lastAccess = System.currentTimeMillis();
+                    return new ArrayList<>(cart.lines.values());
+                }
+            }
+        }
+    }
+
+    /**
+     * 加入商品（已有时数量累加）
+     * @param price 商品当前单价（写入数据库时与数量一起保存）
+     * @return 加入后的数量
+     */
+    public int add(int userId, int productId, int quantity, double price) throws SQLException {
+        while (true) {
+            Cart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                Line old = cart.lines.get(productId);
+                Line line = new Line(productId, (old == null ? 0 : old.quantity) + quantity, price);
+                cart.lines.put(productId, line);
+                changed(cart, productId, line);
+                return line.quantity;
+            }
+        }
+    }
+
+    /**
+     * 修改已有商品的数量
+     * @return 购物车中没有该商品时返回false
+     */
+    public boolean update(int userId, int productId, int quantity, double price) throws SQLException {
+        while (true) {
+            Cart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (!cart.lines.containsKey(productId)) {
+                    return false;
+                }
+                Line line = new Line(productId, quantity, price);
+                cart.lines.put(productId, line);
+                changed(cart, productId, line);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 移除商品
+     * @return 购物车中没有该商品时返回false
+     */
+    public boolean remove(int userId, int productId) throws SQLException {
+        while (true) {
+            Cart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (cart.lines.remove(productId) == null) {
+                    return false;
+                }
+                changed(cart, productId, null);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 清空购物车
+     * @return 购物车原本为空时返回false
+     */
+    public boolean clear(int userId) throws SQLException {
+        while (true) {
+            Cart cart = cart(userId);
+            synchronized (cart) {
+                if (cart.evicted) {
+                    continue;
+                }
+                if (cart.lines.isEmpty()) {
+                    return false;
+                }
+                for (Integer productId : cart.lines.keySet()) {
+                    changed(cart, productId, null);
+                }
+                cart.lines.clear();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 下单事务（已在数据库中清空购物车）提交后调用：清空内存中的购物车（未加载时不做任何事）
+     * 写回中的旧修改可能在下单之后才到达数据库，清空同样记为待写回，最终以清空为准
+     * @param userId 用户ID
+     */
+    public static void orderPlaced(int userId) {
+        ShoppingCartStore store = existing();
+        Cart cart = store == null ? null : store.carts.get(userId);
+        if (cart == null) {
+            return;
+        }
+        synchronized (cart) {
+            if (cart.evicted) {
+                return;
+            }
+            for (Integer productId : cart.lines.keySet()) {
+                store.changed(cart, productId, null);
+            }
+            cart.lines.clear();
+        }
+    }
+
+    /**
+     * 用户登出或连接断开时调用：立即写回该用户的购物车，登出时同时从内存中移除
+     * @param userId 用户ID
+     * @param evict 是否从内存中移除
+     */
+    public static void userLeft(Integer userId, boolean evict) {
+        ShoppingCartStore store = existing();
+        if (store == null || userId == null) {
+            return;
+        }
+        Cart cart = store.carts.get(userId);
+        if (cart == null) {
+            return;
+        }
+        store.flush(List.of(cart));
+        if (evict) {
+            store.evict(cart);
+        }
+    }
+
+    /**
+     * 商品被删除后调用：购物车中的该商品随数据库外键一起删除，内存中也移除
+     * @param productId 商品ID
+     */
+    public static void productRemoved(int productId) {
+        ShoppingCartStore store = existing();
+        if (store == null) {
+            return;
+        }
+        for (Cart cart : store.carts.values()) {
+            synchronized (cart) {
+                if (cart.lines.remove(productId) != null) {
+                    cart.pending.remove(productId);
+                }
+            }
+        }
+    }
+
+    private Cart cart(int userId) throws SQLException {
+        // 先放入空的购物车，再持有它的锁从数据库加载：加载期间同一用户的修改和 orderPlaced 都在锁上等待，
+        // 不会被加载到的旧数据覆盖；数据库访问不在 ConcurrentHashMap 内进行，不阻塞同一段的其他用户
+        Cart cart = carts.computeIfAbsent(userId, Cart::new);
+        synchronized (cart) {
+            if (!cart.loaded && !cart.evicted) {
+                load(cart);
+                cart.loaded = true;
+            }
+        }
+        return cart;
+    }
+
+    private void load(Cart cart) throws SQLException {
+        int userId = cart.userId;
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT product_id, quantity, price FROM shopping_cart WHERE user_id = ? ORDER BY add_time, id")) {
+            ps.setInt(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int productId = rs.getInt(1);
+                    cart.lines.put(productId, new Line(productId, rs.getInt(2), rs.getDouble(3)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 记录一行待写回的修改（调用方持有购物车的锁）
+     * @param line 新的行，null 表示删除
+     */
+    private void changed(Cart cart, int productId, Line line) {
+        cart.pending.put(productId, line);
+        cart.lastAccess = System.currentTimeMillis();
+        if (!cart.queued) {
+            cart.queued = true;
+            dirty.add(cart);
+        }
+    }
+
+    // ================= 写回 =================
+
+    /**
+     * 写回全部有待写回修改的购物车
+     */
+    void flushDirty() {
+        List<Cart> batch = new ArrayList<>();
+        for (Cart cart = dirty.poll(); cart != null; cart = dirty.poll()) {
+            batch.add(cart);
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * 把这些购物车待写回的行作为一个事务写入数据库；失败时未写入的行合并回待写回集合，下次重试
+     */
+    private void flush(List<Cart> batch) {
+        synchronized (flushLock) {
+            Map<Cart, Map<Integer, Line>> taken = new LinkedHashMap<>();
+            for (Cart cart : batch) {
+                synchronized (cart) {
+                    if (!cart.pending.isEmpty()) {
+                        taken.put(cart, cart.pending);
+                        cart.pending = new HashMap<>();
+                    }
+                    cart.queued = false;
+                }
+            }
+            if (taken.isEmpty()) {
+                return;
+            }
+            int upserts = 0;
+            int deletes = 0;
+            Connection conn = null;
+            try {
+                conn = DatabaseUtil.getConnection();
+                conn.setAutoCommit(false);
+                try (PreparedStatement upsert = conn.prepareStatement(UPSERT);
+                     PreparedStatement delete = conn.prepareStatement(DELETE)) {
+                    for (Map.Entry<Cart, Map<Integer, Line>> e : taken.entrySet()) {
+                        int userId = e.getKey().userId;
+                        for (Map.Entry<Integer, Line> row : e.getValue().entrySet()) {
+                            Line line = row.getValue();
+                            if (line == null) {
+                                delete.setInt(1, userId);
+                                delete.setInt(2, row.getKey());
+                                delete.addBatch();
+                                deletes++;
+                            } else {
+                                upsert.setInt(1, userId);
+                                upsert.setInt(2, line.productId);
+                                upsert.setInt(3, line.quantity);
+                                upsert.setDouble(4, line.price);
+                                upsert.setDouble(5, line.price * line.quantity);
+                                upsert.addBatch();
+                                upserts++;
+                            }
+                        }
+                    }
+                    if (deletes > 0) {
+                        delete.executeBatch();
+                    }
+                    if (upserts > 0) {
+                        upsert.executeBatch();
+                    }
+                }
+                conn.commit();
+                LOG.debug("[Store][Cart] 已写回 {} 个购物车: 写入 {} 行, 删除 {} 行", taken.size(), upserts, deletes);
+            } catch (SQLException e) {
+                if (conn != null) try { conn.rollback(); } catch (SQLException ex) {}
+                LOG.error("[Store][Cart] 写回 {} 个购物车失败，稍后重试: {}", taken.size(), e.getMessage());
+                for (Map.Entry<Cart, Map<Integer, Line>> e2 : taken.entrySet()) {
+                    Cart cart = e2.getKey();
+                    synchronized (cart) {
+                        // 写回期间的新修改更新，保留新的；商品已删除的行不再重试（外键会使整批一直失败）
+                        for (Map.Entry<Integer, Line> row : e2.getValue().entrySet()) {
+                            boolean gone = row.getValue() != null && !cart.lines.containsKey(row.getKey());
+                            if (!gone && !cart.pending.containsKey(row.getKey())) {
+                                cart.pending.put(row.getKey(), row.getValue());
+                            }
+                        }
+                        if (!cart.queued) {
+                            cart.queued = true;
+                            dirty.add(cart);
+                        }
+                    }
+                }
+            } finally {
+                if (conn != null) try { conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
+            }
+        }
+    }
+
+    /**
+     * 购物车超过上限时，按最久未使用的顺序淘汰已全部写回的购物车
+     */
+    private void evictIdle() {
+        int excess = carts.size() - maxUsers;
+        if (excess <= 0) {
+            return;
+        }
+        List<Cart> idle = new ArrayList<>(carts.values());
+        idle.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+        for (Iterator<Cart> it = idle.iterator(); it.hasNext() && excess > 0; ) {
+            if (evict(it.next())) {
+                excess--;
+            }
+        }
+    }
+
+    private boolean evict(Cart cart) {
+        // 写回进行中的购物车 pending 已被取走但数据库尚未提交，持有 flushLock 时才能确认
+        synchronized (flushLock) {
+            synchronized (cart) {
+                if (!cart.pending.isEmpty() || cart.queued) {
+                    return false;
+                }
+                cart.evicted = true;
+                carts.remove(cart.userId, cart);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 一个用户的购物车，所有字段在持有该对象的锁时访问
+     */
+    private static final class Cart {
+        final int userId;
+        final LinkedHashMap<Integer, Line> lines = new LinkedHashMap<>();
+        Map<Integer, Line> pending = new HashMap<>();      // 商品ID -> 待写回的行（null 表示删除）
+        boolean queued;                                      // 是否已在待写回队列中
+        boolean loaded;                                      // 是否已从数据库加载
+        boolean evicted;                                     // 已从内存移除，修改须重新加载
+        long lastAccess = System.currentTimeMillis();
+
+        Cart(int userId) {
+            this.userId = userId;
+        }
+    }
+}
@@ -17,6 +17,9 @@ public interface StoreService {
     /** 按关键字搜索商品 */
     List<ProductVO> searchProducts(String keyword);
     
+    /** 按条件查询商品（关键词、分类、价格和库存区间、排序、分页），未变化时只返回版本号 */
+    ProductPageVO queryProducts(ProductQueryVO query);
+    
     /** 按ID获取商品详情 */
     ProductVO getProductById(Integer productId);
     
@@ -52,6 +55,18 @@ public interface StoreService {
     // 管理员视图 - 获取所有用户的消费记录
     List<OrderVO> getAllUserOrders();
     
+    /**
+     * 游标分页获取订单摘要（按创建时间、订单ID倒序，不含订单商品）
+     * @param cursor 上一页返回的游标，null 表示第一页
+     * @param pageSize 每页数量（1-100）
+     * @param userId 用户ID，null 表示全部用户
+     * @param status 订单状态，null 表示全部
+     * @param from 创建时间下限（含），可为null
+     * @param to 创建时间上限（不含），可为null
+     */
+    OrderPageVO getOrderPage(String cursor, int pageSize, Integer userId, String status,
+                             java.sql.Timestamp from, java.sql.Timestamp to);
+    
     /** 获取订单详情（管理员视图 - 包含用户信息和完整订单数据） */
     OrderVO getAdminOrderDetail(Integer orderId);
     
@@ -61,13 +76,13 @@ public interface StoreService {
     /** 消费者订单历史 - 仅返回订单项（OrderItemVO列表） */
     List<OrderItemVO> getUserOrderHistory(Integer userId);
     
-    /** 消费者查看订单 - 返回订单项（OrderItemVO列表） */
+    /** 查看订单商品 - 返回订单项（OrderItemVO列表）；userId 为null时不限订单所属用户（管理员） */
     List<OrderItemVO> getOrderItems(Integer orderId, Integer userId);
     
     /** 取消订单（消费者） */
     boolean cancelOrder(Integer orderId, Integer userId);
     
-    /** 支付订单（消费者） */
+    /** 将订单标记为已支付（不扣款；消费者支付请使用 payWithBalance） */
     boolean payOrder(Integer orderId);
     
     /** 订单发货处理（管理员功能） */
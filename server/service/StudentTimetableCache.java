@@ -0,0 +1,321 @@
+package server.service;
+
+import common.vo.CourseScheduleVO;
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 学生课表缓存
+ * 学生的周课表（已选课程的上课安排，带课程名称、教师、教室）在第一次查看时由一次
+ * enrollments × courses × course_schedules 连接查询得到，之后常驻内存（按 LRU 最多缓存
+ * server.timetable.cache.maxStudents 名学生），并随选课、退课、课程修改增量更新：
+ * 1. 选课：把该课程的上课安排并入学生课表（课程的上课安排也有缓存，热门课程只查询一次）；
+ * 2. 退课：从学生课表中去掉该课程；
+ * 3. 课程修改或删除：重新加载该课程的上课安排，重建缓存中选了该课程的学生课表。
+ * 缓存的课表是不可变列表，元素由所有读取者共享，调用方不能修改。
+ */
+public class StudentTimetableCache {
+    private static final Log LOG = Log.get("course");
+
+    /** 按星期、开始时间排序 */
+    private static final Comparator<CourseScheduleVO> BY_TIME = Comparator
+            .comparing(CourseScheduleVO::getDayOfWeek, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(CourseScheduleVO::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final String SCHEDULE_COLUMNS = "s.schedule_id, s.course_id, s.day_of_week, s.start_time, s.end_time, "
+            + "s.classroom, s.building, s.weeks, c.course_name, c.course_code, c.teacher_name";
+
+    private static StudentTimetableCache instance;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<Integer, Entry> students;
+    // 课程的上课安排，null 值不存放，没有上课安排的课程存为空列表
+    private final ConcurrentHashMap<Integer, List<CourseScheduleVO>> courses = new ConcurrentHashMap<>();
+    // 每次增量更新加一；加载期间有更新时加载结果不放入缓存，避免覆盖更新
+    private long version;
+
+    private StudentTimetableCache() {
+        int maxStudents = Math.max(1, ConfigUtil.getInt("server.timetable.cache.maxStudents", 20000));
+        this.students = new LinkedHashMap<Integer, Entry>(256, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > maxStudents;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存实例
+     * @return 缓存实例
+     */
+    public static synchronized StudentTimetableCache getInstance() {
+        if (instance == null) {
+            instance = new StudentTimetableCache();
+        }
+        return instance;
+    }
+
+    /**
+     * 清空缓存（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        instance = null;
+    }
+
+    private static synchronized StudentTimetableCache existing() {
+        return instance;
+    }
+
+    // ================= 读取 =================
+
+    /**
+     * 获取学生的周课表
+     * @param studentId 学生ID
+     * @return 按星期、开始时间排序的上课安排（不可修改）
+     * @throws SQLException 缓存未命中且查询失败
+     */
+    public List<CourseScheduleVO> getTimetable(int studentId) throws SQLException {
+        long stamp;
+        synchronized (lock) {
+            Entry entry = students.get(studentId);
+            if (entry != null) {
+                return entry.timetable;
+            }
+            stamp = version;
+        }
+        Entry loaded = load(studentId);
+        synchronized (lock) {
+            if (version == stamp) {
+                students.put(studentId, loaded);
+            }
+        }
+        return loaded.timetable;
+    }
+
+    private Entry load(int studentId) throws SQLException {
+        String sql = "SELECT e.course_id AS enrolled_course, " + SCHEDULE_COLUMNS + " FROM enrollments e "
+                + "JOIN courses c ON c.course_id = e.course_id "
+                + "LEFT JOIN course_schedules s ON s.course_id = e.course_id "
+                + "WHERE e.student_id = ? AND e.status = 'enrolled' ORDER BY e.course_id";
+        int[] courseIds = new int[0];
+        List<CourseScheduleVO> rows = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, studentId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int courseId = rs.getInt("enrolled_course");
+                    if (courseIds.length == 0 || courseIds[courseIds.length - 1] != courseId) {
+                        courseIds = Arrays.copyOf(courseIds, courseIds.length + 1);
+                        courseIds[courseIds.length - 1] = courseId;
+                    }
+                    rs.getInt("schedule_id");
+                    if (!rs.wasNull()) {
+                        rows.add(mapSchedule(rs));
+                    }
+                }
+            }
+        }
+        return new Entry(courseIds, sorted(rows));
+    }
+
+    // ================= 增量更新 =================
+
+    /**
+     * 学生选课后调用：把课程的上课安排并入缓存中的学生课表（缓存未启用或学生课表未缓存时不做任何事）
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     */
+    public static void enrolled(int studentId, int courseId) {
+        StudentTimetableCache cache = existing();
+        if (cache == null) {
+            return;
+        }
+        synchronized (cache.lock) {
+            cache.version++;
+            if (!cache.students.containsKey(studentId)) {
+                return;
+            }
+        }
+        List<CourseScheduleVO> schedules = cache.courseSchedules(courseId);
+        synchronized (cache.lock) {
+            cache.version++;
+            Entry entry = cache.students.get(studentId);
+            if (schedules == null) {
+                // 读取课程的上课安排失败，下次查看时重新加载
+                cache.students.remove(studentId);
+            } else if (entry != null && !entry.has(courseId)) {
+                cache.students.put(studentId, entry.with(courseId, schedules));
+            }
+        }
+    }
+
+    /**
+     * 学生退课后调用：从缓存中的学生课表中去掉该课程
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     */
+    public static void dropped(int studentId, int courseId) {
+        StudentTimetableCache cache = existing();
+        if (cache == null) {
+            return;
+        }
+        synchronized (cache.lock) {
+            cache.version++;
+            Entry entry = cache.students.get(studentId);
+            if (entry != null && entry.has(courseId)) {
+                cache.students.put(studentId, entry.without(courseId));
+            }
+        }
+    }
+
+    /**
+     * 学生的选课状态被其他途径修改后调用：丢弃该学生的缓存课表
+     * @param studentId 学生ID
+     */
+    public static void studentChanged(int studentId) {
+        StudentTimetableCache cache = existing();
+        if (cache == null) {
+            return;
+        }
+        synchronized (cache.lock) {
+            cache.version++;
+            cache.students.remove(studentId);
+        }
+    }
+
+    /**
+     * 课程信息或上课安排修改、课程删除后调用：重新加载课程的上课安排，并重建缓存中选了该课程的学生课表
+     * @param courseId 课程ID
+     */
+    public static void courseChanged(int courseId) {
+        StudentTimetableCache cache = existing();
+        if (cache == null) {
+            return;
+        }
+        cache.courses.remove(courseId);
+        List<CourseScheduleVO> schedules = cache.courseSchedules(courseId);
+        int rebuilt = 0;
+        synchronized (cache.lock) {
+            cache.version++;
+            for (Map.Entry<Integer, Entry> e : cache.students.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.has(courseId)) {
+                    Entry without = entry.without(courseId);
+                    // 读取失败时只去掉旧的安排，不让学生看到过时的上课时间
+                    e.setValue(schedules == null ? without : without.with(courseId, schedules));
+                    rebuilt++;
+                }
+            }
+        }
+        LOG.debug("[Course][Timetable] 课程 {} 已修改，更新了 {} 份缓存的学生课表", courseId, rebuilt);
+    }
+
+    /**
+     * 课程的上课安排（带课程名称、教师），先查缓存
+     * @return 上课安排；课程不存在时返回空列表，查询失败时返回null
+     */
+    private List<CourseScheduleVO> courseSchedules(int courseId) {
+        List<CourseScheduleVO> cached = courses.get(courseId);
+        if (cached != null) {
+            return cached;
+        }
+        String sql = "SELECT " + SCHEDULE_COLUMNS + " FROM course_schedules s "
+                + "JOIN courses c ON c.course_id = s.course_id WHERE s.course_id = ?";
+        List<CourseScheduleVO> rows = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, courseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapSchedule(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("[Course][Timetable] 读取课程 {} 的上课安排失败: {}", courseId, e.getMessage());
+            return null;
+        }
+        List<CourseScheduleVO> result = sorted(rows);
+        courses.put(courseId, result);
+        return result;
+    }
+
+    private static CourseScheduleVO mapSchedule(ResultSet rs) throws SQLException {
+        CourseScheduleVO s = new CourseScheduleVO();
+        s.setId(rs.getInt("schedule_id"));
+        s.setCourseId(rs.getInt("course_id"));
+        s.setDayOfWeek(rs.getInt("day_of_week"));
+        s.setStartTime(rs.getTime("start_time"));
+        s.setEndTime(rs.getTime("end_time"));
+        s.setClassroom(rs.getString("classroom"));
+        s.setBuilding(rs.getString("building"));
+        s.setWeeks(rs.getString("weeks"));
+        s.setCourseName(rs.getString("course_name"));
+        s.setCourseCode(rs.getString("course_code"));
+        s.setTeacherName(rs.getString("teacher_name"));
+        return s;
+    }
+
+    private static List<CourseScheduleVO> sorted(List<CourseScheduleVO> rows) {
+        rows.sort(BY_TIME);
+        return Collections.unmodifiableList(rows);
+    }
+
+    /**
+     * 缓存的学生课表（不可变）：已选课程ID（含没有上课安排的课程）和排好序的上课安排
+     */
+    private static final class Entry {
+        final int[] courseIds;
+        final List<CourseScheduleVO> timetable;
+
+        Entry(int[] courseIds, List<CourseScheduleVO> timetable) {
+            this.courseIds = courseIds;
+            this.timetable = timetable;
+        }
+
+        boolean has(int courseId) {
+            for (int id : courseIds) {
+                if (id == courseId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Entry with(int courseId, List<CourseScheduleVO> schedules) {
+            int[] ids = Arrays.copyOf(courseIds, courseIds.length + 1);
+            ids[courseIds.length] = courseId;
+            List<CourseScheduleVO> rows = new ArrayList<>(timetable.size() + schedules.size());
+            rows.addAll(timetable);
+            rows.addAll(schedules);
+            return new Entry(ids, sorted(rows));
+        }
+
+        Entry without(int courseId) {
+            int[] ids = Arrays.stream(courseIds).filter(id -> id != courseId).toArray();
+            List<CourseScheduleVO> rows = new ArrayList<>(timetable.size());
+            for (CourseScheduleVO s : timetable) {
+                if (s.getCourseId() == null || s.getCourseId() != courseId) {
+                    rows.add(s);
+                }
+            }
+            return new Entry(ids, Collections.unmodifiableList(rows));
+        }
+    }
+}
@@ -3,12 +3,15 @@ package server.service;
 import common.vo.TeacherVO;
 import server.dao.TeacherDAO;
 import server.dao.impl.TeacherDAOImpl;
+import server.util.Log;
 
 /**
  * 教师业务服务类
  * 处理教师管理相关的业务逻辑
  */
 public class TeacherService {
+    private static final Log LOG = Log.get("user");
+
     private final TeacherDAO teacherDAO;
     
     public TeacherService() {
@@ -21,45 +24,36 @@ public class TeacherService {
      * @return 教师信息，不存在返回null
      */
     public TeacherVO getTeacherByUserId(Integer userId) {
-        System.out.println("[DEBUG][TeacherService] 开始根据用户ID查询教师信息，userId=" + userId);
+        LOG.debug("[TeacherService] 开始根据用户ID查询教师信息，userId={}", userId);
         
         if (userId == null) {
-            System.err.println("[DEBUG][TeacherService] 获取教师信息失败：用户ID为空");
+            LOG.warn("[TeacherService] 获取教师信息失败：用户ID为空");
             return null;
         }
         
         try {
-            System.out.println("[DEBUG][TeacherService] 调用teacherDAO.findByUserId(userId=" + userId + ")");
+            LOG.debug("[TeacherService] 调用teacherDAO.findByUserId(userId={})", userId);
             
             if (teacherDAO == null) {
-                System.err.println("[DEBUG][TeacherService] teacherDAO为null！");
+                LOG.error("[TeacherService] teacherDAO为null！");
                 return null;
             }
             
             TeacherVO teacher = teacherDAO.findByUserId(userId);
-            System.out.println("[DEBUG][TeacherService] DAO查询完成，结果：" + (teacher != null ? "找到教师记录" : "未找到教师记录"));
+            LOG.debug("[TeacherService] DAO查询完成，结果：{}", teacher != null ? "找到教师记录" : "未找到教师记录");
             
             if (teacher != null) {
-                System.out.println("[DEBUG][TeacherService] 教师信息查询成功：");
-                System.out.println("  - 教师ID=" + teacher.getId());
-                System.out.println("  - 用户ID=" + teacher.getUserId());
-                System.out.println("  - 姓名=" + teacher.getName());
-                System.out.println("  - 工号=" + teacher.getTeacherNo());
-                System.out.println("  - 学院=" + teacher.getDepartment());
-                System.out.println("  - 职称=" + teacher.getTitle());
-                System.out.println("  - 电话=" + teacher.getPhone());
-                System.out.println("  - 邮箱=" + teacher.getEmail());
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("[TeacherService] 教师信息查询成功：教师ID={}, 用户ID={}, 姓名={}, 工号={}, 学院={}, 职称={}, 电话={}, 邮箱={}",
+                            teacher.getId(), teacher.getUserId(), teacher.getName(), teacher.getTeacherNo(),
+                            teacher.getDepartment(), teacher.getTitle(), teacher.getPhone(), teacher.getEmail());
+                }
             } else {
-                System.err.println("[DEBUG][TeacherService] 未找到教师信息，userId=" + userId);
-                System.err.println("[DEBUG][TeacherService] 请检查：");
-                System.err.println("  1. 用户ID是否正确");
-                System.err.println("  2. teachers表中是否存在该用户的教师记录");
-                System.err.println("  3. 数据库连接是否正常");
+                LOG.warn("[TeacherService] 未找到教师信息，userId={}，请检查用户ID是否正确、teachers表中是否存在该用户的教师记录、数据库连接是否正常", userId);
             }
             return teacher;
         } catch (Exception e) {
-            System.err.println("[DEBUG][TeacherService] 根据用户ID查询教师信息失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[TeacherService] 根据用户ID查询教师信息失败: {}", e.getMessage(), e);
             return null;
         }
     }
@@ -77,7 +71,7 @@ public class TeacherService {
         try {
             return teacherDAO.findById(teacherId);
         } catch (Exception e) {
-            System.err.println("根据教师ID查询教师信息失败: " + e.getMessage());
+            LOG.error("根据教师ID查询教师信息失败: {}", e.getMessage());
             return null;
         }
     }
@@ -95,7 +89,7 @@ public class TeacherService {
         try {
             return teacherDAO.findByTeacherNo(teacherNo.trim());
         } catch (Exception e) {
-            System.err.println("根据工号查询教师信息失败: " + e.getMessage());
+            LOG.error("根据工号查询教师信息失败: {}", e.getMessage());
             return null;
         }
     }
@@ -113,7 +107,7 @@ public class TeacherService {
         try {
             return teacherDAO.insert(teacher);
         } catch (Exception e) {
-            System.err.println("创建教师信息失败: " + e.getMessage());
+            LOG.error("创建教师信息失败: {}", e.getMessage());
             return null;
         }
     }
@@ -131,7 +125,7 @@ public class TeacherService {
         try {
             return teacherDAO.update(teacher);
         } catch (Exception e) {
-            System.err.println("更新教师信息失败: " + e.getMessage());
+            LOG.error("更新教师信息失败: {}", e.getMessage());
             return false;
         }
     }
@@ -149,7 +143,7 @@ public class TeacherService {
         try {
             return teacherDAO.deleteById(teacherId);
         } catch (Exception e) {
-            System.err.println("删除教师信息失败: " + e.getMessage());
+            LOG.error("删除教师信息失败: {}", e.getMessage());
             return false;
         }
     }
@@ -0,0 +1,520 @@
+package server.service;
+
+import server.util.ConfigUtil;
+import server.util.DatabaseUtil;
+import server.util.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 课表冲突索引
+ * 每门课程的上课安排编译成"周次 × 星期 × 节次"位图：
+ * 1. 节次按作息时间（server.timetable.periods，各节开始时间）划分，每节一直延续到下一节开始，
+ *    上课时间覆盖的节次置位，一天的节次用一个 long 表示；
+ * 2. 授课周次（如"1-16周"、"1-8,10-16周"、"1-16周(单)"）解析为一个 long，第 n 位表示第 n 周；
+ * 3. 周次相同的安排合并为一组（周次位图 + 7 个星期的节次位图），大多数课程只有一组。
+ * 两门课程冲突当且仅当同学期、某两组周次有交集且某天的节次有交集，只需几次按位与。
+ * 学生的已选课程（状态为 enrolled）常驻内存，选课前通过 {@link #reserve(int, int)} 原子地检查冲突并占用时间，
+ * 选课失败后 {@link #release(int, int)}；同一学生同时选两门冲突的课程只会有一门通过。
+ * 课程修改或删除后须调用 {@link #courseChanged(int)}，由其他途径修改选课状态后须调用 {@link #studentChanged(int)}。
+ */
+public class TimetableIndex {
+    private static final Log LOG = Log.get("course");
+
+    private static final int DAYS = 7;
+    private static final int MAX_WEEK = 63;
+    private static final long ALL_WEEKS = ~1L;   // 第1-63周
+    private static final String DEFAULT_PERIODS =
+            "08:00,08:50,09:50,10:40,11:30,14:00,14:50,15:50,16:40,17:30,18:30,19:20,20:10";
+
+    private static final int[] NO_COURSES = new int[0];
+
+    private static volatile TimetableIndex instance;
+
+    private final int[] periodStarts;                                   // 各节开始时间（当天分钟数）
+    private final ConcurrentHashMap<Integer, CourseSlot> courses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, int[]> enrolled = new ConcurrentHashMap<>();
+
+    private TimetableIndex(int[] periodStarts) {
+        this.periodStarts = periodStarts;
+    }
+
+    /**
+     * 创建只在内存中的索引（不访问数据库），用于对比测试
+     * @param schedules 课程ID到上课安排的映射，每项为 {星期, 开始时间, 结束时间, 周次}
+     */
+    TimetableIndex(Map<Integer, List<Object[]>> schedules) {
+        this(parsePeriods(DEFAULT_PERIODS));
+        for (Map.Entry<Integer, List<Object[]>> e : schedules.entrySet()) {
+            Builder builder = new Builder();
+            for (Object[] s : e.getValue()) {
+                builder.add((Integer) s[0], (Time) s[1], (Time) s[2], (String) s[3]);
+            }
+            courses.put(e.getKey(), new CourseSlot(null, builder.build()));
+        }
+    }
+
+    /**
+     * 获取索引实例（第一次使用时从数据库加载课程安排和学生的已选课程）
+     * @return 索引实例；未启用或加载失败时返回null，调用方不做冲突检查
+     */
+    public static TimetableIndex getInstance() {
+        TimetableIndex index = instance;
+        if (index != null) {
+            return index;
+        }
+        synchronized (TimetableIndex.class) {
+            if (instance == null && ConfigUtil.getBoolean("server.timetable.enabled", true)) {
+                TimetableIndex created;
+                try {
+                    created = new TimetableIndex(parsePeriods(
+                            ConfigUtil.getString("server.timetable.periods", DEFAULT_PERIODS)));
+                } catch (IllegalArgumentException e) {
+                    LOG.error("[Course][Timetable] 作息时间配置有误，使用默认作息时间: {}", e.getMessage());
+                    created = new TimetableIndex(parsePeriods(DEFAULT_PERIODS));
+                }
+                try {
+                    created.load();
+                } catch (SQLException e) {
+                    LOG.error("[Course][Timetable] 加载课表失败，暂不检查上课时间冲突: {}", e.getMessage());
+                    return null;
+                }
+                instance = created;
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * 释放索引（服务器停止时调用）
+     */
+    public static synchronized void shutdown() {
+        instance = null;
+    }
+
+    /**
+     * 课程被修改或删除后重新加载该课程的上课安排（索引未加载时不做任何事）
+     * @param courseId 课程ID
+     */
+    public static void courseChanged(int courseId) {
+        TimetableIndex index = instance;
+        if (index == null) {
+            return;
+        }
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            Map<Integer, CourseSlot> loaded = index.loadCourses(conn, courseId);
+            CourseSlot slot = loaded.get(courseId);
+            if (slot == null) {
+                index.courses.remove(courseId);
+            } else {
+                index.courses.put(courseId, slot);
+            }
+        } catch (SQLException e) {
+            LOG.error("[Course][Timetable] 刷新课程 {} 的课表失败: {}", courseId, e.getMessage());
+        }
+    }
+
+    /**
+     * 学生的选课状态被其他途径修改后，从数据库重新加载该学生的已选课程（索引未加载时不做任何事）
+     * @param studentId 学生ID
+     */
+    public static void studentChanged(int studentId) {
+        TimetableIndex index = instance;
+        if (index == null) {
+            return;
+        }
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT course_id FROM enrollments WHERE student_id = ? AND status = 'enrolled'")) {
+            ps.setInt(1, studentId);
+            int[] ids = NO_COURSES;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids = append(ids, rs.getInt(1));
+                }
+            }
+            if (ids.length == 0) {
+                index.enrolled.remove(studentId);
+            } else {
+                index.enrolled.put(studentId, ids);
+            }
+        } catch (SQLException e) {
+            LOG.error("[Course][Timetable] 刷新学生 {} 的已选课程失败: {}", studentId, e.getMessage());
+        }
+    }
+
+    // ================= 冲突检查 =================
+
+    /**
+     * 检查课程是否与学生的已选课程时间冲突，不冲突时把该课程记为已选（占用上课时间）
+     * @param studentId 学生ID
+     * @param courseId 要选的课程ID
+     * @return 冲突的已选课程ID；不冲突（或已选过该课程）时返回null
+     */
+    public Integer reserve(int studentId, int courseId) {
+        CourseSlot target = courses.get(courseId);
+        Integer[] conflict = new Integer[1];
+        enrolled.compute(studentId, (id, ids) -> {
+            int[] current = ids == null ? NO_COURSES : ids;
+            for (int c : current) {
+                if (c == courseId) {
+                    return ids;
+                }
+            }
+            for (int c : current) {
+                if (target != null && target.conflictsWith(courses.get(c))) {
+                    conflict[0] = c;
+                    return ids;
+                }
+            }
+            return append(current, courseId);
+        });
+        return conflict[0];
+    }
+
+    /**
+     * 取消学生对课程的时间占用（选课失败或退课后调用）
+     * @param studentId 学生ID
+     * @param courseId 课程ID
+     */
+    public void release(int studentId, int courseId) {
+        enrolled.computeIfPresent(studentId, (id, ids) -> {
+            int[] rest = new int[ids.length];
+            int n = 0;
+            for (int c : ids) {
+                if (c != courseId) {
+                    rest[n++] = c;
+                }
+            }
+            return n == 0 ? null : Arrays.copyOf(rest, n);
+        });
+    }
+
+    /**
+     * 从候选课程中找出与学生已选课程时间不冲突的课程（不含已选的课程）
+     * 学生的已选课程先按学期合并成一个位图，之后每门候选课程只需与之比较一次
+     * @param studentId 学生ID
+     * @param candidates 候选课程ID，为null时检查所有有上课安排的课程
+     * @return 不冲突的课程ID，顺序与候选课程相同
+     */
+    public List<Integer> findNonConflicting(int studentId, Collection<Integer> candidates) {
+        int[] ids = enrolled.getOrDefault(studentId, NO_COURSES);
+        Map<String, Timetable> bySemester = new HashMap<>();
+        Timetable anySemester = Timetable.EMPTY;   // 学期未知的已选课程与所有课程比较
+        for (int c : ids) {
+            CourseSlot slot = courses.get(c);
+            if (slot == null) {
+                continue;
+            }
+            if (slot.semester == null) {
+                anySemester = anySemester.union(slot.timetable);
+            } else {
+                bySemester.merge(slot.semester, slot.timetable, Timetable::union);
+            }
+        }
+        Timetable allEnrolled = anySemester;
+        for (Timetable t : bySemester.values()) {
+            allEnrolled = allEnrolled.union(t);
+        }
+
+        List<Integer> result = new ArrayList<>();
+        for (Integer courseId : candidates != null ? candidates : courses.keySet()) {
+            if (courseId == null || contains(ids, courseId)) {
+                continue;
+            }
+            CourseSlot slot = courses.get(courseId);
+            if (slot == null) {
+                // 没有上课安排的课程不会冲突
+                result.add(courseId);
+                continue;
+            }
+            Timetable enrolledTimes = slot.semester == null ? allEnrolled
+                    : bySemester.getOrDefault(slot.semester, Timetable.EMPTY);
+            if (!slot.timetable.conflictsWith(enrolledTimes) && !slot.timetable.conflictsWith(anySemester)) {
+                result.add(courseId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 课程的课表位图
+     * @param courseId 课程ID
+     * @return 课表位图，课程没有上课安排时返回null
+     */
+    public Timetable getCourseTimetable(int courseId) {
+        CourseSlot slot = courses.get(courseId);
+        return slot == null ? null : slot.timetable;
+    }
+
+    // ================= 加载 =================
+
+    private void load() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            courses.putAll(loadCourses(conn, null));
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT student_id, course_id FROM enrollments WHERE status = 'enrolled' ORDER BY student_id");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    enrolled.merge(rs.getInt(1), new int[]{rs.getInt(2)}, (a, b) -> append(a, b[0]));
+                }
+            }
+        }
+        LOG.info("[Course][Timetable] 课表加载完成: {} 门课程, {} 名学生, 耗时 {} ms",
+                courses.size(), enrolled.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 加载课程的上课安排并编译成位图
+     * @param courseId 只加载这门课程，为null时加载全部
+     */
+    private Map<Integer, CourseSlot> loadCourses(Connection conn, Integer courseId) throws SQLException {
+        String sql = "SELECT c.course_id, c.semester, s.day_of_week, s.start_time, s.end_time, s.weeks "
+                + "FROM courses c JOIN course_schedules s ON s.course_id = c.course_id"
+                + (courseId != null ? " WHERE c.course_id = ?" : "")
+                + " ORDER BY c.course_id";
+        Map<Integer, String> semesters = new HashMap<>();
+        Map<Integer, Builder> builders = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (courseId != null) {
+                ps.setInt(1, courseId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("course_id");
+                    semesters.put(id, rs.getString("semester"));
+                    builders.computeIfAbsent(id, k -> new Builder())
+                            .add(rs.getInt("day_of_week"), rs.getTime("start_time"), rs.getTime("end_time"),
+                                    rs.getString("weeks"));
+                }
+            }
+        }
+        Map<Integer, CourseSlot> result = new HashMap<>();
+        for (Map.Entry<Integer, Builder> e : builders.entrySet()) {
+            result.put(e.getKey(), new CourseSlot(semesters.get(e.getKey()), e.getValue().build()));
+        }
+        return result;
+    }
+
+    // ================= 解析 =================
+
+    static int[] parsePeriods(String text) {
+        String[] parts = text.split(",");
+        int[] starts = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String[] hm = parts[i].trim().split(":");
+            if (hm.length != 2) {
+                throw new IllegalArgumentException("节次开始时间应为 HH:mm: " + parts[i]);
+            }
+            starts[i] = Integer.parseInt(hm[0]) * 60 + Integer.parseInt(hm[1]);
+            if (i > 0 && starts[i] <= starts[i - 1]) {
+                throw new IllegalArgumentException("节次开始时间须递增: " + parts[i]);
+            }
+        }
+        if (starts.length == 0 || starts.length > Long.SIZE) {
+            throw new IllegalArgumentException("节次数须在 1-64 之间");
+        }
+        return starts;
+    }
+
+    /**
+     * 上课时间 [start, end) 覆盖的节次位图
+     */
+    private long periodMask(Time start, Time end) {
+        int from = minutes(start);
+        int to = Math.max(from + 1, minutes(end));
+        int first = periodAt(from);
+        int last = periodAt(to - 1);
+        return (-1L >>> (Long.SIZE - 1 - last)) & (-1L << first);
+    }
+
+    private int periodAt(int minute) {
+        int p = 0;
+        while (p + 1 < periodStarts.length && periodStarts[p + 1] <= minute) {
+            p++;
+        }
+        return p;
+    }
+
+    private static int minutes(Time time) {
+        java.time.LocalTime t = time.toLocalTime();
+        return t.getHour() * 60 + t.getMinute();
+    }
+
+    /**
+     * 解析授课周次，如"1-16周"、"1-8,10-16周"、"3,5,7周"、"1-16周(单)"、"双周"；为空或无法解析时视为每周都上课
+     */
+    static long parseWeeks(String weeks) {
+        if (weeks == null || weeks.trim().isEmpty()) {
+            return ALL_WEEKS;
+        }
+        String text = weeks.replace('，', ',').replace('、', ',').replace('－', '-').replace('—', '-')
+                .replace('~', '-').replace('～', '-');
+        long parity = -1L;
+        if (text.contains("单")) {
+            parity = 0xAAAAAAAAAAAAAAAAL;   // 奇数位
+        } else if (text.contains("双")) {
+            parity = 0x5555555555555555L;   // 偶数位
+        }
+        String ranges = text.replaceAll("[^0-9,\\-]", "");
+        long mask = 0;
+        for (String part : ranges.split(",")) {
+            if (part.isEmpty()) {
+                continue;
+            }
+            String[] bounds = part.split("-");
+            try {
+                int from = Integer.parseInt(bounds[0]);
+                int to = bounds.length > 1 && !bounds[bounds.length - 1].isEmpty()
+                        ? Integer.parseInt(bounds[bounds.length - 1]) : from;
+                for (int w = Math.max(1, from); w <= Math.min(MAX_WEEK, to); w++) {
+                    mask |= 1L << w;
+                }
+            } catch (NumberFormatException e) {
+                LOG.debug("[Course][Timetable] 无法解析授课周次: {}", weeks);
+                return ALL_WEEKS & parity;
+            }
+        }
+        return (mask == 0 ? ALL_WEEKS : mask) & parity;
+    }
+
+    private static int[] append(int[] ids, int id) {
+        int[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int c : ids) {
+            if (c == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ================= 位图 =================
+
+    private final class Builder {
+        private final Map<Long, long[]> groups = new HashMap<>();
+
+        void add(Integer dayOfWeek, Time start, Time end, String weeks) {
+            if (dayOfWeek == null || dayOfWeek < 1 || dayOfWeek > DAYS || start == null || end == null) {
+                return;
+            }
+            long weekMask = parseWeeks(weeks);
+            if (weekMask == 0) {
+                return;
+            }
+            groups.computeIfAbsent(weekMask, k -> new long[DAYS])[dayOfWeek - 1] |= periodMask(start, end);
+        }
+
+        Timetable build() {
+            long[] weekMasks = new long[groups.size()];
+            long[] dayMasks = new long[groups.size() * DAYS];
+            int g = 0;
+            for (Map.Entry<Long, long[]> e : groups.entrySet()) {
+                weekMasks[g] = e.getKey();
+                System.arraycopy(e.getValue(), 0, dayMasks, g * DAYS, DAYS);
+                g++;
+            }
+            return new Timetable(weekMasks, dayMasks);
+        }
+    }
+
+    private static final class CourseSlot {
+        final String semester;
+        final Timetable timetable;
+
+        CourseSlot(String semester, Timetable timetable) {
+            this.semester = semester;
+            this.timetable = timetable;
+        }
+
+        boolean conflictsWith(CourseSlot other) {
+            if (other == null) {
+                return false;
+            }
+            if (semester != null && other.semester != null && !semester.equals(other.semester)) {
+                return false;
+            }
+            return timetable.conflictsWith(other.timetable);
+        }
+    }
+
+    /**
+     * 课表位图（不可变）：若干组 {周次位图, 周一至周日的节次位图}
+     */
+    public static final class Timetable {
+        static final Timetable EMPTY = new Timetable(new long[0], new long[0]);
+
+        private final long[] weekMasks;
+        private final long[] dayMasks;   // 第 g 组第 d 天（0=周一）在 g * 7 + d
+
+        private Timetable(long[] weekMasks, long[] dayMasks) {
+            this.weekMasks = weekMasks;
+            this.dayMasks = dayMasks;
+        }
+
+        /**
+         * 两个课表是否有同一周、同一天、同一节的课
+         */
+        public boolean conflictsWith(Timetable other) {
+            for (int a = 0; a < weekMasks.length; a++) {
+                for (int b = 0; b < other.weekMasks.length; b++) {
+                    if ((weekMasks[a] & other.weekMasks[b]) == 0) {
+                        continue;
+                    }
+                    int i = a * DAYS;
+                    int j = b * DAYS;
+                    for (int d = 0; d < DAYS; d++) {
+                        if ((dayMasks[i + d] & other.dayMasks[j + d]) != 0) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 合并两个课表（周次相同的组按位或，组数不会随课程数增长太多）
+         */
+        Timetable union(Timetable other) {
+            if (other.weekMasks.length == 0) {
+                return this;
+            }
+            if (weekMasks.length == 0) {
+                return other;
+            }
+            long[] weeks = Arrays.copyOf(weekMasks, weekMasks.length + other.weekMasks.length);
+            long[] days = Arrays.copyOf(dayMasks, dayMasks.length + other.dayMasks.length);
+            int groups = weekMasks.length;
+            for (int b = 0; b < other.weekMasks.length; b++) {
+                int g = 0;
+                while (g < groups && weeks[g] != other.weekMasks[b]) {
+                    g++;
+                }
+                if (g == groups) {
+                    weeks[groups++] = other.weekMasks[b];
+                }
+                for (int d = 0; d < DAYS; d++) {
+                    days[g * DAYS + d] |= other.dayMasks[b * DAYS + d];
+                }
+            }
+            return new Timetable(Arrays.copyOf(weeks, groups), Arrays.copyOf(days, groups * DAYS));
+        }
+    }
+}
@@ -9,6 +9,7 @@ import server.dao.TeacherDAO;
 import server.dao.impl.UserDAOImpl;
 import server.dao.impl.StudentDAOImpl;
 import server.dao.impl.TeacherDAOImpl;
+import server.util.Log;
 import server.util.MD5Util;
 
 import java.util.List;
@@ -18,6 +19,8 @@ import java.util.List;
  * 处理用户管理相关的业务逻辑
  */
 public class UserService {
+    private static final Log LOG = Log.get("user");
+
     private final UserDAO userDAO;
     private final StudentDAO studentDAO;
     private final TeacherDAO teacherDAO;
@@ -35,25 +38,25 @@ public class UserService {
      * @return 验证成功返回用户信息，失败返回null
      */
     public UserVO login(String loginId, String password) {
-        System.out.println("=== 登录调试信息 ===");
-        System.out.println("登录ID: " + loginId);
-        System.out.println("原始密码: " + password);
+        LOG.debug("=== 登录调试信息 ===");
+        LOG.debug("登录ID: {}", loginId);
+        LOG.debug("原始密码: {}", password);
         
         if (loginId == null || password == null) {
-            System.out.println("登录失败：参数为空");
+            LOG.debug("登录失败：参数为空");
             return null;
         }
         
         try {
             // 将密码进行MD5加密
             String passwordHash = MD5Util.encrypt(password);
-            System.out.println("MD5加密后: " + passwordHash);
+            LOG.debug("MD5加密后: {}", passwordHash);
             
             UserVO result = userDAO.authenticate(loginId, passwordHash);
             if (result == null) {
-                System.out.println("数据库认证失败：用户不存在或密码错误");
+                LOG.debug("数据库认证失败：用户不存在或密码错误");
             } else {
-                System.out.println("数据库认证成功：用户ID: " + result.getUserId() + ", 登录ID: " + result.getId() + ", 角色: " + result.getRoleName());
+                LOG.info("数据库认证成功：用户ID: {}, 登录ID: {}, 角色: {}", result.getUserId(), result.getId(), result.getRoleName());
 
                 // 增强：仅凭账号密码，若为学生则查询并同步姓名（及日志输出专业）
                 if (result.isStudent()) {
@@ -63,20 +66,19 @@ public class UserService {
                             if (result.getName() == null || result.getName().trim().isEmpty()) {
                                 result.setName(student.getName());
                             }
-                            System.out.println("登录后学生档案：姓名=" + student.getName() + ", 专业=" + student.getMajor());
+                            LOG.debug("登录后学生档案：姓名={}, 专业={}", student.getName(), student.getMajor());
                         } else {
-                            System.out.println("登录后学生档案未找到（userId=" + result.getUserId() + ")");
+                            LOG.debug("登录后学生档案未找到（userId={})", result.getUserId());
                         }
                     } catch (Exception e) {
-                        System.err.println("登录后查询学生档案异常: " + e.getMessage());
+                        LOG.error("登录后查询学生档案异常: {}", e.getMessage());
                     }
                 }
             }
-            System.out.println("=== 登录调试结束 ===");
+            LOG.debug("=== 登录调试结束 ===");
             return result;
         } catch (Exception e) {
-            System.err.println("用户登录验证失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("用户登录验证失败: {}", e.getMessage(), e);
             return null;
         }
     }
@@ -96,7 +98,7 @@ public class UserService {
         try {
             // 检查登录ID是否已存在
             if (userDAO.existsByLoginId(user.getId())) {
-                System.err.println("登录ID已存在: " + user.getId());
+                LOG.warn("登录ID已存在: {}", user.getId());
                 return null;
             }
             
@@ -134,8 +136,7 @@ public class UserService {
             
             return userId;
         } catch (Exception e) {
-            System.err.println("用户注册失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("用户注册失败: {}", e.getMessage(), e);
             return null;
         }
     }
@@ -215,8 +216,7 @@ public class UserService {
         try {
             return userDAO.update(user);
         } catch (Exception e) {
-            System.err.println("更新用户信息失败: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("更新用户信息失败: {}", e.getMessage(), e);
             return false;
         }
     }
@@ -242,7 +242,7 @@ public class UserService {
             
             String oldPasswordHash = MD5Util.encrypt(oldPassword);
             if (!oldPasswordHash.equals(user.getPassword())) {
-                System.err.println("旧密码不正确");
+                LOG.warn("旧密码不正确");
                 return false;
             }
             
@@ -250,7 +250,7 @@ public class UserService {
             String newPasswordHash = MD5Util.encrypt(newPassword);
             return userDAO.updatePassword(userId, newPasswordHash);
         } catch (Exception e) {
-            System.err.println("修改密码失败: " + e.getMessage());
+            LOG.error("修改密码失败: {}", e.getMessage());
             return false;
         }
     }
@@ -292,7 +292,7 @@ public class UserService {
         try {
             return userDAO.deleteById(userId);
         } catch (Exception e) {
-            System.err.println("删除用户失败: " + e.getMessage());
+            LOG.error("删除用户失败: {}", e.getMessage());
             return false;
         }
     }
@@ -361,14 +361,14 @@ public class UserService {
             if (amount < 0) {
                 Double currentBalance = userDAO.getBalance(userId);
                 if (currentBalance == null || currentBalance + amount < 0) {
-                    System.err.println("余额不足，当前余额: " + currentBalance + ", 扣款金额: " + Math.abs(amount));
+                    LOG.warn("余额不足，当前余额: {}, 扣款金额: {}", currentBalance, Math.abs(amount));
                     return false;
                 }
             }
             
             return userDAO.updateBalance(userId, amount);
         } catch (Exception e) {
-            System.err.println("更新用户余额失败: " + e.getMessage());
+            LOG.error("更新用户余额失败: {}", e.getMessage());
             return false;
         }
     }
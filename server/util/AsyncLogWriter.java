@@ -0,0 +1,378 @@
+package server.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志写入器
+ * 业务线程把日志事件放入一个有界无锁环形队列（多生产者、单消费者），由后台线程格式化后写入控制台和日志文件。
+ * 队列的槽位在启动时一次性分配并循环复用，业务线程只写入几个字段，不分配对象、不格式化字符串、不争用锁。
+ *
+ * 队列满时 DEBUG/INFO 日志直接丢弃并计数（后台线程定期报告丢弃数量），WARN/ERROR 改为在调用线程中同步写入，保证不丢失。
+ * 日志文件超过 log.maxFileSize 字节时轮转为 .1、.2 ...，最多保留 log.maxFiles 个历史文件。
+ */
+final class AsyncLogWriter {
+    private static final long IDLE_PARK_NANOS = 2_000_000L;
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();   // 生产者的下一个位置
+    private long head;                                  // 消费者的下一个位置（只在后台线程中访问）
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final String filePath;
+    private final long maxFileSize;
+    private final int maxFiles;
+    private final boolean console;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // 以下字段只在后台线程中访问（或在持有 this 锁时同步写入）
+    private Writer fileWriter;
+    private long fileSize;
+    private final StringBuilder line = new StringBuilder(256);
+    private final SimpleDateFormat secondFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private long cachedSecond = -1;
+    private String cachedSecondText = "";
+
+    /**
+     * 环形队列槽位，sequence 表示槽位状态：等于位置号时可写入，等于位置号+1时可读取
+     */
+    private static final class Slot {
+        volatile long sequence;
+        Log.Level level;
+        String logger;
+        String threadName;
+        long time;
+        String format;
+        int argCount;
+        Object a0, a1, a2, a3;
+        Object[] more;
+        Throwable error;
+    }
+
+    AsyncLogWriter(int capacity, String filePath, long maxFileSize, int maxFiles, boolean console) {
+        int size = Integer.highestOneBit(Math.max(1024, capacity - 1) << 1);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+        this.mask = size - 1;
+        this.filePath = filePath == null || filePath.trim().isEmpty() ? null : filePath.trim();
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.console = console;
+        openFile();
+
+        this.thread = new Thread(this::drainLoop, "async-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 提交一条日志事件
+     * @param argCount 参数个数，超过4个时参数全部放在 more 中
+     */
+    void publish(Log.Level level, String logger, String format, int argCount,
+                 Object a0, Object a1, Object a2, Object a3, Object[] more, Throwable error) {
+        long pos = tail.get();
+        while (true) {
+            Slot slot = slots[(int) (pos & mask)];
+            long diff = slot.sequence - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slot.level = level;
+                    slot.logger = logger;
+                    slot.threadName = Thread.currentThread().getName();
+                    slot.time = System.currentTimeMillis();
+                    slot.format = format;
+                    slot.argCount = argCount;
+                    slot.a0 = a0;
+                    slot.a1 = a1;
+                    slot.a2 = a2;
+                    slot.a3 = a3;
+                    slot.more = more;
+                    slot.error = error;
+                    slot.sequence = pos + 1;
+                    return;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 队列已满
+                if (level.compareTo(Log.Level.WARN) >= 0) {
+                    synchronized (this) {
+                        write(level, logger, Thread.currentThread().getName(), System.currentTimeMillis(),
+                                format, argCount, a0, a1, a2, a3, more, error);
+                        flush();
+                    }
+                } else {
+                    dropped.incrementAndGet();
+                }
+                return;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        long lastDropReport = System.currentTimeMillis();
+        while (running || slots[(int) (head & mask)].sequence == head + 1) {
+            int drained = drain();
+            long now = System.currentTimeMillis();
+            if (now - lastDropReport >= 10_000) {
+                lastDropReport = now;
+                reportDropped(now);
+            }
+            if (drained == 0) {
+                synchronized (this) {
+                    flush();
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        reportDropped(System.currentTimeMillis());
+        synchronized (this) {
+            flush();
+            closeFile();
+        }
+    }
+
+    private void reportDropped(long now) {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            synchronized (this) {
+                write(Log.Level.WARN, "log", "async-log-writer", now, "日志队列已满，丢弃了 {} 条 DEBUG/INFO 日志",
+                        1, lost, null, null, null, null, null);
+            }
+        }
+    }
+
+    /**
+     * 写出队列中当前已提交的全部事件
+     * @return 写出的事件数
+     */
+    private int drain() {
+        int count = 0;
+        synchronized (this) {
+            while (true) {
+                Slot slot = slots[(int) (head & mask)];
+                if (slot.sequence != head + 1) {
+                    break;
+                }
+                write(slot.level, slot.logger, slot.threadName, slot.time, slot.format, slot.argCount,
+                        slot.a0, slot.a1, slot.a2, slot.a3, slot.more, slot.error);
+                slot.a0 = slot.a1 = slot.a2 = slot.a3 = null;
+                slot.more = null;
+                slot.error = null;
+                slot.format = null;
+                slot.sequence = head + slots.length;
+                head++;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 停止后台线程，写出队列中剩余的日志
+     */
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ================= 格式化与写入（持有 this 锁） =================
+
+    private void write(Log.Level level, String logger, String threadName, long time, String format, int argCount,
+                       Object a0, Object a1, Object a2, Object a3, Object[] more, Throwable error) {
+        line.setLength(0);
+        appendTime(time);
+        line.append(' ').append(level.name());
+        if (level.name().length() == 4) {
+            line.append(' ');
+        }
+        line.append(" [").append(logger).append("] [").append(threadName).append("] ");
+        int used = appendFormatted(format, argCount, a0, a1, a2, a3, more);
+        // 与 SLF4J 相同：占位符之外多出的最后一个参数如果是异常，输出其堆栈
+        if (error == null && used < argCount) {
+            Object last = argCount > 4 ? more[argCount - 1] : argCount == 4 ? a3 : argCount == 3 ? a2 : argCount == 2 ? a1 : a0;
+            if (last instanceof Throwable) {
+                error = (Throwable) last;
+            }
+        }
+        line.append(System.lineSeparator());
+        if (error != null) {
+            StringWriter sw = new StringWriter();
+            error.printStackTrace(new PrintWriter(sw));
+            line.append(sw);
+        }
+        String text = line.toString();
+        if (console) {
+            if (level.compareTo(Log.Level.WARN) >= 0) {
+                System.err.print(text);
+            } else {
+                System.out.print(text);
+            }
+        }
+        if (fileWriter != null) {
+            try {
+                fileWriter.write(text);
+                fileSize += utf8Length(text);
+                if (fileSize >= maxFileSize) {
+                    rotate();
+                }
+            } catch (IOException e) {
+                System.err.println("写入日志文件失败: " + e.getMessage());
+                closeFile();
+            }
+        }
+    }
+
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void appendTime(long time) {
+        long second = time / 1000;
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondText = secondFormat.format(new Date(second * 1000));
+        }
+        int millis = (int) (time % 1000);
+        line.append(cachedSecondText).append('.');
+        if (millis < 100) {
+            line.append('0');
+        }
+        if (millis < 10) {
+            line.append('0');
+        }
+        line.append(millis);
+    }
+
+    /**
+     * 把 {} 占位符依次替换为参数
+     * @return 使用的参数个数
+     */
+    private int appendFormatted(String format, int argCount, Object a0, Object a1, Object a2, Object a3, Object[] more) {
+        if (format == null) {
+            line.append("null");
+            return 0;
+        }
+        if (argCount == 0) {
+            line.append(format);
+            return 0;
+        }
+        int used = 0;
+        int start = 0;
+        int index;
+        while (used < argCount && (index = format.indexOf("{}", start)) >= 0) {
+            line.append(format, start, index);
+            Object arg = argCount > 4 ? more[used] : used == 0 ? a0 : used == 1 ? a1 : used == 2 ? a2 : a3;
+            line.append(arg);
+            used++;
+            start = index + 2;
+        }
+        line.append(format, start, format.length());
+        return used;
+    }
+
+    private void flush() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.flush();
+            } catch (IOException e) {
+                System.err.println("写入日志文件失败: " + e.getMessage());
+                closeFile();
+            }
+        }
+        if (console) {
+            System.out.flush();
+        }
+    }
+
+    private void openFile() {
+        if (filePath == null) {
+            return;
+        }
+        try {
+            File file = new File(filePath);
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            fileSize = file.length();
+            fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+        } catch (IOException e) {
+            System.err.println("打开日志文件失败，只输出到控制台: " + filePath + ", " + e.getMessage());
+            fileWriter = null;
+        }
+    }
+
+    private void closeFile() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.close();
+            } catch (IOException ignore) {
+                // 关闭失败不影响后续写入
+            }
+            fileWriter = null;
+        }
+    }
+
+    /**
+     * 轮转日志文件：vcampus.log -> vcampus.log.1 -> vcampus.log.2 ...
+     */
+    private void rotate() throws IOException {
+        fileWriter.flush();
+        closeFile();
+        File oldest = new File(filePath + "." + maxFiles);
+        if (oldest.exists() && !oldest.delete()) {
+            System.err.println("删除旧日志文件失败: " + oldest);
+        }
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File from = new File(filePath + "." + i);
+            if (from.exists() && !from.renameTo(new File(filePath + "." + (i + 1)))) {
+                System.err.println("轮转日志文件失败: " + from);
+            }
+        }
+        File current = new File(filePath);
+        if (current.exists() && !current.renameTo(new File(filePath + ".1"))) {
+            System.err.println("轮转日志文件失败: " + current);
+        }
+        openFile();
+        fileSize = 0;
+    }
+}
@@ -0,0 +1,118 @@
+package server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 配置读取工具类
+ * 优先加载本地配置文件 config.local.properties，如果不存在则使用 config.properties。
+ * 同名的 JVM 系统属性（-Dkey=value）优先级最高，便于临时覆盖配置。
+ */
+public class ConfigUtil {
+    private static final Properties props = new Properties();
+    private static String configFile;
+
+    static {
+        loadConfig();
+    }
+
+    private static void loadConfig() {
+        ClassLoader loader = ConfigUtil.class.getClassLoader();
+        String[] candidates = {"config.local.properties", "config.properties"};
+        for (String candidate : candidates) {
+            try (InputStream is = loader.getResourceAsStream(candidate)) {
+                if (is != null) {
+                    props.load(is);
+                    configFile = candidate;
+                    System.out.println("config.local.properties".equals(candidate)
+                            ? "使用本地开发配置文件: " + candidate
+                            : "使用默认配置文件: " + candidate);
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("加载配置文件 " + candidate + " 失败: " + e.getMessage());
+            }
+        }
+        System.err.println("无法找到配置文件 config.local.properties 或 config.properties");
+    }
+
+    /**
+     * 是否成功加载了配置文件
+     * @return 已加载返回true
+     */
+    public static boolean isLoaded() {
+        return configFile != null;
+    }
+
+    /**
+     * 获取已加载的配置（只读使用）
+     * @return 配置项
+     */
+    public static Properties getProperties() {
+        return props;
+    }
+
+    /**
+     * 获取字符串配置
+     * @param key 配置键
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = props.getProperty(key);
+        }
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * 获取整数配置，格式错误时返回默认值
+     * @param key 配置键
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("无效的配置 " + key + "=" + value + "，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 获取长整数配置，格式错误时返回默认值
+     * @param key 配置键
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("无效的配置 " + key + "=" + value + "，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 获取布尔配置
+     * @param key 配置键
+     * @param defaultValue 默认值
+     * @return 配置值
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,580 @@
+package server.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 数据库连接池
+ * 有界连接池，支持最小/最大连接数、借出校验、空闲回收、借出超时和连接泄漏检测。
+ * 借出的连接是代理对象，调用 close() 时归还到池中而不是关闭物理连接，
+ * 因此 DAO 中原有的 DatabaseUtil.closeAll(conn, ps, rs) 写法无需任何修改。
+ */
+public class ConnectionPool {
+    private static final Log LOG = Log.get("db");
+
+    /** 借出等待时间直方图的桶上界（毫秒），最后一个桶收纳所有更长的等待 */
+    private static final long[] WAIT_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Config config;
+
+    // 空闲连接栈（后进先出，优先复用最热的连接）
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    // 借出中的连接
+    private final Map<PooledConnection, Boolean> active = new ConcurrentHashMap<>();
+    // 限制同时借出的连接数
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // 统计信息
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong validationFailCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS_MS.length + 1);
+    // 按借出连接的类（DAO、Service）统计连接占用时间，即该类每次数据库操作的耗时
+    private final Map<String, LatencyHistogram> callerTimes = new ConcurrentHashMap<>();
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    public ConnectionPool(String url, String username, String password, Config config) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.maxActive, true);
+
+        for (int i = 0; i < config.initialSize; i++) {
+            try {
+                idle.offerFirst(createConnection());
+            } catch (SQLException e) {
+                LOG.error("初始化连接池连接失败: {}", e.getMessage());
+                break;
+            }
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                config.evictionIntervalMillis, config.evictionIntervalMillis, TimeUnit.MILLISECONDS);
+
+        LOG.info("数据库连接池初始化完成: {}", config);
+    }
+
+    /**
+     * 从连接池借出连接
+     * @return 连接代理，close() 时归还连接池
+     * @throws SQLException 等待超时或创建连接失败
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            recordWait(System.nanoTime() - start);
+            throw new SQLException("获取数据库连接超时(" + config.maxWaitMillis + "ms), " + getStats());
+        }
+
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (validate(pc)) {
+                    break;
+                }
+                validationFailCount.incrementAndGet();
+                destroy(pc);
+            }
+            if (pc == null) {
+                pc = createConnection();
+            }
+            pc.lend(config.leakDetectionThresholdMillis > 0, config.trackCallerTime ? findCaller() : null);
+            active.put(pc, Boolean.TRUE);
+            borrowCount.incrementAndGet();
+            recordWait(System.nanoTime() - start);
+            return pc.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接：重置连接状态，放回空闲栈或关闭
+     */
+    private void release(PooledConnection pc) {
+        if (active.remove(pc) == null) {
+            return;
+        }
+        if (pc.borrower != null) {
+            callerTimes.computeIfAbsent(pc.borrower, k -> new LatencyHistogram())
+                    .record(System.nanoTime() - pc.borrowedNanos);
+        }
+        try {
+            boolean reusable = !closed && resetState(pc) && idle.size() < config.maxIdle;
+            if (reusable) {
+                pc.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pc);
+            } else {
+                destroy(pc);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 重置连接状态，防止上一个使用者遗留的事务或只读设置影响下一个使用者
+     */
+    private boolean resetState(PooledConnection pc) {
+        try {
+            Connection raw = pc.raw;
+            if (raw.isClosed()) {
+                return false;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            if (raw.isReadOnly()) {
+                raw.setReadOnly(false);
+            }
+            raw.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            LOG.warn("重置连接状态失败，丢弃连接: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean validate(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastUsed < config.validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pc.raw.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, username, password);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private void destroy(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        try {
+            pc.raw.close();
+        } catch (SQLException e) {
+            LOG.warn("关闭物理连接失败: {}", e.getMessage());
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < WAIT_BUCKETS_MS.length && millis >= WAIT_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * 找出借用连接的业务类：调用栈中第一个不属于连接池、JDK 和代理的类，去掉包名和内部类后缀
+     * 遍历调用栈约需几微秒，相对一次数据库往返可以忽略
+     */
+    private static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+                .map(StackWalker.StackFrame::getClassName)
+                .filter(c -> !c.startsWith("server.util.") && !c.startsWith("java.") && !c.startsWith("jdk.")
+                        && !c.startsWith("com.sun."))
+                .findFirst()
+                .map(c -> {
+                    String name = c.substring(c.lastIndexOf('.') + 1);
+                    int inner = name.indexOf('$');
+                    return inner > 0 ? name.substring(0, inner) : name;
+                })
+                .orElse("unknown"));
+    }
+
+    /**
+     * 后台维护任务：回收超时空闲连接、补足最小空闲连接、检测连接泄漏
+     */
+    private void housekeep() {
+        if (closed) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+
+            // 空闲回收（保留 minIdle 个）
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() > config.minIdle) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastUsed > config.idleTimeoutMillis && idle.remove(pc)) {
+                    destroy(pc);
+                }
+            }
+
+            // 补足最小空闲连接
+            while (idle.size() < config.minIdle && totalConnections.get() < config.maxActive) {
+                idle.offerLast(createConnection());
+            }
+
+            // 泄漏检测：每次借出只报告一次
+            if (config.leakDetectionThresholdMillis > 0) {
+                for (PooledConnection pc : active.keySet()) {
+                    if (!pc.leakReported && now - pc.borrowedAt > config.leakDetectionThresholdMillis) {
+                        pc.leakReported = true;
+                        leakCount.incrementAndGet();
+                        String msg = "疑似连接泄漏: 连接已借出 " + (now - pc.borrowedAt)
+                                + "ms 未归还, 借出线程: " + pc.borrowerThread;
+                        if (pc.borrowTrace != null) {
+                            LOG.warn(msg, pc.borrowTrace);
+                        } else {
+                            LOG.warn(msg);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("连接池维护任务异常: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭连接池：关闭所有空闲连接，借出中的连接在归还时关闭
+     */
+    public void shutdown() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+        LOG.info("数据库连接池已关闭: {}", getStats());
+    }
+
+    /**
+     * 获取连接池统计快照
+     * @return 统计信息
+     */
+    public Stats getStats() {
+        long[] histogram = new long[waitHistogram.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = waitHistogram.get(i);
+        }
+        return new Stats(active.size(), idle.size(), totalConnections.get(), permits.getQueueLength(),
+                borrowCount.get(), timeoutCount.get(), createdCount.get(), destroyedCount.get(),
+                validationFailCount.get(), leakCount.get(),
+                TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get()),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()), histogram);
+    }
+
+    /**
+     * 池化连接：持有物理连接和借出状态
+     */
+    private final class PooledConnection {
+        final Connection raw;
+        Connection proxy;
+        volatile long lastUsed;
+        volatile long borrowedAt;
+        volatile boolean leakReported;
+        volatile String borrowerThread;
+        volatile Throwable borrowTrace;
+        volatile long borrowedNanos;
+        volatile String borrower;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        void lend(boolean captureTrace, String caller) {
+            borrowedAt = System.currentTimeMillis();
+            borrowedNanos = System.nanoTime();
+            borrower = caller;
+            leakReported = false;
+            borrowerThread = Thread.currentThread().getName();
+            borrowTrace = captureTrace ? new Throwable("连接借出位置") : null;
+            // 每次借出生成新的代理，避免旧代理在归还后继续操作连接
+            proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    /**
+     * 单次借出的代理处理器，close() 后该代理失效
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private volatile boolean returned = false;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.raw.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "PooledConnection[" + pc.raw + (returned ? ", returned" : "") + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(pc.raw)) {
+                        return pc.raw;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("连接已归还连接池");
+            }
+            try {
+                return method.invoke(pc.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * 各业务类每次借用连接的占用时间（纳秒）
+     * @return 类名到直方图快照，按类名排序
+     */
+    public Map<String, LatencyHistogram.Snapshot> getCallerTimes() {
+        Map<String, LatencyHistogram.Snapshot> result = new java.util.TreeMap<>();
+        callerTimes.forEach((caller, histogram) -> result.put(caller, histogram.snapshot()));
+        return result;
+    }
+
+    /**
+     * 连接池配置，对应 config.properties 中的 db.pool.* 配置项
+     */
+    public static class Config {
+        int initialSize = 5;
+        int minIdle = 5;
+        int maxIdle = 10;
+        int maxActive = 20;
+        long maxWaitMillis = 30000;
+        long idleTimeoutMillis = 600000;
+        long evictionIntervalMillis = 30000;
+        long validationIntervalMillis = 5000;
+        int validationTimeoutSeconds = 3;
+        // 泄漏检测和按调用方计时借出时都要抓取调用栈，默认关闭，排查问题时在配置中打开
+        long leakDetectionThresholdMillis = 0;
+        boolean trackCallerTime = false;
+
+        /**
+         * 从配置文件读取连接池配置，缺失项使用默认值
+         */
+        public static Config from(java.util.Properties props) {
+            Config c = new Config();
+            c.initialSize = intProp(props, "db.pool.initialSize", c.initialSize);
+            c.minIdle = intProp(props, "db.pool.minIdle", c.minIdle);
+            c.maxIdle = intProp(props, "db.pool.maxIdle", c.maxIdle);
+            c.maxActive = intProp(props, "db.pool.maxActive", c.maxActive);
+            c.maxWaitMillis = longProp(props, "db.pool.maxWait", c.maxWaitMillis);
+            c.idleTimeoutMillis = longProp(props, "db.pool.idleTimeout", c.idleTimeoutMillis);
+            c.evictionIntervalMillis = longProp(props, "db.pool.evictionInterval", c.evictionIntervalMillis);
+            c.validationIntervalMillis = longProp(props, "db.pool.validationInterval", c.validationIntervalMillis);
+            c.validationTimeoutSeconds = intProp(props, "db.pool.validationTimeout", c.validationTimeoutSeconds);
+            c.leakDetectionThresholdMillis = longProp(props, "db.pool.leakDetectionThreshold", c.leakDetectionThresholdMillis);
+            c.trackCallerTime = props != null && "true".equalsIgnoreCase(props.getProperty("db.pool.trackCallerTime", "false").trim());
+
+            // 保证配置自洽
+            c.maxActive = Math.max(1, c.maxActive);
+            c.maxIdle = Math.max(1, Math.min(c.maxIdle, c.maxActive));
+            c.minIdle = Math.max(0, Math.min(c.minIdle, c.maxIdle));
+            c.initialSize = Math.max(0, Math.min(c.initialSize, c.maxIdle));
+            c.evictionIntervalMillis = Math.max(1000, c.evictionIntervalMillis);
+            return c;
+        }
+
+        private static int intProp(java.util.Properties props, String key, int def) {
+            String v = props == null ? null : props.getProperty(key);
+            if (v == null || v.trim().isEmpty()) {
+                return def;
+            }
+            try {
+                return Integer.parseInt(v.trim());
+            } catch (NumberFormatException e) {
+                LOG.warn("无效的连接池配置 {}={}，使用默认值 {}", key, v, def);
+                return def;
+            }
+        }
+
+        private static long longProp(java.util.Properties props, String key, long def) {
+            String v = props == null ? null : props.getProperty(key);
+            if (v == null || v.trim().isEmpty()) {
+                return def;
+            }
+            try {
+                return Long.parseLong(v.trim());
+            } catch (NumberFormatException e) {
+                LOG.warn("无效的连接池配置 {}={}，使用默认值 {}", key, v, def);
+                return def;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "initialSize=" + initialSize + ", minIdle=" + minIdle + ", maxIdle=" + maxIdle
+                    + ", maxActive=" + maxActive + ", maxWait=" + maxWaitMillis + "ms"
+                    + ", idleTimeout=" + idleTimeoutMillis + "ms"
+                    + ", leakDetectionThreshold=" + leakDetectionThresholdMillis + "ms";
+        }
+    }
+
+    /**
+     * 连接池统计快照
+     */
+    public static class Stats {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int waiting;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long validationFailCount;
+        private final long leakCount;
+        private final long totalWaitMicros;
+        private final long maxWaitMicros;
+        private final long[] waitHistogram;
+
+        Stats(int active, int idle, int total, int waiting, long borrowCount, long timeoutCount,
+              long createdCount, long destroyedCount, long validationFailCount, long leakCount,
+              long totalWaitMicros, long maxWaitMicros, long[] waitHistogram) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiting = waiting;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.createdCount = createdCount;
+            this.destroyedCount = destroyedCount;
+            this.validationFailCount = validationFailCount;
+            this.leakCount = leakCount;
+            this.totalWaitMicros = totalWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+            this.waitHistogram = waitHistogram;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getTotal() { return total; }
+        public int getWaiting() { return waiting; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getValidationFailCount() { return validationFailCount; }
+        public long getLeakCount() { return leakCount; }
+        public long getMaxWaitMicros() { return maxWaitMicros; }
+
+        public long getAvgWaitMicros() {
+            return borrowCount == 0 ? 0 : totalWaitMicros / borrowCount;
+        }
+
+        /**
+         * 借出等待时间直方图，下标 i 对应 [bucket(i-1), bucket(i)) 毫秒
+         * @return 各桶计数
+         */
+        public long[] getWaitHistogram() {
+            return waitHistogram.clone();
+        }
+
+        /**
+         * 直方图桶的上界（毫秒），长度比直方图少 1
+         */
+        public static long[] getWaitBucketBoundsMillis() {
+            return WAIT_BUCKETS_MS.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("PoolStats{active=").append(active)
+              .append(", idle=").append(idle)
+              .append(", total=").append(total)
+              .append(", waiting=").append(waiting)
+              .append(", borrowed=").append(borrowCount)
+              .append(", timeouts=").append(timeoutCount)
+              .append(", created=").append(createdCount)
+              .append(", destroyed=").append(destroyedCount)
+              .append(", validationFails=").append(validationFailCount)
+              .append(", leaks=").append(leakCount)
+              .append(", avgWait=").append(getAvgWaitMicros()).append("us")
+              .append(", maxWait=").append(maxWaitMicros).append("us")
+              .append(", waitHistogram={");
+            for (int i = 0; i < waitHistogram.length; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(i < WAIT_BUCKETS_MS.length ? "<" + WAIT_BUCKETS_MS[i] + "ms" : ">=" + WAIT_BUCKETS_MS[WAIT_BUCKETS_MS.length - 1] + "ms")
+                  .append(':').append(waitHistogram[i]);
+            }
+            return sb.append("}}").toString();
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package server.util;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -12,12 +9,17 @@ import java.util.Properties;
 /**
  * 数据库连接工具类
  * 提供数据库连接的创建、关闭等功能
+ * 连接由内置的 ConnectionPool 统一管理，getConnection() 返回池化连接，close() 即归还
  */
 public class DatabaseUtil {
+    private static final Log LOG = Log.get("db");
+
     private static String url;
     private static String username;
     private static String password;
     private static String driver;
+    private static ConnectionPool.Config poolConfig;
+    private static volatile ConnectionPool pool;
     
     static {
         loadConfig();
@@ -28,58 +30,33 @@ public class DatabaseUtil {
      * 优先加载本地配置文件 config.local.properties，如果不存在则使用 config.properties
      */
     private static void loadConfig() {
-        Properties props = new Properties();
-        InputStream is = null;
-        String configFile = null;
+        if (!ConfigUtil.isLoaded()) {
+            // 使用默认配置
+            setDefaultConfig();
+            return;
+        }
         
         try {
-            // 优先尝试加载本地配置文件
-            is = DatabaseUtil.class.getClassLoader().getResourceAsStream("config.local.properties");
-            if (is != null) {
-                configFile = "config.local.properties";
-                System.out.println("使用本地开发配置文件: " + configFile);
-            } else {
-                // 如果本地配置不存在，使用默认配置
-                is = DatabaseUtil.class.getClassLoader().getResourceAsStream("config.properties");
-                if (is != null) {
-                    configFile = "config.properties";
-                    System.out.println("使用默认配置文件: " + configFile);
-                }
-            }
+            Properties props = ConfigUtil.getProperties();
+            url = props.getProperty("db.url");
+            username = props.getProperty("db.username");
+            password = props.getProperty("db.password");
+            driver = props.getProperty("db.driver");
+            poolConfig = ConnectionPool.Config.from(props);
             
-            if (is != null) {
-                props.load(is);
-                url = props.getProperty("db.url");
-                username = props.getProperty("db.username");
-                password = props.getProperty("db.password");
-                driver = props.getProperty("db.driver");
-                
-                // 加载数据库驱动
-                Class.forName(driver);
-                System.out.println("数据库配置加载成功");
-                
-                // 如果是本地配置，显示开发者信息
-                String developerName = props.getProperty("developer.name");
-                if (developerName != null) {
-                    System.out.println("开发者: " + developerName);
-                }
-            } else {
-                System.err.println("无法找到配置文件 config.local.properties 或 config.properties");
-                // 使用默认配置
-                setDefaultConfig();
+            // 加载数据库驱动
+            Class.forName(driver);
+            System.out.println("数据库配置加载成功");
+            
+            // 如果是本地配置，显示开发者信息
+            String developerName = props.getProperty("developer.name");
+            if (developerName != null) {
+                System.out.println("开发者: " + developerName);
             }
-        } catch (IOException | ClassNotFoundException e) {
+        } catch (ClassNotFoundException e) {
             System.err.println("加载数据库配置失败: " + e.getMessage());
             // 使用默认配置
             setDefaultConfig();
-        } finally {
-            if (is != null) {
-                try {
-                    is.close();
-                } catch (IOException e) {
-                    System.err.println("关闭配置文件流失败: " + e.getMessage());
-                }
-            }
         }
     }
     
@@ -91,6 +68,7 @@ public class DatabaseUtil {
         username = "root";
         password = "123456";
         driver = "com.mysql.cj.jdbc.Driver";
+        poolConfig = ConnectionPool.Config.from(null);
         
         try {
             Class.forName(driver);
@@ -102,11 +80,58 @@ public class DatabaseUtil {
     
     /**
      * 获取数据库连接
+     * 从连接池借出连接，使用完毕后调用 close()（或 closeConnection/closeAll）归还
      * @return 数据库连接对象
      * @throws SQLException SQL异常
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        return getPool().getConnection();
+    }
+    
+    /**
+     * 获取连接池（首次使用时创建）
+     * @return 连接池
+     */
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseUtil.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(url, username, password, poolConfig);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+    
+    /**
+     * 获取连接池统计信息（活跃数、空闲数、等待时间直方图等）
+     * @return 统计快照，连接池尚未创建时返回null
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        ConnectionPool p = pool;
+        return p != null ? p.getStats() : null;
+    }
+    
+    /**
+     * 获取各 DAO/Service 类每次借用数据库连接的耗时
+     * @return 类名到直方图快照（纳秒），连接池尚未创建时返回空表
+     */
+    public static java.util.Map<String, LatencyHistogram.Snapshot> getCallerTimes() {
+        ConnectionPool p = pool;
+        return p != null ? p.getCallerTimes() : java.util.Collections.emptyMap();
+    }
+    
+    /**
+     * 关闭连接池，服务器停止时调用
+     */
+    public static synchronized void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
     }
     
     /**
@@ -118,7 +143,7 @@ public class DatabaseUtil {
             try {
                 conn.close();
             } catch (SQLException e) {
-                System.err.println("关闭数据库连接失败: " + e.getMessage());
+                LOG.error("关闭数据库连接失败: {}", e.getMessage());
             }
         }
     }
@@ -132,7 +157,7 @@ public class DatabaseUtil {
             try {
                 pstmt.close();
             } catch (SQLException e) {
-                System.err.println("关闭PreparedStatement失败: " + e.getMessage());
+                LOG.error("关闭PreparedStatement失败: {}", e.getMessage());
             }
         }
     }
@@ -146,7 +171,7 @@ public class DatabaseUtil {
             try {
                 rs.close();
             } catch (SQLException e) {
-                System.err.println("关闭ResultSet失败: " + e.getMessage());
+                LOG.error("关闭ResultSet失败: {}", e.getMessage());
             }
         }
     }
@@ -200,6 +225,7 @@ public class DatabaseUtil {
             // 显示配置信息
             System.out.println("当前配置信息:");
             System.out.println(getConfigInfo());
+            System.out.println("连接池配置: " + poolConfig);
             System.out.println();
             
             // 测试数据库连接
@@ -221,6 +247,8 @@ public class DatabaseUtil {
             e.printStackTrace();
         }
         
+        System.out.println("连接池状态: " + getPoolStats());
+        shutdownPool();
         System.out.println("=================================");
     }
 }
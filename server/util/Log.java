@@ -0,0 +1,270 @@
+package server.util;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 服务器日志
+ * 每个模块一个日志对象（Log.get("forum")），级别判断只读一个 volatile 字段，级别关闭时不格式化、不分配对象；
+ * 开启时日志事件放入无锁环形队列，由后台线程统一格式化并写入控制台和日志文件，业务线程之间不再争用 System.out 的锁。
+ *
+ * 调用方式与 SLF4J 相同，使用 {} 占位符而不是字符串拼接，例如 LOG.debug("查询帖子: threadId={}", threadId)。
+ * 参数不超过4个时没有可变参数数组；需要额外计算的参数先用 isDebugEnabled() 判断。
+ *
+ * 配置项（缺省时使用括号中的默认值）：
+ *   log.level            全局日志级别 TRACE/DEBUG/INFO/WARN/ERROR/OFF（INFO）
+ *   log.level.&lt;模块&gt;    单个模块的日志级别，例如 log.level.forum=DEBUG（同全局级别）
+ *   log.file             日志文件路径，为空时只输出到控制台（空）
+ *   log.maxFileSize      单个日志文件的最大字节数，超过后轮转（52428800）
+ *   log.maxFiles         保留的历史日志文件个数（5）
+ *   log.console          是否同时输出到控制台（true）
+ *   log.bufferSize       环形队列容量，取不小于该值的2的幂（8192）
+ */
+public final class Log {
+
+    /**
+     * 日志级别
+     */
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF;
+
+        static Level parse(String text, Level defaultLevel) {
+            if (text == null || text.trim().isEmpty()) {
+                return defaultLevel;
+            }
+            try {
+                return valueOf(text.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("无效的日志级别: " + text + "，使用 " + defaultLevel);
+                return defaultLevel;
+            }
+        }
+    }
+
+    private static final ConcurrentMap<String, Log> LOGGERS = new ConcurrentHashMap<>();
+    private static volatile AsyncLogWriter writer;
+    private static boolean shutdownHookInstalled;
+
+    private final String name;
+    private volatile int threshold;
+
+    private Log(String name, Level level) {
+        this.name = name;
+        this.threshold = level.ordinal();
+    }
+
+    /**
+     * 取得模块的日志对象，同名模块共享一个实例
+     * @param module 模块名，例如 forum、library、db
+     */
+    public static Log get(String module) {
+        Log log = LOGGERS.get(module);
+        if (log != null) {
+            return log;
+        }
+        return LOGGERS.computeIfAbsent(module, m -> new Log(m, configuredLevel(m)));
+    }
+
+    private static Level configuredLevel(String module) {
+        Level global = Level.parse(ConfigUtil.getString("log.level", "INFO"), Level.INFO);
+        return Level.parse(ConfigUtil.getString("log.level." + module, null), global);
+    }
+
+    /**
+     * 运行时调整模块的日志级别，例如临时打开某个模块的DEBUG日志排查问题
+     * @param module 模块名
+     * @param level 新的日志级别
+     */
+    public static void setLevel(String module, Level level) {
+        get(module).threshold = level.ordinal();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Level getLevel() {
+        return Level.values()[threshold];
+    }
+
+    public boolean isTraceEnabled() {
+        return threshold <= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return threshold <= 1;
+    }
+
+    public boolean isInfoEnabled() {
+        return threshold <= 2;
+    }
+
+    public boolean isWarnEnabled() {
+        return threshold <= 3;
+    }
+
+    // ================= TRACE =================
+
+    public void trace(String msg) {
+        if (threshold <= 0) log(Level.TRACE, msg, 0, null, null, null, null, null, null);
+    }
+
+    public void trace(String format, Object a0) {
+        if (threshold <= 0) log(Level.TRACE, format, 1, a0, null, null, null, null, null);
+    }
+
+    public void trace(String format, Object a0, Object a1) {
+        if (threshold <= 0) log(Level.TRACE, format, 2, a0, a1, null, null, null, null);
+    }
+
+    public void trace(String format, Object a0, Object a1, Object a2) {
+        if (threshold <= 0) log(Level.TRACE, format, 3, a0, a1, a2, null, null, null);
+    }
+
+    // ================= DEBUG =================
+
+    public void debug(String msg) {
+        if (threshold <= 1) log(Level.DEBUG, msg, 0, null, null, null, null, null, null);
+    }
+
+    public void debug(String format, Object a0) {
+        if (threshold <= 1) log(Level.DEBUG, format, 1, a0, null, null, null, null, null);
+    }
+
+    public void debug(String format, Object a0, Object a1) {
+        if (threshold <= 1) log(Level.DEBUG, format, 2, a0, a1, null, null, null, null);
+    }
+
+    public void debug(String format, Object a0, Object a1, Object a2) {
+        if (threshold <= 1) log(Level.DEBUG, format, 3, a0, a1, a2, null, null, null);
+    }
+
+    public void debug(String format, Object a0, Object a1, Object a2, Object a3) {
+        if (threshold <= 1) log(Level.DEBUG, format, 4, a0, a1, a2, a3, null, null);
+    }
+
+    public void debug(String format, Object... args) {
+        if (threshold <= 1) log(Level.DEBUG, format, args.length, null, null, null, null, args, null);
+    }
+
+    // ================= INFO =================
+
+    public void info(String msg) {
+        if (threshold <= 2) log(Level.INFO, msg, 0, null, null, null, null, null, null);
+    }
+
+    public void info(String format, Object a0) {
+        if (threshold <= 2) log(Level.INFO, format, 1, a0, null, null, null, null, null);
+    }
+
+    public void info(String format, Object a0, Object a1) {
+        if (threshold <= 2) log(Level.INFO, format, 2, a0, a1, null, null, null, null);
+    }
+
+    public void info(String format, Object a0, Object a1, Object a2) {
+        if (threshold <= 2) log(Level.INFO, format, 3, a0, a1, a2, null, null, null);
+    }
+
+    public void info(String format, Object a0, Object a1, Object a2, Object a3) {
+        if (threshold <= 2) log(Level.INFO, format, 4, a0, a1, a2, a3, null, null);
+    }
+
+    public void info(String format, Object... args) {
+        if (threshold <= 2) log(Level.INFO, format, args.length, null, null, null, null, args, null);
+    }
+
+    // ================= WARN =================
+
+    public void warn(String msg) {
+        if (threshold <= 3) log(Level.WARN, msg, 0, null, null, null, null, null, null);
+    }
+
+    public void warn(String format, Object a0) {
+        if (threshold <= 3) log(Level.WARN, format, 1, a0, null, null, null, null, null);
+    }
+
+    public void warn(String format, Object a0, Object a1) {
+        if (threshold <= 3) log(Level.WARN, format, 2, a0, a1, null, null, null, null);
+    }
+
+    public void warn(String format, Object a0, Object a1, Object a2) {
+        if (threshold <= 3) log(Level.WARN, format, 3, a0, a1, a2, null, null, null);
+    }
+
+    public void warn(String format, Object... args) {
+        if (threshold <= 3) log(Level.WARN, format, args.length, null, null, null, null, args, null);
+    }
+
+    public void warn(String msg, Throwable error) {
+        if (threshold <= 3) log(Level.WARN, msg, 0, null, null, null, null, null, error);
+    }
+
+    // ================= ERROR =================
+
+    public void error(String msg) {
+        if (threshold <= 4) log(Level.ERROR, msg, 0, null, null, null, null, null, null);
+    }
+
+    public void error(String format, Object a0) {
+        if (threshold <= 4) log(Level.ERROR, format, 1, a0, null, null, null, null, null);
+    }
+
+    public void error(String format, Object a0, Object a1) {
+        if (threshold <= 4) log(Level.ERROR, format, 2, a0, a1, null, null, null, null);
+    }
+
+    public void error(String format, Object a0, Object a1, Object a2) {
+        if (threshold <= 4) log(Level.ERROR, format, 3, a0, a1, a2, null, null, null);
+    }
+
+    public void error(String format, Object... args) {
+        if (threshold <= 4) log(Level.ERROR, format, args.length, null, null, null, null, args, null);
+    }
+
+    public void error(String msg, Throwable error) {
+        if (threshold <= 4) log(Level.ERROR, msg, 0, null, null, null, null, null, error);
+    }
+
+    private void log(Level level, String format, int argCount, Object a0, Object a1, Object a2, Object a3,
+                     Object[] more, Throwable error) {
+        writer().publish(level, name, format, argCount, a0, a1, a2, a3, more, error);
+    }
+
+    private static AsyncLogWriter writer() {
+        AsyncLogWriter w = writer;
+        if (w == null) {
+            synchronized (Log.class) {
+                w = writer;
+                if (w == null) {
+                    w = new AsyncLogWriter(
+                            ConfigUtil.getInt("log.bufferSize", 8192),
+                            ConfigUtil.getString("log.file", null),
+                            ConfigUtil.getLong("log.maxFileSize", 50L * 1024 * 1024),
+                            ConfigUtil.getInt("log.maxFiles", 5),
+                            ConfigUtil.getBoolean("log.console", true));
+                    writer = w;
+                    if (!shutdownHookInstalled) {
+                        shutdownHookInstalled = true;
+                        Runtime.getRuntime().addShutdownHook(new Thread(Log::shutdown, "async-log-shutdown"));
+                    }
+                }
+            }
+        }
+        return w;
+    }
+
+    /**
+     * 写出队列中剩余的日志并关闭日志文件，之后的日志会重新启动写入线程
+     */
+    public static void shutdown() {
+        AsyncLogWriter w;
+        synchronized (Log.class) {
+            w = writer;
+            writer = null;
+        }
+        if (w != null) {
+            w.shutdown();
+        }
+    }
+}